@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2018 the original author or authors.
+ * Copyright 2002-2020 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -121,6 +121,12 @@ public class AspectJExpressionPointcut extends AbstractExpressionPointcut
 
 	private transient Map<Method, ShadowMatch> shadowMatchCache = new ConcurrentHashMap<>(32);
 
+	@Nullable
+	private transient ShadowMatchCache sharedShadowMatchCache = ShadowMatchCache.getSharedInstance();
+
+	/** Whether the parsed expression uses the bean() designator, making matches bean-specific */
+	private transient volatile boolean beanDesignatorUsed;
+
 
 	/**
 	 * Create a new default AspectJExpressionPointcut.
@@ -166,6 +172,20 @@ public class AspectJExpressionPointcut extends AbstractExpressionPointcut
 		this.pointcutParameterTypes = types;
 	}
 
+	/**
+	 * Set the cache for sharing shadow match results with other pointcuts
+	 * of the same definition, or {@code null} to keep results local to this
+	 * pointcut instance.
+	 * <p>Default is the {@linkplain ShadowMatchCache#getSharedInstance() shared cache}.
+	 * Pointcuts using the {@code bean()} designator, directly or through a
+	 * referenced named pointcut, never share their results, since those depend
+	 * on the bean being matched.
+	 * @since 5.0.18
+	 */
+	public void setShadowMatchCache(@Nullable ShadowMatchCache shadowMatchCache) {
+		this.sharedShadowMatchCache = shadowMatchCache;
+	}
+
 	@Override
 	public void setBeanFactory(BeanFactory beanFactory) {
 		this.beanFactory = beanFactory;
@@ -454,67 +474,99 @@ public class AspectJExpressionPointcut extends AbstractExpressionPointcut
 		if (shadowMatch == null) {
 			synchronized (this.shadowMatchCache) {
 				// Not found - now check again with full lock...
-				PointcutExpression fallbackExpression = null;
 				shadowMatch = this.shadowMatchCache.get(targetMethod);
 				if (shadowMatch == null) {
-					Method methodToMatch = targetMethod;
-					try {
-						try {
-							shadowMatch = obtainPointcutExpression().matchesMethodExecution(methodToMatch);
-						}
-						catch (ReflectionWorldException ex) {
-							// Failed to introspect target method, probably because it has been loaded
-							// in a special ClassLoader. Let's try the declaring ClassLoader instead...
-							try {
-								fallbackExpression = getFallbackPointcutExpression(methodToMatch.getDeclaringClass());
-								if (fallbackExpression != null) {
-									shadowMatch = fallbackExpression.matchesMethodExecution(methodToMatch);
-								}
-							}
-							catch (ReflectionWorldException ex2) {
-								fallbackExpression = null;
-							}
-						}
-						if (targetMethod != originalMethod && (shadowMatch == null ||
-								(shadowMatch.neverMatches() && Proxy.isProxyClass(targetMethod.getDeclaringClass())))) {
-							// Fall back to the plain original method in case of no resolvable match or a
-							// negative match on a proxy class (which doesn't carry any annotations on its
-							// redeclared methods).
-							methodToMatch = originalMethod;
-							try {
-								shadowMatch = obtainPointcutExpression().matchesMethodExecution(methodToMatch);
-							}
-							catch (ReflectionWorldException ex) {
-								// Could neither introspect the target class nor the proxy class ->
-								// let's try the original method's declaring class before we give up...
-								try {
-									fallbackExpression = getFallbackPointcutExpression(methodToMatch.getDeclaringClass());
-									if (fallbackExpression != null) {
-										shadowMatch = fallbackExpression.matchesMethodExecution(methodToMatch);
-									}
-								}
-								catch (ReflectionWorldException ex2) {
-									fallbackExpression = null;
-								}
-							}
+					ShadowMatchCache sharedCache = getSharedShadowMatchCache();
+					if (sharedCache != null) {
+						ShadowMatchCache.ShadowMatchKey key = new ShadowMatchCache.ShadowMatchKey(
+								resolveExpression(), this.pointcutDeclarationScope, this.pointcutParameterNames,
+								this.pointcutParameterTypes, this.pointcutClassLoader, targetMethod, originalMethod);
+						shadowMatch = sharedCache.get(key);
+						if (shadowMatch == null) {
+							shadowMatch = sharedCache.putIfAbsent(key, computeShadowMatch(targetMethod, originalMethod));
 						}
 					}
-					catch (Throwable ex) {
-						// Possibly AspectJ 1.8.10 encountering an invalid signature
-						logger.debug("PointcutExpression matching rejected target method", ex);
-						fallbackExpression = null;
+					else {
+						shadowMatch = computeShadowMatch(targetMethod, originalMethod);
 					}
-					if (shadowMatch == null) {
-						shadowMatch = new ShadowMatchImpl(org.aspectj.util.FuzzyBoolean.NO, null, null, null);
+					this.shadowMatchCache.put(targetMethod, shadowMatch);
+				}
+			}
+		}
+		return shadowMatch;
+	}
+
+	/**
+	 * Return the cache to share shadow matches through, or {@code null}
+	 * if the results of this pointcut must not be shared.
+	 */
+	@Nullable
+	private ShadowMatchCache getSharedShadowMatchCache() {
+		if (this.sharedShadowMatchCache == null || getClass() != AspectJExpressionPointcut.class) {
+			return null;
+		}
+		// Parsing the expression detects the bean() designator
+		obtainPointcutExpression();
+		return (this.beanDesignatorUsed ? null : this.sharedShadowMatchCache);
+	}
+
+	private ShadowMatch computeShadowMatch(Method targetMethod, Method originalMethod) {
+		PointcutExpression fallbackExpression = null;
+		ShadowMatch shadowMatch = null;
+		Method methodToMatch = targetMethod;
+		try {
+			try {
+				shadowMatch = obtainPointcutExpression().matchesMethodExecution(methodToMatch);
+			}
+			catch (ReflectionWorldException ex) {
+				// Failed to introspect target method, probably because it has been loaded
+				// in a special ClassLoader. Let's try the declaring ClassLoader instead...
+				try {
+					fallbackExpression = getFallbackPointcutExpression(methodToMatch.getDeclaringClass());
+					if (fallbackExpression != null) {
+						shadowMatch = fallbackExpression.matchesMethodExecution(methodToMatch);
+					}
+				}
+				catch (ReflectionWorldException ex2) {
+					fallbackExpression = null;
+				}
+			}
+			if (targetMethod != originalMethod && (shadowMatch == null ||
+					(shadowMatch.neverMatches() && Proxy.isProxyClass(targetMethod.getDeclaringClass())))) {
+				// Fall back to the plain original method in case of no resolvable match or a
+				// negative match on a proxy class (which doesn't carry any annotations on its
+				// redeclared methods).
+				methodToMatch = originalMethod;
+				try {
+					shadowMatch = obtainPointcutExpression().matchesMethodExecution(methodToMatch);
+				}
+				catch (ReflectionWorldException ex) {
+					// Could neither introspect the target class nor the proxy class ->
+					// let's try the original method's declaring class before we give up...
+					try {
+						fallbackExpression = getFallbackPointcutExpression(methodToMatch.getDeclaringClass());
+						if (fallbackExpression != null) {
+							shadowMatch = fallbackExpression.matchesMethodExecution(methodToMatch);
+						}
 					}
-					else if (shadowMatch.maybeMatches() && fallbackExpression != null) {
-						shadowMatch = new DefensiveShadowMatch(shadowMatch,
-								fallbackExpression.matchesMethodExecution(methodToMatch));
+					catch (ReflectionWorldException ex2) {
+						fallbackExpression = null;
 					}
-					this.shadowMatchCache.put(targetMethod, shadowMatch);
 				}
 			}
 		}
+		catch (Throwable ex) {
+			// Possibly AspectJ 1.8.10 encountering an invalid signature
+			logger.debug("PointcutExpression matching rejected target method", ex);
+			fallbackExpression = null;
+		}
+		if (shadowMatch == null) {
+			shadowMatch = new ShadowMatchImpl(org.aspectj.util.FuzzyBoolean.NO, null, null, null);
+		}
+		else if (shadowMatch.maybeMatches() && fallbackExpression != null) {
+			shadowMatch = new DefensiveShadowMatch(shadowMatch,
+					fallbackExpression.matchesMethodExecution(methodToMatch));
+		}
 		return shadowMatch;
 	}
 
@@ -578,6 +630,7 @@ public class AspectJExpressionPointcut extends AbstractExpressionPointcut
 		// Initialize transient fields.
 		// pointcutExpression will be initialized lazily by checkReadyToMatch()
 		this.shadowMatchCache = new ConcurrentHashMap<>(32);
+		this.sharedShadowMatchCache = ShadowMatchCache.getSharedInstance();
 	}
 
 
@@ -600,6 +653,7 @@ public class AspectJExpressionPointcut extends AbstractExpressionPointcut
 
 		@Override
 		public ContextBasedMatcher parse(String expression) {
+			beanDesignatorUsed = true;
 			return new BeanContextMatcher(expression);
 		}
 	}
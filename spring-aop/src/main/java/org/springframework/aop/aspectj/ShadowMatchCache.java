@@ -0,0 +1,290 @@
+/*
+ * Copyright 2002-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.aop.aspectj;
+
+import java.lang.reflect.Method;
+import java.util.Arrays;
+
+import org.aspectj.weaver.tools.ShadowMatch;
+
+import org.springframework.core.SpringProperties;
+import org.springframework.lang.Nullable;
+import org.springframework.util.ConcurrentReferenceCache;
+import org.springframework.util.ConcurrentReferenceHashMap.ReferenceType;
+import org.springframework.util.ObjectUtils;
+import org.springframework.util.StringUtils;
+
+/**
+ * Bounded, thread-safe cache of AspectJ {@link ShadowMatch} results, keyed by
+ * pointcut expression, declaration scope, pointcut parameters, pointcut
+ * ClassLoader and method, for sharing between {@link AspectJExpressionPointcut}
+ * instances with the same definition, e.g. across application contexts.
+ *
+ * <p>Cached shadow matches are softly referenced, so that they can be reclaimed
+ * under memory pressure along with the AspectJ type structures they refer to.
+ * Since cache keys refer to the pointcut ClassLoader and the matched methods,
+ * the entries for an application's ClassLoader are removed once its application
+ * context is closed or its AspectJ auto-proxy creator is destroyed; see
+ * {@link #clearClassLoader}.
+ *
+ * <p>The cache reports its hit, miss and eviction counts as well as its size.
+ *
+ * @since 5.0.18
+ * @see #getSharedInstance()
+ * @see AspectJExpressionPointcut#setShadowMatchCache
+ */
+public class ShadowMatchCache {
+
+	/**
+	 * System property that specifies the maximum number of shadow matches held by
+	 * the {@link #getSharedInstance() shared cache}. Every pointcut gets matched
+	 * against the methods of every bean class that its class filter accepts, so
+	 * large applications (e.g. thousands of beans and hundreds of advisors) may
+	 * need a higher limit for shadow matches to be reused across contexts.
+	 * <p>The property may also be set in a "spring.properties" file; the default
+	 * is {@link #DEFAULT_CACHE_LIMIT}.
+	 */
+	public static final String SHARED_CACHE_LIMIT_PROPERTY_NAME = "spring.aop.shadowmatch.cache.limit";
+
+	/** Default maximum number of shadow matches held by the shared cache: 65536. */
+	public static final int DEFAULT_CACHE_LIMIT = 65536;
+
+	private static final ShadowMatchCache sharedInstance = new ShadowMatchCache(getSharedCacheLimit());
+
+
+	private final ConcurrentReferenceCache<ShadowMatchKey, ShadowMatch> shadowMatchCache;
+
+
+	/**
+	 * Create a new {@code ShadowMatchCache} holding at most the given number of shadow matches.
+	 * @param cacheLimit the maximum number of shadow matches to cache
+	 * (or {@link ConcurrentReferenceCache#UNBOUNDED})
+	 */
+	public ShadowMatchCache(int cacheLimit) {
+		this.shadowMatchCache = new ConcurrentReferenceCache<>(cacheLimit, ReferenceType.SOFT);
+	}
+
+
+	/**
+	 * Return the shared cache used by {@link AspectJExpressionPointcut} instances
+	 * by default, holding at most the number of shadow matches specified by the
+	 * {@value #SHARED_CACHE_LIMIT_PROPERTY_NAME} property or {@link #DEFAULT_CACHE_LIMIT}.
+	 */
+	public static ShadowMatchCache getSharedInstance() {
+		return sharedInstance;
+	}
+
+
+	/**
+	 * Return the cached shadow match for the given key, if any.
+	 */
+	@Nullable
+	ShadowMatch get(ShadowMatchKey key) {
+		return this.shadowMatchCache.get(key);
+	}
+
+	/**
+	 * Cache the given shadow match unless another thread got there first.
+	 * @return the shadow match to use: the given one or the one cached before
+	 */
+	ShadowMatch putIfAbsent(ShadowMatchKey key, ShadowMatch shadowMatch) {
+		ShadowMatch existing = this.shadowMatchCache.putIfAbsent(key, shadowMatch);
+		return (existing != null ? existing : shadowMatch);
+	}
+
+	/**
+	 * Remove all shadow matches for pointcuts or methods of the given ClassLoader
+	 * or any ClassLoader underneath it, e.g. when an application using that
+	 * ClassLoader shuts down.
+	 * @param classLoader the ClassLoader to remove shadow matches for
+	 * @see #clearClassLoader
+	 */
+	public void evict(@Nullable ClassLoader classLoader) {
+		this.shadowMatchCache.keySet().removeIf(key -> key.isUnderneathClassLoader(classLoader));
+	}
+
+	/**
+	 * Remove all shadow matches from this cache.
+	 */
+	public void clear() {
+		this.shadowMatchCache.clear();
+	}
+
+	/**
+	 * Return the number of shadow matches currently held by this cache.
+	 */
+	public int size() {
+		return this.shadowMatchCache.size();
+	}
+
+	/**
+	 * Return the number of lookups that found a cached shadow match.
+	 */
+	public long getHitCount() {
+		return this.shadowMatchCache.getHitCount();
+	}
+
+	/**
+	 * Return the number of lookups that did not find a cached shadow match.
+	 */
+	public long getMissCount() {
+		return this.shadowMatchCache.getMissCount();
+	}
+
+	/**
+	 * Return the number of shadow matches evicted because the cache limit was exceeded.
+	 */
+	public long getEvictionCount() {
+		return this.shadowMatchCache.getEvictionCount();
+	}
+
+	@Override
+	public String toString() {
+		return "ShadowMatchCache [size = " + size() + ", hits = " + getHitCount() +
+				", misses = " + getMissCount() + ", evictions = " + getEvictionCount() + "]";
+	}
+
+
+	/**
+	 * Remove the shadow matches of the {@link #getSharedInstance() shared cache}
+	 * for pointcuts or methods of the given ClassLoader or any ClassLoader
+	 * underneath it, so that the cache does not keep an application's ClassLoader
+	 * alive after the application has been shut down.
+	 * <p>Shadow matches for the ClassLoader of this class or any of its parents
+	 * are retained, since the shared cache cannot outlive those ClassLoaders anyway.
+	 * @param classLoader the ClassLoader to clear the shared cache for
+	 * @see #evict(ClassLoader)
+	 */
+	public static void clearClassLoader(@Nullable ClassLoader classLoader) {
+		if (!isUnderneathClassLoader(ShadowMatchCache.class.getClassLoader(), classLoader)) {
+			sharedInstance.evict(classLoader);
+		}
+	}
+
+	private static int getSharedCacheLimit() {
+		String limit = SpringProperties.getProperty(SHARED_CACHE_LIMIT_PROPERTY_NAME);
+		if (StringUtils.hasText(limit)) {
+			try {
+				int value = Integer.parseInt(limit.trim());
+				if (value > 0) {
+					return value;
+				}
+			}
+			catch (NumberFormatException ex) {
+				// ignore
+			}
+		}
+		return DEFAULT_CACHE_LIMIT;
+	}
+
+	/**
+	 * Check whether the given ClassLoader is underneath the given parent,
+	 * that is, whether the parent is within the candidate's hierarchy.
+	 */
+	private static boolean isUnderneathClassLoader(@Nullable ClassLoader candidate, @Nullable ClassLoader parent) {
+		if (candidate == parent) {
+			return true;
+		}
+		if (candidate == null) {
+			return false;
+		}
+		ClassLoader classLoaderToCheck = candidate;
+		while (classLoaderToCheck != null) {
+			classLoaderToCheck = classLoaderToCheck.getParent();
+			if (classLoaderToCheck == parent) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+
+	/**
+	 * Cache key for a shadow match: everything that the outcome of matching
+	 * a given method against a pointcut expression depends on.
+	 */
+	static final class ShadowMatchKey {
+
+		private final String expression;
+
+		@Nullable
+		private final Class<?> declarationScope;
+
+		private final String[] parameterNames;
+
+		private final Class<?>[] parameterTypes;
+
+		@Nullable
+		private final ClassLoader classLoader;
+
+		private final Method targetMethod;
+
+		private final Method originalMethod;
+
+		ShadowMatchKey(String expression, @Nullable Class<?> declarationScope, String[] parameterNames,
+				Class<?>[] parameterTypes, @Nullable ClassLoader classLoader, Method targetMethod,
+				Method originalMethod) {
+
+			this.expression = expression;
+			this.declarationScope = declarationScope;
+			this.parameterNames = parameterNames;
+			this.parameterTypes = parameterTypes;
+			this.classLoader = classLoader;
+			this.targetMethod = targetMethod;
+			this.originalMethod = originalMethod;
+		}
+
+		@Override
+		public boolean equals(Object other) {
+			if (this == other) {
+				return true;
+			}
+			if (!(other instanceof ShadowMatchKey)) {
+				return false;
+			}
+			ShadowMatchKey otherKey = (ShadowMatchKey) other;
+			return (this.expression.equals(otherKey.expression) &&
+					this.declarationScope == otherKey.declarationScope &&
+					Arrays.equals(this.parameterNames, otherKey.parameterNames) &&
+					Arrays.equals(this.parameterTypes, otherKey.parameterTypes) &&
+					this.classLoader == otherKey.classLoader &&
+					this.targetMethod.equals(otherKey.targetMethod) &&
+					this.originalMethod.equals(otherKey.originalMethod));
+		}
+
+		@Override
+		public int hashCode() {
+			int result = this.expression.hashCode();
+			result = 29 * result + ObjectUtils.nullSafeHashCode(this.declarationScope);
+			result = 29 * result + this.targetMethod.hashCode();
+			return result;
+		}
+
+		/**
+		 * Determine whether this key refers to the given ClassLoader or any
+		 * ClassLoader underneath it, through the pointcut or the matched methods.
+		 */
+		boolean isUnderneathClassLoader(@Nullable ClassLoader classLoader) {
+			return (ShadowMatchCache.isUnderneathClassLoader(this.classLoader, classLoader) ||
+					(this.declarationScope != null &&
+							ShadowMatchCache.isUnderneathClassLoader(this.declarationScope.getClassLoader(), classLoader)) ||
+					ShadowMatchCache.isUnderneathClassLoader(this.targetMethod.getDeclaringClass().getClassLoader(), classLoader) ||
+					ShadowMatchCache.isUnderneathClassLoader(this.originalMethod.getDeclaringClass().getClassLoader(), classLoader));
+		}
+	}
+
+}
@@ -12,14 +12,18 @@ import org.springframework.aop.Advisor;
 import org.springframework.aop.aspectj.AbstractAspectJAdvice;
 import org.springframework.aop.aspectj.AspectJPointcutAdvisor;
 import org.springframework.aop.aspectj.AspectJProxyUtils;
+import org.springframework.aop.aspectj.ShadowMatchCache;
 import org.springframework.aop.framework.autoproxy.AbstractAdvisorAutoProxyCreator;
 import org.springframework.aop.interceptor.ExposeInvocationInterceptor;
+import org.springframework.beans.factory.BeanFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.config.ConfigurableBeanFactory;
 import org.springframework.core.Ordered;
 import org.springframework.util.ClassUtils;
 
 // 公开了AspectJ的调用上下文，并弄清楚来自同一切面的多个Advisor在AspectJ中的优先级规则
 @SuppressWarnings("serial")
-public class AspectJAwareAdvisorAutoProxyCreator extends AbstractAdvisorAutoProxyCreator {
+public class AspectJAwareAdvisorAutoProxyCreator extends AbstractAdvisorAutoProxyCreator implements DisposableBean {
 
 	private static final Comparator<Advisor> DEFAULT_PRECEDENCE_COMPARATOR = new AspectJPrecedenceComparator();
 
@@ -62,6 +66,21 @@ public class AspectJAwareAdvisorAutoProxyCreator extends AbstractAdvisorAutoProx
 		return super.shouldSkip(beanClass, beanName);
 	}
 
+	/**
+	 * Remove the shadow matches for the bean ClassLoader of the factory from the
+	 * {@link ShadowMatchCache#getSharedInstance() shared ShadowMatchCache}, so that
+	 * the ClassLoader can be garbage-collected once the application has been closed.
+	 * @since 5.0.18
+	 * @see ShadowMatchCache#clearClassLoader
+	 */
+	@Override
+	public void destroy() {
+		BeanFactory beanFactory = getBeanFactory();
+		if (beanFactory instanceof ConfigurableBeanFactory) {
+			ShadowMatchCache.clearClassLoader(((ConfigurableBeanFactory) beanFactory).getBeanClassLoader());
+		}
+	}
+
 
 	/**
 	 * Implements AspectJ PartialComparable interface for defining partial orderings.
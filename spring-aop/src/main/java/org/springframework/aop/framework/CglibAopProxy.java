@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2019 the original author or authors.
+ * Copyright 2002-2020 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -40,6 +40,7 @@ import org.springframework.aop.TargetSource;
 import org.springframework.aop.support.AopUtils;
 import org.springframework.cglib.core.ClassGenerator;
 import org.springframework.cglib.core.CodeGenerationException;
+import org.springframework.cglib.core.NamingPolicy;
 import org.springframework.cglib.core.SpringNamingPolicy;
 import org.springframework.cglib.proxy.Callback;
 import org.springframework.cglib.proxy.CallbackFilter;
@@ -165,14 +166,7 @@ class CglibAopProxy implements AopProxy, Serializable {
 			Class<?> rootClass = this.advised.getTargetClass();
 			Assert.state(rootClass != null, "Target class must be available for creating a CGLIB proxy");
 
-			Class<?> proxySuperClass = rootClass;
-			if (ClassUtils.isCglibProxyClass(rootClass)) {
-				proxySuperClass = rootClass.getSuperclass();
-				Class<?>[] additionalInterfaces = rootClass.getInterfaces();
-				for (Class<?> additionalInterface : additionalInterfaces) {
-					this.advised.addInterface(additionalInterface);
-				}
-			}
+			Class<?> proxySuperClass = determineProxySuperClass(rootClass);
 
 			// Validate the class, writing log messages as necessary.
 			validateClassIfNecessary(proxySuperClass, classLoader);
@@ -188,7 +182,7 @@ class CglibAopProxy implements AopProxy, Serializable {
 			}
 			enhancer.setSuperclass(proxySuperClass);
 			enhancer.setInterfaces(AopProxyUtils.completeProxiedInterfaces(this.advised));
-			enhancer.setNamingPolicy(SpringNamingPolicy.INSTANCE);
+			enhancer.setNamingPolicy(getNamingPolicy());
 			enhancer.setStrategy(new ClassLoaderAwareUndeclaredThrowableStrategy(classLoader));
 
 			Callback[] callbacks = getCallbacks(rootClass);
@@ -215,6 +209,44 @@ class CglibAopProxy implements AopProxy, Serializable {
 		}
 	}
 
+	/**
+	 * Determine the superclass of the proxy class for the given target class.
+	 * @param rootClass the target class
+	 * @return the class to extend
+	 * @since 5.0.18
+	 */
+	Class<?> determineProxySuperClass(Class<?> rootClass) {
+		Class<?> proxySuperClass = rootClass;
+		if (ClassUtils.isCglibProxyClass(rootClass)) {
+			proxySuperClass = rootClass.getSuperclass();
+			Class<?>[] additionalInterfaces = rootClass.getInterfaces();
+			for (Class<?> additionalInterface : additionalInterfaces) {
+				this.advised.addInterface(additionalInterface);
+			}
+		}
+		return proxySuperClass;
+	}
+
+	/**
+	 * Determine the naming policy for the generated proxy class.
+	 * @return the naming policy to use
+	 * @since 5.0.18
+	 */
+	NamingPolicy getNamingPolicy() {
+		return SpringNamingPolicy.INSTANCE;
+	}
+
+	/**
+	 * Determine the methods to create fixed advice chains for, in case of
+	 * a static target and a frozen advice chain.
+	 * @param rootClass the target class
+	 * @return the methods that the proxy class may override
+	 * @since 5.0.18
+	 */
+	Method[] getFixedChainMethods(Class<?> rootClass) {
+		return rootClass.getMethods();
+	}
+
 	protected Object createProxyClassAndInstance(Enhancer enhancer, Callback[] callbacks) {
 		enhancer.setInterceptDuringConstruction(false);
 		enhancer.setCallbacks(callbacks);
@@ -321,7 +353,7 @@ class CglibAopProxy implements AopProxy, Serializable {
 		// then we can make some optimizations by sending the AOP calls
 		// direct to the target using the fixed chain for that method.
 		if (isStatic && isFrozen) {
-			Method[] methods = rootClass.getMethods();
+			Method[] methods = getFixedChainMethods(rootClass);
 			Callback[] fixedCallbacks = new Callback[methods.length];
 			this.fixedInterceptorMap = new HashMap<>(methods.length);
 
@@ -331,7 +363,7 @@ class CglibAopProxy implements AopProxy, Serializable {
 				List<Object> chain = this.advised.getInterceptorsAndDynamicInterceptionAdvice(method, rootClass);
 				fixedCallbacks[x] = new FixedChainStaticTargetInterceptor(
 						chain, this.advised.getTargetSource().getTarget(), this.advised.getTargetClass());
-				this.fixedInterceptorMap.put(methods.toString(), x);
+				this.fixedInterceptorMap.put(method.toString(), x);
 			}
 
 			// Now copy both the callbacks from mainCallbacks
@@ -623,6 +655,10 @@ class CglibAopProxy implements AopProxy, Serializable {
 		@Nullable
 		private final Class<?> targetClass;
 
+		/** The advice chain in pre-linked form, once linked for the intercepted method */
+		@Nullable
+		private transient volatile InterceptorChain interceptorChain;
+
 		public FixedChainStaticTargetInterceptor(
 				List<Object> adviceChain, @Nullable Object target, @Nullable Class<?> targetClass) {
 
@@ -634,8 +670,13 @@ class CglibAopProxy implements AopProxy, Serializable {
 		@Override
 		@Nullable
 		public Object intercept(Object proxy, Method method, Object[] args, MethodProxy methodProxy) throws Throwable {
+			InterceptorChain chain = this.interceptorChain;
+			if (chain == null) {
+				chain = new InterceptorChain(method, this.adviceChain);
+				this.interceptorChain = chain;
+			}
 			MethodInvocation invocation = new CglibMethodInvocation(
-					proxy, this.target, method, args, this.targetClass, this.adviceChain, methodProxy);
+					proxy, this.target, method, args, this.targetClass, chain, methodProxy);
 			// If we get here, we need to create a MethodInvocation.
 			Object retVal = invocation.proceed();
 			retVal = processReturnType(proxy, this.target, method, retVal);
@@ -672,7 +713,7 @@ class CglibAopProxy implements AopProxy, Serializable {
 				// Get as late as possible to minimize the time we "own" the target, in case it comes from a pool...
 				target = targetSource.getTarget();
 				Class<?> targetClass = (target != null ? target.getClass() : null);
-				List<Object> chain = this.advised.getInterceptorsAndDynamicInterceptionAdvice(method, targetClass);
+				InterceptorChain chain = this.advised.getInterceptorChain(method, targetClass);
 				Object retVal;
 				// Check whether we only have one InvokerInterceptor: that is,
 				// no real advice, but just reflective invocation of the target.
@@ -730,9 +771,9 @@ class CglibAopProxy implements AopProxy, Serializable {
 
 		public CglibMethodInvocation(Object proxy, @Nullable Object target, Method method,
 				Object[] arguments, @Nullable Class<?> targetClass,
-				List<Object> interceptorsAndDynamicMethodMatchers, MethodProxy methodProxy) {
+				InterceptorChain interceptorChain, MethodProxy methodProxy) {
 
-			super(proxy, target, method, arguments, targetClass, interceptorsAndDynamicMethodMatchers);
+			super(proxy, target, method, arguments, targetClass, interceptorChain);
 			this.methodProxy = methodProxy;
 			this.publicMethod = Modifier.isPublic(method.getModifiers());
 		}
@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2015 the original author or authors.
+ * Copyright 2002-2020 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -36,6 +36,11 @@ import org.springframework.aop.SpringProxy;
  * <p>In general, specify {@code proxyTargetClass} to enforce a CGLIB proxy,
  * or specify one or more interfaces to use a JDK dynamic proxy.
  *
+ * <p>If the "spring.aop.fused-proxies" property is set to "true", frozen
+ * interface-based configurations with a static target and static pointcuts
+ * get a CGLIB-generated implementation of their interfaces instead of a JDK
+ * dynamic proxy, with advice chains bound per method.
+ *
  * @author Rod Johnson
  * @author Juergen Hoeller
  * @since 12.03.2004
@@ -68,6 +73,9 @@ public class DefaultAopProxyFactory implements AopProxyFactory, Serializable {
 			// 2、对类生成代理使用CGLIB
 			return new ObjenesisCglibAopProxy(config);
 		}
+		else if (FusedAopProxy.isApplicable(config)) {
+			return new FusedAopProxy(config);
+		}
 		else {
 			return new JdkDynamicAopProxy(config);
 		}
@@ -0,0 +1,175 @@
+/*
+ * Copyright 2002-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.aop.framework;
+
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.springframework.aop.Advisor;
+import org.springframework.aop.PointcutAdvisor;
+import org.springframework.aop.support.AopUtils;
+import org.springframework.cglib.core.NamingPolicy;
+import org.springframework.cglib.core.Predicate;
+import org.springframework.cglib.core.SpringNamingPolicy;
+import org.springframework.core.SpringProperties;
+import org.springframework.lang.Nullable;
+import org.springframework.util.ClassUtils;
+
+/**
+ * CGLIB-based {@link AopProxy} for interface-based proxies of frozen
+ * configurations with a static target and static pointcuts only, as an
+ * alternative to a {@link JdkDynamicAopProxy}.
+ *
+ * <p>The generated class implements the proxied interfaces directly, with each
+ * method bound to a fixed callback when the proxy class is generated: methods
+ * without advice dispatch straight to the target, and advised methods run their
+ * method-specific advice chain without any per-call chain lookup or pointcut
+ * evaluation. Proxies behave like JDK dynamic proxies otherwise, implementing
+ * the proxied interfaces only.
+ *
+ * <p>Since a fused proxy does not extend the target class, its class name does
+ * not carry the CGLIB class separator: {@link ClassUtils#getUserClass} returns
+ * the proxy class itself, as for a JDK dynamic proxy, and
+ * {@link AopUtils#isCglibProxy} as well as {@link AopUtils#isJdkDynamicProxy}
+ * return {@code false}, while {@link AopUtils#isAopProxy} returns {@code true}.
+ *
+ * <p>Only used by {@link DefaultAopProxyFactory} if the
+ * {@value #FUSED_PROXIES_PROPERTY_NAME} property is set to "true".
+ *
+ * @since 5.0.18
+ * @see #isEligible(AdvisedSupport)
+ */
+@SuppressWarnings("serial")
+class FusedAopProxy extends CglibAopProxy {
+
+	/**
+	 * System property that instructs Spring to create fused proxies for eligible
+	 * interface-based proxy configurations instead of JDK dynamic proxies.
+	 * @see SpringProperties
+	 */
+	public static final String FUSED_PROXIES_PROPERTY_NAME = "spring.aop.fused-proxies";
+
+	private static final boolean fusedProxiesEnabled = SpringProperties.getFlag(FUSED_PROXIES_PROPERTY_NAME);
+
+
+	/**
+	 * Create a new FusedAopProxy for the given AOP configuration.
+	 * @param config the AOP configuration as AdvisedSupport object
+	 */
+	public FusedAopProxy(AdvisedSupport config) {
+		super(config);
+	}
+
+
+	/**
+	 * Return whether fused proxies are enabled and the given configuration
+	 * is eligible for them.
+	 * @param config the AOP configuration to check
+	 * @see #isEligible(AdvisedSupport)
+	 */
+	static boolean isApplicable(AdvisedSupport config) {
+		return (fusedProxiesEnabled && isEligible(config));
+	}
+
+	/**
+	 * Return whether the given configuration is eligible for a fused proxy:
+	 * a frozen configuration with a static target that does not expose the
+	 * proxy, with public proxy interfaces and without any runtime pointcuts.
+	 * @param config the AOP configuration to check
+	 */
+	static boolean isEligible(AdvisedSupport config) {
+		if (!config.isFrozen() || config.isExposeProxy() ||
+				!config.getTargetSource().isStatic() || config.getTargetClass() == null) {
+			return false;
+		}
+		for (Class<?> ifc : config.getProxiedInterfaces()) {
+			if (!Modifier.isPublic(ifc.getModifiers())) {
+				return false;
+			}
+		}
+		for (Advisor advisor : config.getAdvisors()) {
+			if (advisor instanceof PointcutAdvisor &&
+					((PointcutAdvisor) advisor).getPointcut().getMethodMatcher().isRuntime()) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+
+	/**
+	 * Implement the proxied interfaces on top of {@code Object}, like a JDK proxy.
+	 */
+	@Override
+	Class<?> determineProxySuperClass(Class<?> rootClass) {
+		return Object.class;
+	}
+
+	/**
+	 * Name proxy classes without the CGLIB class separator, since they do not
+	 * extend the target class.
+	 */
+	@Override
+	NamingPolicy getNamingPolicy() {
+		return FusedProxyNamingPolicy.INSTANCE;
+	}
+
+	/**
+	 * Bind fixed advice chains to the methods of the proxied interfaces.
+	 */
+	@Override
+	Method[] getFixedChainMethods(Class<?> rootClass) {
+		List<Method> methods = new ArrayList<>();
+		for (Class<?> ifc : AopProxyUtils.completeProxiedInterfaces(this.advised)) {
+			Collections.addAll(methods, ifc.getMethods());
+		}
+		return methods.toArray(new Method[0]);
+	}
+
+
+	/**
+	 * CGLIB naming policy for fused proxy classes: the name of the first proxied
+	 * interface, followed by a "$FusedBySpringCGLIB$" tag and a hash of the class
+	 * generation key, in line with {@link SpringNamingPolicy} but without the
+	 * "$$" separator that marks CGLIB subclasses.
+	 */
+	private static class FusedProxyNamingPolicy implements NamingPolicy {
+
+		static final FusedProxyNamingPolicy INSTANCE = new FusedProxyNamingPolicy();
+
+		@Override
+		public String getClassName(@Nullable String prefix, String source, Object key, Predicate names) {
+			if (prefix == null) {
+				prefix = "org.springframework.cglib.empty.Object";
+			}
+			else if (prefix.startsWith("java")) {
+				prefix = "$" + prefix;
+			}
+			String base = prefix + "$FusedBySpringCGLIB$" + Integer.toHexString(key.hashCode());
+			String attempt = base;
+			int index = 2;
+			while (names.evaluate(attempt)) {
+				attempt = base + "_" + index++;
+			}
+			return attempt;
+		}
+	}
+
+}
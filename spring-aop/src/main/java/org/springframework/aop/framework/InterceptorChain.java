@@ -0,0 +1,186 @@
+/*
+ * Copyright 2002-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.aop.framework;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.List;
+import java.util.Map;
+
+import org.aopalliance.intercept.MethodInterceptor;
+
+import org.springframework.aop.MethodMatcher;
+import org.springframework.aop.support.AopUtils;
+import org.springframework.core.BridgeMethodResolver;
+import org.springframework.lang.Nullable;
+import org.springframework.util.ClassUtils;
+import org.springframework.util.ConcurrentReferenceHashMap;
+import org.springframework.util.ReflectionUtils;
+
+/**
+ * Internal framework class, holding the advisor chain for a single proxied
+ * method in pre-linked form, as cached by {@link AdvisedSupport#getInterceptorChain}.
+ *
+ * <p>The interceptors are kept in an array, with the method matchers of
+ * dynamic interceptors in a parallel array (if any), so that a
+ * {@link ReflectiveMethodInvocation} can walk the chain without list access
+ * and type checks per step. The target method is invoked through a
+ * {@link MethodHandle} whenever target and arguments match its signature,
+ * falling back to reflection otherwise.
+ *
+ * @since 5.0.18
+ * @see AdvisedSupport#getInterceptorsAndDynamicInterceptionAdvice
+ */
+final class InterceptorChain {
+
+	/** Target method handles per method, or NO_HANDLE if reflection is to be used */
+	private static final Map<Method, Object> targetHandleCache = new ConcurrentReferenceHashMap<>(256);
+
+	private static final Object NO_HANDLE = new Object();
+
+
+	/** The chain as List of MethodInterceptors and InterceptorAndDynamicMethodMatchers */
+	final List<Object> interceptorList;
+
+	final MethodInterceptor[] interceptors;
+
+	/** Method matchers per dynamic interceptor index, or {@code null} for a static chain */
+	@Nullable
+	final MethodMatcher[] dynamicMethodMatchers;
+
+	/** The bridged method to invoke on the target */
+	final Method method;
+
+	private final Class<?>[] parameterTypes;
+
+	@Nullable
+	private final MethodHandle targetHandle;
+
+
+	/**
+	 * Create a new pre-linked chain for the given method.
+	 * @param method the proxied method
+	 * @param interceptorsAndDynamicMethodMatchers the advisor chain as determined
+	 * by the {@link AdvisorChainFactory}
+	 */
+	InterceptorChain(Method method, List<Object> interceptorsAndDynamicMethodMatchers) {
+		this.interceptorList = interceptorsAndDynamicMethodMatchers;
+		int size = interceptorsAndDynamicMethodMatchers.size();
+		this.interceptors = new MethodInterceptor[size];
+		MethodMatcher[] methodMatchers = null;
+		for (int i = 0; i < size; i++) {
+			Object interceptorOrInterceptionAdvice = interceptorsAndDynamicMethodMatchers.get(i);
+			if (interceptorOrInterceptionAdvice instanceof InterceptorAndDynamicMethodMatcher) {
+				InterceptorAndDynamicMethodMatcher dm = (InterceptorAndDynamicMethodMatcher) interceptorOrInterceptionAdvice;
+				if (methodMatchers == null) {
+					methodMatchers = new MethodMatcher[size];
+				}
+				methodMatchers[i] = dm.methodMatcher;
+				this.interceptors[i] = dm.interceptor;
+			}
+			else {
+				this.interceptors[i] = (MethodInterceptor) interceptorOrInterceptionAdvice;
+			}
+		}
+		this.dynamicMethodMatchers = methodMatchers;
+		this.method = BridgeMethodResolver.findBridgedMethod(method);
+		this.parameterTypes = this.method.getParameterTypes();
+		this.targetHandle = getTargetHandle(this.method);
+	}
+
+
+	/**
+	 * Return whether this chain does not contain any interceptors.
+	 */
+	boolean isEmpty() {
+		return (this.interceptors.length == 0);
+	}
+
+	/**
+	 * Invoke the target method on the given target with the given arguments,
+	 * with the same exception semantics as
+	 * {@link AopUtils#invokeJoinpointUsingReflection}.
+	 * @param target the target object
+	 * @param arguments the arguments for the method
+	 * @return the return value of the method, if any
+	 * @throws Throwable if thrown by the target method
+	 */
+	@Nullable
+	Object invokeTarget(@Nullable Object target, @Nullable Object[] arguments) throws Throwable {
+		MethodHandle targetHandle = this.targetHandle;
+		if (targetHandle != null && isInvocable(target, arguments)) {
+			return (Object) targetHandle.invokeExact(target, arguments);
+		}
+		return AopUtils.invokeJoinpointUsingReflection(target, this.method, arguments);
+	}
+
+	/**
+	 * Check the given target and arguments up front, letting reflection
+	 * raise its usual exceptions for mismatches.
+	 */
+	private boolean isInvocable(@Nullable Object target, @Nullable Object[] arguments) {
+		if (!this.method.getDeclaringClass().isInstance(target)) {
+			return false;
+		}
+		int argumentCount = (arguments != null ? arguments.length : 0);
+		if (argumentCount != this.parameterTypes.length) {
+			return false;
+		}
+		for (int i = 0; i < argumentCount; i++) {
+			if (!ClassUtils.isAssignableValue(this.parameterTypes[i], arguments[i])) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+
+	/**
+	 * Return a shared handle of type {@code (Object, Object[])Object}
+	 * for the given method, or {@code null} if none can be created.
+	 */
+	@Nullable
+	private static MethodHandle getTargetHandle(Method method) {
+		Object handle = targetHandleCache.get(method);
+		if (handle == null) {
+			handle = createTargetHandle(method);
+			targetHandleCache.put(method, handle);
+		}
+		return (handle != NO_HANDLE ? (MethodHandle) handle : null);
+	}
+
+	private static Object createTargetHandle(Method method) {
+		if (Modifier.isStatic(method.getModifiers())) {
+			return NO_HANDLE;
+		}
+		try {
+			ReflectionUtils.makeAccessible(method);
+			int parameterCount = method.getParameterCount();
+			return MethodHandles.lookup().unreflect(method).asFixedArity()
+					.asType(MethodType.genericMethodType(parameterCount + 1))
+					.asSpreader(Object[].class, parameterCount);
+		}
+		catch (Throwable ex) {
+			// Not accessible or not adaptable: keep using reflection
+			return NO_HANDLE;
+		}
+	}
+
+}
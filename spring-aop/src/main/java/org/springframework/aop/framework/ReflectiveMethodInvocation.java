@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2019 the original author or authors.
+ * Copyright 2002-2020 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -25,6 +25,7 @@ import java.util.Map;
 import org.aopalliance.intercept.MethodInterceptor;
 import org.aopalliance.intercept.MethodInvocation;
 
+import org.springframework.aop.MethodMatcher;
 import org.springframework.aop.ProxyMethodInvocation;
 import org.springframework.aop.support.AopUtils;
 import org.springframework.core.BridgeMethodResolver;
@@ -85,6 +86,12 @@ public class ReflectiveMethodInvocation implements ProxyMethodInvocation, Clonea
 	 */
 	protected final List<?> interceptorsAndDynamicMethodMatchers;
 
+	/**
+	 * The same chain in pre-linked form, if available.
+	 */
+	@Nullable
+	private final InterceptorChain interceptorChain;
+
 	/**
 	 * Index from 0 of the current interceptor we're invoking.
 	 * -1 until we invoke: then the current interceptor.
@@ -115,6 +122,29 @@ public class ReflectiveMethodInvocation implements ProxyMethodInvocation, Clonea
 		this.method = BridgeMethodResolver.findBridgedMethod(method);
 		this.arguments = AopProxyUtils.adaptArgumentsIfNecessary(method, arguments);
 		this.interceptorsAndDynamicMethodMatchers = interceptorsAndDynamicMethodMatchers;
+		this.interceptorChain = null;
+	}
+
+	/**
+	 * Construct a new ReflectiveMethodInvocation for a pre-linked interceptor chain.
+	 * @param proxy the proxy object that the invocation was made on
+	 * @param target the target object to invoke
+	 * @param method the method to invoke
+	 * @param arguments the arguments to invoke the method with
+	 * @param targetClass the target class, for MethodMatcher invocations
+	 * @param interceptorChain the pre-linked chain for the given method
+	 * @since 5.0.18
+	 */
+	ReflectiveMethodInvocation(Object proxy, @Nullable Object target, Method method, @Nullable Object[] arguments,
+			@Nullable Class<?> targetClass, InterceptorChain interceptorChain) {
+
+		this.proxy = proxy;
+		this.target = target;
+		this.targetClass = targetClass;
+		this.method = interceptorChain.method;
+		this.arguments = AopProxyUtils.adaptArgumentsIfNecessary(method, arguments);
+		this.interceptorsAndDynamicMethodMatchers = interceptorChain.interceptorList;
+		this.interceptorChain = interceptorChain;
 	}
 
 
@@ -158,6 +188,21 @@ public class ReflectiveMethodInvocation implements ProxyMethodInvocation, Clonea
 	@Override
 	@Nullable
 	public Object proceed() throws Throwable {
+		InterceptorChain chain = this.interceptorChain;
+		if (chain != null) {
+			// Pre-linked chain: same algorithm, with dynamic checks only where needed.
+			if (this.currentInterceptorIndex == chain.interceptors.length - 1) {
+				return invokeJoinpoint();
+			}
+			int index = ++this.currentInterceptorIndex;
+			MethodMatcher[] methodMatchers = chain.dynamicMethodMatchers;
+			if (methodMatchers != null && methodMatchers[index] != null &&
+					!methodMatchers[index].matches(this.method, this.targetClass, this.arguments)) {
+				return proceed();
+			}
+			return chain.interceptors[index].invoke(this);
+		}
+
 		// We start with an index of -1 and increment early.
 		if (this.currentInterceptorIndex == this.interceptorsAndDynamicMethodMatchers.size() - 1) {
 			return invokeJoinpoint();
@@ -194,6 +239,9 @@ public class ReflectiveMethodInvocation implements ProxyMethodInvocation, Clonea
 	 */
 	@Nullable
 	protected Object invokeJoinpoint() throws Throwable {
+		if (this.interceptorChain != null) {
+			return this.interceptorChain.invokeTarget(this.target, this.arguments);
+		}
 		return AopUtils.invokeJoinpointUsingReflection(this.target, this.method, this.arguments);
 	}
 
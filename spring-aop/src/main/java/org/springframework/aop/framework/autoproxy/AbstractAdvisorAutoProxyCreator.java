@@ -21,6 +21,34 @@ public abstract class AbstractAdvisorAutoProxyCreator extends AbstractAutoProxyC
 	@Nullable
 	private BeanFactoryAdvisorRetrievalHelper advisorRetrievalHelper;
 
+	private boolean parallelAdvisorMatching = false;
+
+	@Nullable
+	private volatile EligibleAdvisorIndex eligibleAdvisorIndex;
+
+
+	/**
+	 * Set whether to match the pointcuts of the candidate Advisors against
+	 * a bean class in parallel, using the common fork-join pool with the
+	 * context ClassLoader of the calling thread.
+	 * <p>Default is "false". Switch this to "true" for large numbers of
+	 * distinct pointcuts which are safe to evaluate concurrently, as is the
+	 * case for AspectJ expression pointcuts.
+	 * @since 5.0.18
+	 * @see ProxyCreationContext#getCurrentProxiedBeanName()
+	 */
+	public void setParallelAdvisorMatching(boolean parallelAdvisorMatching) {
+		this.parallelAdvisorMatching = parallelAdvisorMatching;
+	}
+
+	/**
+	 * Return whether pointcuts are matched in parallel.
+	 * @since 5.0.18
+	 */
+	public boolean isParallelAdvisorMatching() {
+		return this.parallelAdvisorMatching;
+	}
+
 	@Override
 	public void setBeanFactory(BeanFactory beanFactory) {
 		super.setBeanFactory(beanFactory);
@@ -71,6 +99,9 @@ public abstract class AbstractAdvisorAutoProxyCreator extends AbstractAutoProxyC
 	/**
 	 * Search the given candidate Advisors to find all Advisors that
 	 * can apply to the specified bean.
+	 * <p>The default implementation indexes the candidate Advisors by distinct
+	 * pointcut, evaluating each pointcut once per bean class, with the same
+	 * result as {@link AopUtils#findAdvisorsThatCanApply}.
 	 * @param candidateAdvisors the candidate Advisors
 	 * @param beanClass the target's bean class
 	 * @param beanName the target's bean name
@@ -80,13 +111,26 @@ public abstract class AbstractAdvisorAutoProxyCreator extends AbstractAutoProxyC
 	protected List<Advisor> findAdvisorsThatCanApply( List<Advisor> candidateAdvisors, Class<?> beanClass, String beanName) {
 		ProxyCreationContext.setCurrentProxiedBeanName(beanName);
 		try {
-			return AopUtils.findAdvisorsThatCanApply(candidateAdvisors, beanClass);
+			return getEligibleAdvisorIndex(candidateAdvisors).findAdvisorsThatCanApply(beanClass);
 		}
 		finally {
 			ProxyCreationContext.setCurrentProxiedBeanName(null);
 		}
 	}
 
+	/**
+	 * Obtain an index for the given candidate Advisors, reusing the current one
+	 * as long as the candidate Advisors remain the same.
+	 */
+	private EligibleAdvisorIndex getEligibleAdvisorIndex(List<Advisor> candidateAdvisors) {
+		EligibleAdvisorIndex index = this.eligibleAdvisorIndex;
+		if (index == null || !index.isIndexFor(candidateAdvisors, this.parallelAdvisorMatching)) {
+			index = new EligibleAdvisorIndex(candidateAdvisors, this.parallelAdvisorMatching);
+			this.eligibleAdvisorIndex = index;
+		}
+		return index;
+	}
+
 	/**
 	 * Return whether the Advisor bean with the given name is eligible
 	 * for proxying in the first place.
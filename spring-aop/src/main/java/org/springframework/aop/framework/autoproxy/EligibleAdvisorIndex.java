@@ -0,0 +1,233 @@
+/*
+ * Copyright 2002-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.aop.framework.autoproxy;
+
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+
+import org.springframework.aop.Advisor;
+import org.springframework.aop.IntroductionAdvisor;
+import org.springframework.aop.IntroductionAwareMethodMatcher;
+import org.springframework.aop.MethodMatcher;
+import org.springframework.aop.Pointcut;
+import org.springframework.aop.PointcutAdvisor;
+import org.springframework.aop.support.AopUtils;
+import org.springframework.util.ClassUtils;
+import org.springframework.util.ReflectionUtils;
+import org.springframework.util.concurrent.ParallelTaskGroup;
+
+/**
+ * Index over a given list of candidate Advisors, determining the Advisors that
+ * can apply to a bean class with the same result as
+ * {@link AopUtils#findAdvisorsThatCanApply} but less matching work:
+ * <ul>
+ * <li>Advisors with equal pointcuts (e.g. several advice methods of an aspect
+ * bound to the same pointcut expression) are grouped, with each distinct
+ * pointcut evaluated once per bean class.
+ * <li>All class filters are checked before any method matching, and the
+ * candidate methods of the bean class are only collected once for all
+ * pointcuts that pass their class filter.
+ * <li>Optionally, the method matching of distinct pointcuts is performed in
+ * parallel, with the current proxied bean name and the context ClassLoader
+ * exposed to all threads.
+ * </ul>
+ *
+ * <p>Instances are immutable and thread-safe.
+ *
+ * @since 5.0.18
+ * @see AbstractAdvisorAutoProxyCreator#setParallelAdvisorMatching
+ */
+final class EligibleAdvisorIndex {
+
+	/** Slot marker for introduction advisors */
+	private static final int INTRODUCTION = -1;
+
+	/** Slot marker for advisors that always apply */
+	private static final int ALWAYS = -2;
+
+	/** Minimum number of pointcuts to be method-matched for parallel matching to pay off */
+	private static final int PARALLEL_THRESHOLD = 16;
+
+
+	private final List<Advisor> candidateAdvisors;
+
+	/** Pointcut slot per advisor, or INTRODUCTION / ALWAYS */
+	private final int[] slots;
+
+	/** Distinct pointcuts */
+	private final Pointcut[] pointcuts;
+
+	private final boolean parallel;
+
+
+	/**
+	 * Create a new index for the given candidate Advisors.
+	 * @param candidateAdvisors the candidate Advisors
+	 * @param parallel whether to match distinct pointcuts in parallel
+	 */
+	EligibleAdvisorIndex(List<Advisor> candidateAdvisors, boolean parallel) {
+		this.candidateAdvisors = new ArrayList<>(candidateAdvisors);
+		this.slots = new int[candidateAdvisors.size()];
+		Map<Pointcut, Integer> pointcutSlots = new LinkedHashMap<>();
+		for (int i = 0; i < this.slots.length; i++) {
+			Advisor candidate = candidateAdvisors.get(i);
+			if (candidate instanceof IntroductionAdvisor) {
+				this.slots[i] = INTRODUCTION;
+			}
+			else if (candidate instanceof PointcutAdvisor) {
+				Pointcut pointcut = ((PointcutAdvisor) candidate).getPointcut();
+				this.slots[i] = pointcutSlots.computeIfAbsent(pointcut, key -> pointcutSlots.size());
+			}
+			else {
+				this.slots[i] = ALWAYS;
+			}
+		}
+		this.pointcuts = pointcutSlots.keySet().toArray(new Pointcut[0]);
+		this.parallel = parallel;
+	}
+
+
+	/**
+	 * Return whether this index has been built for the given candidate Advisors,
+	 * containing the same Advisor instances in the same order.
+	 */
+	boolean isIndexFor(List<Advisor> candidateAdvisors, boolean parallel) {
+		if (this.parallel != parallel || this.candidateAdvisors.size() != candidateAdvisors.size()) {
+			return false;
+		}
+		for (int i = 0; i < this.slots.length; i++) {
+			if (this.candidateAdvisors.get(i) != candidateAdvisors.get(i)) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Determine the sublist of the indexed Advisors that can apply to the given class.
+	 * @param clazz the target class
+	 * @return a new List of Advisors that can apply to an object of the given class
+	 * @see AopUtils#findAdvisorsThatCanApply
+	 */
+	List<Advisor> findAdvisorsThatCanApply(Class<?> clazz) {
+		List<Advisor> eligibleAdvisors = new ArrayList<>();
+		for (int i = 0; i < this.slots.length; i++) {
+			if (this.slots[i] == INTRODUCTION && AopUtils.canApply(this.candidateAdvisors.get(i), clazz)) {
+				eligibleAdvisors.add(this.candidateAdvisors.get(i));
+			}
+		}
+		boolean[] matches = matchPointcuts(clazz, !eligibleAdvisors.isEmpty());
+		for (int i = 0; i < this.slots.length; i++) {
+			int slot = this.slots[i];
+			if (slot == ALWAYS || (slot >= 0 && matches[slot])) {
+				eligibleAdvisors.add(this.candidateAdvisors.get(i));
+			}
+		}
+		return eligibleAdvisors;
+	}
+
+	/**
+	 * Determine for each distinct pointcut whether it can apply to the given class.
+	 * @see AopUtils#canApply(Pointcut, Class, boolean)
+	 */
+	private boolean[] matchPointcuts(Class<?> clazz, boolean hasIntroductions) {
+		boolean[] matches = new boolean[this.pointcuts.length];
+		List<Integer> toMatch = new ArrayList<>();
+		for (int slot = 0; slot < this.pointcuts.length; slot++) {
+			Pointcut pointcut = this.pointcuts[slot];
+			if (pointcut.getClassFilter().matches(clazz)) {
+				if (pointcut.getMethodMatcher() == MethodMatcher.TRUE) {
+					matches[slot] = true;
+				}
+				else {
+					toMatch.add(slot);
+				}
+			}
+		}
+		if (toMatch.isEmpty()) {
+			return matches;
+		}
+
+		List<Method> candidateMethods = getCandidateMethods(clazz);
+		if (this.parallel && toMatch.size() >= PARALLEL_THRESHOLD) {
+			String beanName = ProxyCreationContext.getCurrentProxiedBeanName();
+			ParallelTaskGroup tasks = new ParallelTaskGroup(ForkJoinPool.commonPool());
+			for (int slot : toMatch) {
+				tasks.run(() -> {
+					String previousBeanName = ProxyCreationContext.getCurrentProxiedBeanName();
+					ProxyCreationContext.setCurrentProxiedBeanName(beanName);
+					try {
+						matches[slot] = matchesAnyMethod(this.pointcuts[slot], clazz, hasIntroductions, candidateMethods);
+					}
+					finally {
+						ProxyCreationContext.setCurrentProxiedBeanName(previousBeanName);
+					}
+				});
+			}
+			tasks.join();
+		}
+		else {
+			for (int slot : toMatch) {
+				matches[slot] = matchesAnyMethod(this.pointcuts[slot], clazz, hasIntroductions, candidateMethods);
+			}
+		}
+		return matches;
+	}
+
+	private static boolean matchesAnyMethod(Pointcut pointcut, Class<?> targetClass, boolean hasIntroductions,
+			List<Method> candidateMethods) {
+
+		MethodMatcher methodMatcher = pointcut.getMethodMatcher();
+		IntroductionAwareMethodMatcher introductionAwareMethodMatcher =
+				(methodMatcher instanceof IntroductionAwareMethodMatcher ?
+						(IntroductionAwareMethodMatcher) methodMatcher : null);
+		for (Method method : candidateMethods) {
+			if (introductionAwareMethodMatcher != null ?
+					introductionAwareMethodMatcher.matches(method, targetClass, hasIntroductions) :
+					methodMatcher.matches(method, targetClass)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Collect the methods to match against, in the same order as
+	 * {@link AopUtils#canApply(Pointcut, Class, boolean)} does.
+	 */
+	private static List<Method> getCandidateMethods(Class<?> targetClass) {
+		Set<Class<?>> classes = new LinkedHashSet<>();
+		if (!Proxy.isProxyClass(targetClass)) {
+			classes.add(ClassUtils.getUserClass(targetClass));
+		}
+		classes.addAll(ClassUtils.getAllInterfacesForClassAsSet(targetClass));
+		List<Method> candidateMethods = new ArrayList<>();
+		for (Class<?> clazz : classes) {
+			Collections.addAll(candidateMethods, ReflectionUtils.getAllDeclaredMethods(clazz));
+		}
+		return candidateMethods;
+	}
+
+}
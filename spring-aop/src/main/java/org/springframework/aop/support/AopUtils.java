@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2018 the original author or authors.
+ * Copyright 2002-2020 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -34,6 +34,7 @@ import org.springframework.aop.Pointcut;
 import org.springframework.aop.PointcutAdvisor;
 import org.springframework.aop.SpringProxy;
 import org.springframework.aop.TargetClassAware;
+import org.springframework.cglib.proxy.Factory;
 import org.springframework.core.BridgeMethodResolver;
 import org.springframework.core.MethodIntrospector;
 import org.springframework.lang.Nullable;
@@ -58,7 +59,9 @@ import org.springframework.util.ReflectionUtils;
 public abstract class AopUtils {
 
 	/**
-	 * Check whether the given object is a JDK dynamic proxy or a CGLIB proxy.
+	 * Check whether the given object is a JDK dynamic proxy or a CGLIB-generated
+	 * proxy, including fused proxies that implement the proxied interfaces
+	 * without extending the target class.
 	 * <p>This method additionally checks if the given object is an instance
 	 * of {@link SpringProxy}.
 	 * @param object the object to check
@@ -66,8 +69,8 @@ public abstract class AopUtils {
 	 * @see #isCglibProxy
 	 */
 	public static boolean isAopProxy(@Nullable Object object) {
-		return (object instanceof SpringProxy &&
-				(Proxy.isProxyClass(object.getClass()) || ClassUtils.isCglibProxyClass(object.getClass())));
+		return (object instanceof SpringProxy && (Proxy.isProxyClass(object.getClass()) ||
+				ClassUtils.isCglibProxyClass(object.getClass()) || object instanceof Factory));
 	}
 
 	/**
@@ -0,0 +1,158 @@
+/*
+ * Copyright 2002-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.aop.aspectj;
+
+import java.lang.reflect.Method;
+import java.net.URL;
+import java.net.URLClassLoader;
+
+import org.aspectj.lang.annotation.Pointcut;
+import org.junit.Test;
+
+import org.springframework.beans.factory.support.DefaultListableBeanFactory;
+import org.springframework.tests.sample.beans.TestBean;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests for {@link ShadowMatchCache} and its use by {@link AspectJExpressionPointcut}.
+ *
+ * @since 5.0.18
+ */
+public class ShadowMatchCacheTests {
+
+	private static final String GET_AGE = "execution(int org.springframework.tests.sample.beans.TestBean.getAge())";
+
+
+	@Test
+	public void shadowMatchesSharedBetweenEqualPointcuts() throws Exception {
+		ShadowMatchCache cache = new ShadowMatchCache(16);
+		Method getAge = TestBean.class.getMethod("getAge");
+		Method setAge = TestBean.class.getMethod("setAge", int.class);
+
+		AspectJExpressionPointcut pointcut = createPointcut(GET_AGE, cache);
+		assertTrue(pointcut.matches(getAge, TestBean.class));
+		assertFalse(pointcut.matches(setAge, TestBean.class));
+		assertEquals(2, cache.size());
+		assertEquals(0, cache.getHitCount());
+
+		AspectJExpressionPointcut other = createPointcut(GET_AGE, cache);
+		assertTrue(other.matches(getAge, TestBean.class));
+		assertFalse(other.matches(setAge, TestBean.class));
+		assertEquals(2, cache.size());
+		assertEquals(2, cache.getHitCount());
+
+		// Served from the pointcut's own cache from now on
+		assertTrue(other.matches(getAge, TestBean.class));
+		assertEquals(2, cache.getHitCount());
+	}
+
+	@Test
+	public void differentExpressionsNotShared() throws Exception {
+		ShadowMatchCache cache = new ShadowMatchCache(16);
+		Method getAge = TestBean.class.getMethod("getAge");
+
+		assertTrue(createPointcut(GET_AGE, cache).matches(getAge, TestBean.class));
+		assertFalse(createPointcut("execution(* *..TestBean.set*(..))", cache).matches(getAge, TestBean.class));
+		assertEquals(2, cache.size());
+		assertEquals(0, cache.getHitCount());
+	}
+
+	@Test
+	public void beanDesignatorNotShared() throws Exception {
+		ShadowMatchCache cache = new ShadowMatchCache(16);
+		Method getAge = TestBean.class.getMethod("getAge");
+
+		createPointcut("bean(testBean) && " + GET_AGE, cache).matches(getAge, TestBean.class);
+		assertEquals(0, cache.size());
+		assertEquals(0, cache.getMissCount());
+	}
+
+	@Test
+	public void beanDesignatorInNamedPointcutNotShared() throws Exception {
+		ShadowMatchCache cache = new ShadowMatchCache(16);
+		Method getAge = TestBean.class.getMethod("getAge");
+
+		AspectJExpressionPointcut pointcut = createPointcut("beanOperation() && " + GET_AGE, cache);
+		pointcut.setPointcutDeclarationScope(NamedPointcuts.class);
+		pointcut.matches(getAge, TestBean.class);
+		assertEquals(0, cache.size());
+		assertEquals(0, cache.getMissCount());
+	}
+
+	@Test
+	public void evictByClassLoader() throws Exception {
+		ShadowMatchCache cache = new ShadowMatchCache(16);
+		Method getAge = TestBean.class.getMethod("getAge");
+		ClassLoader classLoader = new URLClassLoader(new URL[0], getClass().getClassLoader());
+		DefaultListableBeanFactory beanFactory = new DefaultListableBeanFactory();
+		beanFactory.setBeanClassLoader(classLoader);
+
+		AspectJExpressionPointcut pointcut = createPointcut(GET_AGE, cache);
+		pointcut.setBeanFactory(beanFactory);
+		assertTrue(pointcut.matches(getAge, TestBean.class));
+		assertTrue(createPointcut(GET_AGE, cache).matches(getAge, TestBean.class));
+		assertEquals(2, cache.size());
+
+		cache.evict(new URLClassLoader(new URL[0], getClass().getClassLoader()));
+		assertEquals(2, cache.size());
+		cache.evict(classLoader);
+		assertEquals(1, cache.size());
+	}
+
+	@Test
+	public void cacheIsBounded() throws Exception {
+		ShadowMatchCache cache = new ShadowMatchCache(2);
+		AspectJExpressionPointcut pointcut = createPointcut("execution(* *(..))", cache);
+		for (Method method : TestBean.class.getDeclaredMethods()) {
+			pointcut.matches(method, TestBean.class);
+		}
+		assertTrue(cache.size() <= 2);
+		assertTrue(cache.getEvictionCount() > 0);
+		assertTrue(cache.toString().contains("evictions = " + cache.getEvictionCount()));
+
+		cache.clear();
+		assertEquals(0, cache.size());
+	}
+
+	@Test
+	public void sharedInstanceIsDefault() throws Exception {
+		ShadowMatchCache cache = ShadowMatchCache.getSharedInstance();
+		long lookups = cache.getHitCount() + cache.getMissCount();
+		AspectJExpressionPointcut pointcut = new AspectJExpressionPointcut();
+		pointcut.setExpression("execution(* org.springframework.aop.aspectj.ShadowMatchCacheTests.*(..))");
+		pointcut.matches(getClass().getMethod("sharedInstanceIsDefault"), getClass());
+		assertTrue(cache.getHitCount() + cache.getMissCount() > lookups);
+	}
+
+
+	private static AspectJExpressionPointcut createPointcut(String expression, ShadowMatchCache cache) {
+		AspectJExpressionPointcut pointcut = new AspectJExpressionPointcut();
+		pointcut.setExpression(expression);
+		pointcut.setShadowMatchCache(cache);
+		return pointcut;
+	}
+
+
+	static class NamedPointcuts {
+
+		@Pointcut("bean(testBean)")
+		public void beanOperation() {
+		}
+	}
+
+}
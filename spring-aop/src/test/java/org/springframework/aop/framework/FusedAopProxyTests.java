@@ -0,0 +1,165 @@
+/*
+ * Copyright 2002-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.aop.framework;
+
+import java.io.IOException;
+import java.lang.reflect.Method;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.aopalliance.intercept.MethodInterceptor;
+import org.junit.Test;
+
+import org.springframework.aop.support.AopUtils;
+import org.springframework.aop.support.DefaultPointcutAdvisor;
+import org.springframework.aop.support.DynamicMethodMatcherPointcut;
+import org.springframework.aop.support.NameMatchMethodPointcut;
+import org.springframework.util.ClassUtils;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests for {@link FusedAopProxy}.
+ *
+ * @since 5.0.18
+ */
+public class FusedAopProxyTests {
+
+	@Test
+	public void fusedProxyForFrozenInterfaceConfiguration() throws Exception {
+		AtomicInteger count = new AtomicInteger();
+		ProxyFactory pf = createFrozenProxyFactory(count);
+		Service proxy = (Service) new FusedAopProxy(pf).getProxy(getClass().getClassLoader());
+
+		assertTrue(AopUtils.isAopProxy(proxy));
+		assertFalse(proxy instanceof DefaultService);
+		assertEquals("[Rod]", proxy.process("Rod"));
+		assertEquals(1, count.get());
+		assertEquals("unadvised", proxy.unadvised());
+		assertEquals(1, count.get());
+		assertEquals(DefaultService.class, ((Advised) proxy).getTargetClass());
+		assertEquals(DefaultService.class, AopProxyUtils.ultimateTargetClass(proxy));
+
+		Service other = (Service) new FusedAopProxy(pf).getProxy(getClass().getClassLoader());
+		assertEquals(proxy, other);
+		assertEquals(proxy.hashCode(), other.hashCode());
+	}
+
+	@Test
+	public void fusedProxyIsNotMarkedAsSubclass() throws Exception {
+		Service proxy = (Service) new FusedAopProxy(createFrozenProxyFactory(new AtomicInteger()))
+				.getProxy(getClass().getClassLoader());
+
+		assertFalse(AopUtils.isCglibProxy(proxy));
+		assertFalse(AopUtils.isJdkDynamicProxy(proxy));
+		assertFalse(ClassUtils.isCglibProxy(proxy));
+		Class<?> userClass = ClassUtils.getUserClass(proxy);
+		assertSame(proxy.getClass(), userClass);
+		assertTrue(Service.class.isAssignableFrom(userClass));
+		Method process = AopUtils.selectInvocableMethod(Service.class.getMethod("process", String.class), userClass);
+		assertEquals("[Rod]", process.invoke(proxy, "Rod"));
+	}
+
+	@Test
+	public void fusedProxyPropagatesExceptions() throws Exception {
+		Service proxy = (Service) new FusedAopProxy(createFrozenProxyFactory(new AtomicInteger()))
+				.getProxy(getClass().getClassLoader());
+		try {
+			proxy.fail();
+			fail("Should have thrown IOException");
+		}
+		catch (IOException ex) {
+			assertEquals("failed", ex.getMessage());
+		}
+	}
+
+	@Test
+	public void eligibility() {
+		ProxyFactory pf = createFrozenProxyFactory(new AtomicInteger());
+		assertTrue(FusedAopProxy.isEligible(pf));
+		pf.setExposeProxy(true);
+		assertFalse(FusedAopProxy.isEligible(pf));
+		assertFalse(FusedAopProxy.isEligible(new ProxyFactory(new DefaultService())));
+	}
+
+	@Test
+	public void frozenClassBasedProxyUsesFixedChains() {
+		AtomicInteger count = new AtomicInteger();
+		ProxyFactory pf = createFrozenProxyFactory(count);
+		pf.setProxyTargetClass(true);
+		DefaultService proxy = (DefaultService) pf.getProxy();
+
+		assertEquals("[Rod]", proxy.process("Rod"));
+		assertEquals("unadvised", proxy.unadvised());
+		assertEquals(1, count.get());
+	}
+
+	@Test
+	public void dynamicPointcutsAreNotFused() {
+		ProxyFactory pf = new ProxyFactory(new DefaultService());
+		pf.addAdvisor(new DefaultPointcutAdvisor(new DynamicMethodMatcherPointcut() {
+			@Override
+			public boolean matches(Method method, Class<?> targetClass, Object... args) {
+				return true;
+			}
+		}, (MethodInterceptor) invocation -> invocation.proceed()));
+		pf.setFrozen(true);
+		assertFalse(FusedAopProxy.isEligible(pf));
+	}
+
+	private ProxyFactory createFrozenProxyFactory(AtomicInteger count) {
+		ProxyFactory pf = new ProxyFactory(new DefaultService());
+		NameMatchMethodPointcut pointcut = new NameMatchMethodPointcut();
+		pointcut.setMappedNames("process", "fail");
+		pf.addAdvisor(new DefaultPointcutAdvisor(pointcut, (MethodInterceptor) invocation -> {
+			count.incrementAndGet();
+			Object result = invocation.proceed();
+			return (result != null ? "[" + result + "]" : null);
+		}));
+		pf.setFrozen(true);
+		return pf;
+	}
+
+
+	public interface Service {
+
+		String process(String input);
+
+		String unadvised();
+
+		void fail() throws IOException;
+	}
+
+
+	public static class DefaultService implements Service {
+
+		@Override
+		public String process(String input) {
+			return input;
+		}
+
+		@Override
+		public String unadvised() {
+			return "unadvised";
+		}
+
+		@Override
+		public void fail() throws IOException {
+			throw new IOException("failed");
+		}
+	}
+
+}
@@ -0,0 +1,143 @@
+/*
+ * Copyright 2002-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.aop.framework;
+
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.aopalliance.intercept.MethodInterceptor;
+import org.junit.Test;
+
+import org.springframework.aop.AopInvocationException;
+import org.springframework.aop.support.DefaultPointcutAdvisor;
+import org.springframework.aop.support.DynamicMethodMatcherPointcut;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests for {@link InterceptorChain} and its use by JDK and CGLIB proxies.
+ *
+ * @since 5.0.18
+ */
+public class InterceptorChainTests {
+
+	@Test
+	public void staticAndDynamicInterceptors() {
+		assertStaticAndDynamicInterceptors(false);
+		assertStaticAndDynamicInterceptors(true);
+	}
+
+	private void assertStaticAndDynamicInterceptors(boolean proxyTargetClass) {
+		List<String> calls = new ArrayList<>();
+		ProxyFactory pf = new ProxyFactory(new DefaultGreeter());
+		pf.setProxyTargetClass(proxyTargetClass);
+		pf.addAdvice((MethodInterceptor) invocation -> {
+			calls.add("static");
+			return invocation.proceed();
+		});
+		pf.addAdvisor(new DefaultPointcutAdvisor(new DynamicMethodMatcherPointcut() {
+			@Override
+			public boolean matches(Method method, Class<?> targetClass, Object... args) {
+				return "Juergen".equals(args[0]);
+			}
+		}, (MethodInterceptor) invocation -> "Hi " + invocation.getArguments()[0]));
+		pf.setFrozen(true);
+		Greeter proxy = (Greeter) pf.getProxy();
+
+		assertEquals("Hello Rod", proxy.greet("Rod"));
+		assertEquals("Hi Juergen", proxy.greet("Juergen"));
+		assertEquals(2, calls.size());
+	}
+
+	@Test
+	public void interceptorProceedingTwiceInvokesTargetTwice() {
+		DefaultGreeter target = new DefaultGreeter();
+		ProxyFactory pf = new ProxyFactory(target);
+		pf.addAdvice((MethodInterceptor) invocation -> {
+			invocation.proceed();
+			return invocation.proceed();
+		});
+		Greeter proxy = (Greeter) pf.getProxy();
+
+		assertEquals("Hello Rod", proxy.greet("Rod"));
+		assertEquals(2, target.count);
+	}
+
+	@Test
+	public void modifiedArgumentsOfWrongTypeFallBackToReflection() {
+		ProxyFactory pf = new ProxyFactory(new DefaultGreeter());
+		pf.addAdvice((MethodInterceptor) invocation -> {
+			invocation.getArguments()[0] = 42;
+			return invocation.proceed();
+		});
+		Greeter proxy = (Greeter) pf.getProxy();
+		try {
+			proxy.greet("Rod");
+			fail("Should have thrown AopInvocationException");
+		}
+		catch (AopInvocationException ex) {
+			assertTrue(ex.getCause() instanceof IllegalArgumentException);
+		}
+	}
+
+	@Test
+	public void exceptionFromTargetIsPropagated() {
+		ProxyFactory pf = new ProxyFactory(new DefaultGreeter());
+		pf.addAdvice((MethodInterceptor) invocation -> invocation.proceed());
+		Greeter proxy = (Greeter) pf.getProxy();
+		try {
+			proxy.greet(null);
+			fail("Should have thrown IllegalStateException");
+		}
+		catch (IllegalStateException ex) {
+			assertEquals("No name", ex.getMessage());
+		}
+	}
+
+	@Test
+	public void chainIsRelinkedOnAdviceChange() {
+		ProxyFactory pf = new ProxyFactory(new DefaultGreeter());
+		Greeter proxy = (Greeter) pf.getProxy();
+		assertEquals("Hello Rod", proxy.greet("Rod"));
+
+		pf.addAdvice((MethodInterceptor) invocation -> "Intercepted");
+		assertEquals("Intercepted", proxy.greet("Rod"));
+	}
+
+
+	public interface Greeter {
+
+		String greet(String name);
+	}
+
+
+	public static class DefaultGreeter implements Greeter {
+
+		int count;
+
+		@Override
+		public String greet(String name) {
+			if (name == null) {
+				throw new IllegalStateException("No name");
+			}
+			this.count++;
+			return "Hello " + name;
+		}
+	}
+
+}
@@ -0,0 +1,112 @@
+/*
+ * Copyright 2002-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.beans.factory.support;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+import org.springframework.beans.factory.config.BeanDefinition;
+import org.springframework.beans.factory.config.RuntimeBeanReference;
+
+/**
+ * Benchmarks for bean retrieval and type lookups on a {@link DefaultListableBeanFactory}
+ * holding a configurable number of bean definitions.
+ *
+ * @since 5.0.18
+ */
+@BenchmarkMode(Mode.Throughput)
+public class DefaultListableBeanFactoryBenchmark {
+
+	@Benchmark
+	public void getSingletonByName(BeanFactoryState state, Blackhole bh) {
+		bh.consume(state.beanFactory.getBean("service0"));
+	}
+
+	@Benchmark
+	public void getSingletonByType(BeanFactoryState state, Blackhole bh) {
+		bh.consume(state.beanFactory.getBean(Repository.class));
+	}
+
+	@Benchmark
+	public void getPrototypeWithDependency(BeanFactoryState state, Blackhole bh) {
+		bh.consume(state.beanFactory.getBean("prototype"));
+	}
+
+	@Benchmark
+	public void getBeanNamesForType(BeanFactoryState state, Blackhole bh) {
+		bh.consume(state.beanFactory.getBeanNamesForType(Service.class, true, false));
+	}
+
+	@Benchmark
+	public void getBeanNamesForTypeUncached(BeanFactoryState state, Blackhole bh) {
+		state.beanFactory.clearMetadataCache();
+		bh.consume(state.beanFactory.getBeanNamesForType(Service.class, true, false));
+	}
+
+
+	@State(Scope.Benchmark)
+	public static class BeanFactoryState {
+
+		@Param({"100", "1000"})
+		public int beanCount;
+
+		public DefaultListableBeanFactory beanFactory;
+
+		@Setup
+		public void setup() {
+			this.beanFactory = new DefaultListableBeanFactory();
+			this.beanFactory.registerBeanDefinition("repository", new RootBeanDefinition(Repository.class));
+			for (int i = 0; i < this.beanCount; i++) {
+				RootBeanDefinition bd = new RootBeanDefinition(Service.class);
+				bd.getPropertyValues().add("repository", new RuntimeBeanReference("repository"));
+				this.beanFactory.registerBeanDefinition("service" + i, bd);
+			}
+			RootBeanDefinition prototype = new RootBeanDefinition(Service.class);
+			prototype.setScope(BeanDefinition.SCOPE_PROTOTYPE);
+			prototype.getPropertyValues().add("repository", new RuntimeBeanReference("repository"));
+			this.beanFactory.registerBeanDefinition("prototype", prototype);
+			// As on context refresh, enabling the by-type lookup caches
+			this.beanFactory.freezeConfiguration();
+			this.beanFactory.preInstantiateSingletons();
+		}
+	}
+
+
+	public static class Repository {
+	}
+
+
+	public static class Service {
+
+		private Repository repository;
+
+		public void setRepository(Repository repository) {
+			this.repository = repository;
+		}
+
+		public Repository getRepository() {
+			return this.repository;
+		}
+	}
+
+}
@@ -0,0 +1,380 @@
+/*
+ * Copyright 2002-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.beans;
+
+import java.beans.PropertyDescriptor;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import org.springframework.asm.ClassWriter;
+import org.springframework.asm.Label;
+import org.springframework.asm.MethodVisitor;
+import org.springframework.asm.Opcodes;
+import org.springframework.asm.Type;
+import org.springframework.core.SpringProperties;
+import org.springframework.lang.Nullable;
+import org.springframework.util.ConcurrentReferenceHashMap;
+
+/**
+ * Generates a property accessor class per bean class, as an alternative to
+ * reflective invocation of JavaBean read and write methods in {@link BeanWrapperImpl}.
+ *
+ * <p>A generated class invokes the read and write methods of all eligible
+ * properties of a bean class directly, selecting the method through a switch
+ * on an index assigned per method. An instance of the generated class per
+ * method serves as a {@link Function} for reading and as a {@link BiConsumer}
+ * for writing the corresponding property.
+ *
+ * <p>Only public methods declared on public classes with public parameter and
+ * return types are eligible, with the class being generated in a child class
+ * loader of the bean class's class loader. Any other method keeps being invoked
+ * via reflection.
+ *
+ * @since 5.0.18
+ * @see BeanWrapperImpl#setUseGeneratedAccessors
+ */
+final class BeanPropertyAccessorGenerator implements Opcodes {
+
+	/**
+	 * System property that instructs Spring to use generated accessors for
+	 * all {@link BeanWrapperImpl} instances by default, including the ones
+	 * created by {@link org.springframework.validation.DataBinder}.
+	 * @see SpringProperties
+	 */
+	public static final String BYTECODE_ACCESSORS_PROPERTY_NAME = "spring.beans.bytecode.accessors";
+
+	private static final boolean useGeneratedAccessorsByDefault =
+			SpringProperties.getFlag(BYTECODE_ACCESSORS_PROPERTY_NAME);
+
+	private static final String CLASS_NAME_SUFFIX = "$$PropertyAccessor";
+
+	private static final String INDEX_FIELD = "$index";
+
+	private static final String OBJECT = Type.getInternalName(Object.class);
+
+	private static final Log logger = LogFactory.getLog(BeanPropertyAccessorGenerator.class);
+
+	/** Accessor instances per read/write method per bean class, or NOT_GENERATED */
+	private static final Map<Class<?>, Object> accessorCache = new ConcurrentReferenceHashMap<>(64);
+
+	/** Child class loaders per bean class loader */
+	private static final Map<ClassLoader, PropertyAccessorClassLoader> classLoaders =
+			new ConcurrentReferenceHashMap<>(16);
+
+	private static final Object NOT_GENERATED = new Object();
+
+
+	private BeanPropertyAccessorGenerator() {
+	}
+
+
+	/**
+	 * Return whether generated accessors are to be used by default,
+	 * as indicated by the {@value #BYTECODE_ACCESSORS_PROPERTY_NAME} property.
+	 */
+	static boolean useGeneratedAccessorsByDefault() {
+		return useGeneratedAccessorsByDefault;
+	}
+
+	/**
+	 * Return a generated reader for the given read method of the given bean class.
+	 * @param beanClass the bean class, as introspected by {@link CachedIntrospectionResults}
+	 * @param readMethod the read method of one of the bean class's properties
+	 * @return a function invoking the read method on a given bean instance,
+	 * or {@code null} if the read method is to be invoked via reflection
+	 */
+	@Nullable
+	@SuppressWarnings("unchecked")
+	static Function<Object, Object> getReader(Class<?> beanClass, Method readMethod) {
+		return (Function<Object, Object>) getAccessor(beanClass, readMethod);
+	}
+
+	/**
+	 * Return a generated writer for the given write method of the given bean class.
+	 * <p>The returned consumer does not perform any type checks beyond the casts
+	 * of the generated code: callers need to make sure that the value passed in
+	 * is assignable to the write method's parameter type.
+	 * @param beanClass the bean class, as introspected by {@link CachedIntrospectionResults}
+	 * @param writeMethod the write method of one of the bean class's properties
+	 * @return a consumer invoking the write method on a given bean instance
+	 * with a given value, or {@code null} if the write method is to be invoked
+	 * via reflection
+	 */
+	@Nullable
+	@SuppressWarnings("unchecked")
+	static BiConsumer<Object, Object> getWriter(Class<?> beanClass, Method writeMethod) {
+		return (BiConsumer<Object, Object>) getAccessor(beanClass, writeMethod);
+	}
+
+	/**
+	 * Clear the cache of generated classes.
+	 */
+	static void clearCache() {
+		accessorCache.clear();
+		classLoaders.clear();
+	}
+
+
+	@Nullable
+	private static Object getAccessor(Class<?> beanClass, Method method) {
+		Object accessors = accessorCache.get(beanClass);
+		if (accessors == null) {
+			accessors = generateClass(beanClass);
+			accessorCache.put(beanClass, accessors);
+		}
+		return (accessors != NOT_GENERATED ? ((Map<?, ?>) accessors).get(method) : null);
+	}
+
+	private static Object generateClass(Class<?> beanClass) {
+		ClassLoader parent = beanClass.getClassLoader();
+		if (parent == null || beanClass.getName().startsWith("java") || !isVisible(parent)) {
+			return NOT_GENERATED;
+		}
+		List<Method> readMethods = new ArrayList<>();
+		List<Method> writeMethods = new ArrayList<>();
+		for (PropertyDescriptor pd : CachedIntrospectionResults.forClass(beanClass).getPropertyDescriptors()) {
+			Method readMethod = pd.getReadMethod();
+			if (readMethod != null && isEligible(readMethod)) {
+				readMethods.add(readMethod);
+			}
+			Method writeMethod = pd.getWriteMethod();
+			if (writeMethod != null && writeMethod.getParameterCount() == 1 && isEligible(writeMethod)) {
+				writeMethods.add(writeMethod);
+			}
+		}
+		if (readMethods.isEmpty() && writeMethods.isEmpty()) {
+			return NOT_GENERATED;
+		}
+		try {
+			String className = beanClass.getName() + CLASS_NAME_SUFFIX;
+			byte[] bytes = generateBytecode(className.replace('.', '/'), readMethods, writeMethods);
+			PropertyAccessorClassLoader classLoader =
+					classLoaders.computeIfAbsent(parent, PropertyAccessorClassLoader::new);
+			Constructor<?> constructor = classLoader.defineClass(className, bytes).getConstructor(int.class);
+			Map<Method, Object> accessors = new HashMap<>();
+			for (int i = 0; i < readMethods.size(); i++) {
+				accessors.put(readMethods.get(i), constructor.newInstance(i));
+			}
+			for (int i = 0; i < writeMethods.size(); i++) {
+				accessors.put(writeMethods.get(i), constructor.newInstance(i));
+			}
+			return Collections.unmodifiableMap(accessors);
+		}
+		catch (Throwable ex) {
+			if (logger.isDebugEnabled()) {
+				logger.debug("Failed to generate property accessor class for " + beanClass +
+						" - falling back to reflection", ex);
+			}
+			return NOT_GENERATED;
+		}
+	}
+
+	private static boolean isEligible(Method method) {
+		if (!Modifier.isPublic(method.getModifiers()) || Modifier.isStatic(method.getModifiers()) ||
+				!isPublic(method.getDeclaringClass()) || !isPublic(method.getReturnType())) {
+			return false;
+		}
+		for (Class<?> parameterType : method.getParameterTypes()) {
+			if (!isPublic(parameterType)) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private static boolean isPublic(Class<?> type) {
+		while (type.isArray()) {
+			type = type.getComponentType();
+		}
+		return (type.isPrimitive() || Modifier.isPublic(type.getModifiers()));
+	}
+
+	private static boolean isVisible(ClassLoader classLoader) {
+		try {
+			return (Class.forName(Function.class.getName(), false, classLoader) == Function.class &&
+					Class.forName(BiConsumer.class.getName(), false, classLoader) == BiConsumer.class);
+		}
+		catch (ClassNotFoundException ex) {
+			return false;
+		}
+	}
+
+	private static byte[] generateBytecode(String internalName, List<Method> readMethods, List<Method> writeMethods) {
+		ClassWriter cw = new ClassWriter(ClassWriter.COMPUTE_MAXS | ClassWriter.COMPUTE_FRAMES) {
+			@Override
+			protected String getCommonSuperClass(String type1, String type2) {
+				return OBJECT;
+			}
+		};
+		cw.visit(V1_8, ACC_PUBLIC | ACC_FINAL | ACC_SUPER | ACC_SYNTHETIC, internalName, null, OBJECT,
+				new String[] {Type.getInternalName(Function.class), Type.getInternalName(BiConsumer.class)});
+		cw.visitField(ACC_PRIVATE | ACC_FINAL, INDEX_FIELD, "I", null, null).visitEnd();
+
+		MethodVisitor mv = cw.visitMethod(ACC_PUBLIC, "<init>", "(I)V", null, null);
+		mv.visitCode();
+		mv.visitVarInsn(ALOAD, 0);
+		mv.visitMethodInsn(INVOKESPECIAL, OBJECT, "<init>", "()V", false);
+		mv.visitVarInsn(ALOAD, 0);
+		mv.visitVarInsn(ILOAD, 1);
+		mv.visitFieldInsn(PUTFIELD, internalName, INDEX_FIELD, "I");
+		mv.visitInsn(RETURN);
+		mv.visitMaxs(0, 0);
+		mv.visitEnd();
+
+		// Object apply(Object bean)
+		mv = cw.visitMethod(ACC_PUBLIC, "apply", "(Ljava/lang/Object;)Ljava/lang/Object;", null, null);
+		mv.visitCode();
+		Label defaultLabel = new Label();
+		Label[] labels = visitSwitch(mv, internalName, readMethods.size(), defaultLabel);
+		for (int i = 0; i < labels.length; i++) {
+			Method readMethod = readMethods.get(i);
+			mv.visitLabel(labels[i]);
+			mv.visitVarInsn(ALOAD, 1);
+			mv.visitTypeInsn(CHECKCAST, Type.getInternalName(readMethod.getDeclaringClass()));
+			visitInvoke(mv, readMethod);
+			visitBox(mv, Type.getType(readMethod.getReturnType()));
+			mv.visitInsn(ARETURN);
+		}
+		visitDefault(mv, defaultLabel);
+		mv.visitMaxs(0, 0);
+		mv.visitEnd();
+
+		// void accept(Object bean, Object value)
+		mv = cw.visitMethod(ACC_PUBLIC, "accept", "(Ljava/lang/Object;Ljava/lang/Object;)V", null, null);
+		mv.visitCode();
+		defaultLabel = new Label();
+		labels = visitSwitch(mv, internalName, writeMethods.size(), defaultLabel);
+		for (int i = 0; i < labels.length; i++) {
+			Method writeMethod = writeMethods.get(i);
+			mv.visitLabel(labels[i]);
+			mv.visitVarInsn(ALOAD, 1);
+			mv.visitTypeInsn(CHECKCAST, Type.getInternalName(writeMethod.getDeclaringClass()));
+			mv.visitVarInsn(ALOAD, 2);
+			visitUnbox(mv, Type.getType(writeMethod.getParameterTypes()[0]));
+			visitInvoke(mv, writeMethod);
+			Type returnType = Type.getType(writeMethod.getReturnType());
+			if (returnType.getSize() > 0) {
+				// Fluent setters
+				mv.visitInsn(returnType.getSize() == 2 ? POP2 : POP);
+			}
+			mv.visitInsn(RETURN);
+		}
+		visitDefault(mv, defaultLabel);
+		mv.visitMaxs(0, 0);
+		mv.visitEnd();
+
+		cw.visitEnd();
+		return cw.toByteArray();
+	}
+
+	private static Label[] visitSwitch(MethodVisitor mv, String internalName, int size, Label defaultLabel) {
+		Label[] labels = new Label[size];
+		for (int i = 0; i < size; i++) {
+			labels[i] = new Label();
+		}
+		if (size > 0) {
+			mv.visitVarInsn(ALOAD, 0);
+			mv.visitFieldInsn(GETFIELD, internalName, INDEX_FIELD, "I");
+			mv.visitTableSwitchInsn(0, size - 1, defaultLabel, labels);
+		}
+		return labels;
+	}
+
+	private static void visitDefault(MethodVisitor mv, Label defaultLabel) {
+		// Unknown index: not reachable for instances created by the generator
+		mv.visitLabel(defaultLabel);
+		mv.visitTypeInsn(NEW, "java/lang/IllegalStateException");
+		mv.visitInsn(DUP);
+		mv.visitMethodInsn(INVOKESPECIAL, "java/lang/IllegalStateException", "<init>", "()V", false);
+		mv.visitInsn(ATHROW);
+	}
+
+	private static void visitInvoke(MethodVisitor mv, Method method) {
+		Class<?> declaringClass = method.getDeclaringClass();
+		boolean isInterface = declaringClass.isInterface();
+		mv.visitMethodInsn(isInterface ? INVOKEINTERFACE : INVOKEVIRTUAL, Type.getInternalName(declaringClass),
+				method.getName(), Type.getMethodDescriptor(method), isInterface);
+	}
+
+	private static void visitBox(MethodVisitor mv, Type type) {
+		if (type.getSort() == Type.VOID) {
+			mv.visitInsn(ACONST_NULL);
+		}
+		else if (type.getSort() != Type.OBJECT && type.getSort() != Type.ARRAY) {
+			String wrapper = getWrapperName(type);
+			mv.visitMethodInsn(INVOKESTATIC, wrapper, "valueOf",
+					"(" + type.getDescriptor() + ")L" + wrapper + ";", false);
+		}
+	}
+
+	private static void visitUnbox(MethodVisitor mv, Type type) {
+		if (type.getSort() == Type.OBJECT || type.getSort() == Type.ARRAY) {
+			mv.visitTypeInsn(CHECKCAST, type.getInternalName());
+		}
+		else {
+			String wrapper = getWrapperName(type);
+			mv.visitTypeInsn(CHECKCAST, wrapper);
+			mv.visitMethodInsn(INVOKEVIRTUAL, wrapper, type.getClassName() + "Value",
+					"()" + type.getDescriptor(), false);
+		}
+	}
+
+	private static String getWrapperName(Type primitiveType) {
+		switch (primitiveType.getSort()) {
+			case Type.BOOLEAN: return "java/lang/Boolean";
+			case Type.CHAR: return "java/lang/Character";
+			case Type.BYTE: return "java/lang/Byte";
+			case Type.SHORT: return "java/lang/Short";
+			case Type.INT: return "java/lang/Integer";
+			case Type.FLOAT: return "java/lang/Float";
+			case Type.LONG: return "java/lang/Long";
+			case Type.DOUBLE: return "java/lang/Double";
+			default: throw new IllegalArgumentException("Not a primitive type: " + primitiveType);
+		}
+	}
+
+
+	/**
+	 * Class loader for generated accessor classes, delegating to the
+	 * class loader of the bean classes.
+	 */
+	private static final class PropertyAccessorClassLoader extends ClassLoader {
+
+		PropertyAccessorClassLoader(ClassLoader parent) {
+			super(parent);
+		}
+
+		Class<?> defineClass(String name, byte[] bytes) {
+			synchronized (getClassLoadingLock(name)) {
+				Class<?> existing = findLoadedClass(name);
+				return (existing != null ? existing : defineClass(name, bytes, 0, bytes.length));
+			}
+		}
+	}
+
+}
@@ -17,17 +17,21 @@
 package org.springframework.beans;
 
 import java.beans.PropertyDescriptor;
+import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
 import java.security.AccessControlContext;
 import java.security.AccessController;
 import java.security.PrivilegedAction;
 import java.security.PrivilegedActionException;
 import java.security.PrivilegedExceptionAction;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
 
 import org.springframework.core.ResolvableType;
 import org.springframework.core.convert.Property;
 import org.springframework.core.convert.TypeDescriptor;
 import org.springframework.lang.Nullable;
+import org.springframework.util.ClassUtils;
 import org.springframework.util.ReflectionUtils;
 
 /**
@@ -75,6 +79,8 @@ public class BeanWrapperImpl extends AbstractNestablePropertyAccessor implements
 	@Nullable
 	private AccessControlContext acc;
 
+	private boolean useGeneratedAccessors = BeanPropertyAccessorGenerator.useGeneratedAccessorsByDefault();
+
 
 	/**
 	 * Create a new empty BeanWrapperImpl. Wrapped instance needs to be set afterwards.
@@ -132,6 +138,7 @@ public class BeanWrapperImpl extends AbstractNestablePropertyAccessor implements
 	private BeanWrapperImpl(Object object, String nestedPath, BeanWrapperImpl parent) {
 		super(object, nestedPath, parent);
 		setSecurityContext(parent.acc);
+		setUseGeneratedAccessors(parent.useGeneratedAccessors);
 	}
 
 
@@ -193,6 +200,29 @@ public class BeanWrapperImpl extends AbstractNestablePropertyAccessor implements
 		return this.acc;
 	}
 
+	/**
+	 * Set whether to invoke property read and write methods through accessor
+	 * classes generated per bean class instead of via reflection.
+	 * <p>Default is "false", unless the "spring.beans.bytecode.accessors"
+	 * property has been set to "true". Nested bean wrappers inherit this setting.
+	 * Generated accessors are not used while a SecurityManager is active, nor
+	 * for methods that are not accessible from outside their package.
+	 * @since 5.0.18
+	 * @see org.springframework.core.SpringProperties
+	 */
+	public void setUseGeneratedAccessors(boolean useGeneratedAccessors) {
+		this.useGeneratedAccessors = useGeneratedAccessors;
+	}
+
+	/**
+	 * Return whether property read and write methods are invoked through
+	 * generated accessor classes.
+	 * @since 5.0.18
+	 */
+	public boolean isUseGeneratedAccessors() {
+		return this.useGeneratedAccessors;
+	}
+
 
 	/**
 	 * Convert the given value for the specified property to the latter's type.
@@ -304,6 +334,16 @@ public class BeanWrapperImpl extends AbstractNestablePropertyAccessor implements
 				}
 			}
 			else {
+				Function<Object, Object> reader = (useGeneratedAccessors ?
+						BeanPropertyAccessorGenerator.getReader(getWrappedClass(), readMethod) : null);
+				if (reader != null) {
+					try {
+						return reader.apply(getWrappedInstance());
+					}
+					catch (Throwable ex) {
+						throw new InvocationTargetException(ex);
+					}
+				}
 				ReflectionUtils.makeAccessible(readMethod);
 				return readMethod.invoke(getWrappedInstance(), (Object[]) null);
 			}
@@ -328,6 +368,19 @@ public class BeanWrapperImpl extends AbstractNestablePropertyAccessor implements
 				}
 			}
 			else {
+				// Values not matching the parameter type go through reflection for its exception semantics
+				BiConsumer<Object, Object> writer = (useGeneratedAccessors &&
+						ClassUtils.isAssignableValue(writeMethod.getParameterTypes()[0], value) ?
+						BeanPropertyAccessorGenerator.getWriter(getWrappedClass(), writeMethod) : null);
+				if (writer != null) {
+					try {
+						writer.accept(getWrappedInstance(), value);
+					}
+					catch (Throwable ex) {
+						throw new InvocationTargetException(ex);
+					}
+					return;
+				}
 				ReflectionUtils.makeAccessible(writeMethod);
 				writeMethod.invoke(getWrappedInstance(), value);
 			}
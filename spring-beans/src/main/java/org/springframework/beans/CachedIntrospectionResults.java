@@ -36,7 +36,9 @@ import org.springframework.core.convert.TypeDescriptor;
 import org.springframework.core.io.support.SpringFactoriesLoader;
 import org.springframework.lang.Nullable;
 import org.springframework.util.ClassUtils;
+import org.springframework.util.ConcurrentReferenceCache;
 import org.springframework.util.ConcurrentReferenceHashMap;
+import org.springframework.util.ConcurrentReferenceHashMap.ReferenceType;
 import org.springframework.util.StringUtils;
 
 /**
@@ -311,7 +313,8 @@ public class CachedIntrospectionResults {
 				clazz = clazz.getSuperclass();
 			}
 
-			this.typeDescriptorCache = new ConcurrentReferenceHashMap<>();
+			this.typeDescriptorCache =
+					new ConcurrentReferenceCache<>(ConcurrentReferenceCache.UNBOUNDED, ReferenceType.SOFT);
 		}
 		catch (IntrospectionException ex) {
 			throw new FatalBeanException("Failed to obtain BeanInfo for class [" + beanClass.getName() + "]", ex);
@@ -0,0 +1,1130 @@
+/*
+ * Copyright 2002-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.beans.factory.support;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.ObjectOutputStream;
+import java.io.OutputStream;
+import java.io.Serializable;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.zip.CRC32;
+
+import org.springframework.beans.BeanMetadataAttributeAccessor;
+import org.springframework.beans.PropertyValue;
+import org.springframework.beans.factory.BeanDefinitionStoreException;
+import org.springframework.beans.factory.config.BeanDefinition;
+import org.springframework.beans.factory.config.BeanDefinitionHolder;
+import org.springframework.beans.factory.config.ConfigurableListableBeanFactory;
+import org.springframework.beans.factory.config.ConstructorArgumentValues;
+import org.springframework.beans.factory.config.RuntimeBeanNameReference;
+import org.springframework.beans.factory.config.RuntimeBeanReference;
+import org.springframework.beans.factory.config.TypedStringValue;
+import org.springframework.core.AttributeAccessor;
+import org.springframework.core.ConfigurableObjectInputStream;
+import org.springframework.core.ResolvableType;
+import org.springframework.core.io.UrlResource;
+import org.springframework.lang.Nullable;
+import org.springframework.util.Assert;
+import org.springframework.util.ClassUtils;
+import org.springframework.util.StreamUtils;
+
+/**
+ * Snapshot of the bean definitions held by a bean factory, in a compact binary
+ * format. A snapshot can be written at build time or on first startup and
+ * registered directly on subsequent startups, bypassing the parsing and class
+ * path scanning that produced the bean definitions originally.
+ *
+ * <p>The raw (non-merged) bean definitions get captured along with their
+ * aliases: bean class names, scopes, factory methods, init and destroy method
+ * names, constructor arguments and property values (including references, inner
+ * beans and managed collections), qualifiers, method overrides and attributes.
+ * For factory method definitions whose non-generic return type has been resolved
+ * by the time of capture (as usually happens when detecting post-processors), that
+ * return type is recorded as target type as well, so that type matching does not
+ * need to introspect the factory class again; capturing does not resolve any bean
+ * types by itself. Configuration sources and other runtime state are not retained.
+ *
+ * <p>A snapshot also records the profiles it has been captured for as well as the
+ * timestamps, sizes and a checksum of the class files of its bean classes, so that
+ * it can be detected as {@linkplain #isCurrent out of date} once other profiles are
+ * active or any of those classes (e.g. a configuration class) has changed.
+ *
+ * <p>CGLIB-enhanced bean classes get recorded as their user class. Bean definitions
+ * with an instance supplier cannot be captured, and neither can attribute or
+ * property values that are not standard bean metadata elements or
+ * {@link Serializable}.
+ *
+ * @since 5.0.18
+ * @see #capture
+ * @see #readFrom
+ * @see #registerBeanDefinitions
+ */
+public final class BeanDefinitionSnapshot {
+
+	private static final int MAGIC = 0x53424453;
+
+	private static final int VERSION = 3;
+
+	private static final int ROOT = 0;
+
+	private static final int CHILD = 1;
+
+	private static final int NULL = 0;
+
+	private static final int STRING = 1;
+
+	private static final int BOOLEAN = 2;
+
+	private static final int INTEGER = 3;
+
+	private static final int CLASS = 4;
+
+	private static final int TYPED_STRING_VALUE = 5;
+
+	private static final int BEAN_REFERENCE = 6;
+
+	private static final int BEAN_NAME_REFERENCE = 7;
+
+	private static final int BEAN_DEFINITION_HOLDER = 8;
+
+	private static final int BEAN_DEFINITION = 9;
+
+	private static final int MANAGED_LIST = 10;
+
+	private static final int MANAGED_ARRAY = 11;
+
+	private static final int MANAGED_SET = 12;
+
+	private static final int MANAGED_MAP = 13;
+
+	private static final int MANAGED_PROPERTIES = 14;
+
+	private static final int SERIALIZED = 15;
+
+	private static final int LOOKUP_OVERRIDE = 0;
+
+	private static final int REPLACE_OVERRIDE = 1;
+
+
+	private final byte[] content;
+
+
+	private BeanDefinitionSnapshot(byte[] content) {
+		this.content = content;
+	}
+
+
+	/**
+	 * Register the bean definitions contained in this snapshot with the given
+	 * registry, replacing existing bean definitions of the same name.
+	 * <p>Class references get resolved against the registry's bean class loader
+	 * if it is a {@link AbstractBeanFactory}, or the default class loader else.
+	 * @param registry the registry to register the bean definitions with
+	 * @return the number of bean definitions registered
+	 * @throws BeanDefinitionStoreException if the snapshot cannot be decoded
+	 */
+	public int registerBeanDefinitions(BeanDefinitionRegistry registry) throws BeanDefinitionStoreException {
+		ClassLoader classLoader = (registry instanceof AbstractBeanFactory ?
+				((AbstractBeanFactory) registry).getBeanClassLoader() : ClassUtils.getDefaultClassLoader());
+		return registerBeanDefinitions(registry, classLoader);
+	}
+
+	/**
+	 * Register the bean definitions contained in this snapshot with the given
+	 * registry, replacing existing bean definitions of the same name.
+	 * @param registry the registry to register the bean definitions with
+	 * @param classLoader the ClassLoader to resolve class references with
+	 * @return the number of bean definitions registered
+	 * @throws BeanDefinitionStoreException if the snapshot cannot be decoded
+	 */
+	public int registerBeanDefinitions(BeanDefinitionRegistry registry, @Nullable ClassLoader classLoader)
+			throws BeanDefinitionStoreException {
+
+		Assert.notNull(registry, "BeanDefinitionRegistry must not be null");
+		SnapshotReader reader = new SnapshotReader(this.content, classLoader);
+		try {
+			reader.readHeader();
+			int count = reader.readInt();
+			for (int i = 0; i < count; i++) {
+				String beanName = reader.readString();
+				BeanDefinition beanDefinition = reader.readBeanDefinition();
+				if (registry.containsBeanDefinition(beanName)) {
+					registry.removeBeanDefinition(beanName);
+				}
+				registry.registerBeanDefinition(beanName, beanDefinition);
+			}
+			int aliasCount = reader.readInt();
+			for (int i = 0; i < aliasCount; i++) {
+				String beanName = reader.readString();
+				registry.registerAlias(beanName, reader.readString());
+			}
+			return count;
+		}
+		catch (IOException ex) {
+			throw new BeanDefinitionStoreException("Corrupt bean definition snapshot", ex);
+		}
+	}
+
+	/**
+	 * Determine whether this snapshot is still current, that is, whether it has been
+	 * captured for the given profiles and the class files of the bean classes it
+	 * refers to are unchanged since.
+	 * <p>Class files whose timestamp and size are unchanged are considered unchanged;
+	 * the class files only get read for comparing their checksum otherwise.
+	 * Only classes referenced by the snapshot are checked: a class added to the
+	 * application in the meantime, e.g. a new component in a scanned package,
+	 * does not invalidate a snapshot.
+	 * @param classLoader the ClassLoader to load class files with
+	 * @param profiles the currently active profiles
+	 * @return {@code true} if the snapshot is current, {@code false} if it needs to be rebuilt
+	 * @throws BeanDefinitionStoreException if the snapshot cannot be decoded
+	 * @see #capture(ConfigurableListableBeanFactory, String...)
+	 */
+	public boolean isCurrent(@Nullable ClassLoader classLoader, String... profiles) throws BeanDefinitionStoreException {
+		SnapshotReader reader = new SnapshotReader(this.content, classLoader);
+		try {
+			reader.readHeader();
+		}
+		catch (IOException ex) {
+			throw new BeanDefinitionStoreException("Corrupt bean definition snapshot", ex);
+		}
+		if (!reader.getProfiles().equals(new TreeSet<>(Arrays.asList(profiles)))) {
+			return false;
+		}
+		List<String> sourceClassNames = reader.getSourceClassNames();
+		return (Arrays.equals(reader.getStamps(), computeStamps(sourceClassNames, classLoader)) ||
+				reader.getChecksum() == computeChecksum(sourceClassNames, classLoader));
+	}
+
+	/**
+	 * Write this snapshot to the given stream, leaving the stream open.
+	 * @param out the stream to write to
+	 * @throws IOException in case of I/O errors
+	 */
+	public void writeTo(OutputStream out) throws IOException {
+		out.write(this.content);
+		out.flush();
+	}
+
+	/**
+	 * Return the size of this snapshot in bytes.
+	 */
+	public int getSize() {
+		return this.content.length;
+	}
+
+
+	/**
+	 * Capture the bean definitions currently registered in the given bean factory.
+	 * <p>A snapshot is typically taken once all bean definition registry post-processing
+	 * (e.g. configuration class parsing) has been applied, but before regular bean
+	 * factory post-processors modify bean definitions in place, e.g. by resolving
+	 * placeholders against the current environment.
+	 * <p>If the bean definitions depend on the active profiles, these need to be
+	 * specified here as well as when checking whether the snapshot {@link #isCurrent}.
+	 * @param beanFactory the bean factory to capture
+	 * @param profiles the profiles that have been active for the bean definitions
+	 * @return the snapshot
+	 * @throws BeanDefinitionStoreException if a bean definition cannot be captured
+	 */
+	public static BeanDefinitionSnapshot capture(ConfigurableListableBeanFactory beanFactory, String... profiles)
+			throws BeanDefinitionStoreException {
+
+		Assert.notNull(beanFactory, "BeanFactory must not be null");
+		ByteArrayOutputStream bos = new ByteArrayOutputStream(4096);
+		SnapshotWriter writer = new SnapshotWriter(new DataOutputStream(bos), beanFactory);
+		try {
+			String[] beanNames = beanFactory.getBeanDefinitionNames();
+			Set<String> sourceClassNames = new TreeSet<>();
+			for (String beanName : beanNames) {
+				String beanClassName = getUserClassName(beanFactory.getBeanDefinition(beanName));
+				if (beanClassName != null) {
+					sourceClassNames.add(beanClassName);
+				}
+			}
+			ClassLoader classLoader = beanFactory.getBeanClassLoader();
+			writer.writeHeader(new TreeSet<>(Arrays.asList(profiles)), sourceClassNames,
+					computeStamps(sourceClassNames, classLoader), computeChecksum(sourceClassNames, classLoader));
+			writer.writeInt(beanNames.length);
+			for (String beanName : beanNames) {
+				writer.writeString(beanName);
+				writer.writeTopLevelBeanDefinition(beanName, beanFactory.getBeanDefinition(beanName));
+			}
+			List<String[]> aliases = new ArrayList<>();
+			for (String beanName : beanNames) {
+				for (String alias : beanFactory.getAliases(beanName)) {
+					aliases.add(new String[] {beanName, alias});
+				}
+			}
+			writer.writeInt(aliases.size());
+			for (String[] alias : aliases) {
+				writer.writeString(alias[0]);
+				writer.writeString(alias[1]);
+			}
+			writer.flush();
+		}
+		catch (IOException ex) {
+			// Not expected for an in-memory stream, apart from serialization failures
+			throw new BeanDefinitionStoreException(writer.getCurrentResourceDescription(), writer.getCurrentBeanName(),
+					"Failed to capture bean definition snapshot", ex);
+		}
+		return new BeanDefinitionSnapshot(bos.toByteArray());
+	}
+
+	/**
+	 * Read a snapshot from the given stream, leaving the stream open.
+	 * @param in the stream to read from
+	 * @return the snapshot
+	 * @throws IOException in case of I/O errors or if the stream does not contain
+	 * a snapshot in a supported format
+	 */
+	public static BeanDefinitionSnapshot readFrom(InputStream in) throws IOException {
+		byte[] content = StreamUtils.copyToByteArray(in);
+		new SnapshotReader(content, null).readHeader();
+		return new BeanDefinitionSnapshot(content);
+	}
+
+
+	/**
+	 * Return the name of the bean class of the given bean definition,
+	 * resolving CGLIB-enhanced bean classes to their user class.
+	 */
+	@Nullable
+	private static String getUserClassName(BeanDefinition bd) {
+		if (bd instanceof AbstractBeanDefinition && ((AbstractBeanDefinition) bd).hasBeanClass()) {
+			return ClassUtils.getUserClass(((AbstractBeanDefinition) bd).getBeanClass()).getName();
+		}
+		return bd.getBeanClassName();
+	}
+
+	/**
+	 * Determine the timestamp and size of the class files of the given classes,
+	 * as consecutive pairs of values, with -1 for a missing or unreadable class file.
+	 */
+	private static long[] computeStamps(Collection<String> classNames, @Nullable ClassLoader classLoader) {
+		ClassLoader classLoaderToUse = (classLoader != null ? classLoader : ClassUtils.getDefaultClassLoader());
+		long[] stamps = new long[classNames.size() * 2];
+		Arrays.fill(stamps, -1);
+		int i = 0;
+		for (String className : classNames) {
+			URL url = getClassFile(className, classLoaderToUse);
+			if (url != null) {
+				UrlResource resource = new UrlResource(url);
+				try {
+					stamps[i] = resource.lastModified();
+					stamps[i + 1] = resource.contentLength();
+				}
+				catch (IOException ex) {
+					// Treat like a missing class file
+				}
+			}
+			i += 2;
+		}
+		return stamps;
+	}
+
+	/**
+	 * Compute a checksum over the names and class files of the given classes,
+	 * with a missing or unreadable class file contributing its name only.
+	 */
+	private static long computeChecksum(Collection<String> classNames, @Nullable ClassLoader classLoader) {
+		ClassLoader classLoaderToUse = (classLoader != null ? classLoader : ClassUtils.getDefaultClassLoader());
+		CRC32 checksum = new CRC32();
+		for (String className : classNames) {
+			checksum.update(className.getBytes(StandardCharsets.UTF_8));
+			URL url = getClassFile(className, classLoaderToUse);
+			if (url != null) {
+				try (InputStream in = url.openStream()) {
+					checksum.update(StreamUtils.copyToByteArray(in));
+				}
+				catch (IOException ex) {
+					// Treat like a missing class file
+				}
+			}
+		}
+		return checksum.getValue();
+	}
+
+	@Nullable
+	private static URL getClassFile(String className, @Nullable ClassLoader classLoader) {
+		return (classLoader != null ? classLoader.getResource(
+				ClassUtils.convertClassNameToResourcePath(className) + ClassUtils.CLASS_FILE_SUFFIX) : null);
+	}
+
+
+	/**
+	 * Encodes bean definitions, using back references for repeated strings.
+	 */
+	private static class SnapshotWriter {
+
+		private final DataOutputStream out;
+
+		private final ConfigurableListableBeanFactory beanFactory;
+
+		private final Map<String, Integer> strings = new HashMap<>(256);
+
+		@Nullable
+		private String currentBeanName;
+
+		@Nullable
+		private String currentResourceDescription;
+
+		SnapshotWriter(DataOutputStream out, ConfigurableListableBeanFactory beanFactory) {
+			this.out = out;
+			this.beanFactory = beanFactory;
+		}
+
+		@Nullable
+		public String getCurrentBeanName() {
+			return this.currentBeanName;
+		}
+
+		@Nullable
+		public String getCurrentResourceDescription() {
+			return this.currentResourceDescription;
+		}
+
+		public void writeHeader(Collection<String> profiles, Collection<String> sourceClassNames,
+				long[] stamps, long checksum) throws IOException {
+
+			this.out.writeInt(MAGIC);
+			this.out.writeInt(VERSION);
+			writeInt(profiles.size());
+			for (String profile : profiles) {
+				writeString(profile);
+			}
+			writeInt(sourceClassNames.size());
+			for (String className : sourceClassNames) {
+				writeString(className);
+			}
+			for (long stamp : stamps) {
+				this.out.writeLong(stamp);
+			}
+			this.out.writeLong(checksum);
+		}
+
+		public void writeTopLevelBeanDefinition(String beanName, BeanDefinition bd) throws IOException {
+			this.currentBeanName = beanName;
+			this.currentResourceDescription = bd.getResourceDescription();
+			writeBeanDefinition(bd, (bd.getParentName() == null ? determineTargetTypeName(beanName, bd) : null));
+		}
+
+		private void writeBeanDefinition(BeanDefinition bd, @Nullable String targetTypeName) throws IOException {
+			AbstractBeanDefinition abd = (bd instanceof AbstractBeanDefinition ? (AbstractBeanDefinition) bd : null);
+			if (abd != null && abd.getInstanceSupplier() != null) {
+				throw new BeanDefinitionStoreException(this.currentResourceDescription, this.currentBeanName,
+						"Bean definitions with an instance supplier cannot be captured in a snapshot");
+			}
+			String parentName = bd.getParentName();
+			writeInt(parentName != null ? CHILD : ROOT);
+			writeNullableString(parentName);
+
+			// Record enhanced subclasses as their user class, to be enhanced again on startup
+			writeNullableString(getUserClassName(bd));
+			writeNullableString(bd.getScope());
+			writeBoolean(bd.isLazyInit());
+			writeNullableStringArray(bd.getDependsOn());
+			writeBoolean(bd.isAutowireCandidate());
+			writeBoolean(bd.isPrimary());
+			writeNullableString(bd.getFactoryBeanName());
+			writeNullableString(bd.getFactoryMethodName());
+			writeInt(bd.getRole());
+			writeNullableString(bd.getDescription());
+			writeNullableString(bd.getResourceDescription());
+			// Check first in order to not initialize lazily created holders
+			writeConstructorArgumentValues(bd.hasConstructorArgumentValues() ?
+					bd.getConstructorArgumentValues() : new ConstructorArgumentValues());
+			writePropertyValues(bd.hasPropertyValues() ?
+					bd.getPropertyValues().getPropertyValues() : new PropertyValue[0]);
+			writeAttributes(bd);
+
+			writeBoolean(abd != null);
+			if (abd != null) {
+				writeBoolean(abd.isAbstract());
+				writeInt(abd.getAutowireMode());
+				writeInt(abd.getDependencyCheck());
+				writeBoolean(abd.isNonPublicAccessAllowed());
+				writeBoolean(abd.isLenientConstructorResolution());
+				writeNullableString(abd.getInitMethodName());
+				writeBoolean(abd.isEnforceInitMethod());
+				writeNullableString(abd.getDestroyMethodName());
+				writeBoolean(abd.isEnforceDestroyMethod());
+				writeBoolean(abd.isSynthetic());
+				Set<AutowireCandidateQualifier> qualifiers = abd.getQualifiers();
+				writeInt(qualifiers.size());
+				for (AutowireCandidateQualifier qualifier : qualifiers) {
+					writeString(qualifier.getTypeName());
+					writeAttributes(qualifier);
+				}
+				writeMethodOverrides(abd.getMethodOverrides().getOverrides());
+			}
+
+			RootBeanDefinition rbd = (bd instanceof RootBeanDefinition ? (RootBeanDefinition) bd : null);
+			writeBoolean(rbd != null);
+			if (rbd != null) {
+				writeBoolean(rbd.allowCaching);
+				writeBoolean(rbd.isFactoryMethodUnique);
+				writeValue(rbd.getDecoratedDefinition());
+			}
+			writeNullableString(targetTypeName);
+		}
+
+		@Nullable
+		private String determineTargetTypeName(String beanName, BeanDefinition bd) {
+			if (bd.getFactoryMethodName() == null || !(this.beanFactory instanceof AbstractAutowireCapableBeanFactory)) {
+				return null;
+			}
+			AbstractAutowireCapableBeanFactory abf = (AbstractAutowireCapableBeanFactory) this.beanFactory;
+			try {
+				// Only record a return type resolved before: capturing must not resolve bean types early
+				RootBeanDefinition mbd = abf.getMergedLocalBeanDefinition(beanName);
+				ResolvableType returnType = mbd.factoryMethodReturnType;
+				if (returnType != null && returnType.getType() instanceof Class && !returnType.hasGenerics()) {
+					return ((Class<?>) returnType.getType()).getName();
+				}
+			}
+			catch (Throwable ex) {
+				// Not resolvable at this point: leave it up to runtime introspection.
+			}
+			return null;
+		}
+
+		private void writeConstructorArgumentValues(ConstructorArgumentValues cargs) throws IOException {
+			Map<Integer, ConstructorArgumentValues.ValueHolder> indexed = cargs.getIndexedArgumentValues();
+			writeInt(indexed.size());
+			for (Map.Entry<Integer, ConstructorArgumentValues.ValueHolder> entry : indexed.entrySet()) {
+				writeInt(entry.getKey());
+				writeValueHolder(entry.getValue());
+			}
+			List<ConstructorArgumentValues.ValueHolder> generic = cargs.getGenericArgumentValues();
+			writeInt(generic.size());
+			for (ConstructorArgumentValues.ValueHolder valueHolder : generic) {
+				writeValueHolder(valueHolder);
+			}
+		}
+
+		private void writeValueHolder(ConstructorArgumentValues.ValueHolder valueHolder) throws IOException {
+			writeValue(valueHolder.getValue());
+			writeNullableString(valueHolder.getType());
+			writeNullableString(valueHolder.getName());
+		}
+
+		private void writePropertyValues(PropertyValue[] pvs) throws IOException {
+			writeInt(pvs.length);
+			for (PropertyValue pv : pvs) {
+				writeString(pv.getName());
+				writeValue(pv.getValue());
+				writeBoolean(pv.isOptional());
+			}
+		}
+
+		private void writeAttributes(AttributeAccessor accessor) throws IOException {
+			String[] attributeNames = accessor.attributeNames();
+			writeInt(attributeNames.length);
+			for (String attributeName : attributeNames) {
+				writeString(attributeName);
+				writeValue(accessor.getAttribute(attributeName));
+			}
+		}
+
+		private void writeMethodOverrides(Set<MethodOverride> overrides) throws IOException {
+			writeInt(overrides.size());
+			for (MethodOverride override : overrides) {
+				if (override instanceof LookupOverride) {
+					writeInt(LOOKUP_OVERRIDE);
+					writeString(override.getMethodName());
+					writeNullableString(((LookupOverride) override).getBeanName());
+				}
+				else if (override instanceof ReplaceOverride) {
+					writeInt(REPLACE_OVERRIDE);
+					writeString(override.getMethodName());
+					writeString(((ReplaceOverride) override).getMethodReplacerBeanName());
+					List<String> typeIdentifiers = ((ReplaceOverride) override).getTypeIdentifiers();
+					writeInt(typeIdentifiers.size());
+					for (String typeIdentifier : typeIdentifiers) {
+						writeString(typeIdentifier);
+					}
+				}
+				else {
+					throw new BeanDefinitionStoreException(this.currentResourceDescription, this.currentBeanName,
+							"Unsupported method override in bean definition snapshot: " + override);
+				}
+				writeBoolean(override.isOverloaded());
+			}
+		}
+
+		private void writeValue(@Nullable Object value) throws IOException {
+			if (value == null) {
+				writeInt(NULL);
+			}
+			else if (value instanceof String) {
+				writeInt(STRING);
+				writeString((String) value);
+			}
+			else if (value instanceof Boolean) {
+				writeInt(BOOLEAN);
+				writeBoolean((Boolean) value);
+			}
+			else if (value instanceof Integer) {
+				writeInt(INTEGER);
+				this.out.writeInt((Integer) value);
+			}
+			else if (value instanceof Class) {
+				writeInt(CLASS);
+				writeString(((Class<?>) value).getName());
+			}
+			else if (value instanceof TypedStringValue) {
+				TypedStringValue typedStringValue = (TypedStringValue) value;
+				writeInt(TYPED_STRING_VALUE);
+				writeNullableString(typedStringValue.getValue());
+				writeNullableString(typedStringValue.hasTargetType() ?
+						typedStringValue.getTargetType().getName() : typedStringValue.getTargetTypeName());
+				writeNullableString(typedStringValue.getSpecifiedTypeName());
+				writeBoolean(typedStringValue.isDynamic());
+			}
+			else if (value instanceof RuntimeBeanReference) {
+				writeInt(BEAN_REFERENCE);
+				writeString(((RuntimeBeanReference) value).getBeanName());
+				writeBoolean(((RuntimeBeanReference) value).isToParent());
+			}
+			else if (value instanceof RuntimeBeanNameReference) {
+				writeInt(BEAN_NAME_REFERENCE);
+				writeString(((RuntimeBeanNameReference) value).getBeanName());
+			}
+			else if (value instanceof BeanDefinitionHolder) {
+				BeanDefinitionHolder holder = (BeanDefinitionHolder) value;
+				writeInt(BEAN_DEFINITION_HOLDER);
+				writeString(holder.getBeanName());
+				writeNullableStringArray(holder.getAliases());
+				writeBeanDefinition(holder.getBeanDefinition(), null);
+			}
+			else if (value instanceof BeanDefinition) {
+				writeInt(BEAN_DEFINITION);
+				writeBeanDefinition((BeanDefinition) value, null);
+			}
+			else if (value instanceof ManagedArray) {
+				ManagedArray array = (ManagedArray) value;
+				writeInt(MANAGED_ARRAY);
+				writeString(array.getElementTypeName());
+				writeBoolean(array.isMergeEnabled());
+				writeElements(array);
+			}
+			else if (value instanceof ManagedList) {
+				ManagedList<?> list = (ManagedList<?>) value;
+				writeInt(MANAGED_LIST);
+				writeNullableString(list.getElementTypeName());
+				writeBoolean(list.isMergeEnabled());
+				writeElements(list);
+			}
+			else if (value instanceof ManagedSet) {
+				ManagedSet<?> set = (ManagedSet<?>) value;
+				writeInt(MANAGED_SET);
+				writeNullableString(set.getElementTypeName());
+				writeBoolean(set.isMergeEnabled());
+				writeElements(set);
+			}
+			else if (value instanceof ManagedMap) {
+				ManagedMap<?, ?> map = (ManagedMap<?, ?>) value;
+				writeInt(MANAGED_MAP);
+				writeNullableString(map.getKeyTypeName());
+				writeNullableString(map.getValueTypeName());
+				writeBoolean(map.isMergeEnabled());
+				writeEntries(map);
+			}
+			else if (value instanceof ManagedProperties) {
+				ManagedProperties properties = (ManagedProperties) value;
+				writeInt(MANAGED_PROPERTIES);
+				writeBoolean(properties.isMergeEnabled());
+				writeEntries(properties);
+			}
+			else if (value instanceof Serializable) {
+				ByteArrayOutputStream bos = new ByteArrayOutputStream(256);
+				try (ObjectOutputStream oos = new ObjectOutputStream(bos)) {
+					oos.writeObject(value);
+				}
+				byte[] bytes = bos.toByteArray();
+				writeInt(SERIALIZED);
+				writeInt(bytes.length);
+				this.out.write(bytes);
+			}
+			else {
+				throw new BeanDefinitionStoreException(this.currentResourceDescription, this.currentBeanName,
+						"Cannot capture value of type [" + value.getClass().getName() + "] in bean definition snapshot");
+			}
+		}
+
+		private void writeElements(Collection<?> elements) throws IOException {
+			writeInt(elements.size());
+			for (Object element : elements) {
+				writeValue(element);
+			}
+		}
+
+		private void writeEntries(Map<?, ?> entries) throws IOException {
+			writeInt(entries.size());
+			for (Map.Entry<?, ?> entry : entries.entrySet()) {
+				writeValue(entry.getKey());
+				writeValue(entry.getValue());
+			}
+		}
+
+		private void writeNullableStringArray(@Nullable String[] array) throws IOException {
+			if (array == null) {
+				writeInt(-1);
+				return;
+			}
+			writeInt(array.length);
+			for (String element : array) {
+				writeString(element);
+			}
+		}
+
+		private void writeNullableString(@Nullable String value) throws IOException {
+			if (value == null) {
+				writeInt(0);
+			}
+			else {
+				writeString(value);
+			}
+		}
+
+		/**
+		 * Strings are written as a back reference ({@code index + 1}) if they
+		 * occurred before, or as {@code -1} followed by their UTF-8 form else.
+		 * {@code 0} denotes {@code null}.
+		 */
+		public void writeString(String value) throws IOException {
+			Integer index = this.strings.get(value);
+			if (index != null) {
+				writeInt(index + 1);
+			}
+			else {
+				this.strings.put(value, this.strings.size());
+				writeInt(-1);
+				this.out.writeUTF(value);
+			}
+		}
+
+		private void writeBoolean(boolean value) throws IOException {
+			this.out.writeBoolean(value);
+		}
+
+		/**
+		 * Write a variable-length int, with small positive values taking a single byte.
+		 */
+		public void writeInt(int value) throws IOException {
+			// Zig-zag encoding keeps -1 short as well
+			int encoded = (value << 1) ^ (value >> 31);
+			while ((encoded & ~0x7F) != 0) {
+				this.out.writeByte((encoded & 0x7F) | 0x80);
+				encoded >>>= 7;
+			}
+			this.out.writeByte(encoded);
+		}
+
+		public void flush() throws IOException {
+			this.out.flush();
+		}
+	}
+
+
+	/**
+	 * Decodes bean definitions written by {@link SnapshotWriter}.
+	 */
+	private static class SnapshotReader {
+
+		private final byte[] content;
+
+		private final DataInputStream in;
+
+		@Nullable
+		private final ClassLoader classLoader;
+
+		private final List<String> strings = new ArrayList<>(256);
+
+		private final Set<String> profiles = new TreeSet<>();
+
+		private final List<String> sourceClassNames = new ArrayList<>();
+
+		private long[] stamps = new long[0];
+
+		private long checksum;
+
+		SnapshotReader(byte[] content, @Nullable ClassLoader classLoader) {
+			this.content = content;
+			this.in = new DataInputStream(new ByteArrayInputStream(content));
+			this.classLoader = classLoader;
+		}
+
+		public void readHeader() throws IOException {
+			if (this.content.length < 8 || this.in.readInt() != MAGIC) {
+				throw new IOException("Not a bean definition snapshot");
+			}
+			int version = this.in.readInt();
+			if (version != VERSION) {
+				throw new IOException("Unsupported bean definition snapshot version " + version);
+			}
+			int profileCount = readInt();
+			for (int i = 0; i < profileCount; i++) {
+				this.profiles.add(readString());
+			}
+			int sourceCount = readInt();
+			for (int i = 0; i < sourceCount; i++) {
+				this.sourceClassNames.add(readString());
+			}
+			this.stamps = new long[sourceCount * 2];
+			for (int i = 0; i < this.stamps.length; i++) {
+				this.stamps[i] = this.in.readLong();
+			}
+			this.checksum = this.in.readLong();
+		}
+
+		public Set<String> getProfiles() {
+			return this.profiles;
+		}
+
+		public List<String> getSourceClassNames() {
+			return this.sourceClassNames;
+		}
+
+		public long[] getStamps() {
+			return this.stamps;
+		}
+
+		public long getChecksum() {
+			return this.checksum;
+		}
+
+		public BeanDefinition readBeanDefinition() throws IOException {
+			int kind = readInt();
+			String parentName = readNullableString();
+			AbstractBeanDefinition bd;
+			if (kind == CHILD) {
+				bd = new GenericBeanDefinition();
+				bd.setParentName(parentName);
+			}
+			else {
+				bd = new RootBeanDefinition();
+			}
+			bd.setBeanClassName(readNullableString());
+			bd.setScope(readNullableString());
+			bd.setLazyInit(readBoolean());
+			bd.setDependsOn(readNullableStringArray());
+			bd.setAutowireCandidate(readBoolean());
+			bd.setPrimary(readBoolean());
+			bd.setFactoryBeanName(readNullableString());
+			bd.setFactoryMethodName(readNullableString());
+			bd.setRole(readInt());
+			bd.setDescription(readNullableString());
+			bd.setResourceDescription(readNullableString());
+			readConstructorArgumentValues(bd);
+			int propertyCount = readInt();
+			for (int i = 0; i < propertyCount; i++) {
+				PropertyValue pv = new PropertyValue(readString(), readValue());
+				pv.setOptional(readBoolean());
+				bd.getPropertyValues().addPropertyValue(pv);
+			}
+			readAttributes(bd);
+
+			if (readBoolean()) {
+				bd.setAbstract(readBoolean());
+				bd.setAutowireMode(readInt());
+				bd.setDependencyCheck(readInt());
+				bd.setNonPublicAccessAllowed(readBoolean());
+				bd.setLenientConstructorResolution(readBoolean());
+				bd.setInitMethodName(readNullableString());
+				bd.setEnforceInitMethod(readBoolean());
+				bd.setDestroyMethodName(readNullableString());
+				bd.setEnforceDestroyMethod(readBoolean());
+				bd.setSynthetic(readBoolean());
+				int qualifierCount = readInt();
+				for (int i = 0; i < qualifierCount; i++) {
+					AutowireCandidateQualifier qualifier = new AutowireCandidateQualifier(readString());
+					readAttributes(qualifier);
+					bd.addQualifier(qualifier);
+				}
+				readMethodOverrides(bd.getMethodOverrides());
+			}
+
+			if (readBoolean()) {
+				boolean allowCaching = readBoolean();
+				boolean factoryMethodUnique = readBoolean();
+				Object decoratedDefinition = readValue();
+				if (bd instanceof RootBeanDefinition) {
+					RootBeanDefinition rbd = (RootBeanDefinition) bd;
+					rbd.allowCaching = allowCaching;
+					rbd.isFactoryMethodUnique = factoryMethodUnique;
+					rbd.setDecoratedDefinition((BeanDefinitionHolder) decoratedDefinition);
+				}
+			}
+			String targetTypeName = readNullableString();
+			if (targetTypeName != null && bd instanceof RootBeanDefinition) {
+				try {
+					((RootBeanDefinition) bd).setTargetType(ClassUtils.forName(targetTypeName, this.classLoader));
+				}
+				catch (ClassNotFoundException | LinkageError ex) {
+					// Not resolvable anymore: leave it up to runtime introspection.
+				}
+			}
+			return bd;
+		}
+
+		private void readConstructorArgumentValues(AbstractBeanDefinition bd) throws IOException {
+			int indexedCount = readInt();
+			for (int i = 0; i < indexedCount; i++) {
+				int index = readInt();
+				bd.getConstructorArgumentValues().addIndexedArgumentValue(index, readValueHolder());
+			}
+			int genericCount = readInt();
+			for (int i = 0; i < genericCount; i++) {
+				bd.getConstructorArgumentValues().addGenericArgumentValue(readValueHolder());
+			}
+		}
+
+		private ConstructorArgumentValues.ValueHolder readValueHolder() throws IOException {
+			Object value = readValue();
+			String type = readNullableString();
+			return new ConstructorArgumentValues.ValueHolder(value, type, readNullableString());
+		}
+
+		private void readAttributes(BeanMetadataAttributeAccessor accessor) throws IOException {
+			int attributeCount = readInt();
+			for (int i = 0; i < attributeCount; i++) {
+				accessor.setAttribute(readString(), readValue());
+			}
+		}
+
+		private void readMethodOverrides(MethodOverrides overrides) throws IOException {
+			int overrideCount = readInt();
+			for (int i = 0; i < overrideCount; i++) {
+				MethodOverride override;
+				if (readInt() == LOOKUP_OVERRIDE) {
+					String methodName = readString();
+					override = new LookupOverride(methodName, readNullableString());
+				}
+				else {
+					String methodName = readString();
+					ReplaceOverride replaceOverride = new ReplaceOverride(methodName, readString());
+					int typeIdentifierCount = readInt();
+					for (int j = 0; j < typeIdentifierCount; j++) {
+						replaceOverride.addTypeIdentifier(readString());
+					}
+					override = replaceOverride;
+				}
+				override.setOverloaded(readBoolean());
+				overrides.addOverride(override);
+			}
+		}
+
+		@Nullable
+		@SuppressWarnings("unchecked")
+		private Object readValue() throws IOException {
+			int tag = readInt();
+			switch (tag) {
+				case NULL:
+					return null;
+				case STRING:
+					return readString();
+				case BOOLEAN:
+					return readBoolean();
+				case INTEGER:
+					return this.in.readInt();
+				case CLASS:
+					return resolveClass(readString());
+				case TYPED_STRING_VALUE: {
+					TypedStringValue typedStringValue = new TypedStringValue(readNullableString());
+					typedStringValue.setTargetTypeName(readNullableString());
+					typedStringValue.setSpecifiedTypeName(readNullableString());
+					if (readBoolean()) {
+						typedStringValue.setDynamic();
+					}
+					return typedStringValue;
+				}
+				case BEAN_REFERENCE: {
+					String beanName = readString();
+					return new RuntimeBeanReference(beanName, readBoolean());
+				}
+				case BEAN_NAME_REFERENCE:
+					return new RuntimeBeanNameReference(readString());
+				case BEAN_DEFINITION_HOLDER: {
+					String beanName = readString();
+					String[] aliases = readNullableStringArray();
+					return new BeanDefinitionHolder(readBeanDefinition(), beanName, aliases);
+				}
+				case BEAN_DEFINITION:
+					return readBeanDefinition();
+				case MANAGED_ARRAY: {
+					String elementTypeName = readString();
+					boolean mergeEnabled = readBoolean();
+					int size = readInt();
+					ManagedArray array = new ManagedArray(elementTypeName, size);
+					array.setMergeEnabled(mergeEnabled);
+					for (int i = 0; i < size; i++) {
+						array.add(readValue());
+					}
+					return array;
+				}
+				case MANAGED_LIST: {
+					String elementTypeName = readNullableString();
+					boolean mergeEnabled = readBoolean();
+					int size = readInt();
+					ManagedList<Object> list = new ManagedList<>(size);
+					if (elementTypeName != null) {
+						list.setElementTypeName(elementTypeName);
+					}
+					list.setMergeEnabled(mergeEnabled);
+					for (int i = 0; i < size; i++) {
+						list.add(readValue());
+					}
+					return list;
+				}
+				case MANAGED_SET: {
+					String elementTypeName = readNullableString();
+					boolean mergeEnabled = readBoolean();
+					int size = readInt();
+					ManagedSet<Object> set = new ManagedSet<>(size);
+					set.setElementTypeName(elementTypeName);
+					set.setMergeEnabled(mergeEnabled);
+					for (int i = 0; i < size; i++) {
+						set.add(readValue());
+					}
+					return set;
+				}
+				case MANAGED_MAP: {
+					String keyTypeName = readNullableString();
+					String valueTypeName = readNullableString();
+					boolean mergeEnabled = readBoolean();
+					int size = readInt();
+					ManagedMap<Object, Object> map = new ManagedMap<>(size);
+					map.setKeyTypeName(keyTypeName);
+					map.setValueTypeName(valueTypeName);
+					map.setMergeEnabled(mergeEnabled);
+					for (int i = 0; i < size; i++) {
+						map.put(readValue(), readValue());
+					}
+					return map;
+				}
+				case MANAGED_PROPERTIES: {
+					ManagedProperties properties = new ManagedProperties();
+					properties.setMergeEnabled(readBoolean());
+					int size = readInt();
+					for (int i = 0; i < size; i++) {
+						properties.put(readValue(), readValue());
+					}
+					return properties;
+				}
+				case SERIALIZED: {
+					byte[] bytes = new byte[readInt()];
+					this.in.readFully(bytes);
+					try (ConfigurableObjectInputStream ois =
+							new ConfigurableObjectInputStream(new ByteArrayInputStream(bytes), this.classLoader)) {
+						return ois.readObject();
+					}
+					catch (ClassNotFoundException ex) {
+						throw new BeanDefinitionStoreException(
+								"Bean definition snapshot refers to a class that cannot be resolved", ex);
+					}
+				}
+				default:
+					throw new IOException("Unknown value tag " + tag);
+			}
+		}
+
+		private Class<?> resolveClass(String className) {
+			try {
+				return ClassUtils.forName(className, this.classLoader);
+			}
+			catch (ClassNotFoundException | LinkageError ex) {
+				throw new BeanDefinitionStoreException(
+						"Bean definition snapshot refers to class [" + className + "] which cannot be resolved", ex);
+			}
+		}
+
+		@Nullable
+		private String[] readNullableStringArray() throws IOException {
+			int length = readInt();
+			if (length == -1) {
+				return null;
+			}
+			String[] array = new String[length];
+			for (int i = 0; i < length; i++) {
+				array[i] = readString();
+			}
+			return array;
+		}
+
+		public String readString() throws IOException {
+			String value = readNullableString();
+			if (value == null) {
+				throw new IOException("Unexpected null string");
+			}
+			return value;
+		}
+
+		@Nullable
+		private String readNullableString() throws IOException {
+			int reference = readInt();
+			if (reference == 0) {
+				return null;
+			}
+			if (reference == -1) {
+				String value = this.in.readUTF();
+				this.strings.add(value);
+				return value;
+			}
+			if (reference > this.strings.size()) {
+				throw new IOException("Invalid string reference " + reference);
+			}
+			return this.strings.get(reference - 1);
+		}
+
+		private boolean readBoolean() throws IOException {
+			return this.in.readBoolean();
+		}
+
+		public int readInt() throws IOException {
+			int encoded = 0;
+			int shift = 0;
+			int b;
+			do {
+				if (shift > 28) {
+					throw new IOException("Malformed variable-length int");
+				}
+				b = this.in.readUnsignedByte();
+				encoded |= (b & 0x7F) << shift;
+				shift += 7;
+			}
+			while ((b & 0x80) != 0);
+			return (encoded >>> 1) ^ -(encoded & 1);
+		}
+	}
+
+}
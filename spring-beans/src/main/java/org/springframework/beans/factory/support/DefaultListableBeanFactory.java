@@ -157,7 +157,12 @@ public class DefaultListableBeanFactory extends AbstractAutowireCapableBeanFacto
 	/** Map of bean definition objects, keyed by bean name */
 	private final Map<String, BeanDefinition> beanDefinitionMap = new ConcurrentHashMap<>(256);
 
-	/** Map of singleton and non-singleton bean names, keyed by dependency type */
+	/**
+	 * Map of singleton and non-singleton bean names, keyed by dependency type.
+	 * <p>Only populated once the configuration is frozen. Plain manually registered
+	 * singletons are added and removed in place; any other change, in particular
+	 * to bean definitions, clears the by-type caches.
+	 */
 	private final Map<Class<?>, String[]> allBeanNamesByType = new ConcurrentHashMap<>(64);
 
 	/** Map of singleton-only bean names, keyed by dependency type */
@@ -177,6 +182,9 @@ public class DefaultListableBeanFactory extends AbstractAutowireCapableBeanFacto
 	/** Whether bean definition metadata may be cached for all beans */
 	private volatile boolean configurationFrozen = false;
 
+	/** Number of threads for pre-instantiating singletons, 1 for sequential creation */
+	private int preInstantiationParallelism = 1;
+
 
 	/**
 	 * Create a new DefaultListableBeanFactory.
@@ -280,6 +288,33 @@ public class DefaultListableBeanFactory extends AbstractAutowireCapableBeanFacto
 		return this.dependencyComparator;
 	}
 
+	/**
+	 * Set the number of threads to use for creating non-lazy singletons
+	 * in {@link #preInstantiateSingletons()}.
+	 * <p>Default is 1, creating all singletons one after the other on the
+	 * calling thread. A higher value derives a dependency graph from the
+	 * registered bean definitions and creates independent beans concurrently
+	 * on a fork-join pool with the given parallelism, while beans that refer
+	 * to each other are still created together on a single thread.
+	 * <p>Note that {@link SmartInitializingSingleton} callbacks are still
+	 * invoked on the calling thread, in registration order, once all
+	 * singletons have been created.
+	 * @since 5.0.18
+	 * @see #preInstantiateSingletons()
+	 */
+	public void setPreInstantiationParallelism(int preInstantiationParallelism) {
+		Assert.isTrue(preInstantiationParallelism > 0, "Pre-instantiation parallelism must be greater than 0");
+		this.preInstantiationParallelism = preInstantiationParallelism;
+	}
+
+	/**
+	 * Return the number of threads to use for creating non-lazy singletons.
+	 * @since 5.0.18
+	 */
+	public int getPreInstantiationParallelism() {
+		return this.preInstantiationParallelism;
+	}
+
 	/**
 	 * Set a custom autowire candidate resolver for this BeanFactory to use
 	 * when deciding whether a bean definition should be considered as a
@@ -317,6 +352,7 @@ public class DefaultListableBeanFactory extends AbstractAutowireCapableBeanFacto
 			this.allowBeanDefinitionOverriding = otherListableFactory.allowBeanDefinitionOverriding;
 			this.allowEagerClassLoading = otherListableFactory.allowEagerClassLoading;
 			this.dependencyComparator = otherListableFactory.dependencyComparator;
+			this.preInstantiationParallelism = otherListableFactory.preInstantiationParallelism;
 			// A clone of the AutowireCandidateResolver since it is potentially BeanFactoryAware...
 			setAutowireCandidateResolver(
 					BeanUtils.instantiateClass(otherListableFactory.getAutowireCandidateResolver().getClass()));
@@ -728,31 +764,13 @@ public class DefaultListableBeanFactory extends AbstractAutowireCapableBeanFacto
 		List<String> beanNames = new ArrayList<>(this.beanDefinitionNames);
 
 		// 开始所有的非懒加载的bean的初始化
-		for (String beanName : beanNames) {
-			// 合并父类的 BeanDefinition 的定义信息到当前类
-			// （ getMergedLocalBeanDefinition 里面递归地合并，合并了所有父类信息的 BeanDefinition 的类型是 RootBeanDefinition ，
-			//  而刚从XML中解析后仅包含当前类信息的 BeanDefinition 类型是 GenericBeanDefinition ）
-			RootBeanDefinition bd = getMergedLocalBeanDefinition(beanName);
-			// 初始化类必须是非抽象类、并且是非懒加载的单例 BeanDefinition
-			if (!bd.isAbstract() && bd.isSingleton() && !bd.isLazyInit()) {
-				// 如果是FactoryBean，beanName前面是有‘&’符号的。下面分支里面会再调用getBean
-				if (isFactoryBean(beanName)) {
-					Object bean = getBean(FACTORY_BEAN_PREFIX + beanName);
-					if (bean instanceof FactoryBean) {
-						FactoryBean<?> factory = (FactoryBean<?>) bean;
-						boolean isEagerInit;
-						if (System.getSecurityManager() != null && factory instanceof SmartFactoryBean) {
-							isEagerInit = AccessController.doPrivileged((PrivilegedAction<Boolean>) ((SmartFactoryBean<?>) factory)::isEagerInit, getAccessControlContext());
-						} else {
-							isEagerInit = (factory instanceof SmartFactoryBean && ((SmartFactoryBean<?>) factory).isEagerInit());
-						}
-						if (isEagerInit) {
-							getBean(beanName);
-						}
-					}
-				} else {
-					// 普通的Bean在在这里进行初始化
-					getBean(beanName);
+		if (this.preInstantiationParallelism > 1) {
+			new ParallelSingletonPreInstantiator(this, this.preInstantiationParallelism).preInstantiate(beanNames);
+		}
+		else {
+			for (String beanName : beanNames) {
+				if (isPreInstantiationCandidate(beanName)) {
+					preInstantiateSingleton(beanName);
 				}
 			}
 		}
@@ -776,6 +794,49 @@ public class DefaultListableBeanFactory extends AbstractAutowireCapableBeanFacto
 
 	}
 
+	/**
+	 * Determine whether the given bean is a non-lazy singleton to be created
+	 * in {@link #preInstantiateSingletons()}.
+	 * @param beanName the name of the bean definition
+	 * @since 5.0.18
+	 */
+	boolean isPreInstantiationCandidate(String beanName) {
+		// 合并父类的 BeanDefinition 的定义信息到当前类
+		// （ getMergedLocalBeanDefinition 里面递归地合并，合并了所有父类信息的 BeanDefinition 的类型是 RootBeanDefinition ，
+		//  而刚从XML中解析后仅包含当前类信息的 BeanDefinition 类型是 GenericBeanDefinition ）
+		RootBeanDefinition bd = getMergedLocalBeanDefinition(beanName);
+		// 初始化类必须是非抽象类、并且是非懒加载的单例 BeanDefinition
+		return (!bd.isAbstract() && bd.isSingleton() && !bd.isLazyInit());
+	}
+
+	/**
+	 * Create the given non-lazy singleton, including the object exposed by
+	 * an eager-init {@link SmartFactoryBean}.
+	 * @param beanName the name of the bean definition
+	 * @since 5.0.18
+	 */
+	void preInstantiateSingleton(String beanName) {
+		// 如果是FactoryBean，beanName前面是有‘&’符号的。下面分支里面会再调用getBean
+		if (isFactoryBean(beanName)) {
+			Object bean = getBean(FACTORY_BEAN_PREFIX + beanName);
+			if (bean instanceof FactoryBean) {
+				FactoryBean<?> factory = (FactoryBean<?>) bean;
+				boolean isEagerInit;
+				if (System.getSecurityManager() != null && factory instanceof SmartFactoryBean) {
+					isEagerInit = AccessController.doPrivileged((PrivilegedAction<Boolean>) ((SmartFactoryBean<?>) factory)::isEagerInit, getAccessControlContext());
+				} else {
+					isEagerInit = (factory instanceof SmartFactoryBean && ((SmartFactoryBean<?>) factory).isEagerInit());
+				}
+				if (isEagerInit) {
+					getBean(beanName);
+				}
+			}
+		} else {
+			// 普通的Bean在在这里进行初始化
+			getBean(beanName);
+		}
+	}
+
 	@Override
 	public void registerBeanDefinition(String beanName, BeanDefinition beanDefinition) throws BeanDefinitionStoreException {
 
@@ -940,14 +1001,23 @@ public class DefaultListableBeanFactory extends AbstractAutowireCapableBeanFacto
 			}
 		}
 
-		clearByTypeCache();
+		if (singletonObject instanceof FactoryBean || this.beanDefinitionMap.containsKey(beanName)) {
+			clearByTypeCache();
+		}
+		else {
+			addToByTypeCache(beanName, singletonObject);
+		}
 	}
 
 	@Override
 	public void destroySingleton(String beanName) {
 		super.destroySingleton(beanName);
-		this.manualSingletonNames.remove(beanName);
-		clearByTypeCache();
+		if (this.manualSingletonNames.remove(beanName) && !this.beanDefinitionMap.containsKey(beanName)) {
+			removeFromByTypeCache(beanName);
+		}
+		else {
+			clearByTypeCache();
+		}
 	}
 
 	@Override
@@ -965,6 +1035,45 @@ public class DefaultListableBeanFactory extends AbstractAutowireCapableBeanFacto
 		this.singletonBeanNamesByType.clear();
 	}
 
+	/**
+	 * Append the name of a newly registered manual singleton to every cached
+	 * by-type mapping that its instance matches, keeping all other mappings.
+	 * <p>Manual singletons are matched after all bean definitions, in
+	 * registration order, so appending retains the uncached result order.
+	 * <p>There is no such incremental update for bean definitions: their types
+	 * cannot be reliably determined on registration, before post-processors
+	 * for type prediction and FactoryBean object types are available.
+	 * @param beanName the name of the manual singleton
+	 * @param singletonObject the singleton instance (not a FactoryBean)
+	 */
+	private void addToByTypeCache(String beanName, Object singletonObject) {
+		for (Map<Class<?>, String[]> cache : Arrays.asList(this.allBeanNamesByType, this.singletonBeanNamesByType)) {
+			cache.replaceAll((type, beanNames) -> (ClassUtils.isAssignableValue(type, singletonObject) ?
+					StringUtils.addStringToArray(beanNames, beanName) : beanNames));
+		}
+	}
+
+	/**
+	 * Remove the name of a destroyed manual singleton from all cached
+	 * by-type mappings, keeping the mappings themselves.
+	 * @param beanName the name of the manual singleton
+	 */
+	private void removeFromByTypeCache(String beanName) {
+		String factoryBeanName = FACTORY_BEAN_PREFIX + beanName;
+		for (Map<Class<?>, String[]> cache : Arrays.asList(this.allBeanNamesByType, this.singletonBeanNamesByType)) {
+			cache.replaceAll((type, beanNames) -> {
+				if (!ObjectUtils.containsElement(beanNames, beanName) &&
+						!ObjectUtils.containsElement(beanNames, factoryBeanName)) {
+					return beanNames;
+				}
+				List<String> result = new ArrayList<>(Arrays.asList(beanNames));
+				result.remove(beanName);
+				result.remove(factoryBeanName);
+				return StringUtils.toStringArray(result);
+			});
+		}
+	}
+
 
 	//---------------------------------------------------------------------
 	// Dependency resolution functionality
@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2018 the original author or authors.
+ * Copyright 2002-2020 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -25,6 +25,7 @@ import java.util.LinkedHashSet;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
 
 import org.springframework.beans.factory.BeanCreationException;
 import org.springframework.beans.factory.BeanCreationNotAllowedException;
@@ -32,6 +33,7 @@ import org.springframework.beans.factory.BeanCurrentlyInCreationException;
 import org.springframework.beans.factory.DisposableBean;
 import org.springframework.beans.factory.ObjectFactory;
 import org.springframework.beans.factory.config.SingletonBeanRegistry;
+import org.springframework.core.NamedThreadLocal;
 import org.springframework.core.SimpleAliasRegistry;
 import org.springframework.lang.Nullable;
 import org.springframework.util.Assert;
@@ -61,6 +63,14 @@ import org.springframework.util.StringUtils;
  * (which inherit from it). Can alternatively also be used as a nested
  * helper to delegate to.
  *
+ * <p>Singleton creation is guarded by a lock per bean name rather than by
+ * a registry-wide lock, so that independent singletons can be created
+ * concurrently. A thread asking for a singleton that is currently being
+ * created by another thread waits for that creation to complete; if both
+ * threads turn out to be waiting for each other, the early reference of the
+ * requested singleton is handed out, just like for circular references
+ * within a single thread.
+ *
  * @author Juergen Hoeller
  * @see #registerSingleton
  * @see #registerDisposableBean
@@ -103,15 +113,30 @@ public class DefaultSingletonBeanRegistry extends SimpleAliasRegistry implements
 			Collections.newSetFromMap(new ConcurrentHashMap<>(16));
 
 	/**
-	 * List of suppressed Exceptions, available for associating related causes
+	 * Locks for singleton creation: bean name --> lock, held only while in use
 	 */
-	@Nullable
-	private Set<Exception> suppressedExceptions;
+	private final Map<String, SingletonLock> singletonLocks = new ConcurrentHashMap<>(256);
+
+	/**
+	 * Threads waiting for a singleton lock: thread --> awaited singleton
+	 */
+	private final Map<Thread, SingletonLockWaiter> singletonLockWaiters = new ConcurrentHashMap<>(16);
+
+	/**
+	 * Number of signals sent to threads waiting for a singleton lock, guarded by the singleton mutex
+	 */
+	private long singletonLockSignals = 0;
+
+	/**
+	 * List of suppressed Exceptions per creating thread, available for associating related causes
+	 */
+	private final ThreadLocal<Set<Exception>> suppressedExceptions =
+			new NamedThreadLocal<>("Suppressed exceptions during singleton creation");
 
 	/**
 	 * Flag that indicates whether we're currently within destroySingletons
 	 */
-	private boolean singletonsCurrentlyInDestruction = false;
+	private volatile boolean singletonsCurrentlyInDestruction = false;
 
 	/**
 	 * Disposable bean instances: bean name --> disposable instance
@@ -183,6 +208,9 @@ public class DefaultSingletonBeanRegistry extends SimpleAliasRegistry implements
 	 * singletonObjects
 	 * earlySingletonObjects
 	 * singletonFactories
+	 * <p>Early references are only exposed to the thread that currently creates
+	 * the singleton; other threads wait for the fully initialized instance in
+	 * {@link #getSingleton(String, ObjectFactory)}.
 	 * */
 	@Nullable
 	protected Object getSingleton(String beanName, boolean allowEarlyReference) {
@@ -196,44 +224,91 @@ public class DefaultSingletonBeanRegistry extends SimpleAliasRegistry implements
 		 * Spring IoC容器初始化加载单实例bean的时候第一次进来的时候 该list中一般返回空,但是循环依赖的时候可以满足该条件
 		 */
 		if (singletonObject == null && isSingletonCurrentlyInCreation(beanName)) {
-			synchronized (this.singletonObjects) {
-				/**
-				 * 尝试去二级缓存中获取对象(earlySingletonObjects 二级缓存中的对象是一个早期对象)
-				 * 何为早期对象:就是bean刚刚调用了构造方法，还没给bean的属性进行赋值的对象就是早期对象
-				 */
+			SingletonLock lock = this.singletonLocks.get(beanName);
+			if (lock == null || lock.isHeldByCurrentThread()) {
+				singletonObject = getEarlySingletonReference(beanName, allowEarlyReference);
+			}
+		}
+		return singletonObject;
+	}
+
+	/**
+	 * Obtain the early reference for the given singleton, if exposed.
+	 * <p>The early singleton factory is invoked outside of the registry-wide lock,
+	 * since it may trigger the creation of further beans (e.g. advisors for an early
+	 * proxy) which in turn need to register themselves with this registry.
+	 */
+	@Nullable
+	private Object getEarlySingletonReference(String beanName, boolean allowEarlyReference) {
+		ObjectFactory<?> singletonFactory;
+		synchronized (this.singletonObjects) {
+			/**
+			 * 尝试去二级缓存中获取对象(earlySingletonObjects 二级缓存中的对象是一个早期对象)
+			 * 何为早期对象:就是bean刚刚调用了构造方法，还没给bean的属性进行赋值的对象就是早期对象
+			 */
+			Object singletonObject = this.singletonObjects.get(beanName);
+			if (singletonObject == null) {
 				singletonObject = this.earlySingletonObjects.get(beanName);
-				/** 二级缓存中也没有获取到对象,allowEarlyReference为true(参数是有上一个方法传递进来的true) */
-				if (singletonObject == null && allowEarlyReference) {
-					/**
-					 * 直接从三级缓存中获取 ObjectFactory 对象 这个对接就是用来解决循环依赖的关键所在
-					 * 在getBean的过程中,当bean调用了构造方法的时候,把早期对象包裹成一个ObjectFactory暴露到三级缓存中
-					 */
-					ObjectFactory<?> singletonFactory = this.singletonFactories.get(beanName);
-					if (singletonFactory != null) {
-						/**
-						 * 在这里通过暴露的ObjectFactory包装对象中,通过调用他的getObject()来获取我们的早期对象
-						 * 在这个环节中会调用到 getEarlyBeanReference()来进行后置处理
-						 */
-						singletonObject = singletonFactory.getObject();
-						/** 把早期对象放置在二级缓存 */
-						this.earlySingletonObjects.put(beanName, singletonObject);
-						/** ObjectFactory 包装对象从三级缓存中删除掉 */
-						this.singletonFactories.remove(beanName);
-					}
+			}
+			/** 二级缓存中也没有获取到对象,allowEarlyReference为true(参数是有上一个方法传递进来的true) */
+			if (singletonObject != null || !allowEarlyReference) {
+				return singletonObject;
+			}
+			/**
+			 * 直接从三级缓存中获取 ObjectFactory 对象 这个对接就是用来解决循环依赖的关键所在
+			 * 在getBean的过程中,当bean调用了构造方法的时候,把早期对象包裹成一个ObjectFactory暴露到三级缓存中
+			 */
+			singletonFactory = this.singletonFactories.get(beanName);
+			if (singletonFactory == null) {
+				return null;
+			}
+		}
+		synchronized (singletonFactory) {
+			synchronized (this.singletonObjects) {
+				Object singletonObject = this.earlySingletonObjects.get(beanName);
+				if (singletonObject != null) {
+					return singletonObject;
+				}
+				if (this.singletonFactories.get(beanName) != singletonFactory) {
+					return this.singletonObjects.get(beanName);
 				}
 			}
+			/**
+			 * 在这里通过暴露的ObjectFactory包装对象中,通过调用他的getObject()来获取我们的早期对象
+			 * 在这个环节中会调用到 getEarlyBeanReference()来进行后置处理
+			 */
+			Object singletonObject = singletonFactory.getObject();
+			synchronized (this.singletonObjects) {
+				if (this.singletonFactories.get(beanName) == singletonFactory) {
+					/** 把早期对象放置在二级缓存 */
+					this.earlySingletonObjects.put(beanName, singletonObject);
+					/** ObjectFactory 包装对象从三级缓存中删除掉 */
+					this.singletonFactories.remove(beanName);
+				}
+			}
+			return singletonObject;
 		}
-		return singletonObject;
 	}
 
 	/**
 	 * 从对象工厂中提取对象
+	 * <p>Only the creation of the given singleton is locked, allowing other
+	 * singletons to be created concurrently.
 	 */
 	public Object getSingleton(String beanName, ObjectFactory<?> singletonFactory) {
 		Assert.notNull(beanName, "Bean name must not be null");
-		synchronized (this.singletonObjects) {
-			// 从单例对象缓存池获取，存在就返回；否则就进入下面的流程方法
-			Object singletonObject = this.singletonObjects.get(beanName);
+		// 从单例对象缓存池获取，存在就返回；否则就进入下面的流程方法
+		Object singletonObject = this.singletonObjects.get(beanName);
+		if (singletonObject != null) {
+			return singletonObject;
+		}
+		Object earlyReference = acquireSingletonLock(beanName, true);
+		if (earlyReference != null) {
+			// Circular reference across threads: the other thread waits for us.
+			return earlyReference;
+		}
+		try {
+			singletonObject = this.singletonObjects.get(beanName);
 			if (singletonObject == null) {
 				if (this.singletonsCurrentlyInDestruction) {
 					throw new BeanCreationNotAllowedException(beanName, "Singleton bean creation not allowed while singletons of this factory are in destruction (Do not request a bean from a BeanFactory in a destroy method implementation!)");
@@ -244,9 +319,9 @@ public class DefaultSingletonBeanRegistry extends SimpleAliasRegistry implements
 				 */
 				beforeSingletonCreation(beanName);
 				boolean newSingleton = false;
-				boolean recordSuppressedExceptions = (this.suppressedExceptions == null);
+				boolean recordSuppressedExceptions = (this.suppressedExceptions.get() == null);
 				if (recordSuppressedExceptions) {
-					this.suppressedExceptions = new LinkedHashSet<>();
+					this.suppressedExceptions.set(new LinkedHashSet<>());
 				}
 				try {
 					// 在对象工厂中提取出单例对象
@@ -260,14 +335,14 @@ public class DefaultSingletonBeanRegistry extends SimpleAliasRegistry implements
 					}
 				} catch (BeanCreationException ex) {
 					if (recordSuppressedExceptions) {
-						for (Exception suppressedException : this.suppressedExceptions) {
+						for (Exception suppressedException : this.suppressedExceptions.get()) {
 							ex.addRelatedCause(suppressedException);
 						}
 					}
 					throw ex;
 				} finally {
 					if (recordSuppressedExceptions) {
-						this.suppressedExceptions = null;
+						this.suppressedExceptions.remove();
 					}
 					/** 后置处理主要做的事情就是把singletonsCurrentlyInCreation标记正在创建的bean从集合中移除 */
 					afterSingletonCreation(beanName);
@@ -279,6 +354,214 @@ public class DefaultSingletonBeanRegistry extends SimpleAliasRegistry implements
 			}
 			return singletonObject;
 		}
+		finally {
+			releaseSingletonLock(beanName);
+		}
+	}
+
+	/**
+	 * Acquire the creation lock for the given singleton, waiting for another
+	 * thread to complete an ongoing creation of the same singleton if necessary.
+	 * <p>To be paired with {@link #unlockSingleton} in a finally block.
+	 * @param beanName the name of the bean
+	 * @throws BeanCurrentlyInCreationException if the singleton is being created by
+	 * another thread that in turn waits for a singleton locked by the current thread
+	 * @since 5.0.18
+	 * @see #tryLockSingleton
+	 */
+	protected void lockSingleton(String beanName) {
+		acquireSingletonLock(beanName, false);
+	}
+
+	/**
+	 * Acquire the creation lock for the given singleton only if it is not
+	 * held by another thread at the time of invocation.
+	 * <p>To be paired with {@link #unlockSingleton} in a finally block
+	 * if successful.
+	 * @param beanName the name of the bean
+	 * @return {@code true} if the lock was acquired
+	 * @since 5.0.18
+	 * @see #lockSingleton
+	 */
+	protected boolean tryLockSingleton(String beanName) {
+		SingletonLock lock = obtainSingletonLock(beanName);
+		if (lock.tryLock()) {
+			return true;
+		}
+		releaseSingletonLockReference(beanName, lock);
+		return false;
+	}
+
+	/**
+	 * Release the creation lock for the given singleton.
+	 * @param beanName the name of the bean
+	 * @since 5.0.18
+	 * @see #lockSingleton
+	 * @see #tryLockSingleton
+	 */
+	protected void unlockSingleton(String beanName) {
+		releaseSingletonLock(beanName);
+	}
+
+	/**
+	 * Acquire the creation lock for the given singleton.
+	 * @param beanName the name of the bean
+	 * @param allowEarlyReference whether to resolve a circular reference across
+	 * threads through the early reference of the singleton
+	 * @return {@code null} if the lock has been acquired, or the early singleton
+	 * reference to use instead (only if {@code allowEarlyReference} is {@code true})
+	 */
+	@Nullable
+	private Object acquireSingletonLock(String beanName, boolean allowEarlyReference) {
+		SingletonLock lock = obtainSingletonLock(beanName);
+		if (lock.tryLock()) {
+			return null;
+		}
+
+		Thread currentThread = Thread.currentThread();
+		boolean acquired = false;
+		boolean interrupted = false;
+		boolean cycleDetected = false;
+		this.singletonLockWaiters.put(currentThread, new SingletonLockWaiter(beanName, allowEarlyReference));
+		try {
+			while (true) {
+				long signals;
+				synchronized (this.singletonObjects) {
+					signals = this.singletonLockSignals;
+				}
+				Set<SingletonLockWaiter> cycle = findWaitCycle(lock, currentThread);
+				if (cycle != null) {
+					if (allowEarlyReference) {
+						Object earlyReference = getEarlySingletonReference(beanName, true);
+						if (earlyReference != null) {
+							return earlyReference;
+						}
+					}
+					// Another thread in the cycle may still break it through an early reference
+					if (cycleDetected && !isResolvable(cycle)) {
+						throw new BeanCurrentlyInCreationException(beanName, "Requested bean is currently in " +
+								"creation on another thread which is waiting for a bean held by the current thread: " +
+								"Is there an unresolvable circular reference?");
+					}
+					// Let the other threads in the cycle check it as well, and check once more
+					// when signalled by one of them, ruling out a stale lock state.
+					cycleDetected = true;
+					signals = signalSingletonLockWaiters();
+				}
+				else {
+					cycleDetected = false;
+				}
+				// A thread holding the singleton mutex must not block the creating thread
+				// on its way into the registry: wait on the mutex, releasing it meanwhile.
+				synchronized (this.singletonObjects) {
+					if (lock.tryLock()) {
+						acquired = true;
+						return null;
+					}
+					try {
+						while (this.singletonLockSignals == signals) {
+							this.singletonObjects.wait();
+						}
+					}
+					catch (InterruptedException ex) {
+						interrupted = true;
+					}
+				}
+			}
+		}
+		finally {
+			this.singletonLockWaiters.remove(currentThread);
+			if (!acquired) {
+				releaseSingletonLockReference(beanName, lock);
+			}
+			if (interrupted) {
+				currentThread.interrupt();
+			}
+		}
+	}
+
+	private void releaseSingletonLock(String beanName) {
+		SingletonLock lock = this.singletonLocks.get(beanName);
+		Assert.state(lock != null, () -> "No lock for singleton '" + beanName + "'");
+		lock.unlock();
+		releaseSingletonLockReference(beanName, lock);
+		if (!this.singletonLockWaiters.isEmpty()) {
+			signalSingletonLockWaiters();
+		}
+	}
+
+	/**
+	 * Obtain the lock for the given singleton, registering the current thread
+	 * as a user of the lock until {@link #releaseSingletonLockReference}.
+	 */
+	private SingletonLock obtainSingletonLock(String beanName) {
+		return this.singletonLocks.compute(beanName, (name, lock) -> {
+			SingletonLock lockToUse = (lock != null ? lock : new SingletonLock(name));
+			lockToUse.references++;
+			return lockToUse;
+		});
+	}
+
+	/**
+	 * Deregister the current thread as a user of the given lock,
+	 * removing the lock once it is neither held nor awaited anymore.
+	 */
+	private void releaseSingletonLockReference(String beanName, SingletonLock lock) {
+		this.singletonLocks.computeIfPresent(beanName, (name, existing) ->
+				(existing == lock && --existing.references == 0 ? null : existing));
+	}
+
+	/**
+	 * Wake up all threads waiting for a singleton lock, letting them check
+	 * the lock and their wait cycles again.
+	 * @return the current signal count
+	 */
+	private long signalSingletonLockWaiters() {
+		synchronized (this.singletonObjects) {
+			this.singletonObjects.notifyAll();
+			return ++this.singletonLockSignals;
+		}
+	}
+
+	/**
+	 * Determine whether the owner of the given lock is (transitively) waiting
+	 * for a singleton lock held by the current thread.
+	 * @return the waiting states of the other threads in the cycle,
+	 * or {@code null} if there is no such cycle
+	 */
+	@Nullable
+	private Set<SingletonLockWaiter> findWaitCycle(SingletonLock lock, Thread currentThread) {
+		Set<Thread> seen = new HashSet<>();
+		Set<SingletonLockWaiter> cycle = new LinkedHashSet<>();
+		Thread owner = lock.getOwnerThread();
+		while (owner != null && seen.add(owner)) {
+			if (owner == currentThread) {
+				return cycle;
+			}
+			SingletonLockWaiter waiter = this.singletonLockWaiters.get(owner);
+			SingletonLock awaitedLock = (waiter != null ? this.singletonLocks.get(waiter.beanName) : null);
+			if (awaitedLock != null) {
+				cycle.add(waiter);
+			}
+			owner = (awaitedLock != null ? awaitedLock.getOwnerThread() : null);
+		}
+		return null;
+	}
+
+	/**
+	 * Determine whether any of the given waiting threads is able to proceed
+	 * through the early reference of the singleton that it is waiting for.
+	 */
+	private boolean isResolvable(Set<SingletonLockWaiter> cycle) {
+		synchronized (this.singletonObjects) {
+			for (SingletonLockWaiter waiter : cycle) {
+				if (waiter.allowEarlyReference && (this.earlySingletonObjects.containsKey(waiter.beanName) ||
+						this.singletonFactories.containsKey(waiter.beanName))) {
+					return true;
+				}
+			}
+		}
+		return false;
 	}
 
 	/**
@@ -288,10 +571,9 @@ public class DefaultSingletonBeanRegistry extends SimpleAliasRegistry implements
 	 * @param ex the Exception to register
 	 */
 	protected void onSuppressedException(Exception ex) {
-		synchronized (this.singletonObjects) {
-			if (this.suppressedExceptions != null) {
-				this.suppressedExceptions.add(ex);
-			}
+		Set<Exception> suppressedExceptions = this.suppressedExceptions.get();
+		if (suppressedExceptions != null) {
+			suppressedExceptions.add(ex);
 		}
 	}
 
@@ -646,10 +928,58 @@ public class DefaultSingletonBeanRegistry extends SimpleAliasRegistry implements
 	 * any sort of extended singleton creation phase. In particular, subclasses
 	 * should <i>not</i> have their own mutexes involved in singleton creation,
 	 * to avoid the potential for deadlocks in lazy-init situations.
+	 * <p>As of 5.0.18, the mutex only guards the registry state itself while
+	 * the actual creation of a singleton is guarded by a lock for its bean name
+	 * (see {@link #lockSingleton}). A thread holding the mutex temporarily
+	 * releases it while waiting for a singleton created by another thread.
 	 */
 	@Override
 	public final Object getSingletonMutex() {
 		return this.singletonObjects;
 	}
 
+
+	/**
+	 * Reentrant lock for the creation of a specific singleton,
+	 * exposing its current owner for deadlock detection.
+	 */
+	@SuppressWarnings("serial")
+	private static class SingletonLock extends ReentrantLock {
+
+		private final String beanName;
+
+		/** Number of threads holding or waiting for this lock, guarded by the lock map entry */
+		int references;
+
+		public SingletonLock(String beanName) {
+			this.beanName = beanName;
+		}
+
+		@Nullable
+		public Thread getOwnerThread() {
+			return getOwner();
+		}
+
+		@Override
+		public String toString() {
+			return "SingletonLock for bean '" + this.beanName + "': " + super.toString();
+		}
+	}
+
+
+	/**
+	 * Waiting state of a thread in {@code acquireSingletonLock}.
+	 */
+	private static final class SingletonLockWaiter {
+
+		final String beanName;
+
+		final boolean allowEarlyReference;
+
+		SingletonLockWaiter(String beanName, boolean allowEarlyReference) {
+			this.beanName = beanName;
+			this.allowEarlyReference = allowEarlyReference;
+		}
+	}
+
 }
@@ -84,7 +84,8 @@ public abstract class FactoryBeanRegistrySupport extends DefaultSingletonBeanReg
 		 * 2. 非单例 FactoryBean 生成的 bean 实例则不会被放入缓存中，每次都会创建新的实例
 		 **/
 		if (factory.isSingleton() && containsSingleton(beanName)) {
-			synchronized (getSingletonMutex()) {
+			lockSingleton(beanName);
+			try {
 				// 从缓存中取bean实例，避免多次创建bean实例
 				Object object = this.factoryBeanObjectCache.get(beanName);
 				if (object == null) {
@@ -118,6 +119,9 @@ public abstract class FactoryBeanRegistrySupport extends DefaultSingletonBeanReg
 				}
 				return object;
 			}
+			finally {
+				unlockSingleton(beanName);
+			}
 		}
 		else {
 			Object object = doGetObjectFromFactoryBean(factory, beanName);
@@ -0,0 +1,285 @@
+/*
+ * Copyright 2002-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.beans.factory.support;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ForkJoinPool;
+
+import org.springframework.beans.PropertyValue;
+import org.springframework.beans.factory.BeanFactoryUtils;
+import org.springframework.beans.factory.config.BeanDefinition;
+import org.springframework.beans.factory.config.BeanDefinitionHolder;
+import org.springframework.beans.factory.config.BeanReference;
+import org.springframework.beans.factory.config.ConstructorArgumentValues;
+import org.springframework.beans.factory.config.RuntimeBeanReference;
+import org.springframework.lang.Nullable;
+import org.springframework.util.concurrent.ParallelTaskGroup;
+
+/**
+ * Helper for {@link DefaultListableBeanFactory#preInstantiateSingletons()}
+ * that creates non-lazy singletons concurrently on a bounded {@link ForkJoinPool},
+ * through a {@link ParallelTaskGroup}.
+ *
+ * <p>A dependency graph is derived from the merged bean definitions: bean
+ * references in property values and constructor arguments, inner bean
+ * definitions, "depends-on" declarations and factory bean names. Beans that
+ * refer to each other (strongly connected components of that graph) are created
+ * together on a single thread in registration order, which retains the regular
+ * circular reference resolution. A group of beans only gets scheduled once all
+ * groups it depends on have been created, so independent subtrees are built
+ * concurrently.
+ *
+ * <p>Dependencies that are not visible in bean definition metadata, e.g.
+ * annotation-driven injection points, are simply resolved on demand by the
+ * thread that happens to need them, just like in the sequential case.
+ *
+ * @since 5.0.18
+ * @see DefaultListableBeanFactory#setPreInstantiationParallelism
+ */
+final class ParallelSingletonPreInstantiator {
+
+	private final DefaultListableBeanFactory beanFactory;
+
+	private final int parallelism;
+
+
+	ParallelSingletonPreInstantiator(DefaultListableBeanFactory beanFactory, int parallelism) {
+		this.beanFactory = beanFactory;
+		this.parallelism = parallelism;
+	}
+
+
+	/**
+	 * Create all non-lazy singletons among the given bean names.
+	 * @param beanNames the bean definition names, in registration order
+	 */
+	public void preInstantiate(List<String> beanNames) {
+		List<String> candidates = new ArrayList<>(beanNames.size());
+		Map<String, Integer> indexes = new LinkedHashMap<>(beanNames.size());
+		for (String beanName : beanNames) {
+			if (this.beanFactory.isPreInstantiationCandidate(beanName) && !indexes.containsKey(beanName)) {
+				indexes.put(beanName, candidates.size());
+				candidates.add(beanName);
+			}
+		}
+
+		int[][] dependencies = new int[candidates.size()][];
+		for (int i = 0; i < candidates.size(); i++) {
+			Set<String> refs = new LinkedHashSet<>();
+			collectReferences(this.beanFactory.getMergedLocalBeanDefinition(candidates.get(i)), refs);
+			Set<Integer> targets = new LinkedHashSet<>();
+			for (String ref : refs) {
+				Integer target = indexes.get(this.beanFactory.canonicalName(BeanFactoryUtils.transformedBeanName(ref)));
+				if (target != null && target != i) {
+					targets.add(target);
+				}
+			}
+			dependencies[i] = targets.stream().mapToInt(Integer::intValue).toArray();
+		}
+
+		List<int[]> components = new StronglyConnectedComponents(dependencies).compute();
+		if (components.size() <= 1) {
+			for (String beanName : candidates) {
+				this.beanFactory.preInstantiateSingleton(beanName);
+			}
+			return;
+		}
+
+		int[] componentIndexes = new int[candidates.size()];
+		for (int c = 0; c < components.size(); c++) {
+			for (int member : components.get(c)) {
+				componentIndexes[member] = c;
+			}
+		}
+
+		ParallelTaskGroup tasks = new ParallelTaskGroup(this.parallelism);
+		// Components are emitted with their dependencies first,
+		// so every upstream future has been created at this point.
+		List<CompletableFuture<Void>> futures = new ArrayList<>(components.size());
+		for (int c = 0; c < components.size(); c++) {
+			int[] members = components.get(c);
+			Set<CompletableFuture<Void>> upstream = new LinkedHashSet<>();
+			for (int member : members) {
+				for (int dependency : dependencies[member]) {
+					int dependencyComponent = componentIndexes[dependency];
+					if (dependencyComponent != c) {
+						upstream.add(futures.get(dependencyComponent));
+					}
+				}
+			}
+			futures.add(tasks.runAfter(upstream, () -> {
+				for (int member : members) {
+					this.beanFactory.preInstantiateSingleton(candidates.get(member));
+				}
+			}));
+		}
+		tasks.join();
+	}
+
+	private void collectReferences(BeanDefinition bd, Set<String> refs) {
+		String[] dependsOn = bd.getDependsOn();
+		if (dependsOn != null) {
+			refs.addAll(Arrays.asList(dependsOn));
+		}
+		if (bd.getFactoryBeanName() != null) {
+			refs.add(bd.getFactoryBeanName());
+		}
+		for (PropertyValue pv : bd.getPropertyValues().getPropertyValues()) {
+			collectReferences(pv.getValue(), refs);
+		}
+		ConstructorArgumentValues cargs = bd.getConstructorArgumentValues();
+		for (ConstructorArgumentValues.ValueHolder valueHolder : cargs.getIndexedArgumentValues().values()) {
+			collectReferences(valueHolder.getValue(), refs);
+		}
+		for (ConstructorArgumentValues.ValueHolder valueHolder : cargs.getGenericArgumentValues()) {
+			collectReferences(valueHolder.getValue(), refs);
+		}
+	}
+
+	private void collectReferences(@Nullable Object value, Set<String> refs) {
+		if (value instanceof RuntimeBeanReference && ((RuntimeBeanReference) value).isToParent()) {
+			return;
+		}
+		if (value instanceof BeanReference) {
+			refs.add(((BeanReference) value).getBeanName());
+		}
+		else if (value instanceof BeanDefinitionHolder) {
+			collectReferences(((BeanDefinitionHolder) value).getBeanDefinition(), refs);
+		}
+		else if (value instanceof BeanDefinition) {
+			collectReferences((BeanDefinition) value, refs);
+		}
+		else if (value instanceof Object[]) {
+			for (Object element : (Object[]) value) {
+				collectReferences(element, refs);
+			}
+		}
+		else if (value instanceof Collection) {
+			for (Object element : (Collection<?>) value) {
+				collectReferences(element, refs);
+			}
+		}
+		else if (value instanceof Map) {
+			for (Map.Entry<?, ?> entry : ((Map<?, ?>) value).entrySet()) {
+				collectReferences(entry.getKey(), refs);
+				collectReferences(entry.getValue(), refs);
+			}
+		}
+	}
+
+
+	/**
+	 * Iterative variant of Tarjan's algorithm, emitting each component after
+	 * all components it depends on. Members of a component are sorted by index,
+	 * i.e. by bean registration order.
+	 */
+	private static class StronglyConnectedComponents {
+
+		private final int[][] edges;
+
+		private final int[] index;
+
+		private final int[] lowLink;
+
+		private final boolean[] onStack;
+
+		private final Deque<Integer> stack = new ArrayDeque<>();
+
+		private final List<int[]> components = new ArrayList<>();
+
+		private int counter = 0;
+
+		StronglyConnectedComponents(int[][] edges) {
+			this.edges = edges;
+			this.index = new int[edges.length];
+			this.lowLink = new int[edges.length];
+			this.onStack = new boolean[edges.length];
+			Arrays.fill(this.index, -1);
+		}
+
+		public List<int[]> compute() {
+			for (int node = 0; node < this.edges.length; node++) {
+				if (this.index[node] == -1) {
+					visit(node);
+				}
+			}
+			return this.components;
+		}
+
+		private void visit(int root) {
+			// Each frame holds a node and the position of the next edge to follow
+			Deque<int[]> frames = new ArrayDeque<>();
+			open(root);
+			frames.push(new int[] {root, 0});
+			while (!frames.isEmpty()) {
+				int[] frame = frames.peek();
+				int node = frame[0];
+				if (frame[1] < this.edges[node].length) {
+					int target = this.edges[node][frame[1]++];
+					if (this.index[target] == -1) {
+						open(target);
+						frames.push(new int[] {target, 0});
+					}
+					else if (this.onStack[target]) {
+						this.lowLink[node] = Math.min(this.lowLink[node], this.index[target]);
+					}
+				}
+				else {
+					frames.pop();
+					if (!frames.isEmpty()) {
+						int parent = frames.peek()[0];
+						this.lowLink[parent] = Math.min(this.lowLink[parent], this.lowLink[node]);
+					}
+					if (this.lowLink[node] == this.index[node]) {
+						close(node);
+					}
+				}
+			}
+		}
+
+		private void open(int node) {
+			this.index[node] = this.counter;
+			this.lowLink[node] = this.counter;
+			this.counter++;
+			this.stack.push(node);
+			this.onStack[node] = true;
+		}
+
+		private void close(int node) {
+			List<Integer> members = new ArrayList<>();
+			int member;
+			do {
+				member = this.stack.pop();
+				this.onStack[member] = false;
+				members.add(member);
+			}
+			while (member != node);
+			this.components.add(members.stream().mapToInt(Integer::intValue).sorted().toArray());
+		}
+	}
+
+}
@@ -0,0 +1,183 @@
+/*
+ * Copyright 2002-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.beans;
+
+import java.lang.reflect.Method;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests for {@link BeanPropertyAccessorGenerator} and its use in {@link BeanWrapperImpl}.
+ *
+ * @since 5.0.18
+ */
+public class BeanPropertyAccessorGeneratorTests {
+
+	@Test
+	public void generatedReadersAndWriters() throws Exception {
+		Function<Object, Object> nameReader = BeanPropertyAccessorGenerator.getReader(
+				AccessorBean.class, AccessorBean.class.getMethod("getName"));
+		BiConsumer<Object, Object> nameWriter = BeanPropertyAccessorGenerator.getWriter(
+				AccessorBean.class, AccessorBean.class.getMethod("setName", String.class));
+		BiConsumer<Object, Object> ageWriter = BeanPropertyAccessorGenerator.getWriter(
+				AccessorBean.class, AccessorBean.class.getMethod("setAge", int.class));
+		BiConsumer<Object, Object> weightWriter = BeanPropertyAccessorGenerator.getWriter(
+				AccessorBean.class, AccessorBean.class.getMethod("setWeight", double.class));
+		assertNotNull(nameReader);
+		assertNotNull(nameWriter);
+		assertNotNull(ageWriter);
+		assertNotNull(weightWriter);
+		assertTrue(nameReader.getClass().getName().endsWith("$$PropertyAccessor"));
+
+		AccessorBean bean = new AccessorBean();
+		nameWriter.accept(bean, "Juergen");
+		ageWriter.accept(bean, 42);
+		weightWriter.accept(bean, 7.5d);
+		assertEquals("Juergen", nameReader.apply(bean));
+		assertEquals(42, bean.getAge());
+		assertEquals(7.5d, bean.getWeight(), 0.0d);
+		assertSame(nameReader, BeanPropertyAccessorGenerator.getReader(
+				AccessorBean.class, AccessorBean.class.getMethod("getName")));
+	}
+
+	@Test
+	public void nonPublicMethodsNotGenerated() throws Exception {
+		Method readMethod = PackagePrivateBean.class.getMethod("getName");
+		assertNull(BeanPropertyAccessorGenerator.getReader(PackagePrivateBean.class, readMethod));
+	}
+
+	@Test
+	public void beanWrapperWithGeneratedAccessors() {
+		AccessorBean bean = new AccessorBean();
+		BeanWrapperImpl bw = new BeanWrapperImpl(bean);
+		bw.setUseGeneratedAccessors(true);
+		bw.setAutoGrowNestedPaths(true);
+		bw.setPropertyValue("name", "Juergen");
+		bw.setPropertyValue("age", "42");
+		bw.setPropertyValue("flags", new String[] {"1", "2"});
+		bw.setPropertyValue("nested.name", "Rod");
+		bw.setPropertyValue("nested.weight", 1.5d);
+		assertEquals("Juergen", bean.getName());
+		assertEquals(42, bw.getPropertyValue("age"));
+		assertArrayEquals(new int[] {1, 2}, bean.getFlags());
+		assertEquals("Rod", bw.getPropertyValue("nested.name"));
+		assertEquals(1.5d, bean.getNested().getWeight(), 0.0d);
+		assertTrue(((BeanWrapperImpl) bw.getPropertyAccessorForPropertyPath("nested.name")).isUseGeneratedAccessors());
+	}
+
+	@Test
+	public void beanWrapperWithGeneratedAccessorsPropagatesExceptions() {
+		BeanWrapperImpl bw = new BeanWrapperImpl(new AccessorBean());
+		bw.setUseGeneratedAccessors(true);
+		try {
+			bw.setPropertyValue("failing", "value");
+			fail("Should have thrown MethodInvocationException");
+		}
+		catch (MethodInvocationException ex) {
+			assertTrue(ex.getCause() instanceof UnsupportedOperationException);
+		}
+		try {
+			bw.getPropertyValue("failing");
+			fail("Should have thrown InvalidPropertyException");
+		}
+		catch (InvalidPropertyException ex) {
+			assertTrue(ex.getCause().getCause() instanceof UnsupportedOperationException);
+		}
+		try {
+			bw.setPropertyValue("age", null);
+			fail("Should have thrown TypeMismatchException");
+		}
+		catch (TypeMismatchException ex) {
+			// expected: null for primitive parameter
+		}
+	}
+
+
+	public static class AccessorBean {
+
+		private String name;
+
+		private int age;
+
+		private double weight;
+
+		private int[] flags;
+
+		private AccessorBean nested;
+
+		public String getName() {
+			return this.name;
+		}
+
+		public void setName(String name) {
+			this.name = name;
+		}
+
+		public int getAge() {
+			return this.age;
+		}
+
+		public void setAge(int age) {
+			this.age = age;
+		}
+
+		public double getWeight() {
+			return this.weight;
+		}
+
+		public void setWeight(double weight) {
+			this.weight = weight;
+		}
+
+		public int[] getFlags() {
+			return this.flags;
+		}
+
+		public void setFlags(int[] flags) {
+			this.flags = flags;
+		}
+
+		public AccessorBean getNested() {
+			return this.nested;
+		}
+
+		public void setNested(AccessorBean nested) {
+			this.nested = nested;
+		}
+
+		public String getFailing() {
+			throw new UnsupportedOperationException();
+		}
+
+		public void setFailing(String failing) {
+			throw new UnsupportedOperationException();
+		}
+	}
+
+
+	static class PackagePrivateBean {
+
+		public String getName() {
+			return "name";
+		}
+	}
+
+}
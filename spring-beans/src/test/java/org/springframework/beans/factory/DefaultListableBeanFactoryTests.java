@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2019 the original author or authors.
+ * Copyright 2002-2020 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -2813,6 +2813,37 @@ public class DefaultListableBeanFactoryTests {
 		assertEquals(NonPublicEnum.VALUE_1, holder.getNonPublicEnum());
 	}
 
+	@Test
+	public void testByTypeCacheUpdatedForManualSingletons() {
+		DefaultListableBeanFactory lbf = new DefaultListableBeanFactory();
+		lbf.registerBeanDefinition("tb", new RootBeanDefinition(TestBean.class));
+		lbf.registerSingleton("string1", "value1");
+		lbf.freezeConfiguration();
+		assertArrayEquals(new String[] {"tb"}, lbf.getBeanNamesForType(ITestBean.class));
+		assertArrayEquals(new String[] {"string1"}, lbf.getBeanNamesForType(CharSequence.class));
+		assertArrayEquals(new String[] {"string1"}, lbf.getBeanNamesForType(String.class, false, true));
+
+		lbf.registerSingleton("string2", "value2");
+		lbf.registerSingleton("tb2", new TestBean());
+		assertArrayEquals(new String[] {"tb", "tb2"}, lbf.getBeanNamesForType(ITestBean.class));
+		assertArrayEquals(new String[] {"string1", "string2"}, lbf.getBeanNamesForType(CharSequence.class));
+		assertArrayEquals(new String[] {"string1", "string2"}, lbf.getBeanNamesForType(String.class, false, true));
+
+		lbf.destroySingleton("string1");
+		assertArrayEquals(new String[] {"string2"}, lbf.getBeanNamesForType(CharSequence.class));
+		assertArrayEquals(new String[] {"string2"}, lbf.getBeanNamesForType(String.class, false, true));
+		assertArrayEquals(new String[] {"tb", "tb2"}, lbf.getBeanNamesForType(ITestBean.class));
+
+		lbf.registerSingleton("factory", new DummyFactory());
+		assertArrayEquals(new String[] {"tb", "tb2", "factory"}, lbf.getBeanNamesForType(ITestBean.class));
+		lbf.destroySingleton("factory");
+		assertArrayEquals(new String[] {"tb", "tb2"}, lbf.getBeanNamesForType(ITestBean.class));
+
+		lbf.registerBeanDefinition("tb3", new RootBeanDefinition(TestBean.class));
+		assertArrayEquals(new String[] {"tb", "tb3", "tb2"}, lbf.getBeanNamesForType(ITestBean.class));
+		assertArrayEquals(new String[] {"string2"}, lbf.getBeanNamesForType(CharSequence.class));
+	}
+
 	/**
 	 * Test that by-type bean lookup caching is working effectively by searching for a
 	 * bean of type B 10K times within a container having 1K additional beans of type A.
@@ -0,0 +1,255 @@
+/*
+ * Copyright 2002-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.beans.factory.support;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.net.URL;
+import java.util.List;
+
+import org.junit.Test;
+
+import org.springframework.beans.factory.BeanDefinitionStoreException;
+import org.springframework.beans.factory.config.BeanDefinition;
+import org.springframework.beans.factory.config.BeanDefinitionHolder;
+import org.springframework.beans.factory.config.RuntimeBeanReference;
+import org.springframework.beans.factory.config.TypedStringValue;
+import org.springframework.tests.sample.beans.ITestBean;
+import org.springframework.tests.sample.beans.NestedTestBean;
+import org.springframework.tests.sample.beans.TestBean;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests for {@link BeanDefinitionSnapshot}.
+ *
+ * @since 5.0.18
+ */
+public class BeanDefinitionSnapshotTests {
+
+	private final DefaultListableBeanFactory beanFactory = new DefaultListableBeanFactory();
+
+
+	@Test
+	public void roundTripPreservesBeanDefinitions() throws IOException {
+		RootBeanDefinition spouse = new RootBeanDefinition(TestBean.class);
+		spouse.getPropertyValues().add("name", new TypedStringValue("Kerry"));
+		spouse.setScope(BeanDefinition.SCOPE_PROTOTYPE);
+		spouse.setLazyInit(true);
+		spouse.setInitMethodName("absquatulate");
+		spouse.setDestroyMethodName("(inferred)");
+		spouse.addQualifier(new AutowireCandidateQualifier("org.example.Special", "kerry"));
+		spouse.setAttribute("order", 5);
+		spouse.setAttribute("type", TestBean.class);
+		this.beanFactory.registerBeanDefinition("spouse", spouse);
+
+		RootBeanDefinition tony = new RootBeanDefinition(TestBean.class);
+		tony.getConstructorArgumentValues().addIndexedArgumentValue(0, "Tony");
+		tony.getConstructorArgumentValues().addGenericArgumentValue(new TypedStringValue("42", "int"));
+		tony.getPropertyValues().add("spouse", new RuntimeBeanReference("spouse"));
+		ManagedList<Object> friends = new ManagedList<>();
+		friends.add(new RuntimeBeanReference("spouse"));
+		friends.add(new BeanDefinitionHolder(new RootBeanDefinition(TestBean.class), "inner"));
+		tony.getPropertyValues().add("friends", friends);
+		ManagedMap<Object, Object> map = new ManagedMap<>();
+		map.put("key", new TypedStringValue("value"));
+		tony.getPropertyValues().add("someMap", map);
+		ManagedSet<Object> set = new ManagedSet<>();
+		set.add("element");
+		tony.getPropertyValues().add("someSet", set);
+		ManagedProperties properties = new ManagedProperties();
+		properties.put(new TypedStringValue("key"), new TypedStringValue("value"));
+		tony.getPropertyValues().add("someProperties", properties);
+		tony.setDependsOn("spouse");
+		tony.setPrimary(true);
+		this.beanFactory.registerBeanDefinition("tony", tony);
+		this.beanFactory.registerAlias("tony", "anthony");
+
+		DefaultListableBeanFactory restored = restore(BeanDefinitionSnapshot.capture(this.beanFactory));
+
+		assertArrayEquals(this.beanFactory.getBeanDefinitionNames(), restored.getBeanDefinitionNames());
+		assertEquals(spouse, restored.getBeanDefinition("spouse"));
+		assertEquals(tony, restored.getBeanDefinition("tony"));
+		assertArrayEquals(new String[] {"anthony"}, restored.getAliases("tony"));
+
+		TestBean bean = restored.getBean("anthony", TestBean.class);
+		assertEquals("Tony", bean.getName());
+		assertEquals(42, bean.getAge());
+		assertEquals("Kerry", bean.getSpouse().getName());
+		assertEquals(2, bean.getFriends().size());
+		assertEquals("value", bean.getSomeMap().get("key"));
+		assertTrue(bean.getSomeSet().contains("element"));
+		assertEquals("value", bean.getSomeProperties().getProperty("key"));
+		assertNotSame(restored.getBean("spouse"), restored.getBean("spouse"));
+	}
+
+	@Test
+	public void childBeanDefinition() {
+		RootBeanDefinition parent = new RootBeanDefinition(TestBean.class);
+		parent.getPropertyValues().add("name", "parent");
+		parent.setAbstract(true);
+		this.beanFactory.registerBeanDefinition("parent", parent);
+		GenericBeanDefinition child = new GenericBeanDefinition();
+		child.setParentName("parent");
+		child.getPropertyValues().add("age", 7);
+		this.beanFactory.registerBeanDefinition("child", child);
+
+		DefaultListableBeanFactory restored = restore(BeanDefinitionSnapshot.capture(this.beanFactory));
+
+		assertEquals("parent", restored.getBeanDefinition("child").getParentName());
+		TestBean bean = restored.getBean("child", TestBean.class);
+		assertEquals("parent", bean.getName());
+		assertEquals(7, bean.getAge());
+	}
+
+	@Test
+	public void lookupOverride() {
+		RootBeanDefinition bd = new RootBeanDefinition(AbstractBean.class);
+		bd.getMethodOverrides().addOverride(new LookupOverride("get", "testBean"));
+		this.beanFactory.registerBeanDefinition("abstractBean", bd);
+		this.beanFactory.registerBeanDefinition("testBean", new RootBeanDefinition(TestBean.class));
+
+		DefaultListableBeanFactory restored = restore(BeanDefinitionSnapshot.capture(this.beanFactory));
+
+		assertSame(restored.getBean("testBean"), restored.getBean("abstractBean", AbstractBean.class).get());
+	}
+
+	@Test
+	public void factoryMethodReturnTypeRecordedAsTargetType() {
+		RootBeanDefinition bd = new RootBeanDefinition(Factory.class);
+		bd.setFactoryMethodName("create");
+		this.beanFactory.registerBeanDefinition("testBean", bd);
+		RootBeanDefinition generic = new RootBeanDefinition(Factory.class);
+		generic.setFactoryMethodName("createList");
+		this.beanFactory.registerBeanDefinition("list", generic);
+		// Resolved before capture, as on detection of post-processors
+		this.beanFactory.getBeanNamesForType(NestedTestBean.class);
+
+		DefaultListableBeanFactory restored = restore(BeanDefinitionSnapshot.capture(this.beanFactory));
+
+		assertEquals(NestedTestBean.class, ((RootBeanDefinition) restored.getBeanDefinition("testBean")).getTargetType());
+		assertNull(((RootBeanDefinition) restored.getBeanDefinition("list")).getTargetType());
+		assertArrayEquals(new String[] {"testBean"}, restored.getBeanNamesForType(NestedTestBean.class));
+	}
+
+	@Test
+	public void captureDoesNotResolveTargetTypes() {
+		RootBeanDefinition bd = new RootBeanDefinition(Factory.class);
+		bd.setFactoryMethodName("create");
+		this.beanFactory.registerBeanDefinition("testBean", bd);
+
+		DefaultListableBeanFactory restored = restore(BeanDefinitionSnapshot.capture(this.beanFactory));
+
+		assertNull(((RootBeanDefinition) this.beanFactory.getMergedBeanDefinition("testBean")).factoryMethodReturnType);
+		assertNull(((RootBeanDefinition) restored.getBeanDefinition("testBean")).getTargetType());
+		assertArrayEquals(new String[] {"testBean"}, restored.getBeanNamesForType(NestedTestBean.class));
+	}
+
+	@Test
+	public void snapshotOutOfDateOnceBeanClassChanged() {
+		this.beanFactory.registerBeanDefinition("testBean", new RootBeanDefinition(TestBean.class));
+		BeanDefinitionSnapshot snapshot = BeanDefinitionSnapshot.capture(this.beanFactory);
+		assertTrue(snapshot.isCurrent(getClass().getClassLoader()));
+
+		ClassLoader changedClassLoader = new ClassLoader(getClass().getClassLoader()) {
+			@Override
+			public URL getResource(String name) {
+				return super.getResource(name.equals("org/springframework/tests/sample/beans/TestBean.class") ?
+						"org/springframework/tests/sample/beans/NestedTestBean.class" : name);
+			}
+		};
+		assertFalse(snapshot.isCurrent(changedClassLoader));
+	}
+
+	@Test
+	public void snapshotOutOfDateForOtherProfiles() {
+		this.beanFactory.registerBeanDefinition("testBean", new RootBeanDefinition(TestBean.class));
+		BeanDefinitionSnapshot snapshot = BeanDefinitionSnapshot.capture(this.beanFactory, "dev", "local");
+
+		assertTrue(snapshot.isCurrent(getClass().getClassLoader(), "local", "dev"));
+		assertFalse(snapshot.isCurrent(getClass().getClassLoader(), "dev"));
+		assertFalse(snapshot.isCurrent(getClass().getClassLoader()));
+	}
+
+	@Test(expected = BeanDefinitionStoreException.class)
+	public void instanceSupplierCannotBeCaptured() {
+		this.beanFactory.registerBeanDefinition("testBean", new RootBeanDefinition(TestBean.class, TestBean::new));
+		BeanDefinitionSnapshot.capture(this.beanFactory);
+	}
+
+	@Test(expected = BeanDefinitionStoreException.class)
+	public void unsupportedValueCannotBeCaptured() {
+		RootBeanDefinition bd = new RootBeanDefinition(TestBean.class);
+		bd.getPropertyValues().add("touchy", new Object());
+		this.beanFactory.registerBeanDefinition("testBean", bd);
+		BeanDefinitionSnapshot.capture(this.beanFactory);
+	}
+
+	@Test(expected = IOException.class)
+	public void readFromInvalidContent() throws IOException {
+		BeanDefinitionSnapshot.readFrom(new ByteArrayInputStream("<beans/>".getBytes()));
+	}
+
+	@Test
+	public void existingBeanDefinitionsReplaced() {
+		RootBeanDefinition bd = new RootBeanDefinition(TestBean.class);
+		bd.getPropertyValues().add("name", "snapshot");
+		this.beanFactory.registerBeanDefinition("testBean", bd);
+		BeanDefinitionSnapshot snapshot = BeanDefinitionSnapshot.capture(this.beanFactory);
+
+		DefaultListableBeanFactory target = new DefaultListableBeanFactory();
+		target.setAllowBeanDefinitionOverriding(false);
+		target.registerBeanDefinition("testBean", new RootBeanDefinition(TestBean.class));
+		assertEquals(1, snapshot.registerBeanDefinitions(target));
+		assertEquals("snapshot", target.getBean("testBean", TestBean.class).getName());
+	}
+
+
+	private static DefaultListableBeanFactory restore(BeanDefinitionSnapshot snapshot) {
+		try {
+			ByteArrayOutputStream out = new ByteArrayOutputStream();
+			snapshot.writeTo(out);
+			assertEquals(snapshot.getSize(), out.size());
+			DefaultListableBeanFactory restored = new DefaultListableBeanFactory();
+			BeanDefinitionSnapshot.readFrom(new ByteArrayInputStream(out.toByteArray())).registerBeanDefinitions(restored);
+			return restored;
+		}
+		catch (IOException ex) {
+			throw new IllegalStateException(ex);
+		}
+	}
+
+
+	public abstract static class AbstractBean {
+
+		public abstract ITestBean get();
+	}
+
+
+	public static class Factory {
+
+		public static NestedTestBean create() {
+			return new NestedTestBean();
+		}
+
+		public static List<String> createList() {
+			return null;
+		}
+	}
+
+}
@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2014 the original author or authors.
+ * Copyright 2002-2020 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -16,9 +16,21 @@
 
 package org.springframework.beans.factory.support;
 
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
 import org.junit.Test;
 
 import org.springframework.beans.BeansException;
+import org.springframework.beans.DirectFieldAccessor;
+import org.springframework.beans.factory.BeanCurrentlyInCreationException;
 import org.springframework.beans.factory.ObjectFactory;
 import org.springframework.tests.sample.beans.DerivedTestBean;
 import org.springframework.tests.sample.beans.TestBean;
@@ -101,4 +113,187 @@ public class DefaultSingletonBeanRegistryTests {
 		assertTrue(beanRegistry.isDependent("c", "c"));
 	}
 
+	@Test
+	public void testConcurrentCreationOfDifferentSingletons() throws Exception {
+		DefaultSingletonBeanRegistry beanRegistry = new DefaultSingletonBeanRegistry();
+		CountDownLatch bothInCreation = new CountDownLatch(2);
+		ExecutorService executor = Executors.newFixedThreadPool(2);
+		try {
+			Future<Object> tb1 = executor.submit(() -> beanRegistry.getSingleton("tb1", () -> {
+				bothInCreation.countDown();
+				return (awaitUninterruptibly(bothInCreation) ? new TestBean("tb1") : null);
+			}));
+			Future<Object> tb2 = executor.submit(() -> beanRegistry.getSingleton("tb2", () -> {
+				bothInCreation.countDown();
+				return (awaitUninterruptibly(bothInCreation) ? new TestBean("tb2") : null);
+			}));
+			assertEquals("tb1", ((TestBean) tb1.get(10, TimeUnit.SECONDS)).getName());
+			assertEquals("tb2", ((TestBean) tb2.get(10, TimeUnit.SECONDS)).getName());
+		}
+		finally {
+			executor.shutdownNow();
+		}
+	}
+
+	@Test
+	public void testConcurrentCreationOfSameSingleton() throws Exception {
+		DefaultSingletonBeanRegistry beanRegistry = new DefaultSingletonBeanRegistry();
+		CountDownLatch inCreation = new CountDownLatch(1);
+		CountDownLatch proceed = new CountDownLatch(1);
+		AtomicInteger creationCount = new AtomicInteger();
+		ExecutorService executor = Executors.newFixedThreadPool(2);
+		try {
+			Future<Object> first = executor.submit(() -> beanRegistry.getSingleton("tb", () -> {
+				creationCount.incrementAndGet();
+				inCreation.countDown();
+				awaitUninterruptibly(proceed);
+				return new TestBean();
+			}));
+			assertTrue(inCreation.await(10, TimeUnit.SECONDS));
+			Future<Object> second = executor.submit(() -> beanRegistry.getSingleton("tb", () -> {
+				creationCount.incrementAndGet();
+				return new TestBean();
+			}));
+			assertNull(beanRegistry.getSingleton("tb"));
+			proceed.countDown();
+			assertSame(first.get(10, TimeUnit.SECONDS), second.get(10, TimeUnit.SECONDS));
+			assertEquals(1, creationCount.get());
+		}
+		finally {
+			executor.shutdownNow();
+		}
+	}
+
+	@Test
+	public void testCircularReferenceAcrossThreads() throws Exception {
+		DefaultSingletonBeanRegistry beanRegistry = new DefaultSingletonBeanRegistry();
+		TestBean tb1 = new TestBean("tb1");
+		CountDownLatch tb1Exposed = new CountDownLatch(1);
+		CountDownLatch tb2InCreation = new CountDownLatch(1);
+		ExecutorService executor = Executors.newFixedThreadPool(2);
+		try {
+			Future<Object> first = executor.submit(() -> beanRegistry.getSingleton("tb1", () -> {
+				beanRegistry.addSingletonFactory("tb1", () -> tb1);
+				tb1Exposed.countDown();
+				awaitUninterruptibly(tb2InCreation);
+				tb1.setSpouse((TestBean) beanRegistry.getSingleton("tb2", TestBean::new));
+				return tb1;
+			}));
+			Future<Object> second = executor.submit(() -> beanRegistry.getSingleton("tb2", () -> {
+				TestBean tb2 = new TestBean("tb2");
+				awaitUninterruptibly(tb1Exposed);
+				tb2InCreation.countDown();
+				tb2.setSpouse((TestBean) beanRegistry.getSingleton("tb1", TestBean::new));
+				return tb2;
+			}));
+			assertSame(tb1, first.get(10, TimeUnit.SECONDS));
+			TestBean tb2 = (TestBean) second.get(10, TimeUnit.SECONDS);
+			assertSame(tb1, tb2.getSpouse());
+			assertSame(tb2, tb1.getSpouse());
+		}
+		finally {
+			executor.shutdownNow();
+		}
+	}
+
+	@Test
+	public void testUnresolvableCircularReferenceAcrossThreads() throws Exception {
+		DefaultSingletonBeanRegistry beanRegistry = new DefaultSingletonBeanRegistry();
+		CountDownLatch bothInCreation = new CountDownLatch(2);
+		ExecutorService executor = Executors.newFixedThreadPool(2);
+		try {
+			Future<Object> first = executor.submit(() -> beanRegistry.getSingleton("tb1", () -> {
+				bothInCreation.countDown();
+				awaitUninterruptibly(bothInCreation);
+				return new TestBean((TestBean) beanRegistry.getSingleton("tb2", TestBean::new));
+			}));
+			Future<Object> second = executor.submit(() -> beanRegistry.getSingleton("tb2", () -> {
+				bothInCreation.countDown();
+				awaitUninterruptibly(bothInCreation);
+				return new TestBean((TestBean) beanRegistry.getSingleton("tb1", TestBean::new));
+			}));
+			int failures = 0;
+			for (Future<Object> future : Arrays.asList(first, second)) {
+				try {
+					future.get(10, TimeUnit.SECONDS);
+				}
+				catch (ExecutionException ex) {
+					assertTrue(ex.getCause() instanceof BeanCurrentlyInCreationException);
+					failures++;
+				}
+			}
+			assertTrue(failures > 0);
+			assertTrue(getSingletonLocks(beanRegistry).isEmpty());
+		}
+		finally {
+			executor.shutdownNow();
+		}
+	}
+
+	@Test
+	public void testWaitWhileHoldingSingletonMutex() throws Exception {
+		DefaultSingletonBeanRegistry beanRegistry = new DefaultSingletonBeanRegistry();
+		CountDownLatch inCreation = new CountDownLatch(1);
+		ExecutorService executor = Executors.newFixedThreadPool(2);
+		try {
+			Future<Object> first = executor.submit(() -> beanRegistry.getSingleton("tb", () -> {
+				inCreation.countDown();
+				// Needs the mutex while the other thread waits with the mutex held
+				beanRegistry.registerSingleton("other", new TestBean("other"));
+				return new TestBean("tb");
+			}));
+			Future<Object> second = executor.submit(() -> {
+				awaitUninterruptibly(inCreation);
+				synchronized (beanRegistry.getSingletonMutex()) {
+					return beanRegistry.getSingleton("tb", TestBean::new);
+				}
+			});
+			assertSame(first.get(10, TimeUnit.SECONDS), second.get(10, TimeUnit.SECONDS));
+		}
+		finally {
+			executor.shutdownNow();
+		}
+	}
+
+	@Test
+	public void testSingletonLocksRemovedAfterUse() throws Exception {
+		DefaultSingletonBeanRegistry beanRegistry = new DefaultSingletonBeanRegistry();
+		beanRegistry.getSingleton("tb", () -> {
+			assertTrue(getSingletonLocks(beanRegistry).containsKey("tb"));
+			return new TestBean();
+		});
+		assertTrue(getSingletonLocks(beanRegistry).isEmpty());
+
+		assertTrue(beanRegistry.tryLockSingleton("tb2"));
+		assertTrue(beanRegistry.tryLockSingleton("tb2"));
+		beanRegistry.unlockSingleton("tb2");
+		assertTrue(getSingletonLocks(beanRegistry).containsKey("tb2"));
+		beanRegistry.unlockSingleton("tb2");
+		assertTrue(getSingletonLocks(beanRegistry).isEmpty());
+
+		try {
+			beanRegistry.getSingleton("tb3", () -> {
+				throw new IllegalStateException();
+			});
+			fail("Should have thrown IllegalStateException");
+		}
+		catch (IllegalStateException ex) {
+			assertTrue(getSingletonLocks(beanRegistry).isEmpty());
+		}
+	}
+
+	private static Map<?, ?> getSingletonLocks(DefaultSingletonBeanRegistry beanRegistry) {
+		return (Map<?, ?>) new DirectFieldAccessor(beanRegistry).getPropertyValue("singletonLocks");
+	}
+
+	private static boolean awaitUninterruptibly(CountDownLatch latch) {
+		try {
+			return latch.await(10, TimeUnit.SECONDS);
+		}
+		catch (InterruptedException ex) {
+			Thread.currentThread().interrupt();
+			return false;
+		}
+	}
+
 }
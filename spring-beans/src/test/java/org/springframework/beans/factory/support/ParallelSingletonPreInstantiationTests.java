@@ -0,0 +1,175 @@
+/*
+ * Copyright 2002-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.beans.factory.support;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import org.junit.Test;
+
+import org.springframework.beans.factory.BeanCreationException;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.beans.factory.config.InstantiationAwareBeanPostProcessorAdapter;
+import org.springframework.beans.factory.config.RuntimeBeanReference;
+import org.springframework.tests.sample.beans.TestBean;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests for {@link DefaultListableBeanFactory#preInstantiateSingletons()}
+ * with a pre-instantiation parallelism greater than 1.
+ *
+ * @since 5.0.18
+ */
+public class ParallelSingletonPreInstantiationTests {
+
+	private final DefaultListableBeanFactory beanFactory = new DefaultListableBeanFactory();
+
+
+	@Test
+	public void independentSingletons() {
+		for (int i = 0; i < 20; i++) {
+			this.beanFactory.registerBeanDefinition("bean" + i, new RootBeanDefinition(TestBean.class));
+		}
+		RootBeanDefinition lazy = new RootBeanDefinition(TestBean.class);
+		lazy.setLazyInit(true);
+		this.beanFactory.registerBeanDefinition("lazy", lazy);
+		this.beanFactory.setPreInstantiationParallelism(4);
+		this.beanFactory.preInstantiateSingletons();
+
+		for (int i = 0; i < 20; i++) {
+			assertTrue(this.beanFactory.containsSingleton("bean" + i));
+		}
+		assertFalse(this.beanFactory.containsSingleton("lazy"));
+	}
+
+	@Test
+	public void dependenciesCreatedBeforeDependents() {
+		List<String> initialized = new CopyOnWriteArrayList<>();
+		this.beanFactory.addBeanPostProcessor(new RecordingBeanPostProcessor(initialized));
+		RootBeanDefinition top = new RootBeanDefinition(TestBean.class);
+		top.getPropertyValues().add("spouse", new RuntimeBeanReference("middle"));
+		this.beanFactory.registerBeanDefinition("top", top);
+		RootBeanDefinition middle = new RootBeanDefinition(TestBean.class);
+		middle.getConstructorArgumentValues().addGenericArgumentValue(new RuntimeBeanReference("bottom"));
+		this.beanFactory.registerBeanDefinition("middle", middle);
+		RootBeanDefinition bottom = new RootBeanDefinition(TestBean.class);
+		bottom.setDependsOn("other");
+		this.beanFactory.registerBeanDefinition("bottom", bottom);
+		this.beanFactory.registerBeanDefinition("other", new RootBeanDefinition(TestBean.class));
+		this.beanFactory.setPreInstantiationParallelism(4);
+		this.beanFactory.preInstantiateSingletons();
+
+		assertTrue(initialized.indexOf("other") < initialized.indexOf("bottom"));
+		assertTrue(initialized.indexOf("bottom") < initialized.indexOf("middle"));
+		assertTrue(initialized.indexOf("middle") < initialized.indexOf("top"));
+		TestBean topBean = this.beanFactory.getBean("top", TestBean.class);
+		assertSame(this.beanFactory.getBean("middle"), topBean.getSpouse());
+	}
+
+	@Test
+	public void circularReferencesWithinComponent() {
+		RootBeanDefinition first = new RootBeanDefinition(TestBean.class);
+		first.getPropertyValues().add("spouse", new RuntimeBeanReference("second"));
+		this.beanFactory.registerBeanDefinition("first", first);
+		RootBeanDefinition second = new RootBeanDefinition(TestBean.class);
+		second.getPropertyValues().add("spouse", new RuntimeBeanReference("first"));
+		this.beanFactory.registerBeanDefinition("second", second);
+		for (int i = 0; i < 10; i++) {
+			this.beanFactory.registerBeanDefinition("bean" + i, new RootBeanDefinition(TestBean.class));
+		}
+		this.beanFactory.setPreInstantiationParallelism(4);
+		this.beanFactory.preInstantiateSingletons();
+
+		TestBean firstBean = this.beanFactory.getBean("first", TestBean.class);
+		TestBean secondBean = this.beanFactory.getBean("second", TestBean.class);
+		assertSame(secondBean, firstBean.getSpouse());
+		assertSame(firstBean, secondBean.getSpouse());
+	}
+
+	@Test
+	public void smartInitializingSingletonsInvokedAfterCreation() {
+		for (int i = 0; i < 10; i++) {
+			this.beanFactory.registerBeanDefinition("bean" + i, new RootBeanDefinition(SmartBean.class));
+		}
+		this.beanFactory.setPreInstantiationParallelism(4);
+		this.beanFactory.preInstantiateSingletons();
+
+		for (int i = 0; i < 10; i++) {
+			assertTrue(this.beanFactory.getBean("bean" + i, SmartBean.class).afterSingletonsInstantiated);
+		}
+	}
+
+	@Test
+	public void creationFailurePropagated() {
+		for (int i = 0; i < 10; i++) {
+			this.beanFactory.registerBeanDefinition("bean" + i, new RootBeanDefinition(TestBean.class));
+		}
+		this.beanFactory.registerBeanDefinition("failing", new RootBeanDefinition(FailingBean.class));
+		this.beanFactory.setPreInstantiationParallelism(4);
+		try {
+			this.beanFactory.preInstantiateSingletons();
+			fail("Should have thrown BeanCreationException");
+		}
+		catch (BeanCreationException ex) {
+			assertEquals("failing", ex.getBeanName());
+		}
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void invalidParallelism() {
+		this.beanFactory.setPreInstantiationParallelism(0);
+	}
+
+
+	private static class RecordingBeanPostProcessor extends InstantiationAwareBeanPostProcessorAdapter {
+
+		private final List<String> initialized;
+
+		RecordingBeanPostProcessor(List<String> initialized) {
+			this.initialized = initialized;
+		}
+
+		@Override
+		public Object postProcessAfterInitialization(Object bean, String beanName) {
+			this.initialized.add(beanName);
+			return bean;
+		}
+	}
+
+
+	public static class SmartBean implements SmartInitializingSingleton {
+
+		volatile boolean afterSingletonsInstantiated;
+
+		@Override
+		public void afterSingletonsInstantiated() {
+			this.afterSingletonsInstantiated = true;
+		}
+	}
+
+
+	public static class FailingBean implements InitializingBean {
+
+		@Override
+		public void afterPropertiesSet() {
+			throw new IllegalStateException("Initialization failed");
+		}
+	}
+
+}
@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2018 the original author or authors.
+ * Copyright 2002-2020 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -54,6 +54,8 @@ public class CandidateComponentsIndexer implements Processor {
 
 	private TypeHelper typeHelper;
 
+	private ClassMetadataEncoder classMetadataEncoder;
+
 	private List<StereotypesProvider> stereotypesProviders;
 
 
@@ -76,6 +78,7 @@ public class CandidateComponentsIndexer implements Processor {
 	public synchronized void init(ProcessingEnvironment env) {
 		this.stereotypesProviders = getStereotypesProviders(env);
 		this.typeHelper = new TypeHelper(env);
+		this.classMetadataEncoder = new ClassMetadataEncoder(env);
 		this.metadataStore = new MetadataStore(env);
 		this.metadataCollector = new MetadataCollector(env, this.metadataStore.readMetadata());
 	}
@@ -115,8 +118,13 @@ public class CandidateComponentsIndexer implements Processor {
 	private void addMetadataFor(Element element) {
 		Set<String> stereotypes = new LinkedHashSet<>();
 		this.stereotypesProviders.forEach(p -> stereotypes.addAll(p.getStereotypes(element)));
-		if (!stereotypes.isEmpty()) {
-			this.metadataCollector.add(new ItemMetadata(this.typeHelper.getType(element), stereotypes));
+		String classMetadata = null;
+		if (element instanceof TypeElement &&
+				this.classMetadataEncoder.isConfigurationCandidate((TypeElement) element, stereotypes)) {
+			classMetadata = this.classMetadataEncoder.encode((TypeElement) element);
+		}
+		if (!stereotypes.isEmpty() || classMetadata != null) {
+			this.metadataCollector.add(new ItemMetadata(this.typeHelper.getType(element), stereotypes, classMetadata));
 		}
 	}
 
@@ -0,0 +1,437 @@
+/*
+ * Copyright 2002-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.context.index;
+
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import javax.annotation.processing.ProcessingEnvironment;
+import javax.lang.model.element.AnnotationMirror;
+import javax.lang.model.element.AnnotationValue;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.element.VariableElement;
+import javax.lang.model.type.ArrayType;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.util.Elements;
+import javax.lang.model.util.Types;
+
+/**
+ * Encode the structure of a configuration class, i.e. the information that
+ * would otherwise be read from its class file at runtime, as a sequence of
+ * class file visitor events: one event per line.
+ *
+ * <p>Only annotated methods are recorded and annotations with a
+ * {@link RetentionPolicy#SOURCE source} retention are ignored, just like
+ * in the class file.
+ *
+ * @since 5.0.18
+ */
+class ClassMetadataEncoder {
+
+	static final String COMPONENT_ANNOTATION = "org.springframework.stereotype.Component";
+
+	private static final Set<String> CONFIGURATION_ANNOTATIONS = new HashSet<>(Arrays.asList(
+			"org.springframework.context.annotation.ComponentScan",
+			"org.springframework.context.annotation.Import",
+			"org.springframework.context.annotation.ImportResource"));
+
+	private static final String BEAN_ANNOTATION = "org.springframework.context.annotation.Bean";
+
+	private static final int ACC_PUBLIC = 0x0001;
+
+	private static final int ACC_PRIVATE = 0x0002;
+
+	private static final int ACC_PROTECTED = 0x0004;
+
+	private static final int ACC_STATIC = 0x0008;
+
+	private static final int ACC_FINAL = 0x0010;
+
+	private static final int ACC_INTERFACE = 0x0200;
+
+	private static final int ACC_ABSTRACT = 0x0400;
+
+	private static final int ACC_ANNOTATION = 0x2000;
+
+	private static final int ACC_ENUM = 0x4000;
+
+
+	private final Elements elements;
+
+	private final Types types;
+
+
+	public ClassMetadataEncoder(ProcessingEnvironment env) {
+		this.elements = env.getElementUtils();
+		this.types = env.getTypeUtils();
+	}
+
+
+	/**
+	 * Specify whether the given type is relevant for configuration class
+	 * processing: a component, a type carrying configuration annotations
+	 * or a type declaring {@code @Bean} methods.
+	 */
+	public boolean isConfigurationCandidate(TypeElement type, Set<String> stereotypes) {
+		if (stereotypes.contains(COMPONENT_ANNOTATION)) {
+			return true;
+		}
+		for (String annotation : CONFIGURATION_ANNOTATIONS) {
+			if (isAnnotated(type, annotation)) {
+				return true;
+			}
+		}
+		for (Element member : type.getEnclosedElements()) {
+			if (member.getKind() == ElementKind.METHOD && isAnnotated(member, BEAN_ANNOTATION)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Encode the structure of the given type.
+	 * @return the encoded metadata, or {@code null} if the type refers
+	 * to types that could not be resolved in the current round
+	 */
+	public String encode(TypeElement type) {
+		try {
+			StringBuilder out = new StringBuilder();
+			encodeType(type, out);
+			return out.toString();
+		}
+		catch (UnresolvableTypeException ex) {
+			return null;
+		}
+	}
+
+
+	private void encodeType(TypeElement type, StringBuilder out) {
+		String internalName = getInternalName(type);
+		line(out, "class", Integer.toString(getTypeAccess(type)), internalName);
+		TypeMirror superclass = type.getSuperclass();
+		out.append(' ').append(superclass.getKind() == TypeKind.DECLARED ?
+				getInternalName(asTypeElement(superclass)) : "-");
+		for (TypeMirror ifc : type.getInterfaces()) {
+			out.append(' ').append(getInternalName(asTypeElement(ifc)));
+		}
+		Element enclosing = type.getEnclosingElement();
+		if (enclosing instanceof TypeElement) {
+			line(out, "inner", Integer.toString(getMemberAccess(type)), internalName,
+					getInternalName((TypeElement) enclosing), type.getSimpleName().toString());
+		}
+		for (Element member : type.getEnclosedElements()) {
+			if (member instanceof TypeElement) {
+				line(out, "inner", Integer.toString(getMemberAccess(member)), getInternalName((TypeElement) member),
+						internalName, member.getSimpleName().toString());
+			}
+		}
+		encodeAnnotations(type, out);
+		for (Element member : type.getEnclosedElements()) {
+			if ((member.getKind() == ElementKind.METHOD || member.getKind() == ElementKind.CONSTRUCTOR) &&
+					hasRetainedAnnotations(member)) {
+				encodeMethod((ExecutableElement) member, out);
+			}
+		}
+	}
+
+	private void encodeMethod(ExecutableElement method, StringBuilder out) {
+		StringBuilder descriptor = new StringBuilder("(");
+		for (VariableElement parameter : method.getParameters()) {
+			descriptor.append(getDescriptor(parameter.asType()));
+		}
+		descriptor.append(')').append(getDescriptor(method.getReturnType()));
+		String name = (method.getKind() == ElementKind.CONSTRUCTOR ? "<init>" : method.getSimpleName().toString());
+		line(out, "method", Integer.toString(getMethodAccess(method)), name, descriptor.toString());
+		encodeAnnotations(method, out);
+		line(out, "end");
+	}
+
+	private void encodeAnnotations(Element element, StringBuilder out) {
+		// Runtime-visible annotations come first in the class file
+		for (AnnotationMirror annotation : element.getAnnotationMirrors()) {
+			if (getRetention(annotation) == RetentionPolicy.RUNTIME) {
+				encodeAnnotation(annotation, out);
+			}
+		}
+		for (AnnotationMirror annotation : element.getAnnotationMirrors()) {
+			if (getRetention(annotation) == RetentionPolicy.CLASS) {
+				encodeAnnotation(annotation, out);
+			}
+		}
+	}
+
+	private void encodeAnnotation(AnnotationMirror annotation, StringBuilder out) {
+		line(out, "annotation", getDescriptor(annotation.getAnnotationType()));
+		encodeAttributes(annotation, out);
+		line(out, "end");
+	}
+
+	private void encodeAttributes(AnnotationMirror annotation, StringBuilder out) {
+		for (Map.Entry<? extends ExecutableElement, ? extends AnnotationValue> entry :
+				annotation.getElementValues().entrySet()) {
+			encodeValue(entry.getKey().getSimpleName().toString(), entry.getKey().getReturnType(),
+					entry.getValue().getValue(), out);
+		}
+	}
+
+	private void encodeValue(String name, TypeMirror type, Object value, StringBuilder out) {
+		if (value instanceof String) {
+			line(out, "value", name, "s", escape((String) value));
+		}
+		else if (value instanceof Boolean) {
+			line(out, "value", name, "Z", value.toString());
+		}
+		else if (value instanceof Character) {
+			line(out, "value", name, "C", Integer.toString((Character) value));
+		}
+		else if (value instanceof Byte) {
+			line(out, "value", name, "B", value.toString());
+		}
+		else if (value instanceof Short) {
+			line(out, "value", name, "S", value.toString());
+		}
+		else if (value instanceof Integer) {
+			line(out, "value", name, "I", value.toString());
+		}
+		else if (value instanceof Long) {
+			line(out, "value", name, "J", value.toString());
+		}
+		else if (value instanceof Float) {
+			line(out, "value", name, "F", value.toString());
+		}
+		else if (value instanceof Double) {
+			line(out, "value", name, "D", value.toString());
+		}
+		else if (value instanceof TypeMirror) {
+			line(out, "value", name, "c", getDescriptor((TypeMirror) value));
+		}
+		else if (value instanceof VariableElement) {
+			VariableElement constant = (VariableElement) value;
+			line(out, "enum", name, getDescriptor(constant.asType()), constant.getSimpleName().toString());
+		}
+		else if (value instanceof AnnotationMirror) {
+			AnnotationMirror nested = (AnnotationMirror) value;
+			line(out, "nested", name, getDescriptor(nested.getAnnotationType()));
+			encodeAttributes(nested, out);
+			line(out, "end");
+		}
+		else if (value instanceof List) {
+			List<?> elements = (List<?>) value;
+			TypeMirror componentType = (type instanceof ArrayType ? ((ArrayType) type).getComponentType() : type);
+			if (componentType.getKind().isPrimitive() && !elements.isEmpty()) {
+				// Primitive arrays are reported as a single value in the class file
+				List<String> values = new ArrayList<>(elements.size() + 3);
+				values.add("value");
+				values.add(name);
+				values.add("[" + getDescriptor(componentType));
+				for (Object element : elements) {
+					Object elementValue = ((AnnotationValue) element).getValue();
+					values.add(elementValue instanceof Character ?
+							Integer.toString((Character) elementValue) : elementValue.toString());
+				}
+				line(out, values.toArray(new String[0]));
+			}
+			else {
+				line(out, "array", name);
+				for (Object element : elements) {
+					encodeValue("-", componentType, ((AnnotationValue) element).getValue(), out);
+				}
+				line(out, "end");
+			}
+		}
+		else {
+			// Unresolved attribute value
+			throw new UnresolvableTypeException();
+		}
+	}
+
+
+	private boolean hasRetainedAnnotations(Element element) {
+		for (AnnotationMirror annotation : element.getAnnotationMirrors()) {
+			if (getRetention(annotation) != RetentionPolicy.SOURCE) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private RetentionPolicy getRetention(AnnotationMirror annotation) {
+		Retention retention = annotation.getAnnotationType().asElement().getAnnotation(Retention.class);
+		return (retention != null ? retention.value() : RetentionPolicy.CLASS);
+	}
+
+	private boolean isAnnotated(Element element, String annotationType) {
+		return isAnnotated(element, annotationType, new HashSet<>());
+	}
+
+	private boolean isAnnotated(Element element, String annotationType, Set<Element> seen) {
+		for (AnnotationMirror annotation : element.getAnnotationMirrors()) {
+			Element annotationElement = annotation.getAnnotationType().asElement();
+			if (annotationElement instanceof TypeElement &&
+					((TypeElement) annotationElement).getQualifiedName().contentEquals(annotationType)) {
+				return true;
+			}
+			if (!annotationElement.toString().startsWith("java.lang") && seen.add(annotationElement) &&
+					isAnnotated(annotationElement, annotationType, seen)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private int getTypeAccess(TypeElement type) {
+		Set<Modifier> modifiers = type.getModifiers();
+		int access = (modifiers.contains(Modifier.PUBLIC) ? ACC_PUBLIC : 0);
+		if (modifiers.contains(Modifier.FINAL)) {
+			access |= ACC_FINAL;
+		}
+		if (modifiers.contains(Modifier.ABSTRACT)) {
+			access |= ACC_ABSTRACT;
+		}
+		switch (type.getKind()) {
+			case ANNOTATION_TYPE:
+				return access | ACC_ANNOTATION | ACC_INTERFACE | ACC_ABSTRACT;
+			case INTERFACE:
+				return access | ACC_INTERFACE | ACC_ABSTRACT;
+			case ENUM:
+				return access | ACC_ENUM;
+			default:
+				return access;
+		}
+	}
+
+	private int getMemberAccess(Element member) {
+		int access = getMethodAccess(member);
+		ElementKind kind = member.getKind();
+		if (kind == ElementKind.INTERFACE || kind == ElementKind.ANNOTATION_TYPE || kind == ElementKind.ENUM) {
+			// Implicitly static
+			access |= ACC_STATIC;
+		}
+		return access;
+	}
+
+	private int getMethodAccess(Element element) {
+		Set<Modifier> modifiers = element.getModifiers();
+		int access = 0;
+		if (modifiers.contains(Modifier.PUBLIC)) {
+			access |= ACC_PUBLIC;
+		}
+		if (modifiers.contains(Modifier.PRIVATE)) {
+			access |= ACC_PRIVATE;
+		}
+		if (modifiers.contains(Modifier.PROTECTED)) {
+			access |= ACC_PROTECTED;
+		}
+		if (modifiers.contains(Modifier.STATIC)) {
+			access |= ACC_STATIC;
+		}
+		if (modifiers.contains(Modifier.FINAL)) {
+			access |= ACC_FINAL;
+		}
+		if (modifiers.contains(Modifier.ABSTRACT)) {
+			access |= ACC_ABSTRACT;
+		}
+		return access;
+	}
+
+	private TypeElement asTypeElement(TypeMirror type) {
+		if (type.getKind() != TypeKind.DECLARED) {
+			throw new UnresolvableTypeException();
+		}
+		return (TypeElement) ((DeclaredType) type).asElement();
+	}
+
+	private String getInternalName(TypeElement type) {
+		return this.elements.getBinaryName(type).toString().replace('.', '/');
+	}
+
+	private String getDescriptor(TypeMirror type) {
+		TypeMirror erasure = this.types.erasure(type);
+		switch (erasure.getKind()) {
+			case BOOLEAN:
+				return "Z";
+			case BYTE:
+				return "B";
+			case CHAR:
+				return "C";
+			case SHORT:
+				return "S";
+			case INT:
+				return "I";
+			case LONG:
+				return "J";
+			case FLOAT:
+				return "F";
+			case DOUBLE:
+				return "D";
+			case VOID:
+				return "V";
+			case ARRAY:
+				return "[" + getDescriptor(((ArrayType) erasure).getComponentType());
+			case DECLARED:
+				return "L" + getInternalName(asTypeElement(erasure)) + ";";
+			default:
+				throw new UnresolvableTypeException();
+		}
+	}
+
+	private static void line(StringBuilder out, String... tokens) {
+		if (out.length() > 0) {
+			out.append('\n');
+		}
+		out.append(String.join(" ", tokens));
+	}
+
+	private static String escape(String value) {
+		StringBuilder escaped = new StringBuilder(value.length());
+		for (int i = 0; i < value.length(); i++) {
+			char ch = value.charAt(i);
+			switch (ch) {
+				case '\\':
+					escaped.append("\\\\");
+					break;
+				case '\n':
+					escaped.append("\\n");
+					break;
+				case '\r':
+					escaped.append("\\r");
+					break;
+				default:
+					escaped.append(ch);
+			}
+		}
+		return escaped.toString();
+	}
+
+
+	@SuppressWarnings("serial")
+	private static class UnresolvableTypeException extends RuntimeException {
+	}
+
+}
@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2017 the original author or authors.
+ * Copyright 2002-2020 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -34,10 +34,17 @@ class ItemMetadata {
 
 	private final Set<String> stereotypes;
 
+	private String classMetadata;
+
 
 	public ItemMetadata(String type, Set<String> stereotypes) {
+		this(type, stereotypes, null);
+	}
+
+	public ItemMetadata(String type, Set<String> stereotypes, String classMetadata) {
 		this.type = type;
 		this.stereotypes = new HashSet<>(stereotypes);
+		this.classMetadata = classMetadata;
 	}
 
 
@@ -49,4 +56,17 @@ class ItemMetadata {
 		return this.stereotypes;
 	}
 
+	/**
+	 * Return the encoded class structure of the candidate, if any.
+	 * @since 5.0.18
+	 * @see ClassMetadataEncoder
+	 */
+	public String getClassMetadata() {
+		return this.classMetadata;
+	}
+
+	void setClassMetadata(String classMetadata) {
+		this.classMetadata = classMetadata;
+	}
+
 }
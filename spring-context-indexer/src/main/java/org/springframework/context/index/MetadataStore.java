@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2017 the original author or authors.
+ * Copyright 2002-2020 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -33,6 +33,8 @@ class MetadataStore {
 
 	static final String METADATA_PATH = "META-INF/spring.components";
 
+	static final String CLASS_METADATA_PATH = "META-INF/spring.components.metadata";
+
 	private final ProcessingEnvironment environment;
 
 
@@ -42,21 +44,36 @@ class MetadataStore {
 
 
 	public CandidateComponentsMetadata readMetadata() {
+		CandidateComponentsMetadata metadata = null;
 		try {
-			return readMetadata(getMetadataResource().openInputStream());
+			metadata = readMetadata(getMetadataResource(METADATA_PATH).openInputStream());
 		}
 		catch (IOException ex) {
 			// Failed to read metadata -> ignore.
-			return null;
 		}
+		try (InputStream in = getMetadataResource(CLASS_METADATA_PATH).openInputStream()) {
+			if (metadata == null) {
+				metadata = new CandidateComponentsMetadata();
+			}
+			PropertiesMarshaller.readClassMetadata(metadata, in);
+		}
+		catch (IOException ex) {
+			// Failed to read class metadata -> ignore.
+		}
+		return metadata;
 	}
 
 	public void writeMetadata(CandidateComponentsMetadata metadata) throws IOException {
-		if (!metadata.getItems().isEmpty()) {
-			try (OutputStream outputStream = createMetadataResource().openOutputStream()) {
+		if (metadata.getItems().stream().anyMatch(item -> !item.getStereotypes().isEmpty())) {
+			try (OutputStream outputStream = createMetadataResource(METADATA_PATH).openOutputStream()) {
 				PropertiesMarshaller.write(metadata, outputStream);
 			}
 		}
+		if (metadata.getItems().stream().anyMatch(item -> item.getClassMetadata() != null)) {
+			try (OutputStream outputStream = createMetadataResource(CLASS_METADATA_PATH).openOutputStream()) {
+				PropertiesMarshaller.writeClassMetadata(metadata, outputStream);
+			}
+		}
 	}
 
 
@@ -69,12 +86,12 @@ class MetadataStore {
 		}
 	}
 
-	private FileObject getMetadataResource() throws IOException {
-		return this.environment.getFiler().getResource(StandardLocation.CLASS_OUTPUT, "", METADATA_PATH);
+	private FileObject getMetadataResource(String path) throws IOException {
+		return this.environment.getFiler().getResource(StandardLocation.CLASS_OUTPUT, "", path);
 	}
 
-	private FileObject createMetadataResource() throws IOException {
-		return this.environment.getFiler().createResource(StandardLocation.CLASS_OUTPUT, "", METADATA_PATH);
+	private FileObject createMetadataResource(String path) throws IOException {
+		return this.environment.getFiler().createResource(StandardLocation.CLASS_OUTPUT, "", path);
 	}
 
 }
@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2017 the original author or authors.
+ * Copyright 2002-2020 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -20,6 +20,7 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashSet;
 import java.util.Properties;
 import java.util.Set;
@@ -34,7 +35,19 @@ abstract class PropertiesMarshaller {
 
 	public static void write(CandidateComponentsMetadata metadata, OutputStream out) throws IOException {
 		Properties props = new Properties();
-		metadata.getItems().forEach(m -> props.put(m.getType(), String.join(",", m.getStereotypes())));
+		metadata.getItems().stream().filter(m -> !m.getStereotypes().isEmpty())
+				.forEach(m -> props.put(m.getType(), String.join(",", m.getStereotypes())));
+		props.store(out, "");
+	}
+
+	/**
+	 * Write the class metadata of the given candidates.
+	 * @since 5.0.18
+	 */
+	public static void writeClassMetadata(CandidateComponentsMetadata metadata, OutputStream out) throws IOException {
+		Properties props = new Properties();
+		metadata.getItems().stream().filter(m -> m.getClassMetadata() != null)
+				.forEach(m -> props.put(m.getType(), m.getClassMetadata()));
 		props.store(out, "");
 	}
 
@@ -49,4 +62,24 @@ abstract class PropertiesMarshaller {
 		return result;
 	}
 
+	/**
+	 * Read class metadata into the given candidates, adding a candidate
+	 * without stereotypes for each type that is not present yet.
+	 * @since 5.0.18
+	 */
+	public static void readClassMetadata(CandidateComponentsMetadata metadata, InputStream in) throws IOException {
+		Properties props = new Properties();
+		props.load(in);
+		props.forEach((type, value) -> {
+			ItemMetadata item = metadata.getItems().stream()
+					.filter(m -> m.getType().equals(type)).findFirst().orElse(null);
+			if (item != null) {
+				item.setClassMetadata((String) value);
+			}
+			else {
+				metadata.add(new ItemMetadata((String) type, Collections.emptySet(), (String) value));
+			}
+		});
+	}
+
 }
@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2017 the original author or authors.
+ * Copyright 2002-2020 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -19,6 +19,15 @@ package org.springframework.context.index;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.lang.reflect.Array;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
 import javax.annotation.ManagedBean;
 import javax.inject.Named;
 import javax.persistence.Converter;
@@ -34,6 +43,12 @@ import org.junit.rules.TemporaryFolder;
 
 import org.springframework.context.index.sample.AbstractController;
 import org.springframework.context.index.sample.MetaControllerIndexed;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.DependsOn;
+import org.springframework.context.annotation.Description;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.context.annotation.Primary;
+import org.springframework.context.annotation.Scope;
 import org.springframework.context.index.sample.SampleComponent;
 import org.springframework.context.index.sample.SampleController;
 import org.springframework.context.index.sample.SampleMetaController;
@@ -44,6 +59,9 @@ import org.springframework.context.index.sample.SampleRepository;
 import org.springframework.context.index.sample.SampleService;
 import org.springframework.context.index.sample.cdi.SampleManagedBean;
 import org.springframework.context.index.sample.cdi.SampleNamed;
+import org.springframework.context.index.sample.config.AbstractSampleConfiguration;
+import org.springframework.context.index.sample.config.SampleConfiguration;
+import org.springframework.context.index.sample.config.SampleConfigurationContract;
 import org.springframework.context.index.sample.jpa.SampleConverter;
 import org.springframework.context.index.sample.jpa.SampleEmbeddable;
 import org.springframework.context.index.sample.SampleEmbedded;
@@ -56,6 +74,10 @@ import org.springframework.context.index.sample.type.SampleSpecializedRepo;
 import org.springframework.context.index.sample.type.SmartRepo;
 import org.springframework.context.index.sample.type.SpecializedRepo;
 import org.springframework.context.index.test.TestCompiler;
+import org.springframework.core.type.AnnotationMetadata;
+import org.springframework.core.type.MethodMetadata;
+import org.springframework.core.type.classreading.MetadataReader;
+import org.springframework.core.type.classreading.SimpleMetadataReaderFactory;
 import org.springframework.stereotype.Component;
 import org.springframework.util.ClassUtils;
 
@@ -222,6 +244,37 @@ public class CandidateComponentsIndexerTests {
 		assertThat(metadata.getItems(), hasSize(0));
 	}
 
+	@Test
+	public void configurationClassMetadata() throws IOException {
+		CandidateComponentsMetadata metadata = compile(SampleConfiguration.class);
+		assertThat(metadata, hasComponent(SampleConfiguration.class, Component.class));
+		assertThat(metadata, hasComponent(SampleConfiguration.NestedConfiguration.class, Component.class));
+		assertThat(metadata.getItems(), hasSize(2));
+		Properties classMetadata = readGeneratedClassMetadata(this.compiler.getOutputLocation());
+		assertThat(classMetadata.size(), equalTo(2));
+		assertSameMetadata(classMetadata, SampleConfiguration.class);
+		assertSameMetadata(classMetadata, SampleConfiguration.NestedConfiguration.class);
+	}
+
+	@Test
+	public void beanMethodsClassMetadata() throws IOException {
+		CandidateComponentsMetadata metadata = compile(
+				AbstractSampleConfiguration.class, SampleConfigurationContract.class);
+		assertThat(metadata.getItems(), hasSize(0));
+		Properties classMetadata = readGeneratedClassMetadata(this.compiler.getOutputLocation());
+		assertThat(classMetadata.size(), equalTo(2));
+		assertSameMetadata(classMetadata, AbstractSampleConfiguration.class);
+		assertSameMetadata(classMetadata, SampleConfigurationContract.class);
+	}
+
+	@Test
+	public void componentClassMetadata() throws IOException {
+		compile(SampleComponent.class, SampleEntity.class);
+		Properties classMetadata = readGeneratedClassMetadata(this.compiler.getOutputLocation());
+		assertThat(classMetadata.stringPropertyNames(), contains(SampleComponent.class.getName()));
+		assertSameMetadata(classMetadata, SampleComponent.class);
+	}
+
 	private void testComponent(Class<?>... classes) throws IOException {
 		CandidateComponentsMetadata metadata = compile(classes);
 		for (Class<?> c : classes) {
@@ -264,4 +317,101 @@ public class CandidateComponentsIndexerTests {
 		}
 	}
 
+	private Properties readGeneratedClassMetadata(File outputLocation) throws IOException {
+		Properties properties = new Properties();
+		File classMetadataFile = new File(outputLocation, MetadataStore.CLASS_METADATA_PATH);
+		if (classMetadataFile.isFile()) {
+			try (InputStream in = new FileInputStream(classMetadataFile)) {
+				properties.load(in);
+			}
+		}
+		return properties;
+	}
+
+	private void assertSameMetadata(Properties classMetadata, Class<?> type) throws IOException {
+		CandidateComponentsIndex index = new CandidateComponentsIndex(Collections.emptyList(),
+				Collections.singletonList(classMetadata), getClass().getClassLoader());
+		MetadataReader indexed = index.getMetadataReader(type.getName());
+		assertNotNull("No class metadata for " + type.getName(), indexed);
+		MetadataReader read = new SimpleMetadataReaderFactory().getMetadataReader(type.getName());
+		assertEquals(read.getResource(), indexed.getResource());
+
+		AnnotationMetadata expected = read.getAnnotationMetadata();
+		AnnotationMetadata actual = indexed.getAnnotationMetadata();
+		assertEquals(expected.getClassName(), actual.getClassName());
+		assertEquals(expected.isInterface(), actual.isInterface());
+		assertEquals(expected.isAnnotation(), actual.isAnnotation());
+		assertEquals(expected.isAbstract(), actual.isAbstract());
+		assertEquals(expected.isFinal(), actual.isFinal());
+		assertEquals(expected.isIndependent(), actual.isIndependent());
+		assertEquals(expected.getEnclosingClassName(), actual.getEnclosingClassName());
+		assertEquals(expected.getSuperClassName(), actual.getSuperClassName());
+		assertArrayEquals(expected.getInterfaceNames(), actual.getInterfaceNames());
+		assertEquals(new HashSet<>(Arrays.asList(expected.getMemberClassNames())),
+				new HashSet<>(Arrays.asList(actual.getMemberClassNames())));
+		assertEquals(expected.getAnnotationTypes(), actual.getAnnotationTypes());
+		for (String annotationType : expected.getAnnotationTypes()) {
+			assertEquals(expected.getMetaAnnotationTypes(annotationType), actual.getMetaAnnotationTypes(annotationType));
+			for (String metaAnnotationType : expected.getMetaAnnotationTypes(annotationType)) {
+				assertDeepEquals(expected.getAllAnnotationAttributes(metaAnnotationType),
+						actual.getAllAnnotationAttributes(metaAnnotationType));
+			}
+			assertDeepEquals(expected.getAllAnnotationAttributes(annotationType),
+					actual.getAllAnnotationAttributes(annotationType));
+			assertDeepEquals(expected.getAnnotationAttributes(annotationType, true),
+					actual.getAnnotationAttributes(annotationType, true));
+		}
+
+		Map<String, MethodMetadata> expectedMethods = new HashMap<>();
+		expected.getAnnotatedMethods(Bean.class.getName()).forEach(m -> expectedMethods.put(m.getMethodName(), m));
+		Map<String, MethodMetadata> actualMethods = new HashMap<>();
+		actual.getAnnotatedMethods(Bean.class.getName()).forEach(m -> actualMethods.put(m.getMethodName(), m));
+		assertEquals(expectedMethods.keySet(), actualMethods.keySet());
+		for (MethodMetadata expectedMethod : expectedMethods.values()) {
+			MethodMetadata actualMethod = actualMethods.get(expectedMethod.getMethodName());
+			assertEquals(expectedMethod.getReturnTypeName(), actualMethod.getReturnTypeName());
+			assertEquals(expectedMethod.getDeclaringClassName(), actualMethod.getDeclaringClassName());
+			assertEquals(expectedMethod.isStatic(), actualMethod.isStatic());
+			assertEquals(expectedMethod.isAbstract(), actualMethod.isAbstract());
+			assertEquals(expectedMethod.isOverridable(), actualMethod.isOverridable());
+			for (Class<?> annotationType : Arrays.asList(Bean.class, Scope.class, Lazy.class, Primary.class,
+					DependsOn.class, Description.class, SuppressWarnings.class)) {
+				assertEquals(expectedMethod.isAnnotated(annotationType.getName()),
+						actualMethod.isAnnotated(annotationType.getName()));
+				assertDeepEquals(expectedMethod.getAnnotationAttributes(annotationType.getName()),
+						actualMethod.getAnnotationAttributes(annotationType.getName()));
+			}
+		}
+	}
+
+	private static void assertDeepEquals(Object expected, Object actual) {
+		if (expected instanceof Map) {
+			assertThat(actual, instanceOf(Map.class));
+			Map<?, ?> expectedMap = (Map<?, ?>) expected;
+			Map<?, ?> actualMap = (Map<?, ?>) actual;
+			assertEquals(expectedMap.keySet(), actualMap.keySet());
+			expectedMap.forEach((key, value) -> assertDeepEquals(value, actualMap.get(key)));
+		}
+		else if (expected instanceof List) {
+			assertThat(actual, instanceOf(List.class));
+			List<?> expectedList = (List<?>) expected;
+			List<?> actualList = (List<?>) actual;
+			assertEquals(expectedList.size(), actualList.size());
+			for (int i = 0; i < expectedList.size(); i++) {
+				assertDeepEquals(expectedList.get(i), actualList.get(i));
+			}
+		}
+		else if (expected != null && expected.getClass().isArray()) {
+			assertNotNull(actual);
+			assertEquals(expected.getClass(), actual.getClass());
+			assertEquals(Array.getLength(expected), Array.getLength(actual));
+			for (int i = 0; i < Array.getLength(expected); i++) {
+				assertDeepEquals(Array.get(expected, i), Array.get(actual, i));
+			}
+		}
+		else {
+			assertEquals(expected, actual);
+		}
+	}
+
 }
@@ -0,0 +1,93 @@
+/*
+ * Copyright 2002-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.context.index.sample.config;
+
+import java.util.Collections;
+import java.util.List;
+
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.ComponentScan;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.DependsOn;
+import org.springframework.context.annotation.Description;
+import org.springframework.context.annotation.FilterType;
+import org.springframework.context.annotation.Import;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.context.annotation.Primary;
+import org.springframework.context.annotation.Profile;
+import org.springframework.context.annotation.PropertySource;
+import org.springframework.context.annotation.Scope;
+import org.springframework.context.annotation.ScopedProxyMode;
+import org.springframework.context.index.sample.SampleComponent;
+import org.springframework.stereotype.Repository;
+
+/**
+ * Test configuration class covering the metadata that is relevant
+ * for configuration class processing.
+ */
+@Configuration
+@Import(SampleComponent.class)
+@ComponentScan(basePackages = "org.springframework.context.index.sample",
+		excludeFilters = @ComponentScan.Filter(type = FilterType.ANNOTATION, classes = Repository.class))
+@PropertySource("classpath:sample.properties")
+@Profile("sample")
+@SampleAttributes(numbers = {1, 2, 3}, flags = {}, character = 'x', text = "a b\nc\\d", ratio = 0.5,
+		type = Long[].class)
+@SampleClassRetention
+public class SampleConfiguration extends AbstractSampleConfiguration implements SampleConfigurationContract {
+
+	@Bean(name = {"one", "first"}, initMethod = "toString")
+	@Scope(scopeName = "prototype", proxyMode = ScopedProxyMode.TARGET_CLASS)
+	@Lazy
+	@Primary
+	@DependsOn({"two", "three"})
+	@Description("First bean")
+	public SampleComponent one() {
+		return new SampleComponent();
+	}
+
+	@Bean
+	@SuppressWarnings("unused")
+	public static List<String> two() {
+		return Collections.emptyList();
+	}
+
+	@Bean
+	protected final String[] three() {
+		return new String[0];
+	}
+
+	@Override
+	public Runnable task() {
+		return () -> { };
+	}
+
+
+	@Configuration
+	public static class NestedConfiguration {
+
+		@Bean
+		public Object nested() {
+			return new Object();
+		}
+	}
+
+
+	public class InnerBean {
+	}
+
+}
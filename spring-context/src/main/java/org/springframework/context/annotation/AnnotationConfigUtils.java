@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2018 the original author or authors.
+ * Copyright 2002-2020 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -26,6 +26,7 @@ import org.springframework.beans.factory.annotation.AutowiredAnnotationBeanPostP
 import org.springframework.beans.factory.annotation.RequiredAnnotationBeanPostProcessor;
 import org.springframework.beans.factory.config.BeanDefinition;
 import org.springframework.beans.factory.config.BeanDefinitionHolder;
+import org.springframework.beans.factory.config.ConfigurableListableBeanFactory;
 import org.springframework.beans.factory.support.AbstractBeanDefinition;
 import org.springframework.beans.factory.support.BeanDefinitionRegistry;
 import org.springframework.beans.factory.support.DefaultListableBeanFactory;
@@ -271,6 +272,19 @@ public class AnnotationConfigUtils {
 		}
 	}
 
+	/**
+	 * Return the names of the {@link Condition} classes that have been evaluated
+	 * for bean definitions registered with the given bean factory, apart from
+	 * {@link Profile @Profile} conditions. Bean definitions registered with such
+	 * conditions in place may depend on the environment beyond its active profiles.
+	 * @param beanFactory the bean factory to check
+	 * @return the condition class names, or an empty Set if none have been evaluated
+	 * @since 5.0.18
+	 */
+	public static Set<String> getEvaluatedConditions(ConfigurableListableBeanFactory beanFactory) {
+		return ConditionEvaluator.getEvaluatedConditions(beanFactory);
+	}
+
 	static BeanDefinitionHolder applyScopedProxyMode( ScopeMetadata metadata, BeanDefinitionHolder definition, BeanDefinitionRegistry registry) {
 		ScopedProxyMode scopedProxyMode = metadata.getScopedProxyMode();
 		if (scopedProxyMode.equals(ScopedProxyMode.NO)) {
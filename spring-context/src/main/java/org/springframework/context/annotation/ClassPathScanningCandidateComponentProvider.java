@@ -18,10 +18,13 @@ package org.springframework.context.annotation;
 
 import java.io.IOException;
 import java.lang.annotation.Annotation;
+import java.util.ArrayList;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.LinkedHashSet;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
 import org.apache.commons.logging.Log;
@@ -35,6 +38,7 @@ import org.springframework.beans.factory.support.BeanDefinitionRegistry;
 import org.springframework.context.ResourceLoaderAware;
 import org.springframework.context.index.CandidateComponentsIndex;
 import org.springframework.context.index.CandidateComponentsIndexLoader;
+import org.springframework.core.SpringProperties;
 import org.springframework.core.annotation.AnnotationUtils;
 import org.springframework.core.env.Environment;
 import org.springframework.core.env.EnvironmentCapable;
@@ -59,6 +63,9 @@ import org.springframework.stereotype.Repository;
 import org.springframework.stereotype.Service;
 import org.springframework.util.Assert;
 import org.springframework.util.ClassUtils;
+import org.springframework.util.ResourceUtils;
+import org.springframework.util.StringUtils;
+import org.springframework.util.concurrent.ParallelTaskGroup;
 
 /**
  * A component provider that provides candidate components from a base package. Can
@@ -72,6 +79,8 @@ import org.springframework.util.ClassUtils;
  * <p>This implementation is based on Spring's
  * {@link org.springframework.core.type.classreading.MetadataReader MetadataReader}
  * facility, backed by an ASM {@link org.springframework.asm.ClassReader ClassReader}.
+ * Class files may optionally be read and filtered in parallel, see
+ * {@link #setScanParallelism}.
  *
  * @author Mark Fisher
  * @author Juergen Hoeller
@@ -88,6 +97,19 @@ public class ClassPathScanningCandidateComponentProvider implements EnvironmentC
 
 	static final String DEFAULT_RESOURCE_PATTERN = "**/*.class";
 
+	/**
+	 * System property that specifies the default number of threads to read and
+	 * filter class files with when scanning the classpath, e.g. for scanners that
+	 * {@link ComponentScan @ComponentScan} processing creates internally.
+	 * <p>The default is 1, i.e. sequential scanning on the calling thread.
+	 * @since 5.0.18
+	 * @see #setScanParallelism
+	 */
+	public static final String SCAN_PARALLELISM_PROPERTY_NAME = "spring.context.scan.parallelism";
+
+
+	private static final int defaultScanParallelism = getDefaultScanParallelism();
+
 
 	protected final Log logger = LogFactory.getLog(getClass());
 
@@ -112,6 +134,8 @@ public class ClassPathScanningCandidateComponentProvider implements EnvironmentC
 	@Nullable
 	private CandidateComponentsIndex componentsIndex;
 
+	private int scanParallelism = defaultScanParallelism;
+
 
 	/**
 	 * Protected constructor for flexible subclass initialization.
@@ -161,6 +185,33 @@ public class ClassPathScanningCandidateComponentProvider implements EnvironmentC
 		this.resourcePattern = resourcePattern;
 	}
 
+	/**
+	 * Set the number of threads to read and filter class files with
+	 * when scanning the classpath.
+	 * <p>Default is 1, scanning all class files one after the other on the
+	 * calling thread, unless the {@value #SCAN_PARALLELISM_PROPERTY_NAME}
+	 * property specifies otherwise. A higher value reads class files on a
+	 * fork-join pool with the given parallelism, one task per jar file or
+	 * directory; candidate components are still returned in the order of the
+	 * scanned resources.
+	 * <p>Note that type filters and {@link Conditional @Conditional} conditions
+	 * need to be thread-safe for parallel scanning.
+	 * @since 5.0.18
+	 * @see #findCandidateComponents(String)
+	 */
+	public void setScanParallelism(int scanParallelism) {
+		Assert.isTrue(scanParallelism > 0, "Scan parallelism must be greater than 0");
+		this.scanParallelism = scanParallelism;
+	}
+
+	/**
+	 * Return the number of threads to read and filter class files with.
+	 * @since 5.0.18
+	 */
+	public int getScanParallelism() {
+		return this.scanParallelism;
+	}
+
 	/**
 	 * Add an include type filter to the <i>end</i> of the inclusion list.
 	 */
@@ -369,7 +420,10 @@ public class ClassPathScanningCandidateComponentProvider implements EnvironmentC
 			boolean traceEnabled = logger.isTraceEnabled();
 			boolean debugEnabled = logger.isDebugEnabled();
 			for (String type : types) {
-				MetadataReader metadataReader = getMetadataReaderFactory().getMetadataReader(type);
+				MetadataReader metadataReader = index.getMetadataReader(type);
+				if (metadataReader == null) {
+					metadataReader = getMetadataReaderFactory().getMetadataReader(type);
+				}
 				if (isCandidateComponent(metadataReader)) {
 					ScannedGenericBeanDefinition sbd = new ScannedGenericBeanDefinition(metadataReader);
 					sbd.setSource(metadataReader.getResource());
@@ -405,32 +459,19 @@ public class ClassPathScanningCandidateComponentProvider implements EnvironmentC
 			// 组装扫描路径（组装完成后是这种格式：classpath*:com/tanglongan/**/*.class）
 			String packageSearchPath = ResourcePatternResolver.CLASSPATH_ALL_URL_PREFIX + resolveBasePackage(basePackage) + '/' + this.resourcePattern;
 			Resource[] resources = getResourcePatternResolver().getResources(packageSearchPath);
-			boolean traceEnabled = logger.isTraceEnabled();
-			boolean debugEnabled = logger.isDebugEnabled();
-			for (Resource resource : resources) {
-				if (traceEnabled) {
-					logger.trace("Scanning " + resource);
-				}
-				if (resource.isReadable()) {
-					try {
-						// 生成MetadataReader对象->SimpleMetadataReader，内部包含AnnotationMetadataReadingVisitor注解访问处理类
-						MetadataReader metadataReader = getMetadataReaderFactory().getMetadataReader(resource);
-						// 判断是的有几个注解
-						// 判断class是否不属于excludeFilters集合内但至少符合一个includeFilters集合
-						if (isCandidateComponent(metadataReader)) {
-							// 包装为ScannedGenericBeanDefinition对象
-							ScannedGenericBeanDefinition sbd = new ScannedGenericBeanDefinition(metadataReader);
-							sbd.setSource(resource);
-							// 判断class文件是否不为接口或者抽象类并且是独立的
-							if (isCandidateComponent(sbd)) {
-								// 完成验证加入集合中
-								candidates.add(sbd);
-							}
-						}
+			if (this.scanParallelism > 1 && resources.length > 1) {
+				ScannedGenericBeanDefinition[] results = scanCandidateComponentsInParallel(resources);
+				for (ScannedGenericBeanDefinition result : results) {
+					if (result != null) {
+						candidates.add(result);
 					}
-					catch (Throwable ex) {
-						throw new BeanDefinitionStoreException(
-								"Failed to read candidate component class: " + resource, ex);
+				}
+			}
+			else {
+				for (Resource resource : resources) {
+					ScannedGenericBeanDefinition sbd = scanCandidateComponent(resource);
+					if (sbd != null) {
+						candidates.add(sbd);
 					}
 				}
 			}
@@ -441,6 +482,91 @@ public class ClassPathScanningCandidateComponentProvider implements EnvironmentC
 		return candidates;
 	}
 
+	/**
+	 * Read and filter the given resources on a fork-join pool, one task per jar
+	 * file or directory, keeping the results in the order of the given resources.
+	 */
+	private ScannedGenericBeanDefinition[] scanCandidateComponentsInParallel(Resource[] resources) {
+		Map<String, List<Integer>> groups = new LinkedHashMap<>();
+		for (int i = 0; i < resources.length; i++) {
+			groups.computeIfAbsent(getScanGroup(resources[i]), key -> new ArrayList<>()).add(i);
+		}
+		// Initialize lazily created state before handing out work
+		getMetadataReaderFactory();
+		getConditionEvaluator();
+
+		ScannedGenericBeanDefinition[] results = new ScannedGenericBeanDefinition[resources.length];
+		ParallelTaskGroup tasks = new ParallelTaskGroup(Math.min(this.scanParallelism, groups.size()));
+		for (List<Integer> group : groups.values()) {
+			tasks.run(() -> {
+				for (int index : group) {
+					if (tasks.hasFailed()) {
+						return;
+					}
+					results[index] = scanCandidateComponent(resources[index]);
+				}
+			});
+		}
+		tasks.join();
+		return results;
+	}
+
+	/**
+	 * Determine the unit of parallel work that the given resource belongs to:
+	 * the jar file for a jar entry, the containing directory otherwise.
+	 */
+	private String getScanGroup(Resource resource) {
+		try {
+			String url = resource.getURL().toString();
+			int separatorIndex = url.indexOf(ResourceUtils.JAR_URL_SEPARATOR);
+			if (separatorIndex != -1) {
+				return url.substring(0, separatorIndex);
+			}
+			int lastSlash = url.lastIndexOf('/');
+			return (lastSlash != -1 ? url.substring(0, lastSlash) : url);
+		}
+		catch (IOException ex) {
+			// Not resolvable as URL -> scan on its own
+			return resource.getDescription();
+		}
+	}
+
+	/**
+	 * Read the given class file and turn it into a candidate component,
+	 * if it passes the filters.
+	 * @param resource the class file resource
+	 * @return the candidate component, or {@code null} if not a candidate
+	 */
+	@Nullable
+	private ScannedGenericBeanDefinition scanCandidateComponent(Resource resource) {
+		if (logger.isTraceEnabled()) {
+			logger.trace("Scanning " + resource);
+		}
+		if (resource.isReadable()) {
+			try {
+				// 生成MetadataReader对象->SimpleMetadataReader，内部包含AnnotationMetadataReadingVisitor注解访问处理类
+				MetadataReader metadataReader = getMetadataReaderFactory().getMetadataReader(resource);
+				// 判断是的有几个注解
+				// 判断class是否不属于excludeFilters集合内但至少符合一个includeFilters集合
+				if (isCandidateComponent(metadataReader)) {
+					// 包装为ScannedGenericBeanDefinition对象
+					ScannedGenericBeanDefinition sbd = new ScannedGenericBeanDefinition(metadataReader);
+					sbd.setSource(resource);
+					// 判断class文件是否不为接口或者抽象类并且是独立的
+					if (isCandidateComponent(sbd)) {
+						// 完成验证加入集合中
+						return sbd;
+					}
+				}
+			}
+			catch (Throwable ex) {
+				throw new BeanDefinitionStoreException(
+						"Failed to read candidate component class: " + resource, ex);
+			}
+		}
+		return null;
+	}
+
 
 	/**
 	 * Resolve the specified base package into a pattern specification for
@@ -484,10 +610,14 @@ public class ClassPathScanningCandidateComponentProvider implements EnvironmentC
 	 * @return whether the class qualifies as a candidate component
 	 */
 	private boolean isConditionMatch(MetadataReader metadataReader) {
+		return !getConditionEvaluator().shouldSkip(metadataReader.getAnnotationMetadata());
+	}
+
+	private ConditionEvaluator getConditionEvaluator() {
 		if (this.conditionEvaluator == null) {
 			this.conditionEvaluator = new ConditionEvaluator(getRegistry(), this.environment, this.resourcePatternResolver);
 		}
-		return !this.conditionEvaluator.shouldSkip(metadataReader.getAnnotationMetadata());
+		return this.conditionEvaluator;
 	}
 
 	/**
@@ -516,4 +646,18 @@ public class ClassPathScanningCandidateComponentProvider implements EnvironmentC
 		}
 	}
 
+
+	private static int getDefaultScanParallelism() {
+		String parallelism = SpringProperties.getProperty(SCAN_PARALLELISM_PROPERTY_NAME);
+		if (StringUtils.hasText(parallelism)) {
+			try {
+				return Math.max(Integer.parseInt(parallelism.trim()), 1);
+			}
+			catch (NumberFormatException ex) {
+				// ignore
+			}
+		}
+		return 1;
+	}
+
 }
@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2018 the original author or authors.
+ * Copyright 2002-2020 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -19,6 +19,8 @@ package org.springframework.context.annotation;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
 import org.springframework.beans.BeanUtils;
 import org.springframework.beans.factory.config.ConfigurableListableBeanFactory;
@@ -47,6 +49,10 @@ import org.springframework.util.MultiValueMap;
  */
 class ConditionEvaluator {
 
+	private static final String EVALUATED_CONDITIONS_BEAN_NAME =
+			ConditionEvaluator.class.getName() + ".evaluatedConditions";
+
+
 	private final ConditionContextImpl context;
 
 
@@ -105,14 +111,38 @@ class ConditionEvaluator {
 			if (condition instanceof ConfigurationCondition) {
 				requiredPhase = ((ConfigurationCondition) condition).getConfigurationPhase();
 			}
-			if ((requiredPhase == null || requiredPhase == phase) && !condition.matches(this.context, metadata)) {
-				return true;
+			if (requiredPhase == null || requiredPhase == phase) {
+				recordEvaluation(condition);
+				if (!condition.matches(this.context, metadata)) {
+					return true;
+				}
 			}
 		}
 
 		return false;
 	}
 
+	/**
+	 * Record the evaluation of the given condition with the bean factory, if any,
+	 * unless it is a {@link Profile @Profile} condition.
+	 * @see #getEvaluatedConditions
+	 */
+	private void recordEvaluation(Condition condition) {
+		ConfigurableListableBeanFactory beanFactory = this.context.getBeanFactory();
+		if (beanFactory == null || condition instanceof ProfileCondition) {
+			return;
+		}
+		EvaluatedConditions evaluatedConditions;
+		synchronized (beanFactory) {
+			evaluatedConditions = (EvaluatedConditions) beanFactory.getSingleton(EVALUATED_CONDITIONS_BEAN_NAME);
+			if (evaluatedConditions == null) {
+				evaluatedConditions = new EvaluatedConditions();
+				beanFactory.registerSingleton(EVALUATED_CONDITIONS_BEAN_NAME, evaluatedConditions);
+			}
+		}
+		evaluatedConditions.conditionClassNames.add(condition.getClass().getName());
+	}
+
 	@SuppressWarnings("unchecked")
 	private List<String[]> getConditionClasses(AnnotatedTypeMetadata metadata) {
 		MultiValueMap<String, Object> attributes = metadata.getAllAnnotationAttributes(Conditional.class.getName(), true);
@@ -126,6 +156,30 @@ class ConditionEvaluator {
 	}
 
 
+	/**
+	 * Return the names of the conditions that have been evaluated for bean
+	 * definitions registered with the given bean factory, apart from
+	 * {@link Profile @Profile} conditions.
+	 * @param beanFactory the bean factory to check
+	 * @return the condition class names (never {@code null})
+	 */
+	public static Set<String> getEvaluatedConditions(ConfigurableListableBeanFactory beanFactory) {
+		Object evaluatedConditions = beanFactory.getSingleton(EVALUATED_CONDITIONS_BEAN_NAME);
+		return (evaluatedConditions instanceof EvaluatedConditions ?
+				Collections.unmodifiableSet(((EvaluatedConditions) evaluatedConditions).conditionClassNames) :
+				Collections.emptySet());
+	}
+
+
+	/**
+	 * Record of the conditions evaluated for a bean factory.
+	 */
+	private static class EvaluatedConditions {
+
+		final Set<String> conditionClassNames = ConcurrentHashMap.newKeySet();
+	}
+
+
 	/**
 	 * Implementation of a {@link ConditionContext}.
 	 */
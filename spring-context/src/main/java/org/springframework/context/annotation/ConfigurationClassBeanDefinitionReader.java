@@ -149,6 +149,10 @@ class ConfigurationClassBeanDefinitionReader {
 	private void registerBeanDefinitionForImportedConfigurationClass(ConfigurationClass configClass) {
 		AnnotationMetadata metadata = configClass.getMetadata();
 		AnnotatedGenericBeanDefinition configBeanDef = new AnnotatedGenericBeanDefinition(metadata);
+		AnnotationMetadata importingClass = this.importRegistry.getImportingClassFor(metadata.getClassName());
+		if (importingClass != null) {
+			ConfigurationClassUtils.setImportingClassName(configBeanDef, importingClass.getClassName());
+		}
 
 		ScopeMetadata scopeMetadata = scopeMetadataResolver.resolveScopeMetadata(configBeanDef);
 		configBeanDef.setScope(scopeMetadata.getScopeName());
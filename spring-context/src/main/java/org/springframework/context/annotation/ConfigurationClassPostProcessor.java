@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2019 the original author or authors.
+ * Copyright 2002-2020 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -17,6 +17,7 @@
 package org.springframework.context.annotation;
 
 import java.beans.PropertyDescriptor;
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashSet;
@@ -32,8 +33,8 @@ import org.apache.commons.logging.LogFactory;
 import org.springframework.aop.framework.autoproxy.AutoProxyUtils;
 import org.springframework.beans.PropertyValues;
 import org.springframework.beans.factory.BeanClassLoaderAware;
+import org.springframework.beans.factory.BeanCreationException;
 import org.springframework.beans.factory.BeanDefinitionStoreException;
-import org.springframework.beans.factory.BeanFactory;
 import org.springframework.beans.factory.config.BeanDefinition;
 import org.springframework.beans.factory.config.BeanDefinitionHolder;
 import org.springframework.beans.factory.config.BeanFactoryPostProcessor;
@@ -51,6 +52,9 @@ import org.springframework.beans.factory.support.BeanNameGenerator;
 import org.springframework.context.EnvironmentAware;
 import org.springframework.context.ResourceLoaderAware;
 import org.springframework.context.annotation.ConfigurationClassEnhancer.EnhancedConfiguration;
+import org.springframework.context.index.CandidateComponentsIndex;
+import org.springframework.context.index.CandidateComponentsIndexLoader;
+import org.springframework.context.index.IndexedMetadataReaderFactory;
 import org.springframework.core.Ordered;
 import org.springframework.core.PriorityOrdered;
 import org.springframework.core.env.Environment;
@@ -205,13 +209,14 @@ public class ConfigurationClassPostProcessor implements BeanDefinitionRegistryPo
 		}
 
 		enhanceConfigurationClasses(beanFactory);
-		beanFactory.addBeanPostProcessor(new ImportAwareBeanPostProcessor(beanFactory));
+		beanFactory.addBeanPostProcessor(new ImportAwareBeanPostProcessor(beanFactory, this.metadataReaderFactory));
 	}
 
 	// @Configuration 注解解析
 	public void processConfigBeanDefinitions(BeanDefinitionRegistry registry) {
 		// 被确认为配置类的bean定义都放在集合configCandidates中
 		List<BeanDefinitionHolder> configCandidates = new ArrayList<>();
+		MetadataReaderFactory readerFactory = getParsingMetadataReaderFactory();
 		// 所有带 @Configuration 注解的bean, @Configuration 注解是组合注解，包含 @Component
 		String[] candidateNames = registry.getBeanDefinitionNames();
 
@@ -226,7 +231,7 @@ public class ConfigurationClassPostProcessor implements BeanDefinitionRegistryPo
 				}
 			}
 			// ConfigurationClassUtils.checkConfigurationClassCandidate 里面的通过当前类的注解来判断是否为配置类
-			else if (ConfigurationClassUtils.checkConfigurationClassCandidate(beanDef, this.metadataReaderFactory)) {
+			else if (ConfigurationClassUtils.checkConfigurationClassCandidate(beanDef, readerFactory)) {
 				// 例如有@Configuration注解的类，被判定为配置类，放入集合configCandidates中
 				configCandidates.add(new BeanDefinitionHolder(beanDef, beanName));
 			}
@@ -261,7 +266,7 @@ public class ConfigurationClassPostProcessor implements BeanDefinitionRegistryPo
 
 		// 解析被 @Configuration 注解的类, 用来解析各种注解的解析器
 		ConfigurationClassParser parser = new ConfigurationClassParser(
-				this.metadataReaderFactory, this.problemReporter, this.environment,
+				readerFactory, this.problemReporter, this.environment,
 				this.resourceLoader, this.componentScanBeanNameGenerator, registry);
 
 		Set<BeanDefinitionHolder> candidates = new LinkedHashSet<>(configCandidates);
@@ -295,7 +300,7 @@ public class ConfigurationClassPostProcessor implements BeanDefinitionRegistryPo
 				for (String candidateName : newCandidateNames) {
 					if (!oldCandidateNames.contains(candidateName)) {
 						BeanDefinition bd = registry.getBeanDefinition(candidateName);
-						if (ConfigurationClassUtils.checkConfigurationClassCandidate(bd, this.metadataReaderFactory) &&
+						if (ConfigurationClassUtils.checkConfigurationClassCandidate(bd, readerFactory) &&
 								!alreadyParsedClasses.contains(bd.getBeanClassName())) {
 							candidates.add(new BeanDefinitionHolder(bd, candidateName));
 						}
@@ -318,6 +323,18 @@ public class ConfigurationClassPostProcessor implements BeanDefinitionRegistryPo
 		}
 	}
 
+	/**
+	 * Return the {@link MetadataReaderFactory} to use for configuration class parsing:
+	 * serving the class structure recorded in the components index where available,
+	 * without reading class files for indexed configuration classes.
+	 * @see CandidateComponentsIndex#getMetadataReader(String)
+	 */
+	private MetadataReaderFactory getParsingMetadataReaderFactory() {
+		CandidateComponentsIndex index = CandidateComponentsIndexLoader.loadIndex(this.resourceLoader.getClassLoader());
+		return (index != null ? new IndexedMetadataReaderFactory(index, this.metadataReaderFactory) :
+				this.metadataReaderFactory);
+	}
+
 	/**
 	 * Post-processes a BeanFactory in search of Configuration class BeanDefinitions;
 	 * any candidates are then enhanced by a {@link ConfigurationClassEnhancer}.
@@ -375,10 +392,15 @@ public class ConfigurationClassPostProcessor implements BeanDefinitionRegistryPo
 
 	private static class ImportAwareBeanPostProcessor extends InstantiationAwareBeanPostProcessorAdapter {
 
-		private final BeanFactory beanFactory;
+		private final ConfigurableListableBeanFactory beanFactory;
+
+		private final MetadataReaderFactory metadataReaderFactory;
+
+		public ImportAwareBeanPostProcessor(ConfigurableListableBeanFactory beanFactory,
+				MetadataReaderFactory metadataReaderFactory) {
 
-		public ImportAwareBeanPostProcessor(BeanFactory beanFactory) {
 			this.beanFactory = beanFactory;
+			this.metadataReaderFactory = metadataReaderFactory;
 		}
 
 		@Override
@@ -396,14 +418,38 @@ public class ConfigurationClassPostProcessor implements BeanDefinitionRegistryPo
 		@Override
 		public Object postProcessBeforeInitialization(Object bean, String beanName) {
 			if (bean instanceof ImportAware) {
-				ImportRegistry ir = this.beanFactory.getBean(IMPORT_REGISTRY_BEAN_NAME, ImportRegistry.class);
-				AnnotationMetadata importingClass = ir.getImportingClassFor(bean.getClass().getSuperclass().getName());
+				AnnotationMetadata importingClass = null;
+				if (this.beanFactory.containsBean(IMPORT_REGISTRY_BEAN_NAME)) {
+					ImportRegistry ir = this.beanFactory.getBean(IMPORT_REGISTRY_BEAN_NAME, ImportRegistry.class);
+					importingClass = ir.getImportingClassFor(bean.getClass().getSuperclass().getName());
+				}
+				else if (this.beanFactory.containsBeanDefinition(beanName)) {
+					// Configuration classes not parsed in this run, e.g. restored from a
+					// bean definition snapshot: use the importing class recorded on parsing.
+					importingClass = getImportingClass(beanName);
+				}
 				if (importingClass != null) {
 					((ImportAware) bean).setImportMetadata(importingClass);
 				}
 			}
 			return bean;
 		}
+
+		@Nullable
+		private AnnotationMetadata getImportingClass(String beanName) {
+			String importingClassName = ConfigurationClassUtils.getImportingClassName(
+					this.beanFactory.getMergedBeanDefinition(beanName));
+			if (importingClassName == null) {
+				return null;
+			}
+			try {
+				return this.metadataReaderFactory.getMetadataReader(importingClassName).getAnnotationMetadata();
+			}
+			catch (IOException ex) {
+				throw new BeanCreationException(beanName,
+						"Failed to read metadata of importing class [" + importingClassName + "]", ex);
+			}
+		}
 	}
 
 }
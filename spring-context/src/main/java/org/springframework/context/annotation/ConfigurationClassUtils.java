@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2018 the original author or authors.
+ * Copyright 2002-2020 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -57,6 +57,9 @@ abstract class ConfigurationClassUtils {
 	private static final String ORDER_ATTRIBUTE =
 			Conventions.getQualifiedAttributeName(ConfigurationClassPostProcessor.class, "order");
 
+	private static final String IMPORTING_CLASS_ATTRIBUTE =
+			Conventions.getQualifiedAttributeName(ConfigurationClassPostProcessor.class, "importingClass");
+
 
 	private static final Log logger = LogFactory.getLog(ConfigurationClassUtils.class);
 
@@ -202,6 +205,29 @@ abstract class ConfigurationClassUtils {
 		return CONFIGURATION_CLASS_LITE.equals(beanDef.getAttribute(CONFIGURATION_CLASS_ATTRIBUTE));
 	}
 
+	/**
+	 * Record the name of the class that imported the given configuration class
+	 * bean definition, for {@link ImportAware} callbacks on bean definitions
+	 * that get registered without the parser's import registry (e.g. from a
+	 * {@link org.springframework.beans.factory.support.BeanDefinitionSnapshot}).
+	 * @since 5.0.18
+	 */
+	public static void setImportingClassName(BeanDefinition beanDef, String importingClassName) {
+		beanDef.setAttribute(IMPORTING_CLASS_ATTRIBUTE, importingClassName);
+	}
+
+	/**
+	 * Determine the name of the class that imported the given configuration
+	 * class bean definition, as set by {@link #setImportingClassName}.
+	 * @param beanDef the bean definition to check
+	 * @return the importing class name, or {@code null} if none recorded
+	 * @since 5.0.18
+	 */
+	@Nullable
+	public static String getImportingClassName(BeanDefinition beanDef) {
+		return (String) beanDef.getAttribute(IMPORTING_CLASS_ATTRIBUTE);
+	}
+
 	/**
 	 * Determine the order for the given configuration class metadata.
 	 * @param metadata the metadata of the annotated class
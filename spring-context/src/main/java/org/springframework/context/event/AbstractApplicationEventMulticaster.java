@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2019 the original author or authors.
+ * Copyright 2002-2020 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -17,7 +17,9 @@
 package org.springframework.context.event;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
@@ -48,6 +50,11 @@ import org.springframework.util.ObjectUtils;
  * ApplicationListener objects can be overridden through the "collectionClass"
  * bean property.
  *
+ * <p>Registered listeners are kept in an immutable snapshot which gets replaced on
+ * every registration change, so that listener retrieval does not need to lock.
+ * The ordered listeners per event type and source type are cached; a registration
+ * change only evicts the cached entries that it may affect.
+ *
  * <p>Implementing ApplicationEventMulticaster's actual {@link #multicastEvent} method
  * is left to subclasses. {@link SimpleApplicationEventMulticaster} simply multicasts
  * all events to all registered listeners, invoking them in the calling thread.
@@ -62,7 +69,9 @@ import org.springframework.util.ObjectUtils;
 public abstract class AbstractApplicationEventMulticaster
 		implements ApplicationEventMulticaster, BeanClassLoaderAware, BeanFactoryAware {
 
-	private final ListenerRetriever defaultRetriever = new ListenerRetriever(false);
+	/** Snapshot of all registered listeners, replaced on every registration change */
+	private volatile ListenerRetriever defaultRetriever = new ListenerRetriever(
+			Collections.emptySet(), Collections.emptySet(), false);
 
 	final Map<ListenerCacheKey, ListenerRetriever> retrieverCache = new ConcurrentHashMap<>(64);
 
@@ -72,7 +81,7 @@ public abstract class AbstractApplicationEventMulticaster
 	@Nullable
 	private BeanFactory beanFactory;
 
-	private Object retrievalMutex = this.defaultRetriever;
+	private Object retrievalMutex = new Object();
 
 
 	@Override
@@ -104,48 +113,85 @@ public abstract class AbstractApplicationEventMulticaster
 	@Override
 	public void addApplicationListener(ApplicationListener<?> listener) {
 		synchronized (this.retrievalMutex) {
+			Set<ApplicationListener<?>> listeners = new LinkedHashSet<>(this.defaultRetriever.applicationListeners);
 			// Explicitly remove target for a proxy, if registered already,
 			// in order to avoid double invocations of the same listener.
 			Object singletonTarget = AopProxyUtils.getSingletonTarget(listener);
-			if (singletonTarget instanceof ApplicationListener) {
+			if (singletonTarget instanceof ApplicationListener && listeners.remove(singletonTarget)) {
 				// 如果因为AOP导致创建了监听类的代理，那么就要在注册列表中清除代理类
-				this.defaultRetriever.applicationListeners.remove(singletonTarget);
+				this.retrieverCache.values().removeIf(retriever -> retriever.contains(singletonTarget));
 			}
 			// 把监听器加入集合 defaultRetriever.applicationListeners中，这是个 LinkedHashSet 实例
-			this.defaultRetriever.applicationListeners.add(listener);
-			this.retrieverCache.clear();
+			listeners.add(listener);
+			this.defaultRetriever = new ListenerRetriever(
+					listeners, this.defaultRetriever.applicationListenerBeans, false);
+			this.retrieverCache.keySet().removeIf(key -> supportsEvent(listener, key.eventType, key.sourceType));
 		}
 	}
 
 	@Override
 	public void addApplicationListenerBean(String listenerBeanName) {
 		synchronized (this.retrievalMutex) {
-			this.defaultRetriever.applicationListenerBeans.add(listenerBeanName);
-			this.retrieverCache.clear();
+			Set<String> listenerBeans = new LinkedHashSet<>(this.defaultRetriever.applicationListenerBeans);
+			listenerBeans.add(listenerBeanName);
+			this.defaultRetriever = new ListenerRetriever(
+					this.defaultRetriever.applicationListeners, listenerBeans, false);
+			evictCachedRetrievers(listenerBeanName);
 		}
 	}
 
 	@Override
 	public void removeApplicationListener(ApplicationListener<?> listener) {
 		synchronized (this.retrievalMutex) {
-			this.defaultRetriever.applicationListeners.remove(listener);
-			this.retrieverCache.clear();
+			Set<ApplicationListener<?>> listeners = new LinkedHashSet<>(this.defaultRetriever.applicationListeners);
+			listeners.remove(listener);
+			this.defaultRetriever = new ListenerRetriever(
+					listeners, this.defaultRetriever.applicationListenerBeans, false);
+			this.retrieverCache.values().removeIf(retriever -> retriever.contains(listener));
 		}
 	}
 
 	@Override
 	public void removeApplicationListenerBean(String listenerBeanName) {
 		synchronized (this.retrievalMutex) {
-			this.defaultRetriever.applicationListenerBeans.remove(listenerBeanName);
-			this.retrieverCache.clear();
+			Set<String> listenerBeans = new LinkedHashSet<>(this.defaultRetriever.applicationListenerBeans);
+			listenerBeans.remove(listenerBeanName);
+			this.defaultRetriever = new ListenerRetriever(
+					this.defaultRetriever.applicationListeners, listenerBeans, false);
+			evictCachedRetrievers(listenerBeanName);
 		}
 	}
 
 	@Override
 	public void removeAllListeners() {
 		synchronized (this.retrievalMutex) {
-			this.defaultRetriever.applicationListeners.clear();
-			this.defaultRetriever.applicationListenerBeans.clear();
+			this.defaultRetriever = new ListenerRetriever(Collections.emptySet(), Collections.emptySet(), false);
+			this.retrieverCache.clear();
+		}
+	}
+
+	/**
+	 * Evict the cached retrievers that the given listener bean may be relevant for,
+	 * based on the bean type as determined by the BeanFactory.
+	 */
+	private void evictCachedRetrievers(String listenerBeanName) {
+		if (this.retrieverCache.isEmpty()) {
+			return;
+		}
+		Class<?> listenerType = null;
+		if (this.beanFactory != null) {
+			try {
+				listenerType = this.beanFactory.getType(listenerBeanName);
+			}
+			catch (NoSuchBeanDefinitionException ex) {
+				// Type not determinable -> evict all cached retrievers
+			}
+		}
+		if (listenerType != null) {
+			Class<?> typeToMatch = listenerType;
+			this.retrieverCache.keySet().removeIf(key -> supportsEvent(typeToMatch, key.eventType));
+		}
+		else {
 			this.retrieverCache.clear();
 		}
 	}
@@ -157,9 +203,7 @@ public abstract class AbstractApplicationEventMulticaster
 	 * @see org.springframework.context.ApplicationListener
 	 */
 	protected Collection<ApplicationListener<?>> getApplicationListeners() {
-		synchronized (this.retrievalMutex) {
-			return this.defaultRetriever.getApplicationListeners();
-		}
+		return this.defaultRetriever.getApplicationListeners();
 	}
 
 	/**
@@ -187,72 +231,73 @@ public abstract class AbstractApplicationEventMulticaster
 		}
 
 		// 如果没有从缓存中取到，就要获取了数据再返回
+		ListenerRetriever registry = this.defaultRetriever;
 		if (this.beanClassLoader == null ||
 				(ClassUtils.isCacheSafe(event.getClass(), this.beanClassLoader) &&
 						(sourceType == null || ClassUtils.isCacheSafe(sourceType, this.beanClassLoader)))) {
-			// Fully synchronized building and caching of a ListenerRetriever
-			// 先加锁
-			synchronized (this.retrievalMutex) {
-				// 双重判断的第二重，避免自己在BLOCK的时候其他线程已经将数据放入缓存了
-				retriever = this.retrieverCache.get(cacheKey);
-				if (retriever != null) {
-					return retriever.getApplicationListeners();
-				}
-				// 新建一个ListenerRetriever对象
-				retriever = new ListenerRetriever(true);
-				// retrieveApplicationListeners方法复制找出某个消息类型加来源类型对应的所有监听器
-				Collection<ApplicationListener<?>> listeners = retrieveApplicationListeners(eventType, sourceType, retriever);
-				// 存入retrieverCache
-				this.retrieverCache.put(cacheKey, retriever);
-				return listeners;
+			// Build against the current registration snapshot, without locking
+			Set<ApplicationListener<?>> filteredListeners = new LinkedHashSet<>();
+			Set<String> filteredListenerBeans = new LinkedHashSet<>();
+			// retrieveApplicationListeners方法复制找出某个消息类型加来源类型对应的所有监听器
+			List<ApplicationListener<?>> listeners = retrieveApplicationListeners(
+					registry, eventType, sourceType, filteredListeners, filteredListenerBeans);
+			retriever = (filteredListenerBeans.isEmpty() ?
+					new ListenerRetriever(listeners, Collections.emptySet(), true) :
+					new ListenerRetriever(filteredListeners, filteredListenerBeans, true));
+			// 存入retrieverCache
+			this.retrieverCache.put(cacheKey, retriever);
+			if (this.defaultRetriever != registry) {
+				// Registration changed in the meantime -> don't keep a potentially stale entry
+				this.retrieverCache.remove(cacheKey, retriever);
 			}
+			// Non-singleton listener beans have been resolved already, don't create them twice
+			return (filteredListenerBeans.isEmpty() ? retriever.getApplicationListeners() : listeners);
 		}
 		else {
-			// No ListenerRetriever caching -> no synchronization necessary
-			return retrieveApplicationListeners(eventType, sourceType, null);
+			// No ListenerRetriever caching
+			return retrieveApplicationListeners(registry, eventType, sourceType, null, null);
 		}
 	}
 
 	/**
 	 * Actually retrieve the application listeners for the given event and source type.
+	 * @param registry the snapshot of all registered listeners
 	 * @param eventType the event type
 	 * @param sourceType the event source type
-	 * @param retriever the ListenerRetriever, if supposed to populate one (for caching purposes)
+	 * @param filteredListeners the Set to collect matching listener instances in,
+	 * if supposed to populate a retriever (for caching purposes)
+	 * @param filteredListenerBeans the Set to collect matching non-singleton listener
+	 * bean names in, if supposed to populate a retriever (for caching purposes)
 	 * @return the pre-filtered list of application listeners for the given event and source type
 	 */
-	private Collection<ApplicationListener<?>> retrieveApplicationListeners(
-			ResolvableType eventType, @Nullable Class<?> sourceType, @Nullable ListenerRetriever retriever) {
+	private List<ApplicationListener<?>> retrieveApplicationListeners(ListenerRetriever registry,
+			ResolvableType eventType, @Nullable Class<?> sourceType,
+			@Nullable Set<ApplicationListener<?>> filteredListeners, @Nullable Set<String> filteredListenerBeans) {
 
 		List<ApplicationListener<?>> allListeners = new ArrayList<>();
-		Set<ApplicationListener<?>> listeners;
-		Set<String> listenerBeans;
-		synchronized (this.retrievalMutex) {
-			listeners = new LinkedHashSet<>(this.defaultRetriever.applicationListeners);
-			listenerBeans = new LinkedHashSet<>(this.defaultRetriever.applicationListenerBeans);
-		}
-		for (ApplicationListener<?> listener : listeners) {
+		for (ApplicationListener<?> listener : registry.applicationListeners) {
 			if (supportsEvent(listener, eventType, sourceType)) {
-				if (retriever != null) {
-					retriever.applicationListeners.add(listener);
+				if (filteredListeners != null) {
+					filteredListeners.add(listener);
 				}
 				allListeners.add(listener);
 			}
 		}
-		if (!listenerBeans.isEmpty()) {
+		if (!registry.applicationListenerBeans.isEmpty()) {
 			BeanFactory beanFactory = getBeanFactory();
-			for (String listenerBeanName : listenerBeans) {
+			for (String listenerBeanName : registry.applicationListenerBeans) {
 				try {
 					Class<?> listenerType = beanFactory.getType(listenerBeanName);
 					if (listenerType == null || supportsEvent(listenerType, eventType)) {
 						ApplicationListener<?> listener =
 								beanFactory.getBean(listenerBeanName, ApplicationListener.class);
 						if (!allListeners.contains(listener) && supportsEvent(listener, eventType, sourceType)) {
-							if (retriever != null) {
+							if (filteredListeners != null && filteredListenerBeans != null) {
 								if (beanFactory.isSingleton(listenerBeanName)) {
-									retriever.applicationListeners.add(listener);
+									filteredListeners.add(listener);
 								}
 								else {
-									retriever.applicationListenerBeans.add(listenerBeanName);
+									filteredListenerBeans.add(listenerBeanName);
 								}
 							}
 							allListeners.add(listener);
@@ -266,10 +311,6 @@ public abstract class AbstractApplicationEventMulticaster
 			}
 		}
 		AnnotationAwareOrderComparator.sort(allListeners);
-		if (retriever != null && retriever.applicationListenerBeans.isEmpty()) {
-			retriever.applicationListeners.clear();
-			retriever.applicationListeners.addAll(allListeners);
-		}
 		return allListeners;
 	}
 
@@ -371,20 +412,39 @@ public abstract class AbstractApplicationEventMulticaster
 	 * Helper class that encapsulates a specific set of target listeners,
 	 * allowing for efficient retrieval of pre-filtered listeners.
 	 * <p>An instance of this helper gets cached per event type and source type.
+	 * Instances are immutable and therefore safe to read without locking.
 	 */
 	private class ListenerRetriever {
 
-		public final Set<ApplicationListener<?>> applicationListeners = new LinkedHashSet<>();
+		public final Set<ApplicationListener<?>> applicationListeners;
 
-		public final Set<String> applicationListenerBeans = new LinkedHashSet<>();
+		public final Set<String> applicationListenerBeans;
 
 		private final boolean preFiltered;
 
-		public ListenerRetriever(boolean preFiltered) {
+		/** Ordered listeners, if fully resolved upfront (no non-singleton listener beans) */
+		@Nullable
+		private final List<ApplicationListener<?>> sortedListeners;
+
+		public ListenerRetriever(Collection<ApplicationListener<?>> applicationListeners,
+				Set<String> applicationListenerBeans, boolean preFiltered) {
+
+			this.applicationListeners = Collections.unmodifiableSet(new LinkedHashSet<>(applicationListeners));
+			this.applicationListenerBeans = Collections.unmodifiableSet(new LinkedHashSet<>(applicationListenerBeans));
 			this.preFiltered = preFiltered;
+			this.sortedListeners = (preFiltered && applicationListenerBeans.isEmpty() ?
+					Collections.unmodifiableList(Arrays.asList(
+							applicationListeners.toArray(new ApplicationListener<?>[0]))) : null);
+		}
+
+		public boolean contains(Object listener) {
+			return this.applicationListeners.contains(listener);
 		}
 
 		public Collection<ApplicationListener<?>> getApplicationListeners() {
+			if (this.sortedListeners != null) {
+				return this.sortedListeners;
+			}
 			List<ApplicationListener<?>> allListeners = new ArrayList<>(
 					this.applicationListeners.size() + this.applicationListenerBeans.size());
 			allListeners.addAll(this.applicationListeners);
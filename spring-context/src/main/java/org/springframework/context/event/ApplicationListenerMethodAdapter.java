@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2019 the original author or authors.
+ * Copyright 2002-2020 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -53,6 +53,9 @@ import org.springframework.util.StringUtils;
  * to define any arbitrary event type. If a condition is defined, it is
  * evaluated prior to invoking the underlying method.
  *
+ * <p>For a {@link BatchEventListener} method, matching events are queued
+ * and the method is invoked with batches of queued events.
+ *
  * @author Stephane Nicoll
  * @author Juergen Hoeller
  * @author Sam Brannen
@@ -77,6 +80,12 @@ public class ApplicationListenerMethodAdapter implements GenericApplicationListe
 
 	private final int order;
 
+	@Nullable
+	private final String batchKey;
+
+	@Nullable
+	private final EventBatchQueue batchQueue;
+
 	@Nullable
 	private ApplicationContext applicationContext;
 
@@ -92,9 +101,22 @@ public class ApplicationListenerMethodAdapter implements GenericApplicationListe
 		this.methodKey = new AnnotatedElementKey(this.targetMethod, targetClass);
 
 		EventListener ann = AnnotatedElementUtils.findMergedAnnotation(this.targetMethod, EventListener.class);
-		this.declaredEventTypes = resolveDeclaredEventTypes(method, ann);
+		BatchEventListener batchAnn = AnnotatedElementUtils.findMergedAnnotation(this.targetMethod, BatchEventListener.class);
+		this.declaredEventTypes = (batchAnn != null ?
+				resolveDeclaredBatchEventTypes(method, batchAnn) : resolveDeclaredEventTypes(method, ann));
 		this.condition = (ann != null ? ann.condition() : null);
 		this.order = resolveOrder(this.targetMethod);
+		if (batchAnn != null) {
+			Assert.isTrue(batchAnn.maxBatchSize() > 0, "Maximum batch size must be greater than 0");
+			Assert.isTrue(batchAnn.capacity() > 0, "Batch queue capacity must be greater than 0");
+			this.batchKey = (StringUtils.hasText(batchAnn.key()) ? batchAnn.key() : null);
+			this.batchQueue = new EventBatchQueue(
+					batchAnn.capacity(), batchAnn.maxBatchSize(), this.batchKey != null, this::processBatch);
+		}
+		else {
+			this.batchKey = null;
+			this.batchQueue = null;
+		}
 	}
 
 	private static List<ResolvableType> resolveDeclaredEventTypes(Method method, @Nullable EventListener ann) {
@@ -122,6 +144,29 @@ public class ApplicationListenerMethodAdapter implements GenericApplicationListe
 		return Collections.singletonList(ResolvableType.forMethodParameter(method, 0));
 	}
 
+	private static List<ResolvableType> resolveDeclaredBatchEventTypes(Method method, BatchEventListener ann) {
+		Class<?>[] paramTypes = method.getParameterTypes();
+		if (paramTypes.length != 1 || !Collection.class.isAssignableFrom(paramTypes[0]) ||
+				!paramTypes[0].isAssignableFrom(List.class)) {
+			throw new IllegalStateException(
+					"Batch event listener method must declare a single List parameter: " + method);
+		}
+		Class<?>[] classes = ann.classes();
+		if (classes.length > 0) {
+			List<ResolvableType> types = new ArrayList<>(classes.length);
+			for (Class<?> eventType : classes) {
+				types.add(ResolvableType.forClass(eventType));
+			}
+			return types;
+		}
+		ResolvableType eventType = ResolvableType.forMethodParameter(method, 0).asCollection().getGeneric();
+		if (eventType.resolve() == null) {
+			throw new IllegalStateException("Batch event listener method must declare the element type " +
+					"of its List parameter or specify event classes: " + method);
+		}
+		return Collections.singletonList(eventType);
+	}
+
 	private static int resolveOrder(Method method) {
 		Order ann = AnnotatedElementUtils.findMergedAnnotation(method, Order.class);
 		return (ann != null ? ann.value() : 0);
@@ -175,6 +220,12 @@ public class ApplicationListenerMethodAdapter implements GenericApplicationListe
 	 * match and handling non-null result, if any.
 	 */
 	public void processEvent(ApplicationEvent event) {
+		if (this.batchQueue != null) {
+			if (queueEvent(event)) {
+				processQueuedEvents();
+			}
+			return;
+		}
 		Object[] args = resolveArguments(event);
 		if (shouldHandle(event, args)) {
 			Object result = doInvoke(args);
@@ -187,6 +238,60 @@ public class ApplicationListenerMethodAdapter implements GenericApplicationListe
 		}
 	}
 
+	/**
+	 * Return whether this adapter delivers events in batches.
+	 * @since 5.0.18
+	 * @see BatchEventListener
+	 */
+	boolean isBatchListener() {
+		return (this.batchQueue != null);
+	}
+
+	/**
+	 * Queue the specified {@link ApplicationEvent} for batch delivery,
+	 * if the condition matches.
+	 * @return {@code true} if the caller needs to start delivery through
+	 * {@link #processQueuedEvents()}, {@code false} if already in progress
+	 * @since 5.0.18
+	 */
+	boolean queueEvent(ApplicationEvent event) {
+		Assert.state(this.batchQueue != null, "Not a batch event listener");
+		Object[] args = resolveArguments(event);
+		if (args == null || args.length != 1 || !shouldHandle(event, args)) {
+			return false;
+		}
+		Object key = null;
+		if (this.batchKey != null) {
+			Assert.notNull(this.evaluator, "EventExpressionEvaluator must not be null");
+			key = this.evaluator.key(
+					this.batchKey, event, this.targetMethod, this.methodKey, args, this.applicationContext);
+			if (key == null) {
+				// No key -> not coalesced with any other event
+				key = new Object();
+			}
+		}
+		return this.batchQueue.offer(args[0], key);
+	}
+
+	/**
+	 * Deliver queued events in batches until no more events are queued.
+	 * @since 5.0.18
+	 */
+	void processQueuedEvents() {
+		Assert.state(this.batchQueue != null, "Not a batch event listener");
+		this.batchQueue.drain();
+	}
+
+	private void processBatch(List<Object> batch) {
+		Object result = doInvoke(batch);
+		if (result != null) {
+			handleResult(result);
+		}
+		else {
+			logger.trace("No result object given - no result to handle");
+		}
+	}
+
 	/**
 	 * Resolve the method arguments to use for the specified {@link ApplicationEvent}.
 	 * <p>These arguments will be used to invoke the method handled by this instance.
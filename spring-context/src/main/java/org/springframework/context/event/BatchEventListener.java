@@ -0,0 +1,105 @@
+/*
+ * Copyright 2002-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.context.event;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+import org.springframework.core.annotation.AliasFor;
+
+/**
+ * An {@link EventListener} that receives events in batches: the annotated method
+ * must declare a single {@link java.util.List} (or {@link java.util.Collection})
+ * parameter, whose element type determines the events to listen to. A raw
+ * {@code List} parameter is rejected unless the event {@link #classes} are specified.
+ *
+ * <p>Published events are added to a bounded queue per listener. If the
+ * {@link SimpleApplicationEventMulticaster} has been configured with a
+ * {@linkplain SimpleApplicationEventMulticaster#setTaskExecutor task executor},
+ * queued events get delivered on that executor, with a single task delivering all
+ * batches queued in the meantime rather than one task per event; otherwise they
+ * are delivered on the publishing thread.
+ * Either way, batches of the same listener are delivered one after the other,
+ * in publication order. Publishers wait for queue capacity once the queue is full.
+ *
+ * <p>Note that without a task executor, delivery starts right away for every
+ * published event, so a batch typically contains just that single event: only
+ * events published by other threads while a batch is being delivered are
+ * collected into the next batch. Configure a task executor for actual batching.
+ *
+ * <pre class="code">
+ * &#064;BatchEventListener(maxBatchSize = 500, key = "#root.args[0].orderId")
+ * public void onOrderUpdates(List&lt;OrderUpdatedEvent&gt; events) {
+ *     // ...
+ * }
+ * </pre>
+ *
+ * @since 5.0.18
+ * @see SimpleApplicationEventMulticaster#setTaskExecutor
+ */
+@Target({ElementType.METHOD, ElementType.ANNOTATION_TYPE})
+@Retention(RetentionPolicy.RUNTIME)
+@Documented
+@EventListener
+public @interface BatchEventListener {
+
+	/**
+	 * Alias for {@link #classes}.
+	 */
+	@AliasFor(annotation = EventListener.class, attribute = "classes")
+	Class<?>[] value() default {};
+
+	/**
+	 * The event classes that this listener handles, as elements of the batch.
+	 * <p>Default is the element type of the method's {@code List} parameter.
+	 */
+	@AliasFor(annotation = EventListener.class, attribute = "classes")
+	Class<?>[] classes() default {};
+
+	/**
+	 * Spring Expression Language (SpEL) attribute used for making the event
+	 * handling conditional, evaluated for every event before it gets queued.
+	 * <p>{@code #root.args[0]} refers to the single event (or payload) here.
+	 * @see EventListener#condition
+	 */
+	@AliasFor(annotation = EventListener.class, attribute = "condition")
+	String condition() default "";
+
+	/**
+	 * The maximum number of events to deliver in a single batch.
+	 */
+	int maxBatchSize() default 100;
+
+	/**
+	 * The maximum number of events to queue for delivery, before
+	 * publishers have to wait for queued events to be delivered.
+	 */
+	int capacity() default 10000;
+
+	/**
+	 * Spring Expression Language (SpEL) attribute to coalesce queued events by.
+	 * <p>Default is {@code ""}, meaning every event gets delivered. Otherwise, an event
+	 * replaces a queued event with the same key at that event's position in the queue,
+	 * so only the latest event per key gets delivered. The expression is evaluated
+	 * against the same context as the {@link #condition}.
+	 */
+	String key() default "";
+
+}
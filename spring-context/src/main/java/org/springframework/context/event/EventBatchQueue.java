@@ -0,0 +1,187 @@
+/*
+ * Copyright 2002-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.context.event;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+
+import org.springframework.lang.Nullable;
+
+/**
+ * Bounded queue of events for a {@link BatchEventListener}, optionally
+ * coalescing events by key.
+ *
+ * <p>At most one drain delivers batches at any time: {@link #offer} reports
+ * whether the caller needs to start a {@link #drain}, which then delivers
+ * batches until the queue is empty.
+ *
+ * @since 5.0.18
+ * @see ApplicationListenerMethodAdapter
+ */
+final class EventBatchQueue {
+
+	private final int capacity;
+
+	private final int maxBatchSize;
+
+	private final Consumer<List<Object>> batchConsumer;
+
+	@Nullable
+	private final Map<Object, Object> coalescedEvents;
+
+	@Nullable
+	private final Deque<Object> events;
+
+	private final ReentrantLock lock = new ReentrantLock();
+
+	private final Condition notFull = this.lock.newCondition();
+
+	/** Whether a drain has been started and not finished yet */
+	private boolean drainActive;
+
+	/** The thread currently delivering a batch, if any */
+	@Nullable
+	private Thread drainingThread;
+
+
+	EventBatchQueue(int capacity, int maxBatchSize, boolean coalescing, Consumer<List<Object>> batchConsumer) {
+		this.capacity = capacity;
+		this.maxBatchSize = maxBatchSize;
+		this.batchConsumer = batchConsumer;
+		this.coalescedEvents = (coalescing ? new LinkedHashMap<>() : null);
+		this.events = (coalescing ? null : new ArrayDeque<>());
+	}
+
+
+	/**
+	 * Add the given event to the queue, waiting for capacity if necessary.
+	 * @param event the event (or payload) to queue
+	 * @param key the key to coalesce by, or {@code null} if not coalescing
+	 * @return {@code true} if the caller needs to start a {@link #drain},
+	 * {@code false} if a drain is active already
+	 */
+	boolean offer(Object event, @Nullable Object key) {
+		this.lock.lock();
+		try {
+			// A listener publishing to itself must not wait for its own drain
+			while (this.drainActive && this.drainingThread != Thread.currentThread() &&
+					size() >= this.capacity && !isQueued(key)) {
+				try {
+					this.notFull.await();
+				}
+				catch (InterruptedException ex) {
+					Thread.currentThread().interrupt();
+					throw new IllegalStateException("Interrupted while waiting to queue event: " + event, ex);
+				}
+			}
+			if (this.coalescedEvents != null) {
+				this.coalescedEvents.put(key, event);
+			}
+			else if (this.events != null) {
+				this.events.add(event);
+			}
+			if (this.drainActive) {
+				return false;
+			}
+			this.drainActive = true;
+			return true;
+		}
+		finally {
+			this.lock.unlock();
+		}
+	}
+
+	/**
+	 * Deliver queued events in batches until the queue is empty.
+	 * <p>Any exception thrown by the batch consumer ends this drain; queued events
+	 * remain queued for the drain started by the next {@link #offer} call.
+	 */
+	void drain() {
+		boolean completed = false;
+		try {
+			List<Object> batch;
+			while ((batch = poll()) != null) {
+				this.batchConsumer.accept(batch);
+			}
+			completed = true;
+		}
+		finally {
+			if (!completed) {
+				this.lock.lock();
+				try {
+					this.drainActive = false;
+					this.drainingThread = null;
+					// Let waiting publishers start the next drain
+					this.notFull.signalAll();
+				}
+				finally {
+					this.lock.unlock();
+				}
+			}
+		}
+	}
+
+	@Nullable
+	private List<Object> poll() {
+		this.lock.lock();
+		try {
+			int count = Math.min(size(), this.maxBatchSize);
+			if (count == 0) {
+				this.drainActive = false;
+				this.drainingThread = null;
+				return null;
+			}
+			List<Object> batch = new ArrayList<>(count);
+			if (this.coalescedEvents != null) {
+				Iterator<Object> it = this.coalescedEvents.values().iterator();
+				while (batch.size() < count) {
+					batch.add(it.next());
+					it.remove();
+				}
+			}
+			else if (this.events != null) {
+				while (batch.size() < count) {
+					batch.add(this.events.poll());
+				}
+			}
+			this.drainingThread = Thread.currentThread();
+			this.notFull.signalAll();
+			return batch;
+		}
+		finally {
+			this.lock.unlock();
+		}
+	}
+
+	private int size() {
+		return (this.coalescedEvents != null ? this.coalescedEvents.size() :
+				this.events != null ? this.events.size() : 0);
+	}
+
+	private boolean isQueued(@Nullable Object key) {
+		return (this.coalescedEvents != null && this.coalescedEvents.containsKey(key));
+	}
+
+}
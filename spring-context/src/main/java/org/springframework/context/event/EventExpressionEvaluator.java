@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2018 the original author or authors.
+ * Copyright 2002-2020 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -41,6 +41,8 @@ class EventExpressionEvaluator extends CachedExpressionEvaluator {
 
 	private final Map<ExpressionKey, Expression> conditionCache = new ConcurrentHashMap<>(64);
 
+	private final Map<ExpressionKey, Expression> keyCache = new ConcurrentHashMap<>(64);
+
 
 	/**
 	 * Specify if the condition defined by the specified expression matches.
@@ -59,4 +61,23 @@ class EventExpressionEvaluator extends CachedExpressionEvaluator {
 				evaluationContext, Boolean.class)));
 	}
 
+	/**
+	 * Determine the batch coalescing key defined by the specified expression.
+	 * @since 5.0.18
+	 * @see BatchEventListener#key()
+	 */
+	@Nullable
+	public Object key(String keyExpression, ApplicationEvent event, Method targetMethod,
+			AnnotatedElementKey methodKey, Object[] args, @Nullable BeanFactory beanFactory) {
+
+		EventExpressionRootObject root = new EventExpressionRootObject(event, args);
+		MethodBasedEvaluationContext evaluationContext = new MethodBasedEvaluationContext(
+				root, targetMethod, args, getParameterNameDiscoverer());
+		if (beanFactory != null) {
+			evaluationContext.setBeanResolver(new BeanFactoryResolver(beanFactory));
+		}
+
+		return getExpression(this.keyCache, methodKey, keyExpression).getValue(evaluationContext);
+	}
+
 }
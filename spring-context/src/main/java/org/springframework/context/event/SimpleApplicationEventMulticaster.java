@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2019 the original author or authors.
+ * Copyright 2002-2020 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -17,6 +17,7 @@
 package org.springframework.context.event;
 
 import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
 
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
@@ -78,6 +79,8 @@ public class SimpleApplicationEventMulticaster extends AbstractApplicationEventM
 	 * caller until all listeners have been executed. However, note that asynchronous
 	 * execution will not participate in the caller's thread context (class loader,
 	 * transaction association) unless the TaskExecutor explicitly supports this.
+	 * <p>Events for a {@link BatchEventListener} are queued right away, with a single
+	 * task delivering the queued events in batches.
 	 * @see org.springframework.core.task.SyncTaskExecutor
 	 * @see org.springframework.core.task.SimpleAsyncTaskExecutor
 	 */
@@ -132,7 +135,11 @@ public class SimpleApplicationEventMulticaster extends AbstractApplicationEventM
 		ResolvableType type = (eventType != null ? eventType : resolveDefaultEventType(event));
 		for (final ApplicationListener<?> listener : getApplicationListeners(event, type)) {
 			Executor executor = getTaskExecutor();
-			if (executor != null) {
+			if (executor != null && listener instanceof ApplicationListenerMethodAdapter &&
+					((ApplicationListenerMethodAdapter) listener).isBatchListener()) {
+				queueBatchEvent((ApplicationListenerMethodAdapter) listener, event, executor);
+			}
+			else if (executor != null) {
 				executor.execute(() -> invokeListener(listener, event));
 			}
 			else {
@@ -145,6 +152,50 @@ public class SimpleApplicationEventMulticaster extends AbstractApplicationEventM
 		return ResolvableType.forInstance(event);
 	}
 
+	/**
+	 * Queue the given event for a {@link BatchEventListener} and, unless delivery
+	 * is in progress already, submit a single task delivering the queued events.
+	 */
+	private void queueBatchEvent(ApplicationListenerMethodAdapter listener, ApplicationEvent event, Executor executor) {
+		boolean deliver;
+		try {
+			deliver = listener.queueEvent(event);
+		}
+		catch (RuntimeException ex) {
+			ErrorHandler errorHandler = getErrorHandler();
+			if (errorHandler == null) {
+				throw ex;
+			}
+			errorHandler.handleError(ex);
+			return;
+		}
+		if (deliver) {
+			Runnable task = () -> invokeBatchListener(listener);
+			try {
+				executor.execute(task);
+			}
+			catch (RejectedExecutionException ex) {
+				// Queued events must not be left behind -> deliver on the publishing thread
+				task.run();
+			}
+		}
+	}
+
+	private void invokeBatchListener(ApplicationListenerMethodAdapter listener) {
+		ErrorHandler errorHandler = getErrorHandler();
+		if (errorHandler != null) {
+			try {
+				listener.processQueuedEvents();
+			}
+			catch (Throwable err) {
+				errorHandler.handleError(err);
+			}
+		}
+		else {
+			listener.processQueuedEvents();
+		}
+	}
+
 	/**
 	 * Invoke the given listener with the given event.
 	 * @param listener the ApplicationListener to invoke
@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2018 the original author or authors.
+ * Copyright 2002-2020 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -28,6 +28,7 @@ import org.springframework.expression.Expression;
 import org.springframework.expression.ExpressionParser;
 import org.springframework.expression.ParserContext;
 import org.springframework.expression.spel.SpelParserConfiguration;
+import org.springframework.expression.spel.standard.SpelExpressionCache;
 import org.springframework.expression.spel.standard.SpelExpressionParser;
 import org.springframework.expression.spel.support.StandardEvaluationContext;
 import org.springframework.expression.spel.support.StandardTypeConverter;
@@ -62,7 +63,11 @@ public class StandardBeanExpressionResolver implements BeanExpressionResolver {
 
 	private ExpressionParser expressionParser;
 
-	private final Map<String, Expression> expressionCache = new ConcurrentHashMap<>(256);
+	// Configuration of the default parser, allowing for sharing expressions through the cache
+	@Nullable
+	private SpelParserConfiguration parserConfiguration;
+
+	private SpelExpressionCache expressionCache = new SpelExpressionCache(SpelExpressionCache.DEFAULT_CACHE_LIMIT);
 
 	private final Map<BeanExpressionContext, StandardEvaluationContext> evaluationCache = new ConcurrentHashMap<>(8);
 
@@ -86,7 +91,7 @@ public class StandardBeanExpressionResolver implements BeanExpressionResolver {
 	 * Create a new {@code StandardBeanExpressionResolver} with default settings.
 	 */
 	public StandardBeanExpressionResolver() {
-		this.expressionParser = new SpelExpressionParser();
+		this(null);
 	}
 
 	/**
@@ -95,7 +100,8 @@ public class StandardBeanExpressionResolver implements BeanExpressionResolver {
 	 * @param beanClassLoader the factory's bean class loader
 	 */
 	public StandardBeanExpressionResolver(@Nullable ClassLoader beanClassLoader) {
-		this.expressionParser = new SpelExpressionParser(new SpelParserConfiguration(null, beanClassLoader));
+		this.parserConfiguration = new SpelParserConfiguration(null, beanClassLoader);
+		this.expressionParser = new SpelExpressionParser(this.parserConfiguration);
 	}
 
 
@@ -127,6 +133,31 @@ public class StandardBeanExpressionResolver implements BeanExpressionResolver {
 	public void setExpressionParser(ExpressionParser expressionParser) {
 		Assert.notNull(expressionParser, "ExpressionParser must not be null");
 		this.expressionParser = expressionParser;
+		this.parserConfiguration = null;
+	}
+
+	/**
+	 * Specify the cache to keep parsed expressions in.
+	 * <p>Default is a cache of this resolver, holding up to
+	 * {@link SpelExpressionCache#DEFAULT_CACHE_LIMIT} expressions without
+	 * recording evaluation statistics. A cache that records them may be
+	 * specified for monitoring purposes, or a cache shared with other
+	 * resolvers using the same parser configuration.
+	 * @since 5.0.18
+	 * @see SpelExpressionCache#SpelExpressionCache(int, boolean)
+	 */
+	public void setExpressionCache(SpelExpressionCache expressionCache) {
+		Assert.notNull(expressionCache, "SpelExpressionCache must not be null");
+		this.expressionCache = expressionCache;
+	}
+
+	/**
+	 * Return the cache that parsed expressions are kept in,
+	 * e.g. for access to its statistics.
+	 * @since 5.0.18
+	 */
+	public SpelExpressionCache getExpressionCache() {
+		return this.expressionCache;
 	}
 
 
@@ -137,11 +168,7 @@ public class StandardBeanExpressionResolver implements BeanExpressionResolver {
 			return value;
 		}
 		try {
-			Expression expr = this.expressionCache.get(value);
-			if (expr == null) {
-				expr = this.expressionParser.parseExpression(value, this.beanExpressionParserContext);
-				this.expressionCache.put(value, expr);
-			}
+			Expression expr = parseExpression(value);
 			StandardEvaluationContext sec = this.evaluationCache.get(evalContext);
 			if (sec == null) {
 				sec = new StandardEvaluationContext(evalContext);
@@ -165,6 +192,14 @@ public class StandardBeanExpressionResolver implements BeanExpressionResolver {
 		}
 	}
 
+	private Expression parseExpression(String value) {
+		SpelParserConfiguration parserConfiguration = this.parserConfiguration;
+		if (parserConfiguration != null) {
+			return this.expressionCache.getExpression(value, this.beanExpressionParserContext, parserConfiguration);
+		}
+		return this.expressionCache.getExpression(value, this.beanExpressionParserContext, this.expressionParser);
+	}
+
 	/**
 	 * Template method for customizing the expression evaluation context.
 	 * <p>The default implementation is empty.
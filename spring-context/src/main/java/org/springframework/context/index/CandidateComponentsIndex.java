@@ -17,11 +17,19 @@
 package org.springframework.context.index;
 
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Properties;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.stream.Collectors;
 
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import org.springframework.core.type.classreading.MetadataReader;
+import org.springframework.lang.Nullable;
 import org.springframework.util.AntPathMatcher;
 import org.springframework.util.ClassUtils;
 import org.springframework.util.LinkedMultiValueMap;
@@ -43,6 +51,10 @@ import org.springframework.util.MultiValueMap;
  * not a rule. Similarly, the {@code stereotype} is usually the fully qualified name of
  * a target type but it can be any marker really.
  *
+ * <p>As of 5.0.18, the index also exposes the class structure of configuration
+ * candidates recorded in {@code META-INF/spring.components.metadata}, see
+ * {@link #getMetadataReader(String)}.
+ *
  * @author Stephane Nicoll
  * @since 5.0
  */
@@ -50,11 +62,28 @@ public class CandidateComponentsIndex {
 
 	private static final AntPathMatcher pathMatcher = new AntPathMatcher(".");
 
+	private static final Log logger = LogFactory.getLog(CandidateComponentsIndex.class);
+
 	private final MultiValueMap<String, Entry> index;
 
+	private final Map<String, String> classMetadata;
+
+	@Nullable
+	private final ClassLoader classLoader;
+
+	private final Map<String, MetadataReader> metadataReaderCache = new ConcurrentHashMap<>(64);
+
 
 	CandidateComponentsIndex(List<Properties> content) {
+		this(content, Collections.emptyList(), null);
+	}
+
+	CandidateComponentsIndex(List<Properties> content, List<Properties> classMetadata,
+			@Nullable ClassLoader classLoader) {
+
 		this.index = parseIndex(content);
+		this.classMetadata = parseClassMetadata(classMetadata);
+		this.classLoader = classLoader;
 	}
 
 	private static MultiValueMap<String, Entry> parseIndex(List<Properties> content) {
@@ -70,6 +99,14 @@ public class CandidateComponentsIndex {
 		return index;
 	}
 
+	private static Map<String, String> parseClassMetadata(List<Properties> content) {
+		Map<String, String> classMetadata = new HashMap<>();
+		for (Properties entry : content) {
+			entry.forEach((type, value) -> classMetadata.putIfAbsent((String) type, (String) value));
+		}
+		return classMetadata;
+	}
+
 
 	/**
 	 * Return the candidate types that are associated with the specified stereotype.
@@ -89,6 +126,36 @@ public class CandidateComponentsIndex {
 		return Collections.emptySet();
 	}
 
+	/**
+	 * Return a {@link MetadataReader} for the specified type, based on the class
+	 * structure recorded in the index rather than on the class file.
+	 * @param type the fully qualified name of the type
+	 * @return the metadata reader, or {@code null} if the index does not hold
+	 * (valid) class metadata for the specified type
+	 * @since 5.0.18
+	 */
+	@Nullable
+	public MetadataReader getMetadataReader(String type) {
+		MetadataReader metadataReader = this.metadataReaderCache.get(type);
+		if (metadataReader == null) {
+			String content = this.classMetadata.get(type);
+			if (content == null) {
+				return null;
+			}
+			try {
+				metadataReader = new IndexedMetadataReader(type, content, this.classLoader);
+			}
+			catch (RuntimeException ex) {
+				if (logger.isDebugEnabled()) {
+					logger.debug("Ignoring invalid class metadata for type [" + type + "] in index", ex);
+				}
+				return null;
+			}
+			this.metadataReaderCache.put(type, metadataReader);
+		}
+		return metadataReader;
+	}
+
 
 	private static class Entry {
 
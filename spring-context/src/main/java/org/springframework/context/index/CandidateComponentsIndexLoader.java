@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2017 the original author or authors.
+ * Copyright 2002-2020 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -47,6 +47,15 @@ public class CandidateComponentsIndexLoader {
 	 */
 	public static final String COMPONENTS_RESOURCE_LOCATION = "META-INF/spring.components";
 
+	/**
+	 * The location to look for the class structure of configuration candidates,
+	 * as recorded by the {@code spring-context-indexer} processor.
+	 * <p>Can be present in multiple JAR files. Only taken into account if a
+	 * {@value #COMPONENTS_RESOURCE_LOCATION} index is available as well.
+	 * @since 5.0.18
+	 */
+	public static final String CLASS_METADATA_RESOURCE_LOCATION = "META-INF/spring.components.metadata";
+
 	/**
 	 * System property that instructs Spring to ignore the index, i.e.
 	 * to always return {@code null} from {@link #loadIndex(ClassLoader)}.
@@ -106,7 +115,15 @@ public class CandidateComponentsIndexLoader {
 				logger.debug("Loaded " + result.size() + "] index(es)");
 			}
 			int totalCount = result.stream().mapToInt(Properties::size).sum();
-			return (totalCount > 0 ? new CandidateComponentsIndex(result) : null);
+			if (totalCount == 0) {
+				return null;
+			}
+			List<Properties> classMetadata = new ArrayList<>();
+			Enumeration<URL> classMetadataUrls = classLoader.getResources(CLASS_METADATA_RESOURCE_LOCATION);
+			while (classMetadataUrls.hasMoreElements()) {
+				classMetadata.add(PropertiesLoaderUtils.loadProperties(new UrlResource(classMetadataUrls.nextElement())));
+			}
+			return new CandidateComponentsIndex(result, classMetadata, classLoader);
 		}
 		catch (IOException ex) {
 			throw new IllegalStateException("Unable to load indexes from location [" +
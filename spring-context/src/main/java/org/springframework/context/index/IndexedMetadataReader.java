@@ -0,0 +1,251 @@
+/*
+ * Copyright 2002-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.context.index;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+
+import org.springframework.asm.AnnotationVisitor;
+import org.springframework.asm.MethodVisitor;
+import org.springframework.asm.Type;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.core.io.Resource;
+import org.springframework.core.type.AnnotationMetadata;
+import org.springframework.core.type.ClassMetadata;
+import org.springframework.core.type.classreading.AnnotationMetadataReadingVisitor;
+import org.springframework.core.type.classreading.MetadataReader;
+import org.springframework.lang.Nullable;
+import org.springframework.util.ClassUtils;
+
+/**
+ * {@link MetadataReader} implementation for a class whose structure has been
+ * recorded at compile time by the {@code spring-context-indexer} processor.
+ *
+ * <p>The recorded class file visitor events are replayed against a regular
+ * {@link AnnotationMetadataReadingVisitor}, so that the exposed metadata is
+ * the same as the one read from the class file, without opening it.
+ *
+ * @since 5.0.18
+ * @see CandidateComponentsIndex#getMetadataReader(String)
+ */
+final class IndexedMetadataReader implements MetadataReader {
+
+	private final Resource resource;
+
+	private final AnnotationMetadataReadingVisitor metadata;
+
+
+	IndexedMetadataReader(String className, String content, @Nullable ClassLoader classLoader) {
+		this.resource = new ClassPathResource(
+				ClassUtils.convertClassNameToResourcePath(className) + ClassUtils.CLASS_FILE_SUFFIX, classLoader);
+		this.metadata = new AnnotationMetadataReadingVisitor(classLoader);
+		replay(content, this.metadata);
+	}
+
+
+	@Override
+	public Resource getResource() {
+		return this.resource;
+	}
+
+	@Override
+	public ClassMetadata getClassMetadata() {
+		return this.metadata;
+	}
+
+	@Override
+	public AnnotationMetadata getAnnotationMetadata() {
+		return this.metadata;
+	}
+
+
+	private static void replay(String content, AnnotationMetadataReadingVisitor visitor) {
+		// Open method and annotation visitors, innermost first
+		Deque<Object> visitors = new ArrayDeque<>();
+		for (String line : content.split("\n")) {
+			String[] tokens = line.split(" ", 4);
+			switch (tokens[0]) {
+				case "class":
+					String[] header = line.split(" ");
+					visitor.visit(0, Integer.parseInt(header[1]), header[2], null,
+							("-".equals(header[3]) ? null : header[3]), Arrays.copyOfRange(header, 4, header.length));
+					break;
+				case "inner":
+					String[] inner = line.split(" ");
+					visitor.visitInnerClass(inner[2], inner[3], inner[4], Integer.parseInt(inner[1]));
+					break;
+				case "method":
+					String[] method = line.split(" ");
+					visitors.push(visitor.visitMethod(Integer.parseInt(method[1]), method[2], method[3], null, null));
+					break;
+				case "annotation":
+					Object owner = visitors.peek();
+					visitors.push(owner instanceof MethodVisitor ?
+							((MethodVisitor) owner).visitAnnotation(tokens[1], true) :
+							visitor.visitAnnotation(tokens[1], true));
+					break;
+				case "value":
+					currentAnnotationVisitor(visitors).visit(attributeName(tokens[1]), decodeValue(tokens[2], tokens[3]));
+					break;
+				case "enum":
+					currentAnnotationVisitor(visitors).visitEnum(attributeName(tokens[1]), tokens[2], tokens[3]);
+					break;
+				case "nested":
+					visitors.push(currentAnnotationVisitor(visitors).visitAnnotation(attributeName(tokens[1]), tokens[2]));
+					break;
+				case "array":
+					visitors.push(currentAnnotationVisitor(visitors).visitArray(tokens[1]));
+					break;
+				case "end":
+					Object closed = visitors.pop();
+					if (closed instanceof AnnotationVisitor) {
+						((AnnotationVisitor) closed).visitEnd();
+					}
+					else {
+						((MethodVisitor) closed).visitEnd();
+					}
+					break;
+				default:
+					throw new IllegalArgumentException("Unknown class metadata event: " + line);
+			}
+		}
+		if (!visitors.isEmpty()) {
+			throw new IllegalArgumentException("Incomplete class metadata");
+		}
+		visitor.visitEnd();
+	}
+
+	private static AnnotationVisitor currentAnnotationVisitor(Deque<Object> visitors) {
+		Object current = visitors.peek();
+		if (!(current instanceof AnnotationVisitor)) {
+			throw new IllegalArgumentException("Annotation value outside of an annotation");
+		}
+		return (AnnotationVisitor) current;
+	}
+
+	@Nullable
+	private static String attributeName(String token) {
+		// Array elements are reported without a name
+		return ("-".equals(token) ? null : token);
+	}
+
+	private static Object decodeValue(String type, String literal) {
+		switch (type) {
+			case "s":
+				return unescape(literal);
+			case "Z":
+				return Boolean.valueOf(literal);
+			case "C":
+				return (char) Integer.parseInt(literal);
+			case "B":
+				return Byte.valueOf(literal);
+			case "S":
+				return Short.valueOf(literal);
+			case "I":
+				return Integer.valueOf(literal);
+			case "J":
+				return Long.valueOf(literal);
+			case "F":
+				return Float.valueOf(literal);
+			case "D":
+				return Double.valueOf(literal);
+			case "c":
+				return Type.getType(literal);
+			default:
+				if (type.length() == 2 && type.charAt(0) == '[') {
+					return decodeArray(type.charAt(1), literal.split(" "));
+				}
+				throw new IllegalArgumentException("Unknown attribute value type: " + type);
+		}
+	}
+
+	private static Object decodeArray(char componentType, String[] literals) {
+		int length = literals.length;
+		switch (componentType) {
+			case 'Z':
+				boolean[] booleans = new boolean[length];
+				for (int i = 0; i < length; i++) {
+					booleans[i] = Boolean.parseBoolean(literals[i]);
+				}
+				return booleans;
+			case 'C':
+				char[] chars = new char[length];
+				for (int i = 0; i < length; i++) {
+					chars[i] = (char) Integer.parseInt(literals[i]);
+				}
+				return chars;
+			case 'B':
+				byte[] bytes = new byte[length];
+				for (int i = 0; i < length; i++) {
+					bytes[i] = Byte.parseByte(literals[i]);
+				}
+				return bytes;
+			case 'S':
+				short[] shorts = new short[length];
+				for (int i = 0; i < length; i++) {
+					shorts[i] = Short.parseShort(literals[i]);
+				}
+				return shorts;
+			case 'I':
+				int[] ints = new int[length];
+				for (int i = 0; i < length; i++) {
+					ints[i] = Integer.parseInt(literals[i]);
+				}
+				return ints;
+			case 'J':
+				long[] longs = new long[length];
+				for (int i = 0; i < length; i++) {
+					longs[i] = Long.parseLong(literals[i]);
+				}
+				return longs;
+			case 'F':
+				float[] floats = new float[length];
+				for (int i = 0; i < length; i++) {
+					floats[i] = Float.parseFloat(literals[i]);
+				}
+				return floats;
+			case 'D':
+				double[] doubles = new double[length];
+				for (int i = 0; i < length; i++) {
+					doubles[i] = Double.parseDouble(literals[i]);
+				}
+				return doubles;
+			default:
+				throw new IllegalArgumentException("Unknown array component type: " + componentType);
+		}
+	}
+
+	private static String unescape(String value) {
+		if (value.indexOf('\\') == -1) {
+			return value;
+		}
+		StringBuilder unescaped = new StringBuilder(value.length());
+		for (int i = 0; i < value.length(); i++) {
+			char ch = value.charAt(i);
+			if (ch == '\\' && i + 1 < value.length()) {
+				char next = value.charAt(++i);
+				unescaped.append(next == 'n' ? '\n' : next == 'r' ? '\r' : next);
+			}
+			else {
+				unescaped.append(ch);
+			}
+		}
+		return unescaped.toString();
+	}
+
+}
@@ -0,0 +1,73 @@
+/*
+ * Copyright 2002-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.context.index;
+
+import java.io.IOException;
+
+import org.springframework.core.io.Resource;
+import org.springframework.core.type.classreading.MetadataReader;
+import org.springframework.core.type.classreading.MetadataReaderFactory;
+import org.springframework.util.Assert;
+
+/**
+ * {@link MetadataReaderFactory} decorator that serves class metadata from a
+ * {@link CandidateComponentsIndex} where available, and delegates to a regular
+ * factory for all other classes.
+ *
+ * @since 5.0.18
+ * @see CandidateComponentsIndex#getMetadataReader(String)
+ */
+public class IndexedMetadataReaderFactory implements MetadataReaderFactory {
+
+	private final CandidateComponentsIndex index;
+
+	private final MetadataReaderFactory delegate;
+
+
+	/**
+	 * Create a new {@code IndexedMetadataReaderFactory}.
+	 * @param index the index to look up class metadata in
+	 * @param delegate the factory to use for classes that are not indexed
+	 */
+	public IndexedMetadataReaderFactory(CandidateComponentsIndex index, MetadataReaderFactory delegate) {
+		Assert.notNull(index, "CandidateComponentsIndex must not be null");
+		Assert.notNull(delegate, "Delegate MetadataReaderFactory must not be null");
+		this.index = index;
+		this.delegate = delegate;
+	}
+
+
+	@Override
+	public MetadataReader getMetadataReader(String className) throws IOException {
+		MetadataReader metadataReader = this.index.getMetadataReader(className);
+		return (metadataReader != null ? metadataReader : this.delegate.getMetadataReader(className));
+	}
+
+	@Override
+	public MetadataReader getMetadataReader(Resource resource) throws IOException {
+		return this.delegate.getMetadataReader(resource);
+	}
+
+	/**
+	 * Return the factory that this factory delegates to for classes
+	 * that are not indexed.
+	 */
+	public MetadataReaderFactory getDelegate() {
+		return this.delegate;
+	}
+
+}
@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2019 the original author or authors.
+ * Copyright 2002-2020 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -16,7 +16,15 @@
 
 package org.springframework.context.support;
 
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Set;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.function.Supplier;
 
@@ -29,8 +37,11 @@ import org.springframework.beans.factory.config.BeanDefinitionCustomizer;
 import org.springframework.beans.factory.config.ConfigurableListableBeanFactory;
 import org.springframework.beans.factory.support.BeanDefinitionBuilder;
 import org.springframework.beans.factory.support.BeanDefinitionRegistry;
+import org.springframework.beans.factory.support.BeanDefinitionSnapshot;
 import org.springframework.beans.factory.support.DefaultListableBeanFactory;
 import org.springframework.context.ApplicationContext;
+import org.springframework.context.ApplicationContextException;
+import org.springframework.context.annotation.AnnotationConfigUtils;
 import org.springframework.core.io.Resource;
 import org.springframework.core.io.ResourceLoader;
 import org.springframework.core.io.support.ResourcePatternResolver;
@@ -101,6 +112,9 @@ public class GenericApplicationContext extends AbstractApplicationContext implem
 
 	private boolean customClassLoader = false;
 
+	@Nullable
+	private File beanDefinitionSnapshotFile;
+
 	private final AtomicBoolean refreshed = new AtomicBoolean();
 
 
@@ -205,6 +219,35 @@ public class GenericApplicationContext extends AbstractApplicationContext implem
 	}
 
 
+	/**
+	 * Specify a file to keep a {@link BeanDefinitionSnapshot} of this context's
+	 * bean definitions in, for faster subsequent startups.
+	 * <p>If the file exists on {@link #refresh()}, the bean definitions contained
+	 * in it get registered right away, replacing existing bean definitions of the
+	 * same name. Since configuration classes restored that way are marked as
+	 * processed already, no class path scanning and configuration class parsing
+	 * happens for them. If the file does not exist, a snapshot gets written to it
+	 * once all {@link org.springframework.beans.factory.support.BeanDefinitionRegistryPostProcessor
+	 * BeanDefinitionRegistryPostProcessors} have been applied, before regular
+	 * BeanFactoryPostProcessors (e.g. for placeholder resolution) modify the
+	 * bean definitions.
+	 * <p>A snapshot reflects the classes and active profiles present when it was
+	 * written. It gets rebuilt automatically once other profiles are active or any
+	 * of the bean classes it refers to (e.g. a configuration class) has changed;
+	 * see {@link BeanDefinitionSnapshot#isCurrent}. Since the outcome of other
+	 * {@link org.springframework.context.annotation.Conditional conditions} cannot
+	 * be verified that way, no snapshot gets written if any such condition has been
+	 * evaluated for the bean definitions. Classes added to scanned packages are not
+	 * detected either: the file needs to be deleted in such a case. Singletons
+	 * registered programmatically are not part of a snapshot.
+	 * @since 5.0.18
+	 * @see BeanDefinitionSnapshot#capture
+	 */
+	public void setBeanDefinitionSnapshotFile(@Nullable File beanDefinitionSnapshotFile) {
+		this.beanDefinitionSnapshotFile = beanDefinitionSnapshotFile;
+	}
+
+
 	//---------------------------------------------------------------------
 	// ResourceLoader / ResourcePatternResolver override if necessary
 	//---------------------------------------------------------------------
@@ -268,6 +311,84 @@ public class GenericApplicationContext extends AbstractApplicationContext implem
 					"GenericApplicationContext does not support multiple refresh attempts: just call 'refresh' once");
 		}
 		this.beanFactory.setSerializationId(getId());
+		if (this.beanDefinitionSnapshotFile != null) {
+			prepareBeanDefinitionSnapshot(this.beanDefinitionSnapshotFile);
+		}
+	}
+
+	/**
+	 * Register the bean definitions from the given snapshot file if it exists
+	 * and is current, or arrange for a snapshot to be written to it during bean
+	 * factory post-processing otherwise.
+	 */
+	private void prepareBeanDefinitionSnapshot(File snapshotFile) {
+		if (snapshotFile.exists()) {
+			BeanDefinitionSnapshot snapshot;
+			try (InputStream in = new BufferedInputStream(new FileInputStream(snapshotFile))) {
+				snapshot = BeanDefinitionSnapshot.readFrom(in);
+			}
+			catch (IOException ex) {
+				throw new ApplicationContextException("Failed to read bean definition snapshot from " + snapshotFile, ex);
+			}
+			if (snapshot.isCurrent(getClassLoader(), getSnapshotProfiles())) {
+				int count = snapshot.registerBeanDefinitions(this.beanFactory, getClassLoader());
+				if (logger.isDebugEnabled()) {
+					logger.debug("Registered " + count + " bean definitions from snapshot file [" + snapshotFile + "]");
+				}
+				return;
+			}
+			if (logger.isInfoEnabled()) {
+				logger.info("Bean definition snapshot file [" + snapshotFile + "] is out of date - rebuilding it");
+			}
+		}
+		// Runs after all BeanDefinitionRegistryPostProcessors but before
+		// BeanFactoryPostProcessors defined as beans in this context
+		addBeanFactoryPostProcessor(beanFactory -> writeBeanDefinitionSnapshot(beanFactory, snapshotFile));
+	}
+
+	private void writeBeanDefinitionSnapshot(ConfigurableListableBeanFactory beanFactory, File snapshotFile) {
+		Set<String> evaluatedConditions = AnnotationConfigUtils.getEvaluatedConditions(beanFactory);
+		if (!evaluatedConditions.isEmpty()) {
+			if (logger.isInfoEnabled()) {
+				logger.info("Not writing bean definition snapshot to " + snapshotFile +
+						" since bean definitions depend on conditions " + evaluatedConditions);
+			}
+			return;
+		}
+		BeanDefinitionSnapshot snapshot;
+		try {
+			snapshot = BeanDefinitionSnapshot.capture(beanFactory, getSnapshotProfiles());
+		}
+		catch (BeanDefinitionStoreException ex) {
+			if (logger.isWarnEnabled()) {
+				logger.warn("Cannot capture bean definition snapshot: " + ex.getMessage());
+			}
+			return;
+		}
+		try (OutputStream out = new BufferedOutputStream(new FileOutputStream(snapshotFile))) {
+			snapshot.writeTo(out);
+		}
+		catch (IOException ex) {
+			if (logger.isWarnEnabled()) {
+				logger.warn("Could not write bean definition snapshot to " + snapshotFile, ex);
+			}
+			// Do not leave a partially written snapshot behind
+			snapshotFile.delete();
+			return;
+		}
+		if (logger.isInfoEnabled()) {
+			logger.info("Wrote snapshot of " + beanFactory.getBeanDefinitionCount() + " bean definitions (" +
+					snapshot.getSize() + " bytes) to " + snapshotFile);
+		}
+	}
+
+	/**
+	 * Return the profiles that bean definitions get registered for: the active
+	 * profiles, or the default profiles if none are active.
+	 */
+	private String[] getSnapshotProfiles() {
+		String[] profiles = getEnvironment().getActiveProfiles();
+		return (profiles.length > 0 ? profiles : getEnvironment().getDefaultProfiles());
 	}
 
 	@Override
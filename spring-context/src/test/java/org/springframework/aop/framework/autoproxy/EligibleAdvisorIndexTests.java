@@ -0,0 +1,195 @@
+/*
+ * Copyright 2002-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.aop.framework.autoproxy;
+
+import java.lang.reflect.Method;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.aopalliance.intercept.MethodInterceptor;
+import org.junit.Test;
+
+import org.springframework.aop.Advisor;
+import org.springframework.aop.aspectj.AspectJExpressionPointcut;
+import org.springframework.aop.support.AopUtils;
+import org.springframework.aop.support.DefaultIntroductionAdvisor;
+import org.springframework.aop.support.DefaultPointcutAdvisor;
+import org.springframework.aop.support.DelegatingIntroductionInterceptor;
+import org.springframework.aop.support.StaticMethodMatcherPointcut;
+import org.springframework.aop.support.annotation.AnnotationMatchingPointcut;
+import org.springframework.tests.TimeStamped;
+import org.springframework.tests.sample.beans.TestBean;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests for {@link EligibleAdvisorIndex}.
+ *
+ * @since 5.0.18
+ */
+public class EligibleAdvisorIndexTests {
+
+	private static final MethodInterceptor NOP = invocation -> invocation.proceed();
+
+
+	@Test
+	public void sameResultAsAopUtils() {
+		List<Advisor> candidates = new ArrayList<>();
+		candidates.add(new DefaultPointcutAdvisor(pointcut("execution(* *..ITestBean.getAge())"), NOP));
+		candidates.add(new DefaultPointcutAdvisor(NOP));
+		candidates.add(new DefaultPointcutAdvisor(pointcut("execution(* java.lang.String.*(..))"), NOP));
+		candidates.add(new DefaultIntroductionAdvisor(new TimestampIntroduction(), TimeStamped.class));
+		candidates.add(new DefaultPointcutAdvisor(pointcut("execution(* *..ITestBean.getAge())"), NOP));
+		candidates.add(new DefaultPointcutAdvisor(AnnotationMatchingPointcut.forMethodAnnotation(Deprecated.class), NOP));
+		candidates.add(new DefaultPointcutAdvisor(pointcut("execution(* *..TimeStamped.getTimeStamp())"), NOP));
+
+		EligibleAdvisorIndex index = new EligibleAdvisorIndex(candidates, false);
+		for (Class<?> clazz : new Class<?>[] {TestBean.class, String.class, Object.class}) {
+			assertEquals(AopUtils.findAdvisorsThatCanApply(candidates, clazz), index.findAdvisorsThatCanApply(clazz));
+		}
+		assertEquals(4, index.findAdvisorsThatCanApply(TestBean.class).size());
+	}
+
+	@Test
+	public void equalPointcutsAreEvaluatedOnce() {
+		AtomicInteger count = new AtomicInteger();
+		List<Advisor> candidates = new ArrayList<>();
+		for (int i = 0; i < 10; i++) {
+			candidates.add(new DefaultPointcutAdvisor(new CountingPointcut(count), NOP));
+		}
+
+		EligibleAdvisorIndex index = new EligibleAdvisorIndex(candidates, false);
+		assertEquals(10, index.findAdvisorsThatCanApply(TestBean.class).size());
+		assertEquals(1, count.get());
+	}
+
+	@Test
+	public void parallelMatchingExposesBeanNameAndClassLoader() {
+		Set<String> beanNames = ConcurrentHashMap.newKeySet();
+		Set<ClassLoader> classLoaders = ConcurrentHashMap.newKeySet();
+		List<Advisor> candidates = new ArrayList<>();
+		for (int i = 0; i < 50; i++) {
+			String methodName = (i % 2 == 0 ? "getAge" : "noSuchMethod" + i);
+			candidates.add(new DefaultPointcutAdvisor(new StaticMethodMatcherPointcut() {
+				@Override
+				public boolean matches(Method method, Class<?> targetClass) {
+					beanNames.add(String.valueOf(ProxyCreationContext.getCurrentProxiedBeanName()));
+					classLoaders.add(Thread.currentThread().getContextClassLoader());
+					return method.getName().equals(methodName);
+				}
+			}, NOP));
+		}
+
+		EligibleAdvisorIndex index = new EligibleAdvisorIndex(candidates, true);
+		Thread currentThread = Thread.currentThread();
+		ClassLoader previousClassLoader = currentThread.getContextClassLoader();
+		ClassLoader classLoader = new URLClassLoader(new URL[0], previousClassLoader);
+		currentThread.setContextClassLoader(classLoader);
+		ProxyCreationContext.setCurrentProxiedBeanName("testBean");
+		try {
+			List<Advisor> eligibleAdvisors = index.findAdvisorsThatCanApply(TestBean.class);
+			assertEquals(25, eligibleAdvisors.size());
+			assertEquals(AopUtils.findAdvisorsThatCanApply(candidates, TestBean.class), eligibleAdvisors);
+			assertEquals("testBean", ProxyCreationContext.getCurrentProxiedBeanName());
+		}
+		finally {
+			ProxyCreationContext.setCurrentProxiedBeanName(null);
+			currentThread.setContextClassLoader(previousClassLoader);
+		}
+		assertEquals(1, beanNames.size());
+		assertTrue(beanNames.contains("testBean"));
+		assertEquals(1, classLoaders.size());
+		assertTrue(classLoaders.contains(classLoader));
+	}
+
+	@Test
+	public void indexIdentity() {
+		List<Advisor> candidates = new ArrayList<>();
+		candidates.add(new DefaultPointcutAdvisor(NOP));
+		EligibleAdvisorIndex index = new EligibleAdvisorIndex(candidates, false);
+
+		assertTrue(index.isIndexFor(new ArrayList<>(candidates), false));
+		assertFalse(index.isIndexFor(candidates, true));
+		candidates.add(new DefaultPointcutAdvisor(NOP));
+		assertFalse(index.isIndexFor(candidates, false));
+	}
+
+	@Test
+	public void autoProxyCreatorMatchesInParallel() {
+		DefaultAdvisorAutoProxyCreator autoProxyCreator = new DefaultAdvisorAutoProxyCreator();
+		autoProxyCreator.setParallelAdvisorMatching(true);
+		assertTrue(autoProxyCreator.isParallelAdvisorMatching());
+
+		List<Advisor> candidates = new ArrayList<>();
+		candidates.add(new DefaultPointcutAdvisor(pointcut("execution(* *..ITestBean.getAge())"), NOP));
+		candidates.add(new DefaultPointcutAdvisor(pointcut("execution(* java.lang.String.*(..))"), NOP));
+		List<Advisor> eligibleAdvisors =
+				autoProxyCreator.findAdvisorsThatCanApply(candidates, TestBean.class, "testBean");
+		assertEquals(1, eligibleAdvisors.size());
+		assertSame(candidates.get(0), eligibleAdvisors.get(0));
+		assertNull(ProxyCreationContext.getCurrentProxiedBeanName());
+	}
+
+
+	private static AspectJExpressionPointcut pointcut(String expression) {
+		AspectJExpressionPointcut pointcut = new AspectJExpressionPointcut();
+		pointcut.setExpression(expression);
+		return pointcut;
+	}
+
+
+	private static class CountingPointcut extends StaticMethodMatcherPointcut {
+
+		private final AtomicInteger count;
+
+		CountingPointcut(AtomicInteger count) {
+			this.count = count;
+		}
+
+		@Override
+		public boolean matches(Method method, Class<?> targetClass) {
+			this.count.incrementAndGet();
+			return true;
+		}
+
+		@Override
+		public boolean equals(Object other) {
+			return (other instanceof CountingPointcut);
+		}
+
+		@Override
+		public int hashCode() {
+			return CountingPointcut.class.hashCode();
+		}
+	}
+
+
+	@SuppressWarnings("serial")
+	private static class TimestampIntroduction extends DelegatingIntroductionInterceptor implements TimeStamped {
+
+		@Override
+		public long getTimeStamp() {
+			return 0;
+		}
+	}
+
+}
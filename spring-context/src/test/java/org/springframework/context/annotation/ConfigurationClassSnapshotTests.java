@@ -0,0 +1,227 @@
+/*
+ * Copyright 2002-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.context.annotation;
+
+import java.io.File;
+import java.net.URL;
+import java.util.Collections;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import org.springframework.core.type.AnnotatedTypeMetadata;
+import org.springframework.core.type.AnnotationMetadata;
+import org.springframework.lang.Nullable;
+import org.springframework.tests.sample.beans.TestBean;
+import org.springframework.util.ClassUtils;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests for configuration classes restored from a
+ * {@link org.springframework.beans.factory.support.BeanDefinitionSnapshot}.
+ *
+ * @since 5.0.18
+ */
+public class ConfigurationClassSnapshotTests {
+
+	private static final String IMPORT_REGISTRY_BEAN_NAME =
+			ConfigurationClassPostProcessor.class.getName() + ".importRegistry";
+
+	@Rule
+	public final TemporaryFolder folder = new TemporaryFolder();
+
+
+	@Test
+	public void snapshotWrittenOnFirstRefreshAndRegisteredOnSecond() throws Exception {
+		File snapshotFile = new File(this.folder.getRoot(), "beans.snapshot");
+
+		AnnotationConfigApplicationContext first = createContext(snapshotFile);
+		assertTrue(snapshotFile.exists());
+		assertTrue(first.getBeanFactory().containsSingleton(IMPORT_REGISTRY_BEAN_NAME));
+		assertConfigurationApplied(first);
+		first.close();
+
+		AnnotationConfigApplicationContext second = createContext(snapshotFile);
+		// Configuration classes have not been parsed again
+		assertFalse(second.getBeanFactory().containsSingleton(IMPORT_REGISTRY_BEAN_NAME));
+		assertConfigurationApplied(second);
+		second.close();
+	}
+
+	@Test
+	public void snapshotRebuiltOnceConfigurationClassChanged() throws Exception {
+		File snapshotFile = new File(this.folder.getRoot(), "beans.snapshot");
+		createContext(snapshotFile).close();
+
+		ClassLoader changedClassLoader = new ChangedClassFileClassLoader(getClass().getClassLoader());
+		AnnotationConfigApplicationContext second = createContext(snapshotFile, changedClassLoader);
+		// Out of date: configuration classes parsed again, snapshot rewritten
+		assertTrue(second.getBeanFactory().containsSingleton(IMPORT_REGISTRY_BEAN_NAME));
+		assertConfigurationApplied(second);
+		second.close();
+
+		AnnotationConfigApplicationContext third = createContext(snapshotFile, changedClassLoader);
+		assertFalse(third.getBeanFactory().containsSingleton(IMPORT_REGISTRY_BEAN_NAME));
+		assertConfigurationApplied(third);
+		third.close();
+	}
+
+	@Test
+	public void snapshotRebuiltForOtherProfiles() throws Exception {
+		File snapshotFile = new File(this.folder.getRoot(), "beans.snapshot");
+		AnnotationConfigApplicationContext first = createContext(snapshotFile, ProfileConfig.class, "dev");
+		assertTrue(first.containsBean("devBean"));
+		first.close();
+
+		AnnotationConfigApplicationContext second = createContext(snapshotFile, ProfileConfig.class, "prod");
+		assertTrue(second.getBeanFactory().containsSingleton(IMPORT_REGISTRY_BEAN_NAME));
+		assertFalse(second.containsBean("devBean"));
+		second.close();
+
+		AnnotationConfigApplicationContext third = createContext(snapshotFile, ProfileConfig.class, "prod");
+		assertFalse(third.getBeanFactory().containsSingleton(IMPORT_REGISTRY_BEAN_NAME));
+		assertFalse(third.containsBean("devBean"));
+		third.close();
+	}
+
+	@Test
+	public void snapshotNotWrittenOnceConditionEvaluated() {
+		File snapshotFile = new File(this.folder.getRoot(), "beans.snapshot");
+		AnnotationConfigApplicationContext context = createContext(snapshotFile, ConditionalConfig.class);
+		assertTrue(context.containsBean("conditionalBean"));
+		assertEquals(Collections.singleton(AlwaysCondition.class.getName()),
+				AnnotationConfigUtils.getEvaluatedConditions(context.getBeanFactory()));
+		assertFalse(snapshotFile.exists());
+		context.close();
+	}
+
+	private AnnotationConfigApplicationContext createContext(File snapshotFile) {
+		return createContext(snapshotFile, null);
+	}
+
+	private AnnotationConfigApplicationContext createContext(File snapshotFile, @Nullable ClassLoader classLoader) {
+		AnnotationConfigApplicationContext context = new AnnotationConfigApplicationContext();
+		if (classLoader != null) {
+			context.setClassLoader(classLoader);
+		}
+		context.setBeanDefinitionSnapshotFile(snapshotFile);
+		context.register(SnapshotConfig.class);
+		context.refresh();
+		return context;
+	}
+
+	private AnnotationConfigApplicationContext createContext(File snapshotFile, Class<?> configClass,
+			String... profiles) {
+
+		AnnotationConfigApplicationContext context = new AnnotationConfigApplicationContext();
+		context.getEnvironment().setActiveProfiles(profiles);
+		context.setBeanDefinitionSnapshotFile(snapshotFile);
+		context.register(configClass);
+		context.refresh();
+		return context;
+	}
+
+	private void assertConfigurationApplied(AnnotationConfigApplicationContext context) {
+		SnapshotConfig config = context.getBean(SnapshotConfig.class);
+		assertSame(context.getBean("testBean"), config.testBean());
+		assertEquals("imported", context.getBean("importedBean", TestBean.class).getName());
+		ImportedConfig importedConfig = context.getBean(ImportedConfig.class);
+		assertEquals(SnapshotConfig.class.getName(), importedConfig.importMetadata.getClassName());
+	}
+
+
+	@Configuration
+	@Import(ImportedConfig.class)
+	static class SnapshotConfig {
+
+		@Bean
+		public TestBean testBean() {
+			return new TestBean("test");
+		}
+	}
+
+
+	@Configuration
+	static class ImportedConfig implements ImportAware {
+
+		AnnotationMetadata importMetadata;
+
+		@Override
+		public void setImportMetadata(AnnotationMetadata importMetadata) {
+			this.importMetadata = importMetadata;
+		}
+
+		@Bean
+		public TestBean importedBean() {
+			return new TestBean("imported");
+		}
+	}
+
+
+	@Configuration
+	static class ProfileConfig {
+
+		@Bean
+		@Profile("dev")
+		public TestBean devBean() {
+			return new TestBean("dev");
+		}
+	}
+
+
+	@Configuration
+	static class ConditionalConfig {
+
+		@Bean
+		@Conditional(AlwaysCondition.class)
+		public TestBean conditionalBean() {
+			return new TestBean("conditional");
+		}
+	}
+
+
+	static class AlwaysCondition implements Condition {
+
+		@Override
+		public boolean matches(ConditionContext context, AnnotatedTypeMetadata metadata) {
+			return true;
+		}
+	}
+
+
+	/**
+	 * Loads all classes from its parent, but exposes a different class file for
+	 * {@link ImportedConfig}, as if that class had been changed and recompiled.
+	 */
+	private static class ChangedClassFileClassLoader extends ClassLoader {
+
+		ChangedClassFileClassLoader(ClassLoader parent) {
+			super(parent);
+		}
+
+		@Override
+		public URL getResource(String name) {
+			if (name.equals(ClassUtils.convertClassNameToResourcePath(ImportedConfig.class.getName()) + ".class")) {
+				name = ClassUtils.convertClassNameToResourcePath(TestBean.class.getName()) + ".class";
+			}
+			return super.getResource(name);
+		}
+	}
+
+}
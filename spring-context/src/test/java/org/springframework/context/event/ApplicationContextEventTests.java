@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2018 the original author or authors.
+ * Copyright 2002-2020 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -16,6 +16,10 @@
 
 package org.springframework.context.event;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.HashSet;
 import java.util.LinkedList;
 import java.util.List;
@@ -294,11 +298,41 @@ public class ApplicationContextEventTests extends AbstractApplicationEventListen
 		assertTrue(listener1.seenEvents.contains(event4));
 
 		AbstractApplicationEventMulticaster multicaster = context.getBean(AbstractApplicationEventMulticaster.class);
-		assertEquals(2, multicaster.retrieverCache.size());
+		// Lazy listener2 only evicted MyEvent, not ContextRefreshedEvent
+		assertEquals(3, multicaster.retrieverCache.size());
 
 		context.close();
 	}
 
+	@Test
+	public void listenerRegistrationOnlyEvictsAffectedRetrievers() {
+		SimpleApplicationEventMulticaster multicaster = new SimpleApplicationEventMulticaster();
+		MyOrderedListener3 listener3 = new MyOrderedListener3();
+		multicaster.addApplicationListener(listener3);
+		MyEvent event1 = new MyEvent(this);
+		MyOtherEvent event2 = new MyOtherEvent(this);
+		multicaster.multicastEvent(event1);
+		multicaster.multicastEvent(event2);
+		assertEquals(2, multicaster.retrieverCache.size());
+
+		MyOrderedListener4 listener4 = new MyOrderedListener4(listener3);
+		multicaster.addApplicationListener(listener4);
+		assertEquals(1, multicaster.retrieverCache.size());
+		Collection<ApplicationListener<?>> listeners =
+				multicaster.getApplicationListeners(event1, ResolvableType.forInstance(event1));
+		assertEquals(Arrays.asList(listener3, listener4), new ArrayList<>(listeners));
+		assertSame(listeners, multicaster.getApplicationListeners(event1, ResolvableType.forInstance(event1)));
+
+		multicaster.removeApplicationListener(listener4);
+		assertEquals(1, multicaster.retrieverCache.size());
+		assertEquals(Collections.singletonList(listener3), new ArrayList<>(
+				multicaster.getApplicationListeners(event1, ResolvableType.forInstance(event1))));
+
+		multicaster.removeApplicationListener(listener3);
+		assertEquals(0, multicaster.retrieverCache.size());
+		assertTrue(multicaster.getApplicationListeners(event2, ResolvableType.forInstance(event2)).isEmpty());
+	}
+
 	@Test
 	public void listenersInApplicationContextWithPayloadEvents() {
 		StaticApplicationContext context = new StaticApplicationContext();
@@ -0,0 +1,298 @@
+/*
+ * Copyright 2002-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.context.event;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Test;
+
+import org.springframework.beans.factory.BeanInitializationException;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+import org.springframework.context.support.AbstractApplicationContext;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests for {@link BatchEventListener} methods.
+ *
+ * @since 5.0.18
+ */
+public class BatchEventListenerTests {
+
+	private AnnotationConfigApplicationContext context;
+
+
+	@After
+	public void closeContext() {
+		if (this.context != null) {
+			this.context.close();
+		}
+	}
+
+
+	@Test
+	public void eventsDeliveredOnPublishingThreadWithoutExecutor() {
+		load(null, BatchListener.class);
+		this.context.publishEvent("a");
+		this.context.publishEvent(new OrderEvent(1, "x"));
+		this.context.publishEvent("b");
+		assertEquals(Arrays.asList(Collections.singletonList("a"), Collections.singletonList("b")),
+				this.context.getBean(BatchListener.class).batches);
+	}
+
+	@Test
+	public void eventsQueuedForSingleTaskWithExecutor() {
+		QueuingExecutor executor = new QueuingExecutor();
+		load(executor, BatchListener.class);
+		for (String event : new String[] {"a", "b", "c", "d", "e"}) {
+			this.context.publishEvent(event);
+		}
+		BatchListener listener = this.context.getBean(BatchListener.class);
+		assertEquals(1, executor.tasks.size());
+		assertTrue(listener.batches.isEmpty());
+
+		executor.runAll();
+		assertEquals(Arrays.asList(Arrays.asList("a", "b"), Arrays.asList("c", "d"), Collections.singletonList("e")),
+				listener.batches);
+
+		this.context.publishEvent("f");
+		assertEquals(1, executor.tasks.size());
+		executor.runAll();
+		assertEquals(Collections.singletonList("f"), listener.batches.get(3));
+	}
+
+	@Test
+	public void eventsCoalescedByKey() {
+		QueuingExecutor executor = new QueuingExecutor();
+		load(executor, CoalescingListener.class);
+		this.context.publishEvent(new OrderEvent(1, "created"));
+		this.context.publishEvent(new OrderEvent(2, "created"));
+		this.context.publishEvent(new OrderEvent(1, "paid"));
+		this.context.publishEvent(new OrderEvent(3, "ignored"));
+		executor.runAll();
+
+		List<List<OrderEvent>> batches = this.context.getBean(CoalescingListener.class).batches;
+		assertEquals(1, batches.size());
+		assertEquals(2, batches.get(0).size());
+		assertEquals("paid", batches.get(0).get(0).state);
+		assertEquals("created", batches.get(0).get(1).state);
+	}
+
+	@Test
+	public void remainingEventsDeliveredAfterFailure() {
+		QueuingExecutor executor = new QueuingExecutor();
+		load(executor, FailingListener.class);
+		this.context.publishEvent("fail");
+		this.context.publishEvent("b");
+		try {
+			executor.runAll();
+			fail("Should have thrown IllegalStateException");
+		}
+		catch (IllegalStateException ex) {
+			// expected
+		}
+
+		this.context.publishEvent("c");
+		executor.runAll();
+		assertEquals(Arrays.asList(Collections.singletonList("b"), Collections.singletonList("c")),
+				this.context.getBean(FailingListener.class).batches);
+	}
+
+	@Test
+	public void publisherWaitsForCapacity() throws Exception {
+		QueuingExecutor executor = new QueuingExecutor();
+		load(executor, BoundedListener.class);
+		this.context.publishEvent("a");
+		this.context.publishEvent("b");
+
+		Thread publisher = new Thread(() -> this.context.publishEvent("c"));
+		publisher.start();
+		publisher.join(100);
+		assertTrue(publisher.isAlive());
+
+		executor.runAll();
+		publisher.join(TimeUnit.SECONDS.toMillis(10));
+		assertFalse(publisher.isAlive());
+		executor.runAll();
+
+		List<String> delivered = new ArrayList<>();
+		for (List<String> batch : this.context.getBean(BoundedListener.class).batches) {
+			delivered.addAll(batch);
+		}
+		assertEquals(Arrays.asList("a", "b", "c"), delivered);
+	}
+
+	@Test
+	public void nonListParameterRejected() {
+		try {
+			load(null, InvalidListener.class);
+			fail("Should have thrown BeanInitializationException");
+		}
+		catch (BeanInitializationException ex) {
+			assertTrue(ex.getMessage().contains("single List parameter"));
+		}
+	}
+
+	@Test
+	public void rawListParameterRejected() {
+		try {
+			load(null, RawListListener.class);
+			fail("Should have thrown BeanInitializationException");
+		}
+		catch (BeanInitializationException ex) {
+			assertTrue(ex.getMessage().contains("element type of its List parameter"));
+		}
+	}
+
+	@Test
+	public void rawListParameterWithEventClasses() {
+		load(null, RawListWithClassesListener.class);
+		this.context.publishEvent("a");
+		this.context.publishEvent(new OrderEvent(1, "x"));
+		assertEquals(Collections.singletonList(Collections.singletonList("a")),
+				this.context.getBean(RawListWithClassesListener.class).batches);
+	}
+
+
+	private void load(Executor executor, Class<?> listenerClass) {
+		AnnotationConfigApplicationContext context = new AnnotationConfigApplicationContext();
+		SimpleApplicationEventMulticaster multicaster = new SimpleApplicationEventMulticaster();
+		multicaster.setTaskExecutor(executor);
+		context.getBeanFactory().registerSingleton(
+				AbstractApplicationContext.APPLICATION_EVENT_MULTICASTER_BEAN_NAME, multicaster);
+		context.register(listenerClass);
+		this.context = context;
+		context.refresh();
+	}
+
+
+	static class QueuingExecutor implements Executor {
+
+		final List<Runnable> tasks = Collections.synchronizedList(new ArrayList<>());
+
+		@Override
+		public void execute(Runnable task) {
+			this.tasks.add(task);
+		}
+
+		void runAll() {
+			while (!this.tasks.isEmpty()) {
+				this.tasks.remove(0).run();
+			}
+		}
+	}
+
+
+	static class OrderEvent {
+
+		final int id;
+
+		final String state;
+
+		OrderEvent(int id, String state) {
+			this.id = id;
+			this.state = state;
+		}
+
+		public int getId() {
+			return this.id;
+		}
+	}
+
+
+	static class BatchListener {
+
+		final List<List<String>> batches = new ArrayList<>();
+
+		@BatchEventListener(maxBatchSize = 2)
+		public void onEvents(List<String> events) {
+			this.batches.add(new ArrayList<>(events));
+		}
+	}
+
+
+	static class CoalescingListener {
+
+		final List<List<OrderEvent>> batches = new ArrayList<>();
+
+		@BatchEventListener(key = "#root.args[0].id", condition = "#root.args[0].id < 3")
+		public void onEvents(List<OrderEvent> events) {
+			this.batches.add(new ArrayList<>(events));
+		}
+	}
+
+
+	static class FailingListener {
+
+		final List<List<String>> batches = new ArrayList<>();
+
+		@BatchEventListener(maxBatchSize = 1)
+		public void onEvents(List<String> events) {
+			if (events.contains("fail")) {
+				throw new IllegalStateException("Test exception");
+			}
+			this.batches.add(new ArrayList<>(events));
+		}
+	}
+
+
+	static class BoundedListener {
+
+		final List<List<String>> batches = Collections.synchronizedList(new ArrayList<>());
+
+		@BatchEventListener(capacity = 2)
+		public void onEvents(List<String> events) {
+			this.batches.add(new ArrayList<>(events));
+		}
+	}
+
+
+	static class InvalidListener {
+
+		@BatchEventListener
+		public void onEvent(String event) {
+		}
+	}
+
+
+	static class RawListListener {
+
+		@BatchEventListener
+		@SuppressWarnings("rawtypes")
+		public void onEvents(List events) {
+		}
+	}
+
+
+	static class RawListWithClassesListener {
+
+		final List<List<Object>> batches = new ArrayList<>();
+
+		@BatchEventListener(String.class)
+		@SuppressWarnings({"rawtypes", "unchecked"})
+		public void onEvents(List events) {
+			this.batches.add(new ArrayList<>(events));
+		}
+	}
+
+}
@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2016 the original author or authors.
+ * Copyright 2002-2020 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -23,6 +23,13 @@ import java.util.Set;
 
 import org.junit.Test;
 
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.type.AnnotationMetadata;
+import org.springframework.core.type.MethodMetadata;
+import org.springframework.core.type.classreading.MetadataReader;
+import org.springframework.stereotype.Component;
+
 import static org.hamcrest.Matchers.*;
 import static org.junit.Assert.*;
 
@@ -77,6 +84,61 @@ public class CandidateComponentsIndexTests {
 				contains("com.example.Foo"));
 	}
 
+	@Test
+	public void getMetadataReader() {
+		Properties classMetadata = createProperties("com.example.Foo", String.join("\n",
+				"class 1 com/example/Foo java/lang/Object java/lang/Runnable",
+				"inner 9 com/example/Foo$Nested com/example/Foo Nested",
+				"annotation Lorg/springframework/context/annotation/Configuration;",
+				"value value s foo config",
+				"end",
+				"method 1 bar ()[Ljava/lang/String;",
+				"annotation Lorg/springframework/context/annotation/Bean;",
+				"array name",
+				"value - s bar",
+				"value - s baz\\n",
+				"end",
+				"end",
+				"end"));
+		CandidateComponentsIndex index = new CandidateComponentsIndex(Collections.emptyList(),
+				Collections.singletonList(classMetadata), getClass().getClassLoader());
+		MetadataReader metadataReader = index.getMetadataReader("com.example.Foo");
+		assertNotNull(metadataReader);
+		assertSame(metadataReader, index.getMetadataReader("com.example.Foo"));
+		assertEquals("Foo.class", metadataReader.getResource().getFilename());
+
+		AnnotationMetadata metadata = metadataReader.getAnnotationMetadata();
+		assertEquals("com.example.Foo", metadata.getClassName());
+		assertEquals("java.lang.Object", metadata.getSuperClassName());
+		assertArrayEquals(new String[] {"java.lang.Runnable"}, metadata.getInterfaceNames());
+		assertArrayEquals(new String[] {"com.example.Foo$Nested"}, metadata.getMemberClassNames());
+		assertTrue(metadata.isAnnotated(Configuration.class.getName()));
+		assertTrue(metadata.hasMetaAnnotation(Component.class.getName()));
+		assertEquals("foo config", metadata.getAnnotationAttributes(Configuration.class.getName()).get("value"));
+		Set<MethodMetadata> beanMethods = metadata.getAnnotatedMethods(Bean.class.getName());
+		assertThat(beanMethods, hasSize(1));
+		MethodMetadata beanMethod = beanMethods.iterator().next();
+		assertEquals("bar", beanMethod.getMethodName());
+		assertEquals("java.lang.String[]", beanMethod.getReturnTypeName());
+		assertArrayEquals(new String[] {"bar", "baz\n"},
+				(String[]) beanMethod.getAnnotationAttributes(Bean.class.getName()).get("name"));
+	}
+
+	@Test
+	public void getMetadataReaderNoMatch() {
+		CandidateComponentsIndex index = new CandidateComponentsIndex(
+				Collections.singletonList(createSampleProperties()));
+		assertNull(index.getMetadataReader("com.example.service.One"));
+	}
+
+	@Test
+	public void getMetadataReaderInvalidContent() {
+		CandidateComponentsIndex index = new CandidateComponentsIndex(Collections.emptyList(),
+				Collections.singletonList(createProperties("com.example.Foo", "class 1 com/example/Foo -\nend")),
+				getClass().getClassLoader());
+		assertNull(index.getMetadataReader("com.example.Foo"));
+	}
+
 	private static Properties createProperties(String key, String stereotypes) {
 		Properties properties = new Properties();
 		properties.put(key, String.join(",", stereotypes));
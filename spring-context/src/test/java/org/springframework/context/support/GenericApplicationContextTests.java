@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2018 the original author or authors.
+ * Copyright 2002-2020 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -16,10 +16,19 @@
 
 package org.springframework.context.support;
 
+import java.lang.reflect.Method;
+import java.net.URL;
+import java.net.URLClassLoader;
+
 import org.junit.Test;
 
+import org.springframework.aop.aspectj.AspectJExpressionPointcut;
+import org.springframework.aop.aspectj.ShadowMatchCache;
 import org.springframework.beans.factory.NoUniqueBeanDefinitionException;
 import org.springframework.beans.factory.support.RootBeanDefinition;
+import org.springframework.core.io.Resource;
+import org.springframework.core.type.classreading.CachingMetadataReaderFactory;
+import org.springframework.core.type.classreading.MetadataReaderCache;
 
 import static org.junit.Assert.*;
 
@@ -103,4 +112,46 @@ public class GenericApplicationContextTests {
 		}
 	}
 
+	@Test
+	public void sharedClassMetadataReleasedOnClose() throws Exception {
+		ClassLoader classLoader = new URLClassLoader(new URL[0], getClass().getClassLoader());
+		GenericApplicationContext ac = new GenericApplicationContext();
+		ac.setClassLoader(classLoader);
+		MetadataReaderCache sharedCache = MetadataReaderCache.getSharedInstance();
+		CachingMetadataReaderFactory metadataReaderFactory = new CachingMetadataReaderFactory(ac);
+		metadataReaderFactory.setMetadataReaderCache(sharedCache);
+		Resource resource = ac.getResource("classpath:" + getClass().getName().replace('.', '/') + ".class");
+		metadataReaderFactory.getMetadataReader(resource);
+		assertNotNull(sharedCache.get(resource, classLoader));
+
+		ac.refresh();
+		ac.close();
+		assertNull(sharedCache.get(resource, classLoader));
+	}
+
+	@Test
+	public void sharedShadowMatchesReleasedOnClose() throws Exception {
+		ClassLoader classLoader = new URLClassLoader(new URL[0], getClass().getClassLoader());
+		GenericApplicationContext ac = new GenericApplicationContext();
+		ac.setClassLoader(classLoader);
+		ShadowMatchCache sharedCache = ShadowMatchCache.getSharedInstance();
+		Method method = getClass().getMethod("sharedShadowMatchesReleasedOnClose");
+		createPointcut(ac).matches(method, getClass());
+		long misses = sharedCache.getMissCount();
+		createPointcut(ac).matches(method, getClass());
+		assertEquals(misses, sharedCache.getMissCount());
+
+		ac.refresh();
+		ac.close();
+		createPointcut(ac).matches(method, getClass());
+		assertTrue(sharedCache.getMissCount() > misses);
+	}
+
+	private AspectJExpressionPointcut createPointcut(GenericApplicationContext ac) {
+		AspectJExpressionPointcut pointcut = new AspectJExpressionPointcut();
+		pointcut.setExpression("execution(* " + getClass().getName() + ".*(..))");
+		pointcut.setBeanFactory(ac.getDefaultListableBeanFactory());
+		return pointcut;
+	}
+
 }
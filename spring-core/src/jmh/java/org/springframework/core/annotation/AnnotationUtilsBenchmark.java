@@ -0,0 +1,144 @@
+/*
+ * Copyright 2002-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.core.annotation;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+import java.lang.reflect.Method;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Benchmarks for {@link AnnotationUtils} and {@link AnnotatedElementUtils} lookups
+ * on meta-annotated types and methods, including {@link AliasFor} handling.
+ *
+ * @since 5.0.18
+ */
+@BenchmarkMode(Mode.Throughput)
+public class AnnotationUtilsBenchmark {
+
+	@Benchmark
+	public void findAnnotationOnClass(Blackhole bh) {
+		bh.consume(AnnotationUtils.findAnnotation(AnnotatedService.class, Stereotype.class));
+	}
+
+	@Benchmark
+	public void findAnnotationOnInterfaceMethod(AnnotationState state, Blackhole bh) {
+		bh.consume(AnnotationUtils.findAnnotation(state.method, Mapping.class));
+	}
+
+	@Benchmark
+	public void findMissingAnnotation(Blackhole bh) {
+		bh.consume(AnnotationUtils.findAnnotation(AnnotatedService.class, Deprecated.class));
+	}
+
+	@Benchmark
+	public void getMergedAnnotationAttributes(Blackhole bh) {
+		bh.consume(AnnotatedElementUtils.getMergedAnnotationAttributes(AnnotatedService.class, Stereotype.class));
+	}
+
+	@Benchmark
+	public void findMergedAnnotation(AnnotationState state, Blackhole bh) {
+		bh.consume(AnnotatedElementUtils.findMergedAnnotation(state.method, Mapping.class));
+	}
+
+	@Benchmark
+	public void synthesizedAttributeAccess(AnnotationState state, Blackhole bh) {
+		bh.consume(state.synthesized.path());
+		bh.consume(state.synthesized.value());
+	}
+
+
+	@State(Scope.Benchmark)
+	public static class AnnotationState {
+
+		public Method method;
+
+		public Mapping synthesized;
+
+		@Setup
+		public void setup() throws Exception {
+			this.method = AnnotatedService.class.getMethod("handle");
+			this.synthesized = AnnotatedElementUtils.findMergedAnnotation(this.method, Mapping.class);
+		}
+	}
+
+
+	@Retention(RetentionPolicy.RUNTIME)
+	@Target({ElementType.TYPE, ElementType.METHOD})
+	@interface Mapping {
+
+		@AliasFor("path")
+		String value() default "";
+
+		@AliasFor("value")
+		String path() default "";
+	}
+
+
+	@Retention(RetentionPolicy.RUNTIME)
+	@Target({ElementType.TYPE, ElementType.METHOD})
+	@Mapping
+	@interface GetMapping {
+
+		@AliasFor(annotation = Mapping.class)
+		String path() default "";
+	}
+
+
+	@Retention(RetentionPolicy.RUNTIME)
+	@Target(ElementType.ANNOTATION_TYPE)
+	@interface Stereotype {
+
+		String value() default "";
+	}
+
+
+	@Retention(RetentionPolicy.RUNTIME)
+	@Target(ElementType.TYPE)
+	@Stereotype
+	@interface CustomService {
+
+		@AliasFor(annotation = Stereotype.class)
+		String value() default "";
+	}
+
+
+	interface ServiceContract {
+
+		@GetMapping(path = "/handle")
+		void handle();
+	}
+
+
+	@CustomService("benchmarkService")
+	static class AnnotatedService implements ServiceContract {
+
+		@Override
+		public void handle() {
+		}
+	}
+
+}
@@ -0,0 +1,84 @@
+/*
+ * Copyright 2002-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.util;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Benchmarks for {@link AntPathMatcher#match} and {@link AntPathMatcher#extractUriTemplateVariables}.
+ *
+ * @since 5.0.18
+ */
+@BenchmarkMode(Mode.Throughput)
+public class AntPathMatcherBenchmark {
+
+	@Benchmark
+	public void match(MatcherState state, Blackhole bh) {
+		for (String path : state.paths) {
+			bh.consume(state.matcher.match(state.pattern, path));
+		}
+	}
+
+	@Benchmark
+	public void extractUriTemplateVariables(MatcherState state, Blackhole bh) {
+		bh.consume(state.matcher.extractUriTemplateVariables(state.pattern, state.matchingPath));
+	}
+
+
+	@State(Scope.Benchmark)
+	public static class MatcherState {
+
+		@Param({"/api/**/*.json", "/hotels/{hotel}/bookings/{booking}", "/static/*/js/**"})
+		public String pattern;
+
+		@Param({"true", "false"})
+		public boolean cachePatterns;
+
+		public AntPathMatcher matcher;
+
+		public String[] paths;
+
+		public String matchingPath;
+
+		@Setup
+		public void setup() {
+			this.matcher = new AntPathMatcher();
+			this.matcher.setCachePatterns(this.cachePatterns);
+			this.paths = new String[] {
+					"/api/v1/customers/42/orders.json",
+					"/hotels/1/bookings/2",
+					"/static/app/js/vendor/lib.js",
+					"/some/unrelated/path"
+			};
+			for (String path : this.paths) {
+				if (this.matcher.match(this.pattern, path)) {
+					this.matchingPath = path;
+					break;
+				}
+			}
+			Assert.state(this.matchingPath != null, "No path matching pattern " + this.pattern);
+		}
+	}
+
+}
@@ -0,0 +1,55 @@
+/*
+ * Copyright 2002-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.util;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Benchmarks for {@link MimeTypeUtils#parseMimeType} and {@link MimeTypeUtils#parseMimeTypes}.
+ *
+ * @since 5.0.18
+ */
+@BenchmarkMode(Mode.Throughput)
+public class MimeTypeUtilsBenchmark {
+
+	@Benchmark
+	public void parseMimeType(MimeTypeState state, Blackhole bh) {
+		bh.consume(MimeTypeUtils.parseMimeType(state.mimeType));
+	}
+
+	@Benchmark
+	public void parseMimeTypes(Blackhole bh) {
+		bh.consume(MimeTypeUtils.parseMimeTypes(
+				"text/html, application/xhtml+xml, application/xml;q=0.9, */*;q=0.8"));
+	}
+
+
+	@State(Scope.Benchmark)
+	public static class MimeTypeState {
+
+		@Param({"text/plain", "application/json;charset=UTF-8",
+				"multipart/form-data; boundary=\"----WebKitFormBoundary7MA4YWxkTrZu0gW\""})
+		public String mimeType;
+	}
+
+}
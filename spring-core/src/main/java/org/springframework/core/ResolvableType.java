@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2019 the original author or authors.
+ * Copyright 2002-2020 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -93,6 +93,12 @@ public class ResolvableType implements Serializable {
 	private static final ConcurrentReferenceHashMap<ResolvableType, ResolvableType> cache =
 			new ConcurrentReferenceHashMap<>(256);
 
+	private static final ConcurrentReferenceHashMap<Class<?>, ResolvableType> classCache =
+			new ConcurrentReferenceHashMap<>(256);
+
+	private static final ConcurrentReferenceHashMap<Class<?>, ResolvableType> rawClassCache =
+			new ConcurrentReferenceHashMap<>(256);
+
 
 	/**
 	 * The underlying Java type being managed.
@@ -123,6 +129,13 @@ public class ResolvableType implements Serializable {
 	@Nullable
 	private Class<?> resolved;
 
+	/**
+	 * The canonical cached instance sharing supertype, interface and generics
+	 * information with this instance, or {@code null} if none.
+	 */
+	@Nullable
+	private transient ResolvableType canonicalType;
+
 	@Nullable
 	private volatile ResolvableType superType;
 
@@ -453,6 +466,10 @@ public class ResolvableType implements Serializable {
 		if (resolved == null || resolved.getGenericSuperclass() == null) {
 			return NONE;
 		}
+		ResolvableType canonicalType = this.canonicalType;
+		if (canonicalType != null) {
+			return canonicalType.getSuperType();
+		}
 		ResolvableType superType = this.superType;
 		if (superType == null) {
 			superType = forType(SerializableTypeWrapper.forGenericSuperclass(resolved), asVariableResolver());
@@ -472,6 +489,10 @@ public class ResolvableType implements Serializable {
 		if (resolved == null || resolved.getGenericInterfaces().length == 0) {
 			return EMPTY_TYPES_ARRAY;
 		}
+		ResolvableType canonicalType = this.canonicalType;
+		if (canonicalType != null) {
+			return canonicalType.getInterfaces();
+		}
 		ResolvableType[] interfaces = this.interfaces;
 		if (interfaces == null) {
 			interfaces = forTypes(SerializableTypeWrapper.forGenericInterfaces(resolved), asVariableResolver());
@@ -671,6 +692,10 @@ public class ResolvableType implements Serializable {
 		if (this == NONE) {
 			return EMPTY_TYPES_ARRAY;
 		}
+		ResolvableType canonicalType = this.canonicalType;
+		if (canonicalType != null) {
+			return canonicalType.getGenerics();
+		}
 		ResolvableType[] generics = this.generics;
 		if (generics == null) {
 			if (this.type instanceof Class) {
@@ -957,6 +982,8 @@ public class ResolvableType implements Serializable {
 	 * Return a {@link ResolvableType} for the specified {@link Class},
 	 * using the full generic type information for assignability checks.
 	 * For example: {@code ResolvableType.forClass(MyArrayList.class)}.
+	 * <p>As of 5.0.18, the returned instance is shared per class, so that its
+	 * supertype, interfaces and generics are only introspected once.
 	 * @param clazz the class to introspect ({@code null} is semantically
 	 * equivalent to {@code Object.class} for typical use cases here)
 	 * @return a {@link ResolvableType} for the specified class
@@ -964,7 +991,16 @@ public class ResolvableType implements Serializable {
 	 * @see #forClassWithGenerics(Class, Class...)
 	 */
 	public static ResolvableType forClass(@Nullable Class<?> clazz) {
-		return new ResolvableType(clazz);
+		Class<?> classToUse = (clazz != null ? clazz : Object.class);
+		ResolvableType resolvableType = classCache.get(classToUse);
+		if (resolvableType == null) {
+			resolvableType = new ResolvableType(classToUse);
+			ResolvableType existing = classCache.putIfAbsent(classToUse, resolvableType);
+			if (existing != null) {
+				resolvableType = existing;
+			}
+		}
+		return resolvableType;
 	}
 
 	/**
@@ -980,6 +1016,21 @@ public class ResolvableType implements Serializable {
 	 * @see #getRawClass()
 	 */
 	public static ResolvableType forRawClass(@Nullable Class<?> clazz) {
+		if (clazz == null) {
+			return createRawClassType(null);
+		}
+		ResolvableType resolvableType = rawClassCache.get(clazz);
+		if (resolvableType == null) {
+			resolvableType = createRawClassType(clazz);
+			ResolvableType existing = rawClassCache.putIfAbsent(clazz, resolvableType);
+			if (existing != null) {
+				resolvableType = existing;
+			}
+		}
+		return resolvableType;
+	}
+
+	private static ResolvableType createRawClassType(@Nullable Class<?> clazz) {
 		return new ResolvableType(clazz) {
 			@Override
 			public ResolvableType[] getGenerics() {
@@ -1391,6 +1442,9 @@ public class ResolvableType implements Serializable {
 		// For simple Class references, build the wrapper right away -
 		// no expensive resolution necessary, so not worth caching...
 		if (type instanceof Class) {
+			if (typeProvider == null && variableResolver == null) {
+				return forClass((Class<?>) type);
+			}
 			return new ResolvableType(type, typeProvider, variableResolver, (ResolvableType) null);
 		}
 
@@ -1405,6 +1459,8 @@ public class ResolvableType implements Serializable {
 			cache.put(cachedType, cachedType);
 		}
 		resultType.resolved = cachedType.resolved;
+		// Keep the given source but share the cached instance's generic structure...
+		resultType.canonicalType = cachedType;
 		return resultType;
 	}
 
@@ -1414,6 +1470,8 @@ public class ResolvableType implements Serializable {
 	 */
 	public static void clearCache() {
 		cache.clear();
+		classCache.clear();
+		rawClassCache.clear();
 		SerializableTypeWrapper.cache.clear();
 	}
 
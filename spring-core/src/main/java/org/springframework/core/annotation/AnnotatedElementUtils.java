@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2018 the original author or authors.
+ * Copyright 2002-2020 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -941,11 +941,14 @@ public class AnnotatedElementUtils {
 		}
 
 		// Recursively search in meta-annotations
+		boolean useMappings = canUseAnnotationTypeMappings(annotationType, annotationName, containerType, processor);
 		for (Annotation annotation : annotations) {
 			Class<? extends Annotation> currentAnnotationType = annotation.annotationType();
 			if (hasSearchableMetaAnnotations(currentAnnotationType, annotationType, annotationName)) {
-				T result = searchWithGetSemantics(currentAnnotationType, annotationType,
-						annotationName, containerType, processor, visited, metaDepth + 1);
+				T result = (useMappings ?
+						searchWithAnnotationTypeMappings(annotation, annotationType, annotationName, processor, metaDepth) :
+						searchWithGetSemantics(currentAnnotationType, annotationType,
+								annotationName, containerType, processor, visited, metaDepth + 1));
 				if (result != null) {
 					processor.postProcess(element, annotation, result);
 					if (processor.aggregates() && metaDepth == 0) {
@@ -1078,11 +1081,14 @@ public class AnnotatedElementUtils {
 					}
 
 					// Recursively search in meta-annotations
+					boolean useMappings = canUseAnnotationTypeMappings(annotationType, annotationName, containerType, processor);
 					for (Annotation annotation : annotations) {
 						Class<? extends Annotation> currentAnnotationType = annotation.annotationType();
 						if (hasSearchableMetaAnnotations(currentAnnotationType, annotationType, annotationName)) {
-							T result = searchWithFindSemantics(currentAnnotationType, annotationType, annotationName,
-									containerType, processor, visited, metaDepth + 1);
+							T result = (useMappings ?
+									searchWithAnnotationTypeMappings(annotation, annotationType, annotationName, processor, metaDepth) :
+									searchWithFindSemantics(currentAnnotationType, annotationType, annotationName,
+											containerType, processor, visited, metaDepth + 1));
 							if (result != null) {
 								processor.postProcess(currentAnnotationType, annotation, result);
 								if (aggregatedResults != null && metaDepth == 0) {
@@ -1206,6 +1212,74 @@ public class AnnotatedElementUtils {
 		return null;
 	}
 
+	/**
+	 * Determine whether meta-annotations can be searched using the precomputed
+	 * {@link AnnotationTypeMappings} rather than by recursive introspection.
+	 * <p>That is the case for processors which stop at the first target annotation
+	 * found, since the first target annotation within the meta-annotations of an
+	 * annotation type is always the same. Aggregating processors may depend on
+	 * annotation types visited before, and {@code java.*} target annotations may
+	 * be meta-present on annotation types that the mappings do not search.
+	 * @since 5.0.18
+	 */
+	private static boolean canUseAnnotationTypeMappings(@Nullable Class<? extends Annotation> annotationType,
+			@Nullable String annotationName, @Nullable Class<? extends Annotation> containerType,
+			Processor<?> processor) {
+
+		String targetName = (annotationType != null ? annotationType.getName() : annotationName);
+		if (targetName == null || targetName.startsWith("java") || containerType != null) {
+			return false;
+		}
+		return (processor == alwaysTrueAnnotationProcessor || (processor instanceof MergedAnnotationAttributesProcessor &&
+				!processor.aggregates()));
+	}
+
+	/**
+	 * Search the meta-annotations of the supplied annotation for the first target
+	 * annotation, following its precomputed path in the {@link AnnotationTypeMappings}
+	 * of the annotation's type, and {@linkplain Processor#postProcess post-process}
+	 * the result along that path, as the recursive search algorithms would do.
+	 * @param annotation the annotation whose meta-annotations to search
+	 * @param annotationType the annotation type to find
+	 * @param annotationName the fully qualified class name of the annotation
+	 * type to find (as an alternative to {@code annotationType})
+	 * @param processor the processor to delegate to
+	 * @param metaDepth the meta-depth of the supplied annotation
+	 * @return the result of the processor (potentially {@code null})
+	 * @since 5.0.18
+	 * @see #canUseAnnotationTypeMappings
+	 */
+	@Nullable
+	private static <T> T searchWithAnnotationTypeMappings(Annotation annotation,
+			@Nullable Class<? extends Annotation> annotationType, @Nullable String annotationName,
+			Processor<T> processor, int metaDepth) {
+
+		Class<? extends Annotation> currentAnnotationType = annotation.annotationType();
+		try {
+			AnnotationTypeMappings mappings = AnnotationTypeMappings.forAnnotationType(currentAnnotationType);
+			Annotation[] path = (annotationType != null ? mappings.getMetaAnnotationPath(annotationType) :
+					mappings.getMetaAnnotationPath(annotationName));
+			if (path == null) {
+				return null;
+			}
+			int targetIndex = path.length - 1;
+			AnnotatedElement declaringElement =
+					(targetIndex > 0 ? path[targetIndex - 1].annotationType() : currentAnnotationType);
+			T result = processor.process(declaringElement, path[targetIndex], metaDepth + path.length);
+			if (result != null) {
+				for (int i = targetIndex - 1; i >= 0; i--) {
+					declaringElement = (i > 0 ? path[i - 1].annotationType() : currentAnnotationType);
+					processor.postProcess(declaringElement, path[i], result);
+				}
+			}
+			return result;
+		}
+		catch (Throwable ex) {
+			AnnotationUtils.handleIntrospectionFailure(currentAnnotationType, ex);
+			return null;
+		}
+	}
+
 	/**
 	 * Determine whether the current annotation type is generally expected to have
 	 * meta-annotations of the specified annotation type that we're searching for,
@@ -1523,69 +1597,11 @@ public class AnnotatedElementUtils {
 
 		@Override
 		public void postProcess(@Nullable AnnotatedElement element, Annotation annotation, AnnotationAttributes attributes) {
-			annotation = AnnotationUtils.synthesizeAnnotation(annotation, element);
-			Class<? extends Annotation> targetAnnotationType = attributes.annotationType();
-
-			// Track which attribute values have already been replaced so that we can short
-			// circuit the search algorithms.
-			Set<String> valuesAlreadyReplaced = new HashSet<>();
-
-			for (Method attributeMethod : AnnotationUtils.getAttributeMethods(annotation.annotationType())) {
-				String attributeName = attributeMethod.getName();
-				String attributeOverrideName = AnnotationUtils.getAttributeOverrideName(attributeMethod, targetAnnotationType);
-
-				// Explicit annotation attribute override declared via @AliasFor
-				if (attributeOverrideName != null) {
-					if (valuesAlreadyReplaced.contains(attributeOverrideName)) {
-						continue;
-					}
-
-					List<String> targetAttributeNames = new ArrayList<>();
-					targetAttributeNames.add(attributeOverrideName);
-					valuesAlreadyReplaced.add(attributeOverrideName);
-
-					// Ensure all aliased attributes in the target annotation are overridden. (SPR-14069)
-					List<String> aliases = AnnotationUtils.getAttributeAliasMap(targetAnnotationType).get(attributeOverrideName);
-					if (aliases != null) {
-						for (String alias : aliases) {
-							if (!valuesAlreadyReplaced.contains(alias)) {
-								targetAttributeNames.add(alias);
-								valuesAlreadyReplaced.add(alias);
-							}
-						}
-					}
-
-					overrideAttributes(element, annotation, attributes, attributeName, targetAttributeNames);
-				}
-				// Implicit annotation attribute override based on convention
-				else if (!AnnotationUtils.VALUE.equals(attributeName) && attributes.containsKey(attributeName)) {
-					overrideAttribute(element, annotation, attributes, attributeName, attributeName);
-				}
-			}
-		}
-
-		private void overrideAttributes(@Nullable AnnotatedElement element, Annotation annotation,
-				AnnotationAttributes attributes, String sourceAttributeName, List<String> targetAttributeNames) {
-
-			Object adaptedValue = getAdaptedValue(element, annotation, sourceAttributeName);
-
-			for (String targetAttributeName : targetAttributeNames) {
-				attributes.put(targetAttributeName, adaptedValue);
-			}
-		}
-
-		private void overrideAttribute(@Nullable AnnotatedElement element, Annotation annotation,
-				AnnotationAttributes attributes, String sourceAttributeName, String targetAttributeName) {
-
-			attributes.put(targetAttributeName, getAdaptedValue(element, annotation, sourceAttributeName));
-		}
-
-		@Nullable
-		private Object getAdaptedValue(
-				@Nullable AnnotatedElement element, Annotation annotation, String sourceAttributeName) {
-
-			Object value = AnnotationUtils.getValue(annotation, sourceAttributeName);
-			return AnnotationUtils.adaptValue(element, value, this.classValuesAsString, this.nestedAnnotationsAsMap);
+			// Explicit overrides declared via @AliasFor and implicit overrides based on
+			// convention, precomputed per annotation type and target annotation type
+			AnnotationTypeMappings.forAnnotationType(annotation.annotationType())
+					.getAttributeOverrides(attributes.annotationType())
+					.apply(element, annotation, attributes, this.classValuesAsString, this.nestedAnnotationsAsMap);
 		}
 	}
 
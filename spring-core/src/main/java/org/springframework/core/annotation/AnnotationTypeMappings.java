@@ -0,0 +1,362 @@
+/*
+ * Copyright 2002-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.core.annotation;
+
+import java.lang.annotation.Annotation;
+import java.lang.reflect.AnnotatedElement;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.springframework.lang.Nullable;
+import org.springframework.util.ConcurrentReferenceHashMap;
+import org.springframework.util.ObjectUtils;
+
+/**
+ * Precomputed model of the meta-annotation hierarchy of an annotation type,
+ * built once per annotation type and shared by all merged annotation lookups.
+ *
+ * <p>Provides the meta-annotation path to every annotation type that is
+ * meta-present on the annotation type, in the order that the search
+ * algorithms in {@link AnnotatedElementUtils} would find them, as well
+ * as the {@link AliasFor @AliasFor} and convention-based overrides of the
+ * annotation type's attributes for each meta-annotation type.
+ *
+ * @since 5.0.18
+ * @see AnnotatedElementUtils
+ */
+final class AnnotationTypeMappings {
+
+	/** Mappings per annotation type, softly referenced */
+	private static final Map<Class<? extends Annotation>, AnnotationTypeMappings> cache =
+			new ConcurrentReferenceHashMap<>(256);
+
+
+	private final Class<? extends Annotation> annotationType;
+
+	@Nullable
+	private volatile MetaAnnotations metaAnnotations;
+
+	private final Map<Class<? extends Annotation>, AttributeOverrides> attributeOverrides =
+			new ConcurrentHashMap<>(8);
+
+
+	private AnnotationTypeMappings(Class<? extends Annotation> annotationType) {
+		this.annotationType = annotationType;
+	}
+
+
+	/**
+	 * Return the path to the first meta-annotation of the given type, starting
+	 * with the meta-annotation declared on this annotation type and ending with
+	 * the meta-annotation of the given type, or {@code null} if not meta-present.
+	 * <p>Meta-annotations on standard Java and {@link Nullable} annotations are
+	 * not searched, so the result does not apply to {@code java.*} target types.
+	 */
+	@Nullable
+	Annotation[] getMetaAnnotationPath(Class<? extends Annotation> metaAnnotationType) {
+		return getMetaAnnotations().byType.get(metaAnnotationType);
+	}
+
+	/**
+	 * Return the path to the first meta-annotation with the given type name.
+	 * @see #getMetaAnnotationPath(Class)
+	 */
+	@Nullable
+	Annotation[] getMetaAnnotationPath(String metaAnnotationName) {
+		return getMetaAnnotations().byName.get(metaAnnotationName);
+	}
+
+	private MetaAnnotations getMetaAnnotations() {
+		MetaAnnotations metaAnnotations = this.metaAnnotations;
+		if (metaAnnotations == null) {
+			metaAnnotations = new MetaAnnotations(this.annotationType);
+			this.metaAnnotations = metaAnnotations;
+		}
+		return metaAnnotations;
+	}
+
+	/**
+	 * Return the overrides that attributes of this annotation type apply to
+	 * attributes of the given meta-annotation type.
+	 */
+	AttributeOverrides getAttributeOverrides(Class<? extends Annotation> metaAnnotationType) {
+		AttributeOverrides overrides = this.attributeOverrides.get(metaAnnotationType);
+		if (overrides == null) {
+			overrides = new AttributeOverrides(this.annotationType, metaAnnotationType);
+			this.attributeOverrides.put(metaAnnotationType, overrides);
+		}
+		return overrides;
+	}
+
+
+	/**
+	 * Return the mappings for the given annotation type.
+	 */
+	static AnnotationTypeMappings forAnnotationType(Class<? extends Annotation> annotationType) {
+		AnnotationTypeMappings mappings = cache.get(annotationType);
+		if (mappings == null) {
+			mappings = new AnnotationTypeMappings(annotationType);
+			AnnotationTypeMappings existing = cache.putIfAbsent(annotationType, mappings);
+			if (existing != null) {
+				mappings = existing;
+			}
+		}
+		return mappings;
+	}
+
+	/**
+	 * Clear the cache of annotation type mappings.
+	 */
+	static void clearCache() {
+		cache.clear();
+	}
+
+	/**
+	 * Determine whether the meta-annotations of the given annotation type get
+	 * searched for a non-{@code java.*} annotation type.
+	 * @see AnnotatedElementUtils#hasSearchableMetaAnnotations
+	 */
+	static boolean hasSearchableMetaAnnotations(Class<? extends Annotation> annotationType) {
+		return (!AnnotationUtils.isInJavaLangAnnotationPackage(annotationType) &&
+				annotationType != Nullable.class && !annotationType.getName().startsWith("java"));
+	}
+
+
+	/**
+	 * The meta-annotation paths of an annotation type, by meta-annotation type.
+	 */
+	private static final class MetaAnnotations {
+
+		final Map<Class<? extends Annotation>, Annotation[]> byType = new LinkedHashMap<>();
+
+		final Map<String, Annotation[]> byName = new LinkedHashMap<>();
+
+		MetaAnnotations(Class<? extends Annotation> annotationType) {
+			addMetaAnnotations(annotationType, new Annotation[0], new HashSet<>());
+		}
+
+		/**
+		 * Walk the meta-annotations in the same order as the search algorithms in
+		 * {@link AnnotatedElementUtils}: the meta-annotations of an annotation type
+		 * come first, then their own meta-annotations, depth first. Only the first
+		 * path to each meta-annotation type is kept.
+		 */
+		private void addMetaAnnotations(Class<? extends Annotation> annotationType, Annotation[] path,
+				Set<Class<?>> visited) {
+
+			if (!visited.add(annotationType)) {
+				return;
+			}
+			Annotation[] metaAnnotations;
+			try {
+				metaAnnotations = annotationType.getDeclaredAnnotations();
+			}
+			catch (Throwable ex) {
+				AnnotationUtils.handleIntrospectionFailure(annotationType, ex);
+				return;
+			}
+			Annotation[][] metaAnnotationPaths = new Annotation[metaAnnotations.length][];
+			for (int i = 0; i < metaAnnotations.length; i++) {
+				Class<? extends Annotation> metaAnnotationType = metaAnnotations[i].annotationType();
+				metaAnnotationPaths[i] = Arrays.copyOf(path, path.length + 1);
+				metaAnnotationPaths[i][path.length] = metaAnnotations[i];
+				if (!AnnotationUtils.isInJavaLangAnnotationPackage(metaAnnotationType)) {
+					this.byType.putIfAbsent(metaAnnotationType, metaAnnotationPaths[i]);
+					this.byName.putIfAbsent(metaAnnotationType.getName(), metaAnnotationPaths[i]);
+				}
+			}
+			for (int i = 0; i < metaAnnotations.length; i++) {
+				Class<? extends Annotation> metaAnnotationType = metaAnnotations[i].annotationType();
+				if (hasSearchableMetaAnnotations(metaAnnotationType)) {
+					addMetaAnnotations(metaAnnotationType, metaAnnotationPaths[i], visited);
+				}
+			}
+		}
+	}
+
+
+	/**
+	 * The attribute values that an annotation overrides in the merged attributes
+	 * of a meta-annotation: explicitly via {@link AliasFor @AliasFor}, or implicitly
+	 * by attribute name convention (except for {@code value}).
+	 */
+	static final class AttributeOverrides {
+
+		private final AttributeOverride[] overrides;
+
+		AttributeOverrides(Class<? extends Annotation> annotationType, Class<? extends Annotation> metaAnnotationType) {
+			Map<String, List<String>> aliasMap = AnnotationUtils.getAttributeAliasMap(annotationType);
+			Set<String> metaAttributeNames = new HashSet<>();
+			for (Method metaAttributeMethod : AnnotationUtils.getAttributeMethods(metaAnnotationType)) {
+				metaAttributeNames.add(metaAttributeMethod.getName());
+			}
+
+			// Track which attribute values have already been replaced
+			Set<String> valuesAlreadyReplaced = new HashSet<>();
+			List<AttributeOverride> overrides = new ArrayList<>();
+
+			for (Method attributeMethod : AnnotationUtils.getAttributeMethods(annotationType)) {
+				String attributeName = attributeMethod.getName();
+				String attributeOverrideName = AnnotationUtils.getAttributeOverrideName(attributeMethod, metaAnnotationType);
+
+				// Explicit annotation attribute override declared via @AliasFor
+				if (attributeOverrideName != null) {
+					if (valuesAlreadyReplaced.contains(attributeOverrideName)) {
+						continue;
+					}
+					List<String> targetAttributeNames = new ArrayList<>();
+					targetAttributeNames.add(attributeOverrideName);
+					valuesAlreadyReplaced.add(attributeOverrideName);
+
+					// Ensure all aliased attributes in the target annotation are overridden. (SPR-14069)
+					List<String> aliases = AnnotationUtils.getAttributeAliasMap(metaAnnotationType).get(attributeOverrideName);
+					if (aliases != null) {
+						for (String alias : aliases) {
+							if (valuesAlreadyReplaced.add(alias)) {
+								targetAttributeNames.add(alias);
+							}
+						}
+					}
+					overrides.add(new AttributeOverride(
+							annotationType, attributeMethod, aliasMap.get(attributeName), targetAttributeNames));
+				}
+				// Implicit annotation attribute override based on convention
+				else if (!AnnotationUtils.VALUE.equals(attributeName) && metaAttributeNames.contains(attributeName)) {
+					overrides.add(new AttributeOverride(annotationType, attributeMethod,
+							aliasMap.get(attributeName), Collections.singletonList(attributeName)));
+				}
+			}
+			this.overrides = overrides.toArray(new AttributeOverride[0]);
+		}
+
+		/**
+		 * Apply the attribute values of the given annotation to the given
+		 * merged attributes of the meta-annotation.
+		 */
+		void apply(@Nullable AnnotatedElement element, Annotation annotation, AnnotationAttributes attributes,
+				boolean classValuesAsString, boolean nestedAnnotationsAsMap) {
+
+			for (AttributeOverride override : this.overrides) {
+				Object value = AnnotationUtils.adaptValue(element, override.getValue(element, annotation),
+						classValuesAsString, nestedAnnotationsAsMap);
+				for (String targetAttributeName : override.targetAttributeNames) {
+					attributes.put(targetAttributeName, value);
+				}
+			}
+		}
+	}
+
+
+	/**
+	 * A single attribute override, reading the attribute value with the same
+	 * {@link AliasFor @AliasFor} semantics as a synthesized annotation would.
+	 */
+	private static final class AttributeOverride {
+
+		private final Class<? extends Annotation> annotationType;
+
+		private final Method attributeMethod;
+
+		@Nullable
+		private final Method[] aliasMethods;
+
+		@Nullable
+		private final Object defaultValue;
+
+		final String[] targetAttributeNames;
+
+		AttributeOverride(Class<? extends Annotation> annotationType, Method attributeMethod,
+				@Nullable List<String> aliasNames, List<String> targetAttributeNames) {
+
+			this.annotationType = annotationType;
+			this.attributeMethod = attributeMethod;
+			if (aliasNames != null) {
+				this.aliasMethods = new Method[aliasNames.size()];
+				List<Method> attributeMethods = AnnotationUtils.getAttributeMethods(annotationType);
+				for (int i = 0; i < this.aliasMethods.length; i++) {
+					for (Method candidate : attributeMethods) {
+						if (candidate.getName().equals(aliasNames.get(i))) {
+							this.aliasMethods[i] = candidate;
+						}
+					}
+				}
+				this.defaultValue = attributeMethod.getDefaultValue();
+			}
+			else {
+				this.aliasMethods = null;
+				this.defaultValue = null;
+			}
+			this.targetAttributeNames = targetAttributeNames.toArray(new String[0]);
+		}
+
+		@Nullable
+		Object getValue(@Nullable AnnotatedElement element, Annotation annotation) {
+			Object value = invoke(this.attributeMethod, annotation);
+			if (this.aliasMethods != null) {
+				for (Method aliasMethod : this.aliasMethods) {
+					Object aliasValue = invoke(aliasMethod, annotation);
+					if (!ObjectUtils.nullSafeEquals(value, aliasValue) &&
+							!ObjectUtils.nullSafeEquals(value, this.defaultValue) &&
+							!ObjectUtils.nullSafeEquals(aliasValue, this.defaultValue)) {
+						String elementName = (element != null ? element.toString() : "unknown element");
+						throw new AnnotationConfigurationException(String.format(
+								"In annotation [%s] declared on %s and synthesized from [%s], attribute '%s' and its " +
+								"alias '%s' are present with values of [%s] and [%s], but only one is permitted.",
+								this.annotationType.getName(), elementName, annotation, this.attributeMethod.getName(),
+								aliasMethod.getName(), ObjectUtils.nullSafeToString(value),
+								ObjectUtils.nullSafeToString(aliasValue)));
+					}
+					// If the user didn't declare the annotation with an explicit value,
+					// use the value of the alias instead.
+					if (ObjectUtils.nullSafeEquals(value, this.defaultValue)) {
+						value = aliasValue;
+					}
+				}
+			}
+			return value;
+		}
+
+		@Nullable
+		private static Object invoke(@Nullable Method method, Annotation annotation) {
+			if (method == null) {
+				return null;
+			}
+			try {
+				return method.invoke(annotation);
+			}
+			catch (InvocationTargetException ex) {
+				AnnotationUtils.rethrowAnnotationConfigurationException(ex.getTargetException());
+				throw new IllegalStateException("Could not obtain value for annotation attribute '" +
+						method.getName() + "' in " + annotation, ex);
+			}
+			catch (Throwable ex) {
+				AnnotationUtils.handleIntrospectionFailure(annotation.getClass(), ex);
+				return null;
+			}
+		}
+	}
+
+}
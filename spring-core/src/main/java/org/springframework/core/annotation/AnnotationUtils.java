@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2019 the original author or authors.
+ * Copyright 2002-2020 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -20,7 +20,6 @@ import java.lang.annotation.Annotation;
 import java.lang.annotation.Repeatable;
 import java.lang.reflect.AnnotatedElement;
 import java.lang.reflect.Array;
-import java.lang.reflect.InvocationHandler;
 import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
 import java.lang.reflect.Modifier;
@@ -1551,7 +1550,11 @@ public abstract class AnnotationUtils {
 
 		DefaultAnnotationAttributeExtractor attributeExtractor =
 				new DefaultAnnotationAttributeExtractor(annotation, annotatedElement);
-		InvocationHandler handler = new SynthesizedAnnotationInvocationHandler(attributeExtractor);
+		SynthesizedAnnotationInvocationHandler handler = new SynthesizedAnnotationInvocationHandler(attributeExtractor);
+		A synthesized = (A) SynthesizedAnnotationClassGenerator.synthesize(handler, annotationType);
+		if (synthesized != null) {
+			return synthesized;
+		}
 
 		// Can always expose Spring's SynthesizedAnnotation marker since we explicitly check for a
 		// synthesizable annotation before (which needs to declare @AliasFor from the same package)
@@ -1594,7 +1597,11 @@ public abstract class AnnotationUtils {
 
 		MapAnnotationAttributeExtractor attributeExtractor =
 				new MapAnnotationAttributeExtractor(attributes, annotationType, annotatedElement);
-		InvocationHandler handler = new SynthesizedAnnotationInvocationHandler(attributeExtractor);
+		SynthesizedAnnotationInvocationHandler handler = new SynthesizedAnnotationInvocationHandler(attributeExtractor);
+		A synthesized = SynthesizedAnnotationClassGenerator.synthesize(handler, annotationType);
+		if (synthesized != null) {
+			return synthesized;
+		}
 		Class<?>[] exposedInterfaces = (canExposeSynthesizedMarker(annotationType) ?
 				new Class<?>[] {annotationType, SynthesizedAnnotation.class} : new Class<?>[] {annotationType});
 		return (A) Proxy.newProxyInstance(annotationType.getClassLoader(), exposedInterfaces, handler);
@@ -1969,6 +1976,8 @@ public abstract class AnnotationUtils {
 		attributeAliasesCache.clear();
 		attributeMethodsCache.clear();
 		aliasDescriptorCache.clear();
+		AnnotationTypeMappings.clearCache();
+		SynthesizedAnnotationClassGenerator.clearCache();
 	}
 
 
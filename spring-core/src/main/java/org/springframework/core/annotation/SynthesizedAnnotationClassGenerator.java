@@ -0,0 +1,457 @@
+/*
+ * Copyright 2002-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.core.annotation;
+
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.List;
+import java.util.Map;
+import java.util.function.IntFunction;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import org.springframework.asm.ClassWriter;
+import org.springframework.asm.Label;
+import org.springframework.asm.MethodVisitor;
+import org.springframework.asm.Opcodes;
+import org.springframework.asm.Type;
+import org.springframework.core.SpringProperties;
+import org.springframework.lang.Nullable;
+import org.springframework.util.ConcurrentReferenceHashMap;
+
+/**
+ * Generates a concrete implementation class per annotation type for
+ * <em>synthesized</em> annotations, as an alternative to JDK dynamic proxies
+ * backed by a {@link SynthesizedAnnotationInvocationHandler}.
+ *
+ * <p>A generated class keeps each attribute value in a field of its own, resolved
+ * through the {@link AnnotationAttributeExtractor} on first access. Attribute
+ * access is therefore a field read (plus an array clone for array values), and
+ * {@code equals} and {@code hashCode} are implemented per annotation type.
+ *
+ * <p>Classes are only generated for public annotation types with public attribute
+ * types, in a child class loader of the annotation type's class loader. Otherwise,
+ * or if the {@value #IGNORE_BYTECODE_PROPERTY_NAME} property is set to "true",
+ * synthesized annotations remain JDK dynamic proxies.
+ *
+ * @since 5.0.18
+ * @see AnnotationUtils#synthesizeAnnotation(Annotation, java.lang.reflect.AnnotatedElement)
+ */
+final class SynthesizedAnnotationClassGenerator implements Opcodes {
+
+	/**
+	 * System property that instructs Spring to synthesize annotations as
+	 * JDK dynamic proxies instead of generating implementation classes.
+	 * @see SpringProperties
+	 */
+	public static final String IGNORE_BYTECODE_PROPERTY_NAME = "spring.annotation.bytecode.ignore";
+
+	private static final boolean shouldIgnoreBytecode = SpringProperties.getFlag(IGNORE_BYTECODE_PROPERTY_NAME);
+
+	private static final String CLASS_NAME_SUFFIX = "$$SynthesizedAnnotation";
+
+	private static final String VALUES_FIELD = "$values";
+
+	private static final String HASH_CODE_FIELD = "$hashCode";
+
+	private static final String INT_FUNCTION = Type.getInternalName(IntFunction.class);
+
+	private static final String OBJECT = Type.getInternalName(Object.class);
+
+	private static final Log logger = LogFactory.getLog(SynthesizedAnnotationClassGenerator.class);
+
+	/** Generated constructors per annotation type, or NOT_GENERATED if proxies are to be used */
+	private static final Map<Class<? extends Annotation>, Object> constructorCache =
+			new ConcurrentReferenceHashMap<>(64);
+
+	/** Child class loaders per annotation type class loader */
+	private static final Map<ClassLoader, SynthesizedAnnotationClassLoader> classLoaders =
+			new ConcurrentReferenceHashMap<>(16);
+
+	private static final Object NOT_GENERATED = new Object();
+
+
+	private SynthesizedAnnotationClassGenerator() {
+	}
+
+
+	/**
+	 * Create a synthesized annotation for the given attribute extractor, as an
+	 * instance of the generated implementation class for its annotation type.
+	 * @param handler the invocation handler that a JDK dynamic proxy would use,
+	 * resolving and caching attribute values
+	 * @param annotationType the annotation type to synthesize
+	 * @return the synthesized annotation, or {@code null} if no implementation
+	 * class can be generated for the given annotation type
+	 */
+	@Nullable
+	@SuppressWarnings("unchecked")
+	static <A extends Annotation> A synthesize(SynthesizedAnnotationInvocationHandler handler,
+			Class<A> annotationType) {
+
+		if (shouldIgnoreBytecode) {
+			return null;
+		}
+		Object constructor = constructorCache.get(annotationType);
+		if (constructor == null) {
+			constructor = generateClass(annotationType);
+			constructorCache.put(annotationType, constructor);
+		}
+		if (constructor == NOT_GENERATED) {
+			return null;
+		}
+		try {
+			return (A) ((Constructor<?>) constructor).newInstance(
+					new AttributeValues(handler, AnnotationUtils.getAttributeMethods(annotationType)));
+		}
+		catch (Throwable ex) {
+			throw new IllegalStateException("Failed to instantiate synthesized annotation class for " + annotationType, ex);
+		}
+	}
+
+	/**
+	 * Clear the cache of generated classes.
+	 */
+	static void clearCache() {
+		constructorCache.clear();
+		classLoaders.clear();
+	}
+
+
+	private static Object generateClass(Class<? extends Annotation> annotationType) {
+		ClassLoader parent = annotationType.getClassLoader();
+		List<Method> attributeMethods = AnnotationUtils.getAttributeMethods(annotationType);
+		if (parent == null || annotationType.getName().startsWith("java") ||
+				!isPublic(annotationType) || !isVisible(parent)) {
+			return NOT_GENERATED;
+		}
+		for (Method attributeMethod : attributeMethods) {
+			if (!isPublic(attributeMethod.getReturnType())) {
+				return NOT_GENERATED;
+			}
+		}
+		try {
+			String className = annotationType.getName() + CLASS_NAME_SUFFIX;
+			byte[] bytes = generateBytecode(className.replace('.', '/'), annotationType, attributeMethods);
+			SynthesizedAnnotationClassLoader classLoader =
+					classLoaders.computeIfAbsent(parent, SynthesizedAnnotationClassLoader::new);
+			Class<?> generatedClass = classLoader.defineClass(className, bytes);
+			return generatedClass.getConstructor(IntFunction.class);
+		}
+		catch (Throwable ex) {
+			if (logger.isDebugEnabled()) {
+				logger.debug("Failed to generate synthesized annotation class for " + annotationType +
+						" - falling back to JDK dynamic proxy", ex);
+			}
+			return NOT_GENERATED;
+		}
+	}
+
+	private static boolean isPublic(Class<?> type) {
+		while (type.isArray()) {
+			type = type.getComponentType();
+		}
+		return (type.isPrimitive() || Modifier.isPublic(type.getModifiers()));
+	}
+
+	private static boolean isVisible(ClassLoader classLoader) {
+		try {
+			return (Class.forName(SynthesizedAnnotation.class.getName(), false, classLoader) ==
+					SynthesizedAnnotation.class &&
+					Class.forName(IntFunction.class.getName(), false, classLoader) == IntFunction.class);
+		}
+		catch (ClassNotFoundException ex) {
+			return false;
+		}
+	}
+
+	private static byte[] generateBytecode(String internalName, Class<? extends Annotation> annotationType,
+			List<Method> attributeMethods) {
+
+		ClassWriter cw = new ClassWriter(ClassWriter.COMPUTE_MAXS | ClassWriter.COMPUTE_FRAMES) {
+			@Override
+			protected String getCommonSuperClass(String type1, String type2) {
+				return OBJECT;
+			}
+		};
+		String annotationTypeName = Type.getInternalName(annotationType);
+		cw.visit(V1_8, ACC_PUBLIC | ACC_FINAL | ACC_SUPER | ACC_SYNTHETIC, internalName, null, OBJECT,
+				new String[] {annotationTypeName, Type.getInternalName(SynthesizedAnnotation.class)});
+
+		cw.visitField(ACC_PRIVATE | ACC_FINAL, VALUES_FIELD, "L" + INT_FUNCTION + ";", null, null).visitEnd();
+		cw.visitField(ACC_PRIVATE, HASH_CODE_FIELD, "I", null, null).visitEnd();
+		for (Method attributeMethod : attributeMethods) {
+			cw.visitField(ACC_PRIVATE | ACC_VOLATILE, attributeMethod.getName(), "Ljava/lang/Object;", null, null)
+					.visitEnd();
+		}
+
+		generateConstructor(cw, internalName);
+		for (int i = 0; i < attributeMethods.size(); i++) {
+			generateAttributeMethods(cw, internalName, attributeMethods.get(i), i);
+		}
+		generateAnnotationType(cw, annotationType);
+		generateEquals(cw, internalName, annotationTypeName, attributeMethods);
+		generateHashCode(cw, internalName, attributeMethods);
+		generateToString(cw, internalName);
+
+		cw.visitEnd();
+		return cw.toByteArray();
+	}
+
+	private static void generateConstructor(ClassWriter cw, String internalName) {
+		MethodVisitor mv = cw.visitMethod(ACC_PUBLIC, "<init>", "(L" + INT_FUNCTION + ";)V", null, null);
+		mv.visitCode();
+		mv.visitVarInsn(ALOAD, 0);
+		mv.visitMethodInsn(INVOKESPECIAL, OBJECT, "<init>", "()V", false);
+		mv.visitVarInsn(ALOAD, 0);
+		mv.visitVarInsn(ALOAD, 1);
+		mv.visitFieldInsn(PUTFIELD, internalName, VALUES_FIELD, "L" + INT_FUNCTION + ";");
+		mv.visitInsn(RETURN);
+		mv.visitMaxs(0, 0);
+		mv.visitEnd();
+	}
+
+	/**
+	 * Generate a private {@code $name()} method that returns the resolved value
+	 * (resolving and storing it on first access), and the public attribute method
+	 * that unboxes or clones that value.
+	 */
+	private static void generateAttributeMethods(ClassWriter cw, String internalName, Method attributeMethod, int index) {
+		String name = attributeMethod.getName();
+		MethodVisitor mv = cw.visitMethod(ACC_PRIVATE, "$" + name, "()Ljava/lang/Object;", null, null);
+		mv.visitCode();
+		Label resolved = new Label();
+		mv.visitVarInsn(ALOAD, 0);
+		mv.visitFieldInsn(GETFIELD, internalName, name, "Ljava/lang/Object;");
+		mv.visitVarInsn(ASTORE, 1);
+		mv.visitVarInsn(ALOAD, 1);
+		mv.visitJumpInsn(IFNONNULL, resolved);
+		mv.visitVarInsn(ALOAD, 0);
+		mv.visitFieldInsn(GETFIELD, internalName, VALUES_FIELD, "L" + INT_FUNCTION + ";");
+		mv.visitLdcInsn(index);
+		mv.visitMethodInsn(INVOKEINTERFACE, INT_FUNCTION, "apply", "(I)Ljava/lang/Object;", true);
+		mv.visitVarInsn(ASTORE, 1);
+		mv.visitVarInsn(ALOAD, 0);
+		mv.visitVarInsn(ALOAD, 1);
+		mv.visitFieldInsn(PUTFIELD, internalName, name, "Ljava/lang/Object;");
+		mv.visitLabel(resolved);
+		mv.visitVarInsn(ALOAD, 1);
+		mv.visitInsn(ARETURN);
+		mv.visitMaxs(0, 0);
+		mv.visitEnd();
+
+		Type returnType = Type.getReturnType(attributeMethod);
+		mv = cw.visitMethod(ACC_PUBLIC, name, Type.getMethodDescriptor(attributeMethod), null, null);
+		mv.visitCode();
+		mv.visitVarInsn(ALOAD, 0);
+		mv.visitMethodInsn(INVOKESPECIAL, internalName, "$" + name, "()Ljava/lang/Object;", false);
+		if (returnType.getSort() == Type.ARRAY) {
+			// Clone arrays so that users cannot alter the contents of the stored value.
+			mv.visitTypeInsn(CHECKCAST, returnType.getDescriptor());
+			mv.visitMethodInsn(INVOKEVIRTUAL, returnType.getDescriptor(), "clone", "()Ljava/lang/Object;", false);
+			mv.visitTypeInsn(CHECKCAST, returnType.getDescriptor());
+		}
+		else if (returnType.getSort() != Type.OBJECT) {
+			Type boxedType = getBoxedType(returnType);
+			mv.visitTypeInsn(CHECKCAST, boxedType.getInternalName());
+			mv.visitMethodInsn(INVOKEVIRTUAL, boxedType.getInternalName(),
+					returnType.getClassName() + "Value", "()" + returnType.getDescriptor(), false);
+		}
+		else {
+			mv.visitTypeInsn(CHECKCAST, returnType.getInternalName());
+		}
+		mv.visitInsn(returnType.getOpcode(IRETURN));
+		mv.visitMaxs(0, 0);
+		mv.visitEnd();
+	}
+
+	private static void generateAnnotationType(ClassWriter cw, Class<? extends Annotation> annotationType) {
+		MethodVisitor mv = cw.visitMethod(ACC_PUBLIC, "annotationType", "()Ljava/lang/Class;", null, null);
+		mv.visitCode();
+		mv.visitLdcInsn(Type.getType(annotationType));
+		mv.visitInsn(ARETURN);
+		mv.visitMaxs(0, 0);
+		mv.visitEnd();
+	}
+
+	/**
+	 * See {@link Annotation#equals(Object)} for a definition of the required algorithm.
+	 */
+	private static void generateEquals(ClassWriter cw, String internalName, String annotationTypeName,
+			List<Method> attributeMethods) {
+
+		MethodVisitor mv = cw.visitMethod(ACC_PUBLIC, "equals", "(Ljava/lang/Object;)Z", null, null);
+		mv.visitCode();
+		Label notSame = new Label();
+		mv.visitVarInsn(ALOAD, 0);
+		mv.visitVarInsn(ALOAD, 1);
+		mv.visitJumpInsn(IF_ACMPNE, notSame);
+		mv.visitInsn(ICONST_1);
+		mv.visitInsn(IRETURN);
+		mv.visitLabel(notSame);
+		Label notEqual = new Label();
+		mv.visitVarInsn(ALOAD, 1);
+		mv.visitTypeInsn(INSTANCEOF, annotationTypeName);
+		mv.visitJumpInsn(IFEQ, notEqual);
+		for (Method attributeMethod : attributeMethods) {
+			Type returnType = Type.getReturnType(attributeMethod);
+			mv.visitVarInsn(ALOAD, 0);
+			mv.visitMethodInsn(INVOKESPECIAL, internalName, "$" + attributeMethod.getName(),
+					"()Ljava/lang/Object;", false);
+			mv.visitVarInsn(ALOAD, 1);
+			mv.visitTypeInsn(CHECKCAST, annotationTypeName);
+			mv.visitMethodInsn(INVOKEINTERFACE, annotationTypeName, attributeMethod.getName(),
+					Type.getMethodDescriptor(attributeMethod), true);
+			if (returnType.getSort() != Type.ARRAY && returnType.getSort() != Type.OBJECT) {
+				Type boxedType = getBoxedType(returnType);
+				mv.visitMethodInsn(INVOKESTATIC, boxedType.getInternalName(), "valueOf",
+						"(" + returnType.getDescriptor() + ")" + boxedType.getDescriptor(), false);
+			}
+			mv.visitMethodInsn(INVOKESTATIC, "java/util/Objects", "deepEquals",
+					"(Ljava/lang/Object;Ljava/lang/Object;)Z", false);
+			mv.visitJumpInsn(IFEQ, notEqual);
+		}
+		mv.visitInsn(ICONST_1);
+		mv.visitInsn(IRETURN);
+		mv.visitLabel(notEqual);
+		mv.visitInsn(ICONST_0);
+		mv.visitInsn(IRETURN);
+		mv.visitMaxs(0, 0);
+		mv.visitEnd();
+	}
+
+	/**
+	 * See {@link Annotation#hashCode()} for a definition of the required algorithm.
+	 */
+	private static void generateHashCode(ClassWriter cw, String internalName, List<Method> attributeMethods) {
+		MethodVisitor mv = cw.visitMethod(ACC_PUBLIC, "hashCode", "()I", null, null);
+		mv.visitCode();
+		Label compute = new Label();
+		mv.visitVarInsn(ALOAD, 0);
+		mv.visitFieldInsn(GETFIELD, internalName, HASH_CODE_FIELD, "I");
+		mv.visitVarInsn(ISTORE, 1);
+		mv.visitVarInsn(ILOAD, 1);
+		mv.visitJumpInsn(IFEQ, compute);
+		mv.visitVarInsn(ILOAD, 1);
+		mv.visitInsn(IRETURN);
+		mv.visitLabel(compute);
+		mv.visitInsn(ICONST_0);
+		for (Method attributeMethod : attributeMethods) {
+			Type returnType = Type.getReturnType(attributeMethod);
+			mv.visitLdcInsn(127 * attributeMethod.getName().hashCode());
+			mv.visitVarInsn(ALOAD, 0);
+			mv.visitMethodInsn(INVOKESPECIAL, internalName, "$" + attributeMethod.getName(),
+					"()Ljava/lang/Object;", false);
+			if (returnType.getSort() == Type.ARRAY) {
+				// Arrays.hashCode complies with Annotation#hashCode, unlike ObjectUtils.nullSafeHashCode
+				Type elementType = returnType.getElementType();
+				String arrayDescriptor = (returnType.getDimensions() == 1 && elementType.getSort() != Type.OBJECT ?
+						returnType.getDescriptor() : "[Ljava/lang/Object;");
+				mv.visitTypeInsn(CHECKCAST, arrayDescriptor);
+				mv.visitMethodInsn(INVOKESTATIC, "java/util/Arrays", "hashCode", "(" + arrayDescriptor + ")I", false);
+			}
+			else {
+				mv.visitMethodInsn(INVOKEVIRTUAL, OBJECT, "hashCode", "()I", false);
+			}
+			mv.visitInsn(IXOR);
+			mv.visitInsn(IADD);
+		}
+		mv.visitVarInsn(ISTORE, 1);
+		mv.visitVarInsn(ALOAD, 0);
+		mv.visitVarInsn(ILOAD, 1);
+		mv.visitFieldInsn(PUTFIELD, internalName, HASH_CODE_FIELD, "I");
+		mv.visitVarInsn(ILOAD, 1);
+		mv.visitInsn(IRETURN);
+		mv.visitMaxs(0, 0);
+		mv.visitEnd();
+	}
+
+	private static void generateToString(ClassWriter cw, String internalName) {
+		MethodVisitor mv = cw.visitMethod(ACC_PUBLIC, "toString", "()Ljava/lang/String;", null, null);
+		mv.visitCode();
+		mv.visitVarInsn(ALOAD, 0);
+		mv.visitFieldInsn(GETFIELD, internalName, VALUES_FIELD, "L" + INT_FUNCTION + ";");
+		mv.visitMethodInsn(INVOKEVIRTUAL, OBJECT, "toString", "()Ljava/lang/String;", false);
+		mv.visitInsn(ARETURN);
+		mv.visitMaxs(0, 0);
+		mv.visitEnd();
+	}
+
+	private static Type getBoxedType(Type primitiveType) {
+		switch (primitiveType.getSort()) {
+			case Type.BOOLEAN: return Type.getType(Boolean.class);
+			case Type.CHAR: return Type.getType(Character.class);
+			case Type.BYTE: return Type.getType(Byte.class);
+			case Type.SHORT: return Type.getType(Short.class);
+			case Type.INT: return Type.getType(Integer.class);
+			case Type.FLOAT: return Type.getType(Float.class);
+			case Type.LONG: return Type.getType(Long.class);
+			case Type.DOUBLE: return Type.getType(Double.class);
+			default: throw new IllegalArgumentException("Not a primitive type: " + primitiveType);
+		}
+	}
+
+
+	/**
+	 * Resolves attribute values by index for a generated class, delegating
+	 * to the {@link SynthesizedAnnotationInvocationHandler} that a JDK dynamic
+	 * proxy would use, and provides the {@code toString()} representation.
+	 */
+	private static final class AttributeValues implements IntFunction<Object> {
+
+		private final SynthesizedAnnotationInvocationHandler handler;
+
+		private final List<Method> attributeMethods;
+
+		AttributeValues(SynthesizedAnnotationInvocationHandler handler, List<Method> attributeMethods) {
+			this.handler = handler;
+			this.attributeMethods = attributeMethods;
+		}
+
+		@Override
+		public Object apply(int index) {
+			return this.handler.getAttributeValue(this.attributeMethods.get(index));
+		}
+
+		@Override
+		public String toString() {
+			return this.handler.annotationToString();
+		}
+	}
+
+
+	/**
+	 * Child class loader that defines the generated classes.
+	 */
+	private static final class SynthesizedAnnotationClassLoader extends ClassLoader {
+
+		SynthesizedAnnotationClassLoader(ClassLoader parent) {
+			super(parent);
+		}
+
+		Class<?> defineClass(String name, byte[] bytes) {
+			synchronized (getClassLoadingLock(name)) {
+				Class<?> existing = findLoadedClass(name);
+				return (existing != null ? existing : defineClass(name, bytes, 0, bytes.length));
+			}
+		}
+	}
+
+}
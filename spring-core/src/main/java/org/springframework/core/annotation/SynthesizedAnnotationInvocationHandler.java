@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2016 the original author or authors.
+ * Copyright 2002-2020 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -35,6 +35,9 @@ import org.springframework.util.StringUtils;
  * <em>synthesized</em> (i.e., wrapped in a dynamic proxy) with additional
  * functionality.
  *
+ * <p>Also resolves attribute values for instances of the implementation
+ * classes generated by {@link SynthesizedAnnotationClassGenerator}.
+ *
  * @author Sam Brannen
  * @since 4.2
  * @see Annotation
@@ -84,7 +87,7 @@ class SynthesizedAnnotationInvocationHandler implements InvocationHandler {
 		return this.attributeExtractor.getAnnotationType();
 	}
 
-	private Object getAttributeValue(Method attributeMethod) {
+	Object getAttributeValue(Method attributeMethod) {
 		String attributeName = attributeMethod.getName();
 		Object value = this.valueCache.get(attributeName);
 		if (value == null) {
@@ -233,7 +236,7 @@ class SynthesizedAnnotationInvocationHandler implements InvocationHandler {
 	/**
 	 * See {@link Annotation#toString()} for guidelines on the recommended format.
 	 */
-	private String annotationToString() {
+	String annotationToString() {
 		StringBuilder sb = new StringBuilder("@").append(annotationType().getName()).append("(");
 
 		Iterator<Method> iterator = AnnotationUtils.getAttributeMethods(annotationType()).iterator();
@@ -0,0 +1,135 @@
+/*
+ * Copyright 2002-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.core.convert.support;
+
+import org.springframework.core.convert.ConversionService;
+import org.springframework.core.convert.TypeDescriptor;
+import org.springframework.core.convert.converter.GenericConverter;
+import org.springframework.lang.Nullable;
+import org.springframework.util.Assert;
+
+/**
+ * Converts the elements of a single collection, array or delimited String
+ * to a common target element type.
+ *
+ * <p>Source element type descriptors and, for a {@link GenericConversionService},
+ * the {@link GenericConverter} to use are resolved once per element class rather
+ * than once per element, avoiding repeated {@link TypeDescriptor} creation and
+ * converter cache lookups for homogeneous elements. Instances are stateful and
+ * meant to be used for one conversion call on a single thread.
+ *
+ * @since 5.0.18
+ */
+final class ElementConverter {
+
+	private final ConversionService conversionService;
+
+	@Nullable
+	private final GenericConversionService genericConversionService;
+
+	@Nullable
+	private final TypeDescriptor containerType;
+
+	@Nullable
+	private final TypeDescriptor sourceType;
+
+	private final TypeDescriptor targetType;
+
+	@Nullable
+	private Class<?> lastElementClass;
+
+	@Nullable
+	private TypeDescriptor lastSourceType;
+
+	@Nullable
+	private GenericConverter lastConverter;
+
+
+	private ElementConverter(ConversionService conversionService, @Nullable TypeDescriptor containerType,
+			@Nullable TypeDescriptor sourceType, TypeDescriptor targetType) {
+
+		this.conversionService = conversionService;
+		this.genericConversionService = (conversionService instanceof GenericConversionService ?
+				(GenericConversionService) conversionService : null);
+		this.containerType = containerType;
+		this.sourceType = sourceType;
+		this.targetType = targetType;
+	}
+
+
+	/**
+	 * Create a new {@code ElementConverter} for the elements of a collection or array,
+	 * narrowing the source element type to the actual element class exactly as
+	 * {@link TypeDescriptor#elementTypeDescriptor} does, i.e. retaining the
+	 * annotations and nested type context of the given container type.
+	 * @param conversionService the conversion service to delegate to
+	 * @param containerType the source collection or array type
+	 * @param targetType the target element type
+	 */
+	static ElementConverter forElementsOf(ConversionService conversionService, TypeDescriptor containerType,
+			TypeDescriptor targetType) {
+
+		return new ElementConverter(conversionService, containerType, containerType.getElementTypeDescriptor(), targetType);
+	}
+
+	/**
+	 * Create a new {@code ElementConverter} converting every element from the given
+	 * source type as-is, e.g. for the parts of a delimited String.
+	 * @param conversionService the conversion service to delegate to
+	 * @param sourceType the source type of every element
+	 * @param targetType the target element type
+	 */
+	static ElementConverter forSourceType(ConversionService conversionService, TypeDescriptor sourceType,
+			TypeDescriptor targetType) {
+
+		return new ElementConverter(conversionService, null, sourceType, targetType);
+	}
+
+
+	/**
+	 * Convert the given source element to the target element type.
+	 * @param sourceElement the source element (may be {@code null})
+	 * @return the converted element
+	 */
+	@Nullable
+	public Object convert(@Nullable Object sourceElement) {
+		if (sourceElement == null) {
+			return this.conversionService.convert(null, this.sourceType, this.targetType);
+		}
+		Class<?> elementClass = sourceElement.getClass();
+		TypeDescriptor sourceType = this.lastSourceType;
+		if (sourceType == null || elementClass != this.lastElementClass) {
+			sourceType = resolveSourceType(sourceElement);
+			this.lastElementClass = elementClass;
+			this.lastSourceType = sourceType;
+			this.lastConverter = (this.genericConversionService != null ?
+					this.genericConversionService.getConverter(sourceType, this.targetType) : null);
+		}
+		if (this.genericConversionService != null) {
+			return this.genericConversionService.convert(sourceElement, sourceType, this.targetType, this.lastConverter);
+		}
+		return this.conversionService.convert(sourceElement, sourceType, this.targetType);
+	}
+
+	private TypeDescriptor resolveSourceType(Object sourceElement) {
+		TypeDescriptor sourceType = (this.containerType != null ?
+				this.containerType.elementTypeDescriptor(sourceElement) : this.sourceType);
+		Assert.state(sourceType != null, "No source element type");
+		return sourceType;
+	}
+
+}
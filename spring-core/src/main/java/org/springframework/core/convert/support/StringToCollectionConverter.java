@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2014 the original author or authors.
+ * Copyright 2002-2020 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -76,8 +76,9 @@ final class StringToCollectionConverter implements ConditionalGenericConverter {
 			}
 		}
 		else {
+			ElementConverter elementConverter = ElementConverter.forSourceType(this.conversionService, sourceType, elementDesc);
 			for (String field : fields) {
-				Object targetElement = this.conversionService.convert(field.trim(), sourceType, elementDesc);
+				Object targetElement = elementConverter.convert(field.trim());
 				target.add(targetElement);
 			}
 		}
@@ -0,0 +1,227 @@
+/*
+ * Copyright 2002-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.core.io.support;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.jar.JarEntry;
+import java.util.jar.JarFile;
+
+import org.springframework.lang.Nullable;
+import org.springframework.util.ConcurrentReferenceHashMap;
+import org.springframework.util.PathMatcher;
+
+/**
+ * Directory tree of the entries in a jar file, built once per jar file and
+ * shared across pattern lookups by all {@link PathMatchingResourcePatternResolver}
+ * instances.
+ *
+ * <p>Matching walks the tree below the root entry path and only descends into
+ * directories that the pattern may match the start of, instead of matching
+ * every entry in the jar file against the pattern.
+ *
+ * @since 5.0.18
+ * @see PathMatchingResourcePatternResolver#doFindPathMatchingJarResources
+ */
+final class JarDirectoryIndex {
+
+	/** Indexes per jar file URL, softly referenced */
+	private static final Map<String, JarDirectoryIndex> cache = new ConcurrentReferenceHashMap<>(64);
+
+
+	private final Node root = new Node();
+
+	private final long lastModified;
+
+	private final long length;
+
+	private final int size;
+
+
+	private JarDirectoryIndex(JarFile jarFile, long lastModified, long length) {
+		this.lastModified = lastModified;
+		this.length = length;
+		int index = 0;
+		for (Enumeration<JarEntry> entries = jarFile.entries(); entries.hasMoreElements();) {
+			add(entries.nextElement().getName(), index++);
+		}
+		this.size = index;
+	}
+
+
+	private void add(String entryPath, int index) {
+		Node node = this.root;
+		int start = 0;
+		int separatorIndex;
+		while ((separatorIndex = entryPath.indexOf('/', start)) != -1) {
+			node = node.getOrCreateChild(entryPath.substring(start, separatorIndex));
+			start = separatorIndex + 1;
+		}
+		Entry entry = new Entry(entryPath, index);
+		if (start == entryPath.length()) {
+			// Directory entry
+			node.directoryEntry = entry;
+		}
+		else {
+			node.addFileEntry(entry);
+		}
+	}
+
+	/**
+	 * Find the paths of all entries below the given root entry path that match
+	 * the given pattern, relative to the root entry path and in jar file order.
+	 * @param rootEntryPath the root entry path, either empty or ending with a slash
+	 * @param subPattern the pattern to match (relative to the root entry path)
+	 * @param pathMatcher the PathMatcher to use
+	 */
+	List<String> findMatchingPaths(String rootEntryPath, String subPattern, PathMatcher pathMatcher) {
+		Node node = this.root;
+		int start = 0;
+		int separatorIndex;
+		while (node != null && (separatorIndex = rootEntryPath.indexOf('/', start)) != -1) {
+			node = node.getChild(rootEntryPath.substring(start, separatorIndex));
+			start = separatorIndex + 1;
+		}
+		if (node == null) {
+			return new ArrayList<>(0);
+		}
+		List<Entry> matches = new ArrayList<>();
+		if (node.directoryEntry != null && pathMatcher.match(subPattern, "")) {
+			matches.add(node.directoryEntry);
+		}
+		collectMatches(node, "", rootEntryPath.length(), subPattern, pathMatcher, matches);
+		matches.sort((e1, e2) -> Integer.compare(e1.index, e2.index));
+		List<String> paths = new ArrayList<>(matches.size());
+		for (Entry match : matches) {
+			paths.add(match.path.substring(rootEntryPath.length()));
+		}
+		return paths;
+	}
+
+	private void collectMatches(Node node, String relativePath, int rootLength, String subPattern,
+			PathMatcher pathMatcher, List<Entry> matches) {
+
+		for (Entry entry : node.getFileEntries()) {
+			if (pathMatcher.match(subPattern, entry.path.substring(rootLength))) {
+				matches.add(entry);
+			}
+		}
+		for (Map.Entry<String, Node> child : node.getChildren()) {
+			String childPath = relativePath + child.getKey() + "/";
+			if (pathMatcher.matchStart(subPattern, childPath)) {
+				Node childNode = child.getValue();
+				if (childNode.directoryEntry != null && pathMatcher.match(subPattern, childPath)) {
+					matches.add(childNode.directoryEntry);
+				}
+				collectMatches(childNode, childPath, rootLength, subPattern, pathMatcher, matches);
+			}
+		}
+	}
+
+	private boolean isUpToDate(JarFile jarFile, long lastModified, long length) {
+		return (this.lastModified == lastModified && this.length == length && this.size == jarFile.size());
+	}
+
+
+	/**
+	 * Return the index for the given jar file, building it if necessary.
+	 * <p>A cached index is rebuilt if the jar file has been modified on disk.
+	 * @param jarFileUrl the URL of the jar file, used as cache key
+	 * @param jarFile the opened jar file
+	 */
+	static JarDirectoryIndex forJarFile(String jarFileUrl, JarFile jarFile) {
+		File file = new File(jarFile.getName());
+		long lastModified = file.lastModified();
+		long length = file.length();
+		JarDirectoryIndex index = cache.get(jarFileUrl);
+		if (index == null || !index.isUpToDate(jarFile, lastModified, length)) {
+			index = new JarDirectoryIndex(jarFile, lastModified, length);
+			cache.put(jarFileUrl, index);
+		}
+		return index;
+	}
+
+	/**
+	 * Clear the cache of jar file indexes.
+	 */
+	static void clearCache() {
+		cache.clear();
+	}
+
+
+	private static final class Node {
+
+		private static final Entry[] NO_ENTRIES = new Entry[0];
+
+		@Nullable
+		private Map<String, Node> children;
+
+		private Entry[] fileEntries = NO_ENTRIES;
+
+		private int fileEntryCount;
+
+		@Nullable
+		Entry directoryEntry;
+
+		Node getOrCreateChild(String name) {
+			if (this.children == null) {
+				this.children = new HashMap<>(8);
+			}
+			return this.children.computeIfAbsent(name, key -> new Node());
+		}
+
+		@Nullable
+		Node getChild(String name) {
+			return (this.children != null ? this.children.get(name) : null);
+		}
+
+		Iterable<Map.Entry<String, Node>> getChildren() {
+			return (this.children != null ? this.children.entrySet() : Collections.emptySet());
+		}
+
+		void addFileEntry(Entry entry) {
+			if (this.fileEntryCount == this.fileEntries.length) {
+				this.fileEntries = Arrays.copyOf(this.fileEntries, Math.max(4, this.fileEntryCount * 2));
+			}
+			this.fileEntries[this.fileEntryCount++] = entry;
+		}
+
+		List<Entry> getFileEntries() {
+			return Arrays.asList(this.fileEntries).subList(0, this.fileEntryCount);
+		}
+	}
+
+
+	private static final class Entry {
+
+		final String path;
+
+		final int index;
+
+		Entry(String path, int index) {
+			this.path = path;
+			this.index = index;
+		}
+	}
+
+}
@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2018 the original author or authors.
+ * Copyright 2002-2020 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -25,12 +25,16 @@ import org.springframework.core.io.DefaultResourceLoader;
 import org.springframework.core.io.Resource;
 import org.springframework.core.io.ResourceLoader;
 import org.springframework.lang.Nullable;
+import org.springframework.util.Assert;
 
 /**
  * Caching implementation of the {@link MetadataReaderFactory} interface,
  * caching a {@link MetadataReader} instance per Spring {@link Resource} handle
  * (i.e. per ".class" file).
  *
+ * <p>Readers may either be cached locally, at the {@link ResourceLoader} level,
+ * or in a {@link MetadataReaderCache} that is shared across factories.
+ *
  * @author Juergen Hoeller
  * @author Costin Leau
  * @since 2.5
@@ -44,6 +48,10 @@ public class CachingMetadataReaderFactory extends SimpleMetadataReaderFactory {
 	@Nullable
 	private Map<Resource, MetadataReader> metadataReaderCache;
 
+	/** MetadataReader cache shared across factories, if any */
+	@Nullable
+	private MetadataReaderCache sharedMetadataReaderCache;
+
 
 	/**
 	 * Create a new CachingMetadataReaderFactory for the default class loader,
@@ -67,13 +75,20 @@ public class CachingMetadataReaderFactory extends SimpleMetadataReaderFactory {
 	/**
 	 * Create a new CachingMetadataReaderFactory for the given {@link ResourceLoader},
 	 * using a shared resource cache if supported or a local resource cache otherwise.
+	 * <p>If the {@value MetadataReaderCache#SHARED_CACHE_LIMIT_PROPERTY_NAME} property
+	 * is set, the {@link MetadataReaderCache#getSharedInstance() JVM-wide cache} is
+	 * used instead.
 	 * @param resourceLoader the Spring ResourceLoader to use
 	 * (also determines the ClassLoader to use)
 	 * @see DefaultResourceLoader#getResourceCache
 	 */
 	public CachingMetadataReaderFactory(@Nullable ResourceLoader resourceLoader) {
 		super(resourceLoader);
-		if (resourceLoader instanceof DefaultResourceLoader) {
+		MetadataReaderCache sharedCache = MetadataReaderCache.getSharedInstanceIfEnabled();
+		if (sharedCache != null) {
+			this.sharedMetadataReaderCache = sharedCache;
+		}
+		else if (resourceLoader instanceof DefaultResourceLoader) {
 			this.metadataReaderCache =
 					((DefaultResourceLoader) resourceLoader).getResourceCache(MetadataReader.class);
 		}
@@ -90,6 +105,7 @@ public class CachingMetadataReaderFactory extends SimpleMetadataReaderFactory {
 	 * even if the {@link ResourceLoader} supports a shared resource cache.
 	 */
 	public void setCacheLimit(int cacheLimit) {
+		this.sharedMetadataReaderCache = null;
 		if (cacheLimit <= 0) {
 			this.metadataReaderCache = null;
 		}
@@ -101,10 +117,36 @@ public class CachingMetadataReaderFactory extends SimpleMetadataReaderFactory {
 		}
 	}
 
+	/**
+	 * Specify a {@link MetadataReaderCache} to share with other factories,
+	 * e.g. {@link MetadataReaderCache#getSharedInstance()}, replacing the
+	 * local or {@link ResourceLoader}-level cache.
+	 * <p>Entries are cached per ClassLoader, so factories for different
+	 * ClassLoaders may safely share the same cache.
+	 * @since 5.0.18
+	 */
+	public void setMetadataReaderCache(MetadataReaderCache metadataReaderCache) {
+		Assert.notNull(metadataReaderCache, "MetadataReaderCache must not be null");
+		this.sharedMetadataReaderCache = metadataReaderCache;
+		this.metadataReaderCache = null;
+	}
+
+	/**
+	 * Return the {@link MetadataReaderCache} shared with other factories, if any.
+	 * @since 5.0.18
+	 */
+	@Nullable
+	public MetadataReaderCache getMetadataReaderCache() {
+		return this.sharedMetadataReaderCache;
+	}
+
 	/**
 	 * Return the maximum number of entries for the MetadataReader cache.
 	 */
 	public int getCacheLimit() {
+		if (this.sharedMetadataReaderCache != null) {
+			return this.sharedMetadataReaderCache.getCacheLimit();
+		}
 		if (this.metadataReaderCache instanceof LocalResourceCache) {
 			return ((LocalResourceCache) this.metadataReaderCache).getCacheLimit();
 		}
@@ -116,7 +158,16 @@ public class CachingMetadataReaderFactory extends SimpleMetadataReaderFactory {
 
 	@Override
 	public MetadataReader getMetadataReader(Resource resource) throws IOException {
-		if (this.metadataReaderCache instanceof ConcurrentMap) {
+		MetadataReaderCache sharedCache = this.sharedMetadataReaderCache;
+		if (sharedCache != null) {
+			ClassLoader classLoader = getResourceLoader().getClassLoader();
+			MetadataReader metadataReader = sharedCache.get(resource, classLoader);
+			if (metadataReader == null) {
+				metadataReader = sharedCache.put(resource, classLoader, super.getMetadataReader(resource));
+			}
+			return metadataReader;
+		}
+		else if (this.metadataReaderCache instanceof ConcurrentMap) {
 			// No synchronization necessary...
 			MetadataReader metadataReader = this.metadataReaderCache.get(resource);
 			if (metadataReader == null) {
@@ -126,14 +177,18 @@ public class CachingMetadataReaderFactory extends SimpleMetadataReaderFactory {
 			return metadataReader;
 		}
 		else if (this.metadataReaderCache != null) {
+			MetadataReader metadataReader;
 			synchronized (this.metadataReaderCache) {
-				MetadataReader metadataReader = this.metadataReaderCache.get(resource);
-				if (metadataReader == null) {
-					metadataReader = super.getMetadataReader(resource);
+				metadataReader = this.metadataReaderCache.get(resource);
+			}
+			if (metadataReader == null) {
+				// Read the class file outside of the lock, allowing for concurrent scanning
+				metadataReader = super.getMetadataReader(resource);
+				synchronized (this.metadataReaderCache) {
 					this.metadataReaderCache.put(resource, metadataReader);
 				}
-				return metadataReader;
 			}
+			return metadataReader;
 		}
 		else {
 			return super.getMetadataReader(resource);
@@ -142,9 +197,15 @@ public class CachingMetadataReaderFactory extends SimpleMetadataReaderFactory {
 
 	/**
 	 * Clear the local MetadataReader cache, if any, removing all cached class metadata.
+	 * <p>A cache shared with other factories is left as-is; this factory switches
+	 * to a local cache instead.
 	 */
 	public void clearCache() {
-		if (this.metadataReaderCache instanceof LocalResourceCache) {
+		if (this.sharedMetadataReaderCache != null) {
+			// Shared across factories -> keep its content, reset to local cache.
+			setCacheLimit(DEFAULT_CACHE_LIMIT);
+		}
+		else if (this.metadataReaderCache instanceof LocalResourceCache) {
 			synchronized (this.metadataReaderCache) {
 				this.metadataReaderCache.clear();
 			}
@@ -0,0 +1,361 @@
+/*
+ * Copyright 2002-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.core.type.classreading;
+
+import java.util.Iterator;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.springframework.core.SpringProperties;
+import org.springframework.core.io.Resource;
+import org.springframework.lang.Nullable;
+import org.springframework.util.Assert;
+import org.springframework.util.StringUtils;
+
+/**
+ * Concurrent, size-bounded cache of {@link MetadataReader} instances which may be
+ * shared by any number of {@link CachingMetadataReaderFactory} instances, e.g. by
+ * all application contexts in the same JVM that scan the same jars.
+ *
+ * <p>Entries are keyed by {@link Resource} and by the {@link ClassLoader} that the
+ * metadata is read for, since annotation attribute values are resolved against the
+ * latter. Lookups are lock-free; once the cache limit is reached, entries that have
+ * not been accessed since they were last considered for eviction are removed first
+ * (a "second chance" approximation of least-recently-used order).
+ *
+ * <p>Cached readers refer to the ClassLoader that they have been read for. An
+ * application context therefore removes the entries for its ClassLoader from
+ * the shared cache on close; see {@link #clearClassLoader}.
+ *
+ * <p>Hit, miss and eviction counts are kept for monitoring purposes.
+ *
+ * @since 5.0.18
+ * @see CachingMetadataReaderFactory#setMetadataReaderCache
+ * @see #getSharedInstance()
+ */
+public class MetadataReaderCache {
+
+	/**
+	 * System property that instructs Spring to use the {@link #getSharedInstance()
+	 * shared cache}, with the given maximum number of entries, for every
+	 * {@link CachingMetadataReaderFactory} created for a {@code ResourceLoader}.
+	 * <p>The property may also be set in a "spring.properties" file; it is not
+	 * set by default, in which case each {@code ResourceLoader} keeps its own cache.
+	 * @see CachingMetadataReaderFactory#CachingMetadataReaderFactory(org.springframework.core.io.ResourceLoader)
+	 */
+	public static final String SHARED_CACHE_LIMIT_PROPERTY_NAME = "spring.classreading.cache.limit";
+
+	/** Default maximum number of entries for the shared cache: 65536 */
+	public static final int DEFAULT_SHARED_CACHE_LIMIT = 65536;
+
+	@Nullable
+	private static volatile MetadataReaderCache sharedInstance;
+
+
+	private final int cacheLimit;
+
+	private final ConcurrentHashMap<CacheKey, CacheEntry> cache;
+
+	/** Entries in insertion order, scanned for eviction candidates */
+	private final Queue<CacheEntry> evictionQueue = new ConcurrentLinkedQueue<>();
+
+	private final Object evictionMonitor = new Object();
+
+	private final AtomicLong hitCount = new AtomicLong();
+
+	private final AtomicLong missCount = new AtomicLong();
+
+	private final AtomicLong evictionCount = new AtomicLong();
+
+
+	/**
+	 * Create a new {@code MetadataReaderCache} with the given maximum number of entries.
+	 * @param cacheLimit the maximum number of entries (must be positive)
+	 */
+	public MetadataReaderCache(int cacheLimit) {
+		Assert.isTrue(cacheLimit > 0, "Cache limit must be positive");
+		this.cacheLimit = cacheLimit;
+		this.cache = new ConcurrentHashMap<>(Math.min(cacheLimit, 1024));
+	}
+
+
+	/**
+	 * Return the maximum number of entries in this cache.
+	 */
+	public int getCacheLimit() {
+		return this.cacheLimit;
+	}
+
+	/**
+	 * Return the cached {@link MetadataReader} for the given resource,
+	 * as read for the given ClassLoader.
+	 * @param resource the resource (pointing to a ".class" file)
+	 * @param classLoader the ClassLoader that the metadata is read for
+	 * @return the cached MetadataReader, or {@code null} if none
+	 */
+	@Nullable
+	public MetadataReader get(Resource resource, @Nullable ClassLoader classLoader) {
+		CacheEntry entry = this.cache.get(new CacheKey(resource, classLoader));
+		if (entry != null) {
+			if (!entry.accessed) {
+				entry.accessed = true;
+			}
+			this.hitCount.incrementAndGet();
+			return entry.metadataReader;
+		}
+		this.missCount.incrementAndGet();
+		return null;
+	}
+
+	/**
+	 * Cache the given {@link MetadataReader}, unless a reader for the same resource
+	 * and ClassLoader has been cached concurrently.
+	 * @param resource the resource (pointing to a ".class" file)
+	 * @param classLoader the ClassLoader that the metadata has been read for
+	 * @param metadataReader the MetadataReader to cache
+	 * @return the MetadataReader to use, i.e. the given one or the
+	 * one that has been cached concurrently
+	 */
+	public MetadataReader put(Resource resource, @Nullable ClassLoader classLoader, MetadataReader metadataReader) {
+		CacheEntry entry = new CacheEntry(new CacheKey(resource, classLoader), metadataReader);
+		CacheEntry existing = this.cache.putIfAbsent(entry.key, entry);
+		if (existing != null) {
+			return existing.metadataReader;
+		}
+		this.evictionQueue.add(entry);
+		if (this.cache.size() > this.cacheLimit) {
+			evict();
+		}
+		return metadataReader;
+	}
+
+	private void evict() {
+		synchronized (this.evictionMonitor) {
+			while (this.cache.size() > this.cacheLimit) {
+				CacheEntry candidate = this.evictionQueue.poll();
+				if (candidate == null) {
+					return;
+				}
+				if (candidate.accessed) {
+					// Give recently used entries a second chance
+					candidate.accessed = false;
+					this.evictionQueue.add(candidate);
+				}
+				else if (this.cache.remove(candidate.key, candidate)) {
+					this.evictionCount.incrementAndGet();
+				}
+			}
+		}
+	}
+
+	/**
+	 * Remove all entries that have been read for the given ClassLoader or
+	 * any ClassLoader underneath it, e.g. when an application using that
+	 * ClassLoader shuts down.
+	 * @param classLoader the ClassLoader to remove entries for
+	 * @see #clearClassLoader
+	 */
+	public void evict(@Nullable ClassLoader classLoader) {
+		synchronized (this.evictionMonitor) {
+			for (Iterator<CacheEntry> it = this.evictionQueue.iterator(); it.hasNext();) {
+				CacheEntry entry = it.next();
+				if (isUnderneathClassLoader(entry.key.classLoader, classLoader)) {
+					it.remove();
+					this.cache.remove(entry.key, entry);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Remove all entries from this cache. Statistics are not reset.
+	 */
+	public void clear() {
+		synchronized (this.evictionMonitor) {
+			this.cache.clear();
+			this.evictionQueue.clear();
+		}
+	}
+
+	/**
+	 * Return the current number of entries in this cache.
+	 */
+	public int size() {
+		return this.cache.size();
+	}
+
+	/**
+	 * Return the number of lookups that found a cached MetadataReader.
+	 */
+	public long getHitCount() {
+		return this.hitCount.get();
+	}
+
+	/**
+	 * Return the number of lookups that did not find a cached MetadataReader.
+	 */
+	public long getMissCount() {
+		return this.missCount.get();
+	}
+
+	/**
+	 * Return the number of entries that have been evicted
+	 * because the cache limit had been reached.
+	 */
+	public long getEvictionCount() {
+		return this.evictionCount.get();
+	}
+
+	@Override
+	public String toString() {
+		return "MetadataReaderCache: size=" + size() + ", limit=" + this.cacheLimit +
+				", hits=" + getHitCount() + ", misses=" + getMissCount() + ", evictions=" + getEvictionCount();
+	}
+
+
+	/**
+	 * Return the JVM-wide shared {@code MetadataReaderCache}, creating it on first
+	 * access with the limit specified by the {@value #SHARED_CACHE_LIMIT_PROPERTY_NAME}
+	 * property or {@link #DEFAULT_SHARED_CACHE_LIMIT}.
+	 */
+	public static MetadataReaderCache getSharedInstance() {
+		MetadataReaderCache instance = sharedInstance;
+		if (instance == null) {
+			synchronized (MetadataReaderCache.class) {
+				instance = sharedInstance;
+				if (instance == null) {
+					Integer limit = getSharedCacheLimit();
+					instance = new MetadataReaderCache(limit != null ? limit : DEFAULT_SHARED_CACHE_LIMIT);
+					sharedInstance = instance;
+				}
+			}
+		}
+		return instance;
+	}
+
+	/**
+	 * Remove the entries of the {@link #getSharedInstance() shared cache}, if in use,
+	 * that have been read for the given ClassLoader or any ClassLoader underneath it,
+	 * so that the cache does not keep an application's ClassLoader alive after the
+	 * application has been shut down.
+	 * <p>Entries read for the ClassLoader of this class or any of its parents are
+	 * retained, since the shared cache cannot outlive those ClassLoaders anyway.
+	 * @param classLoader the ClassLoader to clear the shared cache for
+	 * @see #evict(ClassLoader)
+	 */
+	public static void clearClassLoader(@Nullable ClassLoader classLoader) {
+		MetadataReaderCache instance = sharedInstance;
+		if (instance != null && !isUnderneathClassLoader(MetadataReaderCache.class.getClassLoader(), classLoader)) {
+			instance.evict(classLoader);
+		}
+	}
+
+	/**
+	 * Check whether the given ClassLoader is underneath the given parent,
+	 * that is, whether the parent is within the candidate's hierarchy.
+	 */
+	private static boolean isUnderneathClassLoader(@Nullable ClassLoader candidate, @Nullable ClassLoader parent) {
+		if (candidate == parent) {
+			return true;
+		}
+		if (candidate == null) {
+			return false;
+		}
+		ClassLoader classLoaderToCheck = candidate;
+		while (classLoaderToCheck != null) {
+			classLoaderToCheck = classLoaderToCheck.getParent();
+			if (classLoaderToCheck == parent) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Return the shared cache if its use has been enabled through the
+	 * {@value #SHARED_CACHE_LIMIT_PROPERTY_NAME} property, or {@code null} otherwise.
+	 */
+	@Nullable
+	static MetadataReaderCache getSharedInstanceIfEnabled() {
+		return (getSharedCacheLimit() != null ? getSharedInstance() : null);
+	}
+
+	@Nullable
+	private static Integer getSharedCacheLimit() {
+		String limit = SpringProperties.getProperty(SHARED_CACHE_LIMIT_PROPERTY_NAME);
+		if (StringUtils.hasText(limit)) {
+			try {
+				int value = Integer.parseInt(limit.trim());
+				return (value > 0 ? value : null);
+			}
+			catch (NumberFormatException ex) {
+				// ignore
+			}
+		}
+		return null;
+	}
+
+
+	private static final class CacheKey {
+
+		private final Resource resource;
+
+		@Nullable
+		private final ClassLoader classLoader;
+
+		CacheKey(Resource resource, @Nullable ClassLoader classLoader) {
+			this.resource = resource;
+			this.classLoader = classLoader;
+		}
+
+		@Override
+		public boolean equals(Object other) {
+			if (this == other) {
+				return true;
+			}
+			if (!(other instanceof CacheKey)) {
+				return false;
+			}
+			CacheKey otherKey = (CacheKey) other;
+			return (this.resource.equals(otherKey.resource) && this.classLoader == otherKey.classLoader);
+		}
+
+		@Override
+		public int hashCode() {
+			return (this.resource.hashCode() * 29 + System.identityHashCode(this.classLoader));
+		}
+	}
+
+
+	private static final class CacheEntry {
+
+		final CacheKey key;
+
+		final MetadataReader metadataReader;
+
+		/** Whether the entry has been read since it was last considered for eviction */
+		volatile boolean accessed;
+
+		CacheEntry(CacheKey key, MetadataReader metadataReader) {
+			this.key = key;
+			this.metadataReader = metadataReader;
+		}
+	}
+
+}
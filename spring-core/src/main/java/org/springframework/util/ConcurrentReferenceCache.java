@@ -0,0 +1,600 @@
+/*
+ * Copyright 2002-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.util;
+
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.SoftReference;
+import java.lang.ref.WeakReference;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.springframework.lang.Nullable;
+import org.springframework.util.ConcurrentReferenceHashMap.ReferenceType;
+
+/**
+ * A {@link ConcurrentMap} for caching purposes, with strong keys and
+ * {@linkplain ReferenceType#SOFT soft}, {@linkplain ReferenceType#WEAK weak}
+ * or strong values, an optional size bound and per-instance statistics.
+ *
+ * <p>In contrast to {@link ConcurrentReferenceHashMap}, this implementation is
+ * backed by a {@link ConcurrentHashMap}: reads never lock and never poll the
+ * reference queue, and writes are striped per hash bin rather than per segment.
+ * Garbage-collected values are purged on write only.
+ *
+ * <p>If a maximum size is specified, entries are evicted once that size is
+ * exceeded, using a second-chance (clock) policy: recently read entries are
+ * retained for another round, so that reads do not have to reorder entries.
+ * The bound is therefore approximate under concurrent writes.
+ *
+ * <p>Hit, miss and eviction counts are recorded per instance; see
+ * {@link #getHitCount()}, {@link #getMissCount()} and {@link #getEvictionCount()}.
+ *
+ * <p>Like {@link ConcurrentHashMap}, this implementation does not support
+ * {@code null} keys or values.
+ *
+ * @since 5.0.18
+ * @param <K> the key type
+ * @param <V> the value type
+ * @see ConcurrentReferenceHashMap
+ */
+public class ConcurrentReferenceCache<K, V> extends AbstractMap<K, V> implements ConcurrentMap<K, V> {
+
+	/**
+	 * Constant for an unbounded cache.
+	 */
+	public static final int UNBOUNDED = -1;
+
+	private static final int DEFAULT_INITIAL_CAPACITY = 16;
+
+	private static final int DEFAULT_CONCURRENCY_LEVEL = 16;
+
+
+	private final ConcurrentHashMap<K, Node<K, V>> nodes;
+
+	private final int maxSize;
+
+	@Nullable
+	private final ReferenceType valueReferenceType;
+
+	@Nullable
+	private final ReferenceQueue<V> queue;
+
+	@Nullable
+	private final ConcurrentLinkedQueue<Node<K, V>> evictionQueue;
+
+	private final AtomicInteger evictionQueueLength = new AtomicInteger();
+
+	private final LongAdder hitCount = new LongAdder();
+
+	private final LongAdder missCount = new LongAdder();
+
+	private final LongAdder evictionCount = new LongAdder();
+
+	@Nullable
+	private volatile Set<Map.Entry<K, V>> entrySet;
+
+
+	/**
+	 * Create a new unbounded {@code ConcurrentReferenceCache} with strong values.
+	 */
+	public ConcurrentReferenceCache() {
+		this(DEFAULT_INITIAL_CAPACITY, DEFAULT_CONCURRENCY_LEVEL, UNBOUNDED, null);
+	}
+
+	/**
+	 * Create a new {@code ConcurrentReferenceCache} with strong values.
+	 * @param maxSize the maximum number of entries, or {@link #UNBOUNDED}
+	 */
+	public ConcurrentReferenceCache(int maxSize) {
+		this(DEFAULT_INITIAL_CAPACITY, DEFAULT_CONCURRENCY_LEVEL, maxSize, null);
+	}
+
+	/**
+	 * Create a new {@code ConcurrentReferenceCache}.
+	 * @param maxSize the maximum number of entries, or {@link #UNBOUNDED}
+	 * @param valueReferenceType the reference type used for values
+	 * (soft or weak), or {@code null} for strong values
+	 */
+	public ConcurrentReferenceCache(int maxSize, @Nullable ReferenceType valueReferenceType) {
+		this(DEFAULT_INITIAL_CAPACITY, DEFAULT_CONCURRENCY_LEVEL, maxSize, valueReferenceType);
+	}
+
+	/**
+	 * Create a new {@code ConcurrentReferenceCache}.
+	 * @param initialCapacity the initial capacity of the cache
+	 * @param concurrencyLevel the expected number of threads that will
+	 * concurrently write to the cache
+	 * @param maxSize the maximum number of entries, or {@link #UNBOUNDED}
+	 * @param valueReferenceType the reference type used for values
+	 * (soft or weak), or {@code null} for strong values
+	 */
+	public ConcurrentReferenceCache(int initialCapacity, int concurrencyLevel, int maxSize,
+			@Nullable ReferenceType valueReferenceType) {
+
+		Assert.isTrue(initialCapacity >= 0, "Initial capacity must not be negative");
+		Assert.isTrue(concurrencyLevel > 0, "Concurrency level must be positive");
+		Assert.isTrue(maxSize > 0 || maxSize == UNBOUNDED, "Maximum size must be positive or UNBOUNDED");
+		this.nodes = new ConcurrentHashMap<>(initialCapacity, 0.75f, concurrencyLevel);
+		this.maxSize = maxSize;
+		this.valueReferenceType = valueReferenceType;
+		this.queue = (valueReferenceType != null ? new ReferenceQueue<>() : null);
+		this.evictionQueue = (maxSize != UNBOUNDED ? new ConcurrentLinkedQueue<>() : null);
+	}
+
+
+	/**
+	 * Return the maximum number of entries, or {@link #UNBOUNDED}.
+	 */
+	public final int getMaxSize() {
+		return this.maxSize;
+	}
+
+	/**
+	 * Return the number of {@link #get} calls that returned a cached value.
+	 */
+	public long getHitCount() {
+		return this.hitCount.sum();
+	}
+
+	/**
+	 * Return the number of {@link #get} calls that did not find a cached value,
+	 * including values that have been garbage collected.
+	 */
+	public long getMissCount() {
+		return this.missCount.sum();
+	}
+
+	/**
+	 * Return the number of entries evicted because the maximum size was exceeded.
+	 */
+	public long getEvictionCount() {
+		return this.evictionCount.sum();
+	}
+
+
+	@Override
+	@Nullable
+	public V get(@Nullable Object key) {
+		Node<K, V> node = (key != null ? this.nodes.get(key) : null);
+		V value = (node != null ? node.getValue() : null);
+		if (value == null) {
+			this.missCount.increment();
+			return null;
+		}
+		if (this.evictionQueue != null && !node.isAccessed()) {
+			node.setAccessed(true);
+		}
+		this.hitCount.increment();
+		return value;
+	}
+
+	@Override
+	public boolean containsKey(@Nullable Object key) {
+		Node<K, V> node = (key != null ? this.nodes.get(key) : null);
+		return (node != null && node.getValue() != null);
+	}
+
+	@Override
+	@Nullable
+	public V put(K key, V value) {
+		Node<K, V> node = createNode(key, value);
+		Node<K, V> previous = this.nodes.put(key, node);
+		afterWrite(node);
+		return (previous != null ? previous.getValue() : null);
+	}
+
+	@Override
+	@Nullable
+	public V putIfAbsent(K key, V value) {
+		Node<K, V> node = createNode(key, value);
+		while (true) {
+			Node<K, V> existing = this.nodes.putIfAbsent(key, node);
+			if (existing == null) {
+				afterWrite(node);
+				return null;
+			}
+			V existingValue = existing.getValue();
+			if (existingValue != null) {
+				return existingValue;
+			}
+			// Value has been garbage collected: treat as absent
+			if (this.nodes.replace(key, existing, node)) {
+				afterWrite(node);
+				return null;
+			}
+		}
+	}
+
+	@Override
+	@Nullable
+	public V remove(@Nullable Object key) {
+		Node<K, V> node = (key != null ? this.nodes.remove(key) : null);
+		return (node != null ? node.getValue() : null);
+	}
+
+	@Override
+	public boolean remove(@Nullable Object key, @Nullable Object value) {
+		if (key == null || value == null) {
+			return false;
+		}
+		Node<K, V> node = this.nodes.get(key);
+		return (node != null && value.equals(node.getValue()) && this.nodes.remove(key, node));
+	}
+
+	@Override
+	public boolean replace(K key, V oldValue, V newValue) {
+		Assert.notNull(oldValue, "Old value must not be null");
+		Node<K, V> node = this.nodes.get(key);
+		if (node == null || !oldValue.equals(node.getValue())) {
+			return false;
+		}
+		Node<K, V> newNode = createNode(key, newValue);
+		if (this.nodes.replace(key, node, newNode)) {
+			afterWrite(newNode);
+			return true;
+		}
+		return false;
+	}
+
+	@Override
+	@Nullable
+	public V replace(K key, V value) {
+		Node<K, V> newNode = createNode(key, value);
+		while (true) {
+			Node<K, V> node = this.nodes.get(key);
+			V oldValue = (node != null ? node.getValue() : null);
+			if (oldValue == null) {
+				return null;
+			}
+			if (this.nodes.replace(key, node, newNode)) {
+				afterWrite(newNode);
+				return oldValue;
+			}
+		}
+	}
+
+	@Override
+	public void clear() {
+		this.nodes.clear();
+		if (this.evictionQueue != null) {
+			this.evictionQueue.clear();
+			this.evictionQueueLength.set(0);
+		}
+		purgeUnreferencedEntries();
+	}
+
+	/**
+	 * Remove any entries whose values have been garbage collected.
+	 * <p>This happens automatically on write; this method can be used
+	 * to purge entries from a cache that is read only.
+	 */
+	@SuppressWarnings("unchecked")
+	public void purgeUnreferencedEntries() {
+		if (this.queue != null) {
+			Object ref = this.queue.poll();
+			while (ref != null) {
+				Node<K, V> node = (Node<K, V>) ref;
+				this.nodes.remove(node.getKey(), node);
+				ref = this.queue.poll();
+			}
+		}
+	}
+
+	/**
+	 * Return the number of entries in this cache, potentially including
+	 * entries whose values have been garbage collected but not purged yet.
+	 */
+	@Override
+	public int size() {
+		return this.nodes.size();
+	}
+
+	@Override
+	public boolean isEmpty() {
+		return this.nodes.isEmpty();
+	}
+
+	@Override
+	public Set<Map.Entry<K, V>> entrySet() {
+		Set<Map.Entry<K, V>> entrySet = this.entrySet;
+		if (entrySet == null) {
+			entrySet = new EntrySet();
+			this.entrySet = entrySet;
+		}
+		return entrySet;
+	}
+
+	@Override
+	public String toString() {
+		return getClass().getSimpleName() + " [size = " + size() + ", maxSize = " + this.maxSize +
+				", hits = " + getHitCount() + ", misses = " + getMissCount() +
+				", evictions = " + getEvictionCount() + "]";
+	}
+
+
+	private Node<K, V> createNode(K key, V value) {
+		Assert.notNull(key, "Key must not be null");
+		Assert.notNull(value, "Value must not be null");
+		if (this.valueReferenceType == ReferenceType.WEAK) {
+			return new WeakNode<>(key, value, this.queue);
+		}
+		if (this.valueReferenceType == ReferenceType.SOFT) {
+			return new SoftNode<>(key, value, this.queue);
+		}
+		return new StrongNode<>(key, value);
+	}
+
+	private void afterWrite(Node<K, V> node) {
+		purgeUnreferencedEntries();
+		if (this.evictionQueue != null) {
+			this.evictionQueue.add(node);
+			this.evictionQueueLength.incrementAndGet();
+			evictIfNecessary(this.evictionQueue);
+		}
+	}
+
+	/**
+	 * Evict entries until the maximum size is no longer exceeded, giving
+	 * recently accessed entries a second chance. Also drops queue elements
+	 * for entries that have been replaced or removed in the meantime.
+	 */
+	private void evictIfNecessary(ConcurrentLinkedQueue<Node<K, V>> evictionQueue) {
+		int attempts = 2 * this.evictionQueueLength.get() + 1;
+		while (attempts-- > 0 && (this.nodes.size() > this.maxSize ||
+				this.evictionQueueLength.get() > 2 * this.maxSize)) {
+			Node<K, V> node = evictionQueue.poll();
+			if (node == null) {
+				return;
+			}
+			this.evictionQueueLength.decrementAndGet();
+			if (this.nodes.get(node.getKey()) != node) {
+				// Replaced or removed in the meantime
+				continue;
+			}
+			if (this.nodes.size() > this.maxSize && !node.isAccessed()) {
+				if (this.nodes.remove(node.getKey(), node)) {
+					this.evictionCount.increment();
+				}
+			}
+			else {
+				node.setAccessed(false);
+				evictionQueue.add(node);
+				this.evictionQueueLength.incrementAndGet();
+			}
+		}
+	}
+
+
+	/**
+	 * A cache entry holding its key along with a strong or referenced value.
+	 */
+	private interface Node<K, V> {
+
+		K getKey();
+
+		@Nullable
+		V getValue();
+
+		boolean isAccessed();
+
+		void setAccessed(boolean accessed);
+	}
+
+
+	private static final class StrongNode<K, V> implements Node<K, V> {
+
+		private final K key;
+
+		private final V value;
+
+		private volatile boolean accessed;
+
+		StrongNode(K key, V value) {
+			this.key = key;
+			this.value = value;
+		}
+
+		@Override
+		public K getKey() {
+			return this.key;
+		}
+
+		@Override
+		public V getValue() {
+			return this.value;
+		}
+
+		@Override
+		public boolean isAccessed() {
+			return this.accessed;
+		}
+
+		@Override
+		public void setAccessed(boolean accessed) {
+			this.accessed = accessed;
+		}
+	}
+
+
+	private static final class SoftNode<K, V> extends SoftReference<V> implements Node<K, V> {
+
+		private final K key;
+
+		private volatile boolean accessed;
+
+		SoftNode(K key, V value, @Nullable ReferenceQueue<? super V> queue) {
+			super(value, queue);
+			this.key = key;
+		}
+
+		@Override
+		public K getKey() {
+			return this.key;
+		}
+
+		@Override
+		@Nullable
+		public V getValue() {
+			return get();
+		}
+
+		@Override
+		public boolean isAccessed() {
+			return this.accessed;
+		}
+
+		@Override
+		public void setAccessed(boolean accessed) {
+			this.accessed = accessed;
+		}
+	}
+
+
+	private static final class WeakNode<K, V> extends WeakReference<V> implements Node<K, V> {
+
+		private final K key;
+
+		private volatile boolean accessed;
+
+		WeakNode(K key, V value, @Nullable ReferenceQueue<? super V> queue) {
+			super(value, queue);
+			this.key = key;
+		}
+
+		@Override
+		public K getKey() {
+			return this.key;
+		}
+
+		@Override
+		@Nullable
+		public V getValue() {
+			return get();
+		}
+
+		@Override
+		public boolean isAccessed() {
+			return this.accessed;
+		}
+
+		@Override
+		public void setAccessed(boolean accessed) {
+			this.accessed = accessed;
+		}
+	}
+
+
+	/**
+	 * Internal entry-set implementation, skipping garbage-collected values.
+	 */
+	private class EntrySet extends AbstractSet<Map.Entry<K, V>> {
+
+		@Override
+		public Iterator<Map.Entry<K, V>> iterator() {
+			return new EntryIterator();
+		}
+
+		@Override
+		public boolean contains(@Nullable Object o) {
+			if (o instanceof Map.Entry<?, ?>) {
+				Map.Entry<?, ?> entry = (Map.Entry<?, ?>) o;
+				Node<K, V> node = (entry.getKey() != null ? nodes.get(entry.getKey()) : null);
+				V value = (node != null ? node.getValue() : null);
+				return (value != null && value.equals(entry.getValue()));
+			}
+			return false;
+		}
+
+		@Override
+		public boolean remove(Object o) {
+			if (o instanceof Map.Entry<?, ?>) {
+				Map.Entry<?, ?> entry = (Map.Entry<?, ?>) o;
+				return ConcurrentReferenceCache.this.remove(entry.getKey(), entry.getValue());
+			}
+			return false;
+		}
+
+		@Override
+		public int size() {
+			return ConcurrentReferenceCache.this.size();
+		}
+
+		@Override
+		public void clear() {
+			ConcurrentReferenceCache.this.clear();
+		}
+	}
+
+
+	/**
+	 * Internal entry iterator implementation.
+	 */
+	private class EntryIterator implements Iterator<Map.Entry<K, V>> {
+
+		private final Iterator<Node<K, V>> iterator = nodes.values().iterator();
+
+		@Nullable
+		private Node<K, V> nextNode;
+
+		@Nullable
+		private V nextValue;
+
+		@Nullable
+		private Node<K, V> last;
+
+		@Override
+		public boolean hasNext() {
+			while (this.nextValue == null && this.iterator.hasNext()) {
+				Node<K, V> node = this.iterator.next();
+				this.nextNode = node;
+				this.nextValue = node.getValue();
+			}
+			return (this.nextValue != null);
+		}
+
+		@Override
+		public Map.Entry<K, V> next() {
+			if (!hasNext()) {
+				throw new NoSuchElementException();
+			}
+			Node<K, V> node = this.nextNode;
+			V value = this.nextValue;
+			Assert.state(node != null && value != null, "No next entry");
+			this.last = node;
+			this.nextNode = null;
+			this.nextValue = null;
+			return new SimpleImmutableEntry<>(node.getKey(), value);
+		}
+
+		@Override
+		public void remove() {
+			Assert.state(this.last != null, "No element to remove");
+			nodes.remove(this.last.getKey(), this.last);
+			this.last = null;
+		}
+	}
+
+}
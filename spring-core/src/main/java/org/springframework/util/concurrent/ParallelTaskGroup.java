@@ -0,0 +1,170 @@
+/*
+ * Copyright 2002-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.util.concurrent;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.springframework.lang.Nullable;
+import org.springframework.util.Assert;
+
+/**
+ * Group of tasks that run concurrently on a {@link ForkJoinPool}, on behalf of
+ * the thread that created the group: every task runs with the context ClassLoader
+ * of that thread, and the first failure of any task is rethrown to that thread
+ * from {@link #join()}.
+ *
+ * <p>Once a task has failed, tasks that have not started yet are skipped.
+ * Long-running tasks may check {@link #hasFailed()} in order to stop early.
+ *
+ * <p>A group is meant to be populated and joined by the thread that created it.
+ *
+ * @since 5.0.18
+ */
+public final class ParallelTaskGroup {
+
+	private final ForkJoinPool pool;
+
+	private final boolean dedicatedPool;
+
+	@Nullable
+	private final ClassLoader classLoader;
+
+	private final AtomicReference<Throwable> failure = new AtomicReference<>();
+
+	private final List<CompletableFuture<Void>> futures = new ArrayList<>();
+
+
+	/**
+	 * Create a new group running its tasks on a dedicated pool with the given
+	 * parallelism, which gets shut down once the group has been joined.
+	 * @param parallelism the parallelism of the pool
+	 */
+	public ParallelTaskGroup(int parallelism) {
+		this(new ForkJoinPool(parallelism), true);
+	}
+
+	/**
+	 * Create a new group running its tasks on the given pool,
+	 * e.g. the {@linkplain ForkJoinPool#commonPool() common pool}.
+	 * @param pool the pool to run tasks on
+	 */
+	public ParallelTaskGroup(ForkJoinPool pool) {
+		this(pool, false);
+	}
+
+	private ParallelTaskGroup(ForkJoinPool pool, boolean dedicatedPool) {
+		Assert.notNull(pool, "ForkJoinPool must not be null");
+		this.pool = pool;
+		this.dedicatedPool = dedicatedPool;
+		this.classLoader = Thread.currentThread().getContextClassLoader();
+	}
+
+
+	/**
+	 * Schedule the given task.
+	 * @param task the task to run
+	 * @return a future completing once the task has run
+	 */
+	public CompletableFuture<Void> run(Runnable task) {
+		return add(CompletableFuture.runAsync(wrap(task), this.pool));
+	}
+
+	/**
+	 * Schedule the given task to run once all given tasks of this group have
+	 * completed successfully.
+	 * @param upstream the futures of the tasks to wait for
+	 * @param task the task to run
+	 * @return a future completing once the task has run
+	 */
+	public CompletableFuture<Void> runAfter(Collection<? extends CompletableFuture<?>> upstream, Runnable task) {
+		if (upstream.isEmpty()) {
+			return run(task);
+		}
+		return add(CompletableFuture.allOf(upstream.toArray(new CompletableFuture<?>[0]))
+				.thenRunAsync(wrap(task), this.pool));
+	}
+
+	/**
+	 * Return whether any task of this group has failed.
+	 */
+	public boolean hasFailed() {
+		return (this.failure.get() != null);
+	}
+
+	/**
+	 * Wait for all tasks of this group to complete, rethrowing the first failure.
+	 * @throws RuntimeException or Error as thrown by the first failed task
+	 * @throws IllegalStateException for any other failure of a task
+	 */
+	public void join() {
+		try {
+			CompletableFuture.allOf(this.futures.toArray(new CompletableFuture<?>[0])).join();
+		}
+		catch (CompletionException ex) {
+			// Handled below, based on the first recorded failure.
+		}
+		finally {
+			if (this.dedicatedPool) {
+				this.pool.shutdown();
+			}
+		}
+
+		Throwable ex = this.failure.get();
+		if (ex instanceof RuntimeException) {
+			throw (RuntimeException) ex;
+		}
+		if (ex instanceof Error) {
+			throw (Error) ex;
+		}
+		if (ex != null) {
+			throw new IllegalStateException("Parallel task failed", ex);
+		}
+	}
+
+	private CompletableFuture<Void> add(CompletableFuture<Void> future) {
+		this.futures.add(future);
+		return future;
+	}
+
+	private Runnable wrap(Runnable task) {
+		return () -> {
+			if (this.failure.get() != null) {
+				return;
+			}
+			Thread currentThread = Thread.currentThread();
+			ClassLoader previousClassLoader = currentThread.getContextClassLoader();
+			currentThread.setContextClassLoader(this.classLoader);
+			try {
+				task.run();
+			}
+			catch (Throwable ex) {
+				this.failure.compareAndSet(null, ex);
+				throw ex;
+			}
+			finally {
+				currentThread.setContextClassLoader(previousClassLoader);
+			}
+		};
+	}
+
+}
@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2019 the original author or authors.
+ * Copyright 2002-2020 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -135,6 +135,29 @@ public class ResolvableTypeTests {
 		assertTrue(type.isAssignableFrom(String.class));
 	}
 
+	@Test
+	public void forClassReturnsSharedInstance() throws Exception {
+		ResolvableType type = ResolvableType.forClass(ExtendsList.class);
+		assertThat(ResolvableType.forClass(ExtendsList.class), sameInstance(type));
+		assertThat(ResolvableType.forType(ExtendsList.class), sameInstance(type));
+		assertThat(ResolvableType.forClass(null), sameInstance(ResolvableType.forClass(Object.class)));
+		assertThat(ResolvableType.forRawClass(ExtendsList.class), sameInstance(ResolvableType.forRawClass(ExtendsList.class)));
+		assertThat(type.getSuperType(), sameInstance(type.getSuperType()));
+	}
+
+	@Test
+	public void forFieldSharesGenericsButKeepsSource() throws Exception {
+		Field field = Fields.class.getDeclaredField("privateField");
+		Field otherField = Fields.class.getDeclaredField("otherPrivateField");
+		ResolvableType type = ResolvableType.forField(field);
+		ResolvableType otherType = ResolvableType.forField(otherField);
+		assertThat(type.getSource(), sameInstance((Object) field));
+		assertThat(otherType.getSource(), sameInstance((Object) otherField));
+		assertThat(otherType.getGenerics(), sameInstance(type.getGenerics()));
+		assertThat(otherType.getInterfaces(), sameInstance(type.getInterfaces()));
+		assertThat(type.resolveGeneric(0), equalTo((Class) String.class));
+	}
+
 	@Test  // gh-23321
 	public void forRawClassAssignableFromTypeVariable() throws Exception {
 		ResolvableType typeVariable = ResolvableType.forClass(ExtendsList.class).as(List.class).getGeneric();
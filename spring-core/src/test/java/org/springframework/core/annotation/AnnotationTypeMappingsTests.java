@@ -0,0 +1,161 @@
+/*
+ * Copyright 2002-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.core.annotation;
+
+import java.lang.annotation.Annotation;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests for {@link AnnotationTypeMappings}.
+ *
+ * @since 5.0.18
+ */
+public class AnnotationTypeMappingsTests {
+
+	@Test
+	public void metaAnnotationPathsInSearchOrder() {
+		AnnotationTypeMappings mappings = AnnotationTypeMappings.forAnnotationType(Composed.class);
+
+		Annotation[] path = mappings.getMetaAnnotationPath(Mapped.class);
+		assertNotNull(path);
+		assertEquals(2, path.length);
+		assertEquals(First.class, path[0].annotationType());
+		assertEquals("first", ((Mapped) path[1]).value());
+		assertSame(path, mappings.getMetaAnnotationPath(Mapped.class.getName()));
+
+		assertEquals(1, mappings.getMetaAnnotationPath(Second.class).length);
+		assertNull(mappings.getMetaAnnotationPath(Unrelated.class));
+		assertNull(mappings.getMetaAnnotationPath(Retention.class));
+		assertSame(mappings, AnnotationTypeMappings.forAnnotationType(Composed.class));
+	}
+
+	@Test
+	public void mergedAttributesMatchFirstPath() {
+		AnnotationAttributes attributes =
+				AnnotatedElementUtils.getMergedAnnotationAttributes(ComposedClass.class, Mapped.class);
+		assertNotNull(attributes);
+		assertEquals("first", attributes.getString("value"));
+		assertEquals("composed", attributes.getString("name"));
+		assertTrue(AnnotatedElementUtils.isAnnotated(ComposedClass.class, Mapped.class));
+		assertTrue(AnnotatedElementUtils.hasAnnotation(ComposedClass.class, Second.class));
+		assertFalse(AnnotatedElementUtils.isAnnotated(ComposedClass.class, Unrelated.class));
+	}
+
+	@Test
+	public void explicitAndConventionBasedOverrides() {
+		AnnotationAttributes attributes = AnnotatedElementUtils.findMergedAnnotationAttributes(
+				AliasedClass.class, Mapped.class, false, false);
+		assertNotNull(attributes);
+		assertEquals("aliased", attributes.getString("value"));
+		assertEquals("aliased", attributes.getString("alias"));
+		assertEquals("named", attributes.getString("name"));
+
+		Mapped mapped = AnnotatedElementUtils.findMergedAnnotation(AliasedClass.class, Mapped.class);
+		assertNotNull(mapped);
+		assertEquals("aliased", mapped.alias());
+	}
+
+	@Test
+	public void aliasedAttributesOfIntermediateAnnotationResolved() {
+		AnnotationAttributes attributes =
+				AnnotatedElementUtils.getMergedAnnotationAttributes(IntermediateClass.class, Mapped.class);
+		assertNotNull(attributes);
+		assertEquals("intermediate", attributes.getString("value"));
+	}
+
+
+	@Retention(RetentionPolicy.RUNTIME)
+	@interface Mapped {
+
+		@AliasFor("alias")
+		String value() default "";
+
+		@AliasFor("value")
+		String alias() default "";
+
+		String name() default "";
+	}
+
+	@Retention(RetentionPolicy.RUNTIME)
+	@interface Unrelated {
+	}
+
+	@Retention(RetentionPolicy.RUNTIME)
+	@Mapped("first")
+	@interface First {
+	}
+
+	@Retention(RetentionPolicy.RUNTIME)
+	@Mapped("second")
+	@interface Second {
+	}
+
+	@Retention(RetentionPolicy.RUNTIME)
+	@First
+	@Second
+	@interface Composed {
+
+		String name() default "composed";
+	}
+
+	@Retention(RetentionPolicy.RUNTIME)
+	@Mapped
+	@interface Aliased {
+
+		@AliasFor(annotation = Mapped.class, attribute = "value")
+		String path() default "";
+
+		String name() default "";
+	}
+
+	@Retention(RetentionPolicy.RUNTIME)
+	@Mapped
+	@interface Intermediate {
+
+		@AliasFor("path")
+		String value() default "";
+
+		@AliasFor("value")
+		String path() default "";
+
+		@AliasFor(annotation = Mapped.class, attribute = "value")
+		String target() default "";
+	}
+
+	@Retention(RetentionPolicy.RUNTIME)
+	@Intermediate(target = "intermediate")
+	@interface IntermediateComposed {
+	}
+
+	@Composed
+	static class ComposedClass {
+	}
+
+	@Aliased(path = "aliased", name = "named")
+	static class AliasedClass {
+	}
+
+	@IntermediateComposed
+	static class IntermediateClass {
+	}
+
+}
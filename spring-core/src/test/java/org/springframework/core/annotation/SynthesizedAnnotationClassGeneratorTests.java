@@ -0,0 +1,169 @@
+/*
+ * Copyright 2002-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.core.annotation;
+
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.reflect.Proxy;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests for {@link SynthesizedAnnotationClassGenerator}.
+ *
+ * @since 5.0.18
+ */
+public class SynthesizedAnnotationClassGeneratorTests {
+
+	@Test
+	public void synthesizedAnnotationIsGeneratedClass() {
+		Mapping mapping = synthesize(AliasedPath.class);
+		assertFalse(Proxy.isProxyClass(mapping.getClass()));
+		assertTrue(mapping instanceof SynthesizedAnnotation);
+		assertEquals(Mapping.class, mapping.annotationType());
+		assertArrayEquals(new String[] {"/path"}, mapping.value());
+		assertArrayEquals(new String[] {"/path"}, mapping.path());
+		assertEquals(3, mapping.order());
+		assertTrue(mapping.enabled());
+		assertEquals(2.5d, mapping.weight(), 0d);
+		assertEquals(String.class, mapping.type());
+		assertEquals(RetentionPolicy.CLASS, mapping.policy());
+		assertEquals("nested", mapping.nested().value());
+	}
+
+	@Test
+	public void arrayValuesAreCloned() {
+		Mapping mapping = synthesize(AliasedPath.class);
+		mapping.path()[0] = "/changed";
+		assertEquals("/path", mapping.path()[0]);
+		assertNotSame(mapping.path(), mapping.path());
+	}
+
+	@Test
+	public void equalsHashCodeAndToStringMatchJdkAnnotation() {
+		Mapping annotation = AliasedValue.class.getAnnotation(Mapping.class);
+		Mapping equivalent = synthesize(AliasedPath.class);
+		Mapping synthesized = AnnotationUtils.synthesizeAnnotation(annotation, AliasedValue.class);
+
+		assertEquals(synthesized, synthesized);
+		assertNotEquals(synthesized, equivalent);
+		assertNotEquals(synthesized, "not an annotation");
+		assertEquals(synthesize(AliasedValue.class), synthesized);
+		assertEquals(synthesize(AliasedValue.class).hashCode(), synthesized.hashCode());
+		assertNotEquals(synthesized, annotation);
+
+		Nested nested = Plain.class.getAnnotation(Nested.class);
+		Nested synthesizedNested = AnnotationUtils.synthesizeAnnotation(
+				AnnotationUtils.getAnnotationAttributes(nested), Nested.class, null);
+		assertFalse(Proxy.isProxyClass(synthesizedNested.getClass()));
+		assertEquals(nested, synthesizedNested);
+		assertEquals(synthesizedNested, nested);
+		assertEquals(nested.hashCode(), synthesizedNested.hashCode());
+		assertEquals("@" + Nested.class.getName() + "(value=plain)", synthesizedNested.toString());
+	}
+
+	@Test
+	public void synthesizedFromMap() {
+		Map<String, Object> attributes = new HashMap<>();
+		attributes.put("path", new String[] {"/map"});
+		Mapping mapping = AnnotationUtils.synthesizeAnnotation(attributes, Mapping.class, null);
+		assertFalse(Proxy.isProxyClass(mapping.getClass()));
+		assertArrayEquals(new String[] {"/map"}, mapping.value());
+		assertEquals(0, mapping.order());
+		assertEquals("", mapping.nested().value());
+	}
+
+	@Test(expected = AnnotationConfigurationException.class)
+	public void aliasConflictDetectedOnAttributeAccess() {
+		Mapping mapping = synthesize(Conflicting.class);
+		mapping.value();
+	}
+
+	@Test
+	public void nonPublicAnnotationTypeUsesProxy() {
+		Hidden hidden = AnnotationUtils.synthesizeAnnotation(
+				Collections.singletonMap("value", "hidden"), Hidden.class, null);
+		assertTrue(Proxy.isProxyClass(hidden.getClass()));
+		assertEquals("hidden", hidden.name());
+	}
+
+
+	private static Mapping synthesize(Class<?> annotatedClass) {
+		return AnnotationUtils.synthesizeAnnotation(annotatedClass.getAnnotation(Mapping.class), annotatedClass);
+	}
+
+
+	@Retention(RetentionPolicy.RUNTIME)
+	public @interface Nested {
+
+		String value() default "";
+	}
+
+	@Retention(RetentionPolicy.RUNTIME)
+	public @interface Mapping {
+
+		@AliasFor("path")
+		String[] value() default {};
+
+		@AliasFor("value")
+		String[] path() default {};
+
+		int order() default 0;
+
+		boolean enabled() default true;
+
+		double weight() default 2.5d;
+
+		Class<?> type() default String.class;
+
+		RetentionPolicy policy() default RetentionPolicy.CLASS;
+
+		Nested nested() default @Nested;
+	}
+
+	@Retention(RetentionPolicy.RUNTIME)
+	@interface Hidden {
+
+		@AliasFor("name")
+		String value() default "";
+
+		@AliasFor("value")
+		String name() default "";
+	}
+
+	@Mapping(path = "/path", order = 3, nested = @Nested("nested"))
+	static class AliasedPath {
+	}
+
+	@Mapping("/value")
+	static class AliasedValue {
+	}
+
+	@Nested("plain")
+	static class Plain {
+	}
+
+	@Mapping(value = "/value", path = "/path")
+	static class Conflicting {
+	}
+
+}
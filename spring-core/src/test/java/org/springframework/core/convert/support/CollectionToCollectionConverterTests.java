@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2016 the original author or authors.
+ * Copyright 2002-2020 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -19,6 +19,8 @@ package org.springframework.core.convert.support;
 import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
 import java.net.URI;
 import java.net.URL;
 import java.util.ArrayList;
@@ -36,6 +38,7 @@ import org.junit.Test;
 import org.springframework.core.convert.ConversionFailedException;
 import org.springframework.core.convert.ConverterNotFoundException;
 import org.springframework.core.convert.TypeDescriptor;
+import org.springframework.core.convert.converter.GenericConverter;
 import org.springframework.core.io.ClassPathResource;
 import org.springframework.core.io.FileSystemResource;
 import org.springframework.core.io.Resource;
@@ -261,6 +264,56 @@ public class CollectionToCollectionConverterTests {
 				conversionService.convert(list, TypeDescriptor.forObject(list), new TypeDescriptor(getClass().getField("enumSet"))));
 	}
 
+	@Test
+	public void elementConverterResolvedOncePerElementClass() throws Exception {
+		List<TypeDescriptor> lookups = new ArrayList<>();
+		GenericConversionService conversionService = new GenericConversionService() {
+			@Override
+			protected GenericConverter getConverter(TypeDescriptor sourceType, TypeDescriptor targetType) {
+				lookups.add(sourceType);
+				return super.getConverter(sourceType, targetType);
+			}
+		};
+		conversionService.addConverter(new CollectionToCollectionConverter(conversionService));
+		conversionService.addConverterFactory(new StringToNumberConverterFactory());
+		conversionService.addConverterFactory(new NumberToNumberConverterFactory());
+
+		List<Object> list = new ArrayList<>(Arrays.asList("1", "2", "3", 4L, 5L, null, "6"));
+		@SuppressWarnings("unchecked")
+		List<Integer> result = (List<Integer>) conversionService.convert(list,
+				TypeDescriptor.forObject(list), new TypeDescriptor(getClass().getField("scalarListTarget")));
+		assertEquals(Arrays.asList(1, 2, 3, 4, 5, null, 6), result);
+		// One lookup for the collection itself, then one per change of element class
+		assertEquals(4, lookups.size());
+		assertEquals(String.class, lookups.get(1).getType());
+		assertEquals(Long.class, lookups.get(2).getType());
+		assertEquals(String.class, lookups.get(3).getType());
+	}
+
+	@Test
+	public void rawCollectionElementsKeepContainerAnnotations() throws Exception {
+		List<TypeDescriptor> lookups = new ArrayList<>();
+		GenericConversionService conversionService = new GenericConversionService() {
+			@Override
+			protected GenericConverter getConverter(TypeDescriptor sourceType, TypeDescriptor targetType) {
+				lookups.add(sourceType);
+				return super.getConverter(sourceType, targetType);
+			}
+		};
+		conversionService.addConverter(new CollectionToCollectionConverter(conversionService));
+		conversionService.addConverterFactory(new StringToNumberConverterFactory());
+
+		List<String> list = Arrays.asList("1", "2");
+		@SuppressWarnings("unchecked")
+		List<Integer> result = (List<Integer>) conversionService.convert(list,
+				new TypeDescriptor(getClass().getField("annotatedRawList")),
+				new TypeDescriptor(getClass().getField("scalarListTarget")));
+		assertEquals(Arrays.asList(1, 2), result);
+		assertEquals(2, lookups.size());
+		assertEquals(String.class, lookups.get(1).getType());
+		assertTrue(lookups.get(1).hasAnnotation(ElementFormat.class));
+	}
+
 
 	public ArrayList<Integer> scalarListTarget;
 
@@ -280,6 +333,10 @@ public class CollectionToCollectionConverterTests {
 
 	public EnumSet<MyEnum> enumSet;
 
+	@ElementFormat
+	@SuppressWarnings("rawtypes")
+	public List annotatedRawList;
+
 
 	public static abstract class BaseResource implements Resource {
 
@@ -356,4 +413,9 @@ public class CollectionToCollectionConverterTests {
 
 	public enum MyEnum {A, B, C}
 
+
+	@Retention(RetentionPolicy.RUNTIME)
+	public @interface ElementFormat {
+	}
+
 }
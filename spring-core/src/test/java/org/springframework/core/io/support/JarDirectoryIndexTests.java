@@ -0,0 +1,144 @@
+/*
+ * Copyright 2002-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.core.io.support;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Enumeration;
+import java.util.List;
+import java.util.jar.JarEntry;
+import java.util.jar.JarFile;
+import java.util.jar.JarOutputStream;
+
+import org.junit.After;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import org.springframework.core.io.Resource;
+import org.springframework.util.AntPathMatcher;
+import org.springframework.util.PathMatcher;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests for {@link JarDirectoryIndex}.
+ *
+ * @since 5.0.18
+ */
+public class JarDirectoryIndexTests {
+
+	private static final String[] ENTRIES = {"META-INF/", "META-INF/MANIFEST.MF", "com/", "com/example/",
+			"com/example/One.class", "com/example/sub/Two.class", "com/example/sub/context.xml",
+			"com/other/Three.class", "com/example/Four.class", "root.xml", "com/example/deep/er/Five.class"};
+
+	@Rule
+	public final TemporaryFolder folder = new TemporaryFolder();
+
+	private final PathMatcher pathMatcher = new AntPathMatcher();
+
+
+	@After
+	public void clearCache() {
+		JarDirectoryIndex.clearCache();
+	}
+
+
+	@Test
+	public void matchesSameEntriesAsPathMatcherInJarOrder() throws IOException {
+		File jar = createJar("sample.jar", ENTRIES);
+		try (JarFile jarFile = new JarFile(jar)) {
+			JarDirectoryIndex index = JarDirectoryIndex.forJarFile(jar.toURI().toString(), jarFile);
+			String[][] lookups = {{"", "**/*.class"}, {"", "*.xml"}, {"", "**"}, {"", "com/*/*.class"},
+					{"com/", "**/*.class"}, {"com/example/", "*.class"}, {"com/example/", "**/*.xml"},
+					{"com/example/", "**/Fi*.class"}, {"com/example/", "sub/**"}, {"com/missing/", "**"},
+					{"META-INF/", "*"}, {"", "**/sub/"}, {"com/example/", "**"}};
+			for (String[] lookup : lookups) {
+				assertEquals(lookup[0] + lookup[1], matchAll(jarFile, lookup[0], lookup[1]),
+						index.findMatchingPaths(lookup[0], lookup[1], this.pathMatcher));
+			}
+		}
+	}
+
+	@Test
+	public void indexSharedAcrossLookups() throws IOException {
+		File jar = createJar("sample.jar", ENTRIES);
+		try (JarFile jarFile = new JarFile(jar)) {
+			JarDirectoryIndex index = JarDirectoryIndex.forJarFile(jar.toURI().toString(), jarFile);
+			assertSame(index, JarDirectoryIndex.forJarFile(jar.toURI().toString(), jarFile));
+		}
+	}
+
+	@Test
+	public void indexRebuiltWhenJarFileChanges() throws IOException {
+		File jar = createJar("sample.jar", ENTRIES);
+		try (JarFile jarFile = new JarFile(jar)) {
+			assertEquals(Arrays.asList("One.class", "Four.class"), JarDirectoryIndex.forJarFile(
+					jar.toURI().toString(), jarFile).findMatchingPaths("com/example/", "*.class", this.pathMatcher));
+		}
+		createJar("sample.jar", "com/example/Six.class");
+		try (JarFile jarFile = new JarFile(jar)) {
+			assertEquals(Arrays.asList("Six.class"), JarDirectoryIndex.forJarFile(
+					jar.toURI().toString(), jarFile).findMatchingPaths("com/example/", "*.class", this.pathMatcher));
+		}
+	}
+
+	@Test
+	public void resolverUsesIndexForJarResources() throws IOException {
+		File jar = createJar("sample.jar", ENTRIES);
+		PathMatchingResourcePatternResolver resolver = new PathMatchingResourcePatternResolver();
+		Resource[] resources = resolver.getResources("jar:" + jar.toURI() + "!/com/example/**/*.class");
+		List<String> filenames = new ArrayList<>();
+		for (Resource resource : resources) {
+			filenames.add(resource.getFilename());
+		}
+		assertEquals(Arrays.asList("One.class", "Two.class", "Four.class", "Five.class"), filenames);
+	}
+
+
+	private File createJar(String name, String... entries) throws IOException {
+		File jar = new File(this.folder.getRoot(), name);
+		try (JarOutputStream out = new JarOutputStream(new FileOutputStream(jar))) {
+			for (String entry : entries) {
+				out.putNextEntry(new JarEntry(entry));
+				if (!entry.endsWith("/")) {
+					out.write(entry.getBytes("UTF-8"));
+				}
+				out.closeEntry();
+			}
+		}
+		return jar;
+	}
+
+	private List<String> matchAll(JarFile jarFile, String rootEntryPath, String subPattern) {
+		List<String> paths = new ArrayList<>();
+		for (Enumeration<JarEntry> entries = jarFile.entries(); entries.hasMoreElements();) {
+			String entryPath = entries.nextElement().getName();
+			if (entryPath.startsWith(rootEntryPath)) {
+				String relativePath = entryPath.substring(rootEntryPath.length());
+				if (this.pathMatcher.match(subPattern, relativePath)) {
+					paths.add(relativePath);
+				}
+			}
+		}
+		return paths;
+	}
+
+}
@@ -0,0 +1,139 @@
+/*
+ * Copyright 2002-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.core.type.classreading;
+
+import java.net.URL;
+import java.net.URLClassLoader;
+
+import org.junit.Test;
+
+import org.springframework.core.io.DefaultResourceLoader;
+import org.springframework.core.io.Resource;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests for {@link MetadataReaderCache} and its use by
+ * {@link CachingMetadataReaderFactory}.
+ *
+ * @since 5.0.18
+ */
+public class MetadataReaderCacheTests {
+
+	@Test
+	public void readersSharedAcrossFactories() throws Exception {
+		MetadataReaderCache cache = new MetadataReaderCache(16);
+		DefaultResourceLoader resourceLoader = new DefaultResourceLoader();
+		CachingMetadataReaderFactory factory1 = new CachingMetadataReaderFactory(resourceLoader);
+		factory1.setMetadataReaderCache(cache);
+		CachingMetadataReaderFactory factory2 = new CachingMetadataReaderFactory(new DefaultResourceLoader());
+		factory2.setMetadataReaderCache(cache);
+
+		MetadataReader reader = factory1.getMetadataReader(getClass().getName());
+		assertSame(reader, factory2.getMetadataReader(getClass().getName()));
+		assertEquals(1, cache.size());
+		assertEquals(1, cache.getHitCount());
+		assertEquals(1, cache.getMissCount());
+		assertSame(cache, factory1.getMetadataReaderCache());
+		assertEquals(16, factory1.getCacheLimit());
+	}
+
+	@Test
+	public void readersKeptPerClassLoader() throws Exception {
+		MetadataReaderCache cache = new MetadataReaderCache(16);
+		ClassLoader otherClassLoader = new URLClassLoader(new URL[0], getClass().getClassLoader());
+		CachingMetadataReaderFactory factory1 = new CachingMetadataReaderFactory(new DefaultResourceLoader());
+		factory1.setMetadataReaderCache(cache);
+		CachingMetadataReaderFactory factory2 = new CachingMetadataReaderFactory(otherClassLoader);
+		factory2.setMetadataReaderCache(cache);
+
+		Resource resource = new DefaultResourceLoader().getResource(
+				"classpath:" + getClass().getName().replace('.', '/') + ".class");
+		MetadataReader reader1 = factory1.getMetadataReader(resource);
+		MetadataReader reader2 = factory2.getMetadataReader(resource);
+		assertNotSame(reader1, reader2);
+		assertEquals(2, cache.size());
+
+		cache.evict(otherClassLoader);
+		assertEquals(1, cache.size());
+		assertSame(reader1, factory1.getMetadataReader(resource));
+		assertNotSame(reader2, factory2.getMetadataReader(resource));
+	}
+
+	@Test
+	public void clearClassLoaderOnSharedCache() throws Exception {
+		MetadataReaderCache cache = MetadataReaderCache.getSharedInstance();
+		ClassLoader otherClassLoader = new URLClassLoader(new URL[0], getClass().getClassLoader());
+		ClassLoader childClassLoader = new URLClassLoader(new URL[0], otherClassLoader);
+		CachingMetadataReaderFactory factory1 = new CachingMetadataReaderFactory(getClass().getClassLoader());
+		factory1.setMetadataReaderCache(cache);
+		CachingMetadataReaderFactory factory2 = new CachingMetadataReaderFactory(otherClassLoader);
+		factory2.setMetadataReaderCache(cache);
+		CachingMetadataReaderFactory factory3 = new CachingMetadataReaderFactory(childClassLoader);
+		factory3.setMetadataReaderCache(cache);
+
+		Resource resource = new DefaultResourceLoader().getResource(
+				"classpath:" + getClass().getName().replace('.', '/') + ".class");
+		factory1.getMetadataReader(resource);
+		factory2.getMetadataReader(resource);
+		factory3.getMetadataReader(resource);
+
+		MetadataReaderCache.clearClassLoader(otherClassLoader);
+		assertNull(cache.get(resource, otherClassLoader));
+		assertNull(cache.get(resource, childClassLoader));
+		assertNotNull(cache.get(resource, getClass().getClassLoader()));
+
+		// Entries for the ClassLoader of the cache itself are retained
+		MetadataReaderCache.clearClassLoader(getClass().getClassLoader());
+		assertNotNull(cache.get(resource, getClass().getClassLoader()));
+	}
+
+	@Test
+	public void recentlyUsedReadersSurviveEviction() throws Exception {
+		MetadataReaderCache cache = new MetadataReaderCache(2);
+		CachingMetadataReaderFactory factory = new CachingMetadataReaderFactory(new DefaultResourceLoader());
+		factory.setMetadataReaderCache(cache);
+
+		MetadataReader reader = factory.getMetadataReader(String.class.getName());
+		factory.getMetadataReader(Integer.class.getName());
+		assertSame(reader, factory.getMetadataReader(String.class.getName()));
+		factory.getMetadataReader(Long.class.getName());
+
+		assertEquals(2, cache.size());
+		assertEquals(1, cache.getEvictionCount());
+		assertSame(reader, factory.getMetadataReader(String.class.getName()));
+		assertEquals(2, cache.getHitCount());
+		assertEquals(3, cache.getMissCount());
+	}
+
+	@Test
+	public void clearCacheLeavesSharedCacheIntact() throws Exception {
+		MetadataReaderCache cache = new MetadataReaderCache(16);
+		CachingMetadataReaderFactory factory = new CachingMetadataReaderFactory(new DefaultResourceLoader());
+		factory.setMetadataReaderCache(cache);
+		factory.getMetadataReader(getClass().getName());
+
+		factory.clearCache();
+		assertNull(factory.getMetadataReaderCache());
+		assertEquals(CachingMetadataReaderFactory.DEFAULT_CACHE_LIMIT, factory.getCacheLimit());
+		assertEquals(1, cache.size());
+
+		cache.clear();
+		assertEquals(0, cache.size());
+	}
+
+}
@@ -0,0 +1,168 @@
+/*
+ * Copyright 2002-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.util;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+import org.springframework.util.ConcurrentReferenceHashMap.ReferenceType;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests for {@link ConcurrentReferenceCache}.
+ *
+ * @since 5.0.18
+ */
+public class ConcurrentReferenceCacheTests {
+
+	@Test
+	public void mapOperations() {
+		ConcurrentReferenceCache<String, Integer> cache = new ConcurrentReferenceCache<>();
+		assertNull(cache.put("a", 1));
+		assertEquals(Integer.valueOf(1), cache.put("a", 2));
+		assertEquals(Integer.valueOf(2), cache.putIfAbsent("a", 3));
+		assertNull(cache.putIfAbsent("b", 4));
+		assertTrue(cache.containsKey("b"));
+		assertFalse(cache.remove("b", 5));
+		assertTrue(cache.remove("b", 4));
+		assertFalse(cache.replace("a", 3, 4));
+		assertTrue(cache.replace("a", 2, 5));
+		assertEquals(Integer.valueOf(5), cache.replace("a", 6));
+		assertNull(cache.replace("c", 7));
+		assertEquals(Integer.valueOf(8), cache.computeIfAbsent("d", key -> 8));
+		assertEquals(2, cache.size());
+
+		Map<String, Integer> expected = new HashMap<>();
+		expected.put("a", 6);
+		expected.put("d", 8);
+		assertEquals(expected, cache);
+		assertEquals(expected, new HashMap<>(cache));
+
+		assertEquals(Integer.valueOf(6), cache.remove("a"));
+		cache.clear();
+		assertTrue(cache.isEmpty());
+	}
+
+	@Test
+	public void statistics() {
+		ConcurrentReferenceCache<String, String> cache = new ConcurrentReferenceCache<>();
+		cache.put("a", "value");
+		assertEquals("value", cache.get("a"));
+		assertEquals("value", cache.get("a"));
+		assertNull(cache.get("b"));
+		assertNull(cache.get(null));
+		assertTrue(cache.containsKey("a"));
+		assertEquals(2, cache.getHitCount());
+		assertEquals(2, cache.getMissCount());
+		assertEquals(0, cache.getEvictionCount());
+		assertTrue(cache.toString().contains("hits = 2"));
+	}
+
+	@Test
+	public void boundedCacheEvictsLeastRecentlyAccessed() {
+		ConcurrentReferenceCache<Integer, String> cache = new ConcurrentReferenceCache<>(3);
+		cache.put(1, "one");
+		cache.put(2, "two");
+		cache.put(3, "three");
+		cache.get(1);
+		cache.put(4, "four");
+		assertEquals(3, cache.size());
+		assertTrue(cache.containsKey(1));
+		assertFalse(cache.containsKey(2));
+		assertEquals(1, cache.getEvictionCount());
+
+		for (int i = 5; i < 100; i++) {
+			cache.put(i, "value" + i);
+		}
+		assertEquals(3, cache.size());
+		assertEquals(96, cache.getEvictionCount());
+	}
+
+	@Test
+	public void boundedCacheIgnoresReplacedEntries() {
+		ConcurrentReferenceCache<Integer, String> cache = new ConcurrentReferenceCache<>(2);
+		for (int i = 0; i < 100; i++) {
+			cache.put(1, "value" + i);
+		}
+		cache.put(2, "two");
+		assertEquals(2, cache.size());
+		assertEquals("value99", cache.get(1));
+		assertEquals(0, cache.getEvictionCount());
+	}
+
+	@Test
+	public void weakValuesArePurged() throws Exception {
+		ConcurrentReferenceCache<String, Object> cache =
+				new ConcurrentReferenceCache<>(ConcurrentReferenceCache.UNBOUNDED, ReferenceType.WEAK);
+		cache.put("a", new Object());
+		Object retained = new Object();
+		cache.put("b", retained);
+		for (int i = 0; i < 10 && cache.size() > 1; i++) {
+			System.gc();
+			Thread.sleep(10);
+			cache.purgeUnreferencedEntries();
+		}
+		assertEquals(1, cache.size());
+		assertNull(cache.get("a"));
+		assertSame(retained, cache.get("b"));
+		Iterator<Map.Entry<String, Object>> iterator = cache.entrySet().iterator();
+		assertEquals("b", iterator.next().getKey());
+		iterator.remove();
+		assertFalse(iterator.hasNext());
+		assertTrue(cache.isEmpty());
+	}
+
+	@Test
+	public void concurrentWritesRespectBound() throws Exception {
+		ConcurrentReferenceCache<Integer, Integer> cache = new ConcurrentReferenceCache<>(100);
+		ExecutorService executor = Executors.newFixedThreadPool(4);
+		CountDownLatch latch = new CountDownLatch(4);
+		for (int t = 0; t < 4; t++) {
+			int offset = t * 10000;
+			executor.execute(() -> {
+				for (int i = 0; i < 10000; i++) {
+					cache.put(offset + i, i);
+					cache.get(offset + i / 2);
+				}
+				latch.countDown();
+			});
+		}
+		assertTrue(latch.await(30, TimeUnit.SECONDS));
+		executor.shutdown();
+		cache.put(-1, -1);
+		assertTrue(cache.size() <= 100);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void nullValueRejected() {
+		new ConcurrentReferenceCache<String, String>().put("a", null);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void invalidMaxSizeRejected() {
+		new ConcurrentReferenceCache<String, String>(0);
+	}
+
+}
@@ -0,0 +1,97 @@
+/*
+ * Copyright 2002-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.util.concurrent;
+
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.util.Collections;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests for {@link ParallelTaskGroup}.
+ *
+ * @since 5.0.18
+ */
+public class ParallelTaskGroupTests {
+
+	@Test
+	public void tasksRunWithContextClassLoaderOfCreatingThread() {
+		Thread currentThread = Thread.currentThread();
+		ClassLoader previousClassLoader = currentThread.getContextClassLoader();
+		ClassLoader classLoader = new URLClassLoader(new URL[0], previousClassLoader);
+		currentThread.setContextClassLoader(classLoader);
+		ClassLoader[] seen = new ClassLoader[8];
+		try {
+			ParallelTaskGroup tasks = new ParallelTaskGroup(ForkJoinPool.commonPool());
+			for (int i = 0; i < seen.length; i++) {
+				int index = i;
+				tasks.run(() -> seen[index] = Thread.currentThread().getContextClassLoader());
+			}
+			tasks.join();
+		}
+		finally {
+			currentThread.setContextClassLoader(previousClassLoader);
+		}
+		for (ClassLoader seenClassLoader : seen) {
+			assertSame(classLoader, seenClassLoader);
+		}
+	}
+
+	@Test
+	public void downstreamTaskRunsAfterUpstreamTask() {
+		AtomicInteger counter = new AtomicInteger();
+		int[] order = new int[2];
+		ParallelTaskGroup tasks = new ParallelTaskGroup(2);
+		CompletableFuture<Void> upstream = tasks.run(() -> order[0] = counter.incrementAndGet());
+		tasks.runAfter(Collections.singleton(upstream), () -> order[1] = counter.incrementAndGet());
+		tasks.join();
+		assertEquals(1, order[0]);
+		assertEquals(2, order[1]);
+	}
+
+	@Test
+	public void firstFailureRethrownAndPendingTasksSkipped() throws Exception {
+		CountDownLatch failed = new CountDownLatch(1);
+		AtomicInteger runs = new AtomicInteger();
+		ParallelTaskGroup tasks = new ParallelTaskGroup(1);
+		tasks.run(() -> {
+			failed.countDown();
+			throw new IllegalArgumentException("first");
+		});
+		failed.await();
+		for (int i = 0; i < 4; i++) {
+			tasks.run(runs::incrementAndGet);
+		}
+		try {
+			tasks.join();
+			fail("Should have thrown IllegalArgumentException");
+		}
+		catch (IllegalArgumentException ex) {
+			assertEquals("first", ex.getMessage());
+		}
+		assertTrue(tasks.hasFailed());
+		assertEquals(0, runs.get());
+	}
+
+}
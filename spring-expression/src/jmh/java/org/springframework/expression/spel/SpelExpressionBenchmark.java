@@ -0,0 +1,131 @@
+/*
+ * Copyright 2002-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.expression.spel;
+
+import java.util.Arrays;
+import java.util.List;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+import org.springframework.expression.Expression;
+import org.springframework.expression.spel.standard.SpelExpressionParser;
+import org.springframework.expression.spel.support.StandardEvaluationContext;
+
+/**
+ * Benchmarks for {@link org.springframework.expression.spel.standard.SpelExpression#getValue}
+ * in interpreted and compiled mode.
+ *
+ * @since 5.0.18
+ */
+@BenchmarkMode(Mode.Throughput)
+public class SpelExpressionBenchmark {
+
+	@Benchmark
+	public void getValue(ExpressionState state, Blackhole bh) {
+		bh.consume(state.expression.getValue(state.context));
+	}
+
+	@Benchmark
+	public void parseExpression(ExpressionState state, Blackhole bh) {
+		bh.consume(state.parser.parseExpression(state.expressionString));
+	}
+
+
+	@State(Scope.Benchmark)
+	public static class ExpressionState {
+
+		@Param({"name", "address.city.toUpperCase()", "age > 18 and name != null",
+				"orders.?[amount > 100].size()", "address?.city ?: 'unknown'"})
+		public String expressionString;
+
+		@Param({"OFF", "IMMEDIATE"})
+		public SpelCompilerMode compilerMode;
+
+		public SpelExpressionParser parser;
+
+		public Expression expression;
+
+		public StandardEvaluationContext context;
+
+		@Setup
+		public void setup() {
+			this.parser = new SpelExpressionParser(new SpelParserConfiguration(this.compilerMode, null));
+			this.expression = this.parser.parseExpression(this.expressionString);
+			this.context = new StandardEvaluationContext(new Person());
+		}
+	}
+
+
+	public static class Person {
+
+		public String name = "Jane";
+
+		public int age = 42;
+
+		public Address address = new Address();
+
+		public List<Order> orders = Arrays.asList(new Order(50), new Order(150), new Order(250));
+
+		public String getName() {
+			return this.name;
+		}
+
+		public int getAge() {
+			return this.age;
+		}
+
+		public Address getAddress() {
+			return this.address;
+		}
+
+		public List<Order> getOrders() {
+			return this.orders;
+		}
+	}
+
+
+	public static class Address {
+
+		public String city = "Linz";
+
+		public String getCity() {
+			return this.city;
+		}
+	}
+
+
+	public static class Order {
+
+		public final int amount;
+
+		public Order(int amount) {
+			this.amount = amount;
+		}
+
+		public int getAmount() {
+			return this.amount;
+		}
+	}
+
+}
@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2018 the original author or authors.
+ * Copyright 2002-2020 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -112,8 +112,9 @@ public class Elvis extends SpelNodeImpl {
 	private void computeExitTypeDescriptor() {
 		if (this.exitTypeDescriptor == null && this.children[0].exitTypeDescriptor != null &&
 				this.children[1].exitTypeDescriptor != null) {
-			String conditionDescriptor = this.children[0].exitTypeDescriptor;
-			String ifNullValueDescriptor = this.children[1].exitTypeDescriptor;
+			// Both branches leave a reference on the stack, so compare boxed descriptors
+			String conditionDescriptor = toBoxedDescriptorIfNecessary(this.children[0].exitTypeDescriptor);
+			String ifNullValueDescriptor = toBoxedDescriptorIfNecessary(this.children[1].exitTypeDescriptor);
 			if (ObjectUtils.nullSafeEquals(conditionDescriptor, ifNullValueDescriptor)) {
 				this.exitTypeDescriptor = conditionDescriptor;
 			}
@@ -124,4 +125,8 @@ public class Elvis extends SpelNodeImpl {
 		}
 	}
 
+	private static String toBoxedDescriptorIfNecessary(String descriptor) {
+		return (CodeFlow.isPrimitive(descriptor) ? CodeFlow.toBoxedDescriptor(descriptor) : descriptor);
+	}
+
 }
@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2018 the original author or authors.
+ * Copyright 2002-2020 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -21,6 +21,7 @@ import java.lang.reflect.Method;
 import java.lang.reflect.Modifier;
 import java.lang.reflect.Proxy;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
 
@@ -42,7 +43,6 @@ import org.springframework.expression.spel.support.ReflectiveMethodExecutor;
 import org.springframework.expression.spel.support.ReflectiveMethodResolver;
 import org.springframework.lang.Nullable;
 import org.springframework.util.Assert;
-import org.springframework.util.ObjectUtils;
 
 /**
  * Expression language AST node that represents a method reference.
@@ -53,6 +53,12 @@ import org.springframework.util.ObjectUtils;
  */
 public class MethodReference extends SpelNodeImpl {
 
+	// Maximum number of target and argument type combinations kept in the inline cache
+	private static final int INLINE_CACHE_SIZE = 4;
+
+	private static final CachedMethodExecutor[] EMPTY_INLINE_CACHE = new CachedMethodExecutor[0];
+
+
 	private final String name;
 
 	private final boolean nullSafe;
@@ -63,6 +69,9 @@ public class MethodReference extends SpelNodeImpl {
 	@Nullable
 	private volatile CachedMethodExecutor cachedExecutor;
 
+	// Executors for the target and argument types seen so far, most recent one in cachedExecutor
+	private volatile CachedMethodExecutor[] inlineCache = EMPTY_INLINE_CACHE;
+
 
 	public MethodReference(boolean nullSafe, String methodName, int pos, SpelNodeImpl... arguments) {
 		super(pos, arguments);
@@ -99,16 +108,15 @@ public class MethodReference extends SpelNodeImpl {
 	private TypedValue getValueInternal(EvaluationContext evaluationContext,
 			@Nullable Object value, @Nullable TypeDescriptor targetType, Object[] arguments) {
 
-		List<TypeDescriptor> argumentTypes = getArgumentTypes(arguments);
 		if (value == null) {
-			throwIfNotNullSafe(argumentTypes);
+			throwIfNotNullSafe(getArgumentTypes(arguments));
 			return TypedValue.NULL;
 		}
 
-		MethodExecutor executorToUse = getCachedExecutor(evaluationContext, value, targetType, argumentTypes);
-		if (executorToUse != null) {
+		CachedMethodExecutor cachedExecutor = getCachedExecutor(evaluationContext, value, arguments);
+		if (cachedExecutor != null) {
 			try {
-				return executorToUse.execute(evaluationContext, value, arguments);
+				return cachedExecutor.get().execute(evaluationContext, value, arguments);
 			}
 			catch (AccessException ex) {
 				// Two reasons this can occur:
@@ -131,9 +139,12 @@ public class MethodReference extends SpelNodeImpl {
 		}
 
 		// either there was no accessor or it no longer existed
-		executorToUse = findAccessorForMethod(argumentTypes, value, evaluationContext);
-		this.cachedExecutor = new CachedMethodExecutor(
-				executorToUse, (value instanceof Class ? (Class<?>) value : null), targetType, argumentTypes);
+		List<TypeDescriptor> argumentTypes = getArgumentTypes(arguments);
+		MethodExecutor executorToUse = findAccessorForMethod(argumentTypes, value, evaluationContext);
+		cachedExecutor = new CachedMethodExecutor(executorToUse, (value instanceof Class ? (Class<?>) value : null),
+				targetType, value, arguments);
+		this.cachedExecutor = cachedExecutor;
+		addToInlineCache(cachedExecutor);
 		try {
 			return executorToUse.execute(evaluationContext, value, arguments);
 		}
@@ -178,8 +189,8 @@ public class MethodReference extends SpelNodeImpl {
 	}
 
 	@Nullable
-	private MethodExecutor getCachedExecutor(EvaluationContext evaluationContext, Object value,
-			@Nullable TypeDescriptor target, List<TypeDescriptor> argumentTypes) {
+	private CachedMethodExecutor getCachedExecutor(EvaluationContext evaluationContext, Object value,
+			Object[] arguments) {
 
 		List<MethodResolver> methodResolvers = evaluationContext.getMethodResolvers();
 		if (methodResolvers.size() != 1 || !(methodResolvers.get(0) instanceof ReflectiveMethodResolver)) {
@@ -188,13 +199,41 @@ public class MethodReference extends SpelNodeImpl {
 		}
 
 		CachedMethodExecutor executorToCheck = this.cachedExecutor;
-		if (executorToCheck != null && executorToCheck.isSuitable(value, target, argumentTypes)) {
-			return executorToCheck.get();
+		if (executorToCheck != null && executorToCheck.isSuitable(value, arguments)) {
+			return executorToCheck;
+		}
+		// Polymorphic call site: check the executors resolved for other types before
+		for (CachedMethodExecutor candidate : this.inlineCache) {
+			if (candidate != executorToCheck && candidate.isSuitable(value, arguments)) {
+				this.cachedExecutor = candidate;
+				return candidate;
+			}
 		}
-		this.cachedExecutor = null;
 		return null;
 	}
 
+	private void addToInlineCache(CachedMethodExecutor cachedExecutor) {
+		CachedMethodExecutor[] entries = this.inlineCache;
+		CachedMethodExecutor[] newEntries = null;
+		for (int i = 0; i < entries.length; i++) {
+			if (entries[i].hasSameGuard(cachedExecutor)) {
+				// Replace a stale executor for the same types
+				newEntries = entries.clone();
+				newEntries[i] = cachedExecutor;
+				break;
+			}
+		}
+		if (newEntries == null) {
+			if (entries.length >= INLINE_CACHE_SIZE) {
+				// Megamorphic: keep the types seen first
+				return;
+			}
+			newEntries = Arrays.copyOf(entries, entries.length + 1);
+			newEntries[entries.length] = cachedExecutor;
+		}
+		this.inlineCache = newEntries;
+	}
+
 	private MethodExecutor findAccessorForMethod(List<TypeDescriptor> argumentTypes, Object targetObject,
 			EvaluationContext evaluationContext) throws SpelEvaluationException {
 
@@ -336,23 +375,22 @@ public class MethodReference extends SpelNodeImpl {
 			CodeFlow.insertBoxIfNecessary(mv, descriptor.charAt(0));
 		}
 
-		String classDesc;
-		if (Modifier.isPublic(method.getDeclaringClass().getModifiers())) {
-			classDesc = method.getDeclaringClass().getName().replace('.', '/');
-		}
-		else {
+		Class<?> owner = method.getDeclaringClass();
+		if (!Modifier.isPublic(owner.getModifiers())) {
 			Class<?> publicDeclaringClass = methodExecutor.getPublicDeclaringClass();
 			Assert.state(publicDeclaringClass != null, "No public declaring class");
-			classDesc = publicDeclaringClass.getName().replace('.', '/');
+			owner = publicDeclaringClass;
 		}
+		String classDesc = owner.getName().replace('.', '/');
 
 		if (!isStaticMethod && (descriptor == null || !descriptor.substring(1).equals(classDesc))) {
 			CodeFlow.insertCheckCast(mv, "L" + classDesc);
 		}
 
 		generateCodeForArguments(mv, cf, method, this.children);
-		mv.visitMethodInsn((isStaticMethod ? INVOKESTATIC : INVOKEVIRTUAL), classDesc, method.getName(),
-				CodeFlow.createSignatureDescriptor(method), method.getDeclaringClass().isInterface());
+		int opcode = (isStaticMethod ? INVOKESTATIC : (owner.isInterface() ? INVOKEINTERFACE : INVOKEVIRTUAL));
+		mv.visitMethodInsn(opcode, classDesc, method.getName(),
+				CodeFlow.createSignatureDescriptor(method), owner.isInterface());
 		cf.pushDescriptor(this.exitTypeDescriptor);
 
 		if (this.originalPrimitiveExitTypeDescriptor != null) {
@@ -405,6 +443,10 @@ public class MethodReference extends SpelNodeImpl {
 	}
 
 
+	/**
+	 * A resolved executor, guarded by the classes of the target and the arguments:
+	 * these are all that method resolution depends on for a given method name.
+	 */
 	private static class CachedMethodExecutor {
 
 		private final MethodExecutor methodExecutor;
@@ -415,20 +457,39 @@ public class MethodReference extends SpelNodeImpl {
 		@Nullable
 		private final TypeDescriptor target;
 
-		private final List<TypeDescriptor> argumentTypes;
+		private final Class<?> targetClass;
+
+		private final Class<?>[] argumentClasses;
 
 		public CachedMethodExecutor(MethodExecutor methodExecutor, @Nullable Class<?> staticClass,
-				@Nullable TypeDescriptor target, List<TypeDescriptor> argumentTypes) {
+				@Nullable TypeDescriptor target, Object value, Object[] arguments) {
 
 			this.methodExecutor = methodExecutor;
 			this.staticClass = staticClass;
 			this.target = target;
-			this.argumentTypes = argumentTypes;
+			this.targetClass = value.getClass();
+			this.argumentClasses = new Class<?>[arguments.length];
+			for (int i = 0; i < arguments.length; i++) {
+				this.argumentClasses[i] = (arguments[i] != null ? arguments[i].getClass() : null);
+			}
+		}
+
+		public boolean isSuitable(Object value, Object[] arguments) {
+			if ((this.staticClass != null ? this.staticClass != value : this.targetClass != value.getClass()) ||
+					this.argumentClasses.length != arguments.length) {
+				return false;
+			}
+			for (int i = 0; i < arguments.length; i++) {
+				if (this.argumentClasses[i] != (arguments[i] != null ? arguments[i].getClass() : null)) {
+					return false;
+				}
+			}
+			return true;
 		}
 
-		public boolean isSuitable(Object value, @Nullable TypeDescriptor target, List<TypeDescriptor> argumentTypes) {
-			return ((this.staticClass == null || this.staticClass == value) &&
-					ObjectUtils.nullSafeEquals(this.target, target) && this.argumentTypes.equals(argumentTypes));
+		public boolean hasSameGuard(CachedMethodExecutor other) {
+			return (this.staticClass == other.staticClass && this.targetClass == other.targetClass &&
+					Arrays.equals(this.argumentClasses, other.argumentClasses));
 		}
 
 		public boolean hasProxyTarget() {
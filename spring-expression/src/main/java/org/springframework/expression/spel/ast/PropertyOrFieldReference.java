@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2018 the original author or authors.
+ * Copyright 2002-2020 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -18,6 +18,7 @@ package org.springframework.expression.spel.ast;
 
 import java.lang.reflect.InvocationTargetException;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -50,6 +51,12 @@ import org.springframework.util.ReflectionUtils;
  */
 public class PropertyOrFieldReference extends SpelNodeImpl {
 
+	// Maximum number of target types kept in the inline cache of read accessors
+	private static final int INLINE_CACHE_SIZE = 4;
+
+	private static final InlineCacheEntry[] EMPTY_INLINE_CACHE = new InlineCacheEntry[0];
+
+
 	private final boolean nullSafe;
 
 	private final String name;
@@ -63,6 +70,9 @@ public class PropertyOrFieldReference extends SpelNodeImpl {
 	@Nullable
 	private volatile PropertyAccessor cachedWriteAccessor;
 
+	// Read accessors resolved through a ReflectivePropertyAccessor, guarded by target type
+	private volatile InlineCacheEntry[] inlineReadCache = EMPTY_INLINE_CACHE;
+
 
 	public PropertyOrFieldReference(boolean nullSafe, String propertyOrFieldName, int pos) {
 		super(pos);
@@ -174,6 +184,26 @@ public class PropertyOrFieldReference extends SpelNodeImpl {
 			return TypedValue.NULL;
 		}
 
+		if (targetObject != null) {
+			PropertyAccessor inlineCachedAccessor = getInlineCachedReadAccessor(targetObject, evalContext);
+			if (inlineCachedAccessor != null) {
+				try {
+					TypedValue result = inlineCachedAccessor.read(evalContext, targetObject, name);
+					if (this.cachedReadAccessor != inlineCachedAccessor) {
+						this.cachedReadAccessor = inlineCachedAccessor;
+					}
+					return result;
+				}
+				catch (Exception ex) {
+					if (!(ex instanceof AccessException) || ex.getCause() instanceof InvocationTargetException) {
+						// The accessor applies but the property itself failed: no point in retrying
+						throw new SpelEvaluationException(ex, SpelMessage.EXCEPTION_DURING_PROPERTY_READ, name, ex.getMessage());
+					}
+					// Let the full resolution below find out whether the accessor is still suitable
+				}
+			}
+		}
+
 		PropertyAccessor accessorToUse = this.cachedReadAccessor;
 		if (accessorToUse != null) {
 			if (evalContext.getPropertyAccessors().contains(accessorToUse)) {
@@ -197,8 +227,12 @@ public class PropertyOrFieldReference extends SpelNodeImpl {
 			for (PropertyAccessor accessor : accessorsToTry) {
 				if (accessor.canRead(evalContext, contextObject.getValue(), name)) {
 					if (accessor instanceof ReflectivePropertyAccessor) {
+						PropertyAccessor resolver = accessor;
 						accessor = ((ReflectivePropertyAccessor) accessor).createOptimalAccessor(
 								evalContext, contextObject.getValue(), name);
+						if (accessor != resolver && resolver == accessorsToTry.get(0)) {
+							addInlineCacheEntry(targetObject, resolver, accessor);
+						}
 					}
 					this.cachedReadAccessor = accessor;
 					return accessor.read(evalContext, contextObject.getValue(), name);
@@ -218,6 +252,55 @@ public class PropertyOrFieldReference extends SpelNodeImpl {
 		}
 	}
 
+	/**
+	 * Return the inline cached read accessor for the type of the given target, provided
+	 * that the accessor it was resolved through would still be asked first in the given
+	 * context. Reflective accessors of the same class resolve the same members for a
+	 * given type, so a match on the accessor class suffices across evaluation contexts.
+	 */
+	@Nullable
+	private PropertyAccessor getInlineCachedReadAccessor(Object targetObject, EvaluationContext evalContext) {
+		InlineCacheEntry[] entries = this.inlineReadCache;
+		if (entries.length == 0) {
+			return null;
+		}
+		boolean targetIsClass = (targetObject instanceof Class);
+		Class<?> type = (targetIsClass ? (Class<?>) targetObject : targetObject.getClass());
+		for (InlineCacheEntry entry : entries) {
+			if (entry.type == type && entry.targetIsClass == targetIsClass) {
+				PropertyAccessor resolver =
+						getFirstPropertyAccessorToTry(targetObject.getClass(), evalContext.getPropertyAccessors());
+				return (resolver != null && (resolver == entry.resolver || resolver.getClass() == entry.resolver.getClass()) ?
+						entry.accessor : null);
+			}
+		}
+		return null;
+	}
+
+	private void addInlineCacheEntry(Object targetObject, PropertyAccessor resolver, PropertyAccessor accessor) {
+		boolean targetIsClass = (targetObject instanceof Class);
+		Class<?> type = (targetIsClass ? (Class<?>) targetObject : targetObject.getClass());
+		InlineCacheEntry[] entries = this.inlineReadCache;
+		InlineCacheEntry[] newEntries = null;
+		for (int i = 0; i < entries.length; i++) {
+			if (entries[i].type == type && entries[i].targetIsClass == targetIsClass) {
+				// Replace a stale entry for the same type
+				newEntries = entries.clone();
+				newEntries[i] = new InlineCacheEntry(type, targetIsClass, resolver, accessor);
+				break;
+			}
+		}
+		if (newEntries == null) {
+			if (entries.length >= INLINE_CACHE_SIZE) {
+				// Megamorphic: keep the types seen first
+				return;
+			}
+			newEntries = Arrays.copyOf(entries, entries.length + 1);
+			newEntries[entries.length] = new InlineCacheEntry(type, targetIsClass, resolver, accessor);
+		}
+		this.inlineReadCache = newEntries;
+	}
+
 	private void writeProperty(
 			TypedValue contextObject, EvaluationContext evalContext, String name, @Nullable Object newValue)
 			throws EvaluationException {
@@ -328,6 +411,36 @@ public class PropertyOrFieldReference extends SpelNodeImpl {
 		resolvers.addAll(generalAccessors);
 		return resolvers;
 	}
+
+	/**
+	 * Determine the first entry of {@link #getPropertyAccessorsToTry} for the given
+	 * target type without building the full list of accessors.
+	 */
+	@Nullable
+	private static PropertyAccessor getFirstPropertyAccessorToTry(
+			Class<?> targetType, List<PropertyAccessor> propertyAccessors) {
+
+		PropertyAccessor firstGeneralAccessor = null;
+		for (PropertyAccessor resolver : propertyAccessors) {
+			Class<?>[] targets = resolver.getSpecificTargetClasses();
+			if (targets == null) {
+				if (firstGeneralAccessor == null) {
+					firstGeneralAccessor = resolver;
+				}
+			}
+			else {
+				for (Class<?> clazz : targets) {
+					if (clazz == targetType) {
+						return resolver;
+					}
+					else if (firstGeneralAccessor == null && clazz.isAssignableFrom(targetType)) {
+						firstGeneralAccessor = resolver;
+					}
+				}
+			}
+		}
+		return firstGeneralAccessor;
+	}
 	
 	@Override
 	public boolean isCompilable() {
@@ -382,6 +495,25 @@ public class PropertyOrFieldReference extends SpelNodeImpl {
 	}
 
 
+	private static final class InlineCacheEntry {
+
+		final Class<?> type;
+
+		final boolean targetIsClass;
+
+		final PropertyAccessor resolver;
+
+		final PropertyAccessor accessor;
+
+		InlineCacheEntry(Class<?> type, boolean targetIsClass, PropertyAccessor resolver, PropertyAccessor accessor) {
+			this.type = type;
+			this.targetIsClass = targetIsClass;
+			this.resolver = resolver;
+			this.accessor = accessor;
+		}
+	}
+
+
 	private static class AccessorLValue implements ValueRef {
 
 		private final PropertyOrFieldReference ref;
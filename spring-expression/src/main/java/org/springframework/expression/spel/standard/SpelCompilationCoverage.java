@@ -0,0 +1,136 @@
+/*
+ * Copyright 2002-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.expression.spel.standard;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.springframework.expression.spel.SpelNode;
+import org.springframework.expression.spel.ast.SpelNodeImpl;
+
+/**
+ * Report on the compilability of the nodes of a {@link SpelExpression},
+ * as obtained from {@link SpelExpression#getCompilationCoverage()}.
+ *
+ * <p>Since most nodes only become compilable once their types have been
+ * determined during interpretation, a report is most meaningful after the
+ * expression has been evaluated at least once.
+ *
+ * @since 5.0.18
+ */
+public final class SpelCompilationCoverage {
+
+	private final String expressionString;
+
+	private final boolean compiled;
+
+	private final boolean compilable;
+
+	private int nodeCount;
+
+	private int compilableNodeCount;
+
+	private final List<SpelNode> nonCompilableNodes = new ArrayList<>();
+
+
+	SpelCompilationCoverage(String expressionString, SpelNodeImpl ast, boolean compiled) {
+		this.expressionString = expressionString;
+		this.compiled = compiled;
+		this.compilable = inspect(ast);
+	}
+
+
+	/**
+	 * Return the original expression string.
+	 */
+	public String getExpressionString() {
+		return this.expressionString;
+	}
+
+	/**
+	 * Return whether the expression is currently running in compiled form.
+	 */
+	public boolean isCompiled() {
+		return this.compiled;
+	}
+
+	/**
+	 * Return the total number of nodes in the expression's AST.
+	 */
+	public int getNodeCount() {
+		return this.nodeCount;
+	}
+
+	/**
+	 * Return the number of nodes that are currently compilable.
+	 */
+	public int getCompilableNodeCount() {
+		return this.compilableNodeCount;
+	}
+
+	/**
+	 * Return whether the expression as a whole is currently compilable.
+	 */
+	public boolean isCompilable() {
+		return this.compilable;
+	}
+
+	/**
+	 * Return the nodes that prevent compilation: nodes that are not compilable
+	 * themselves even though all of their children are. Parent nodes that are
+	 * only non-compilable because of such a child are not included, and neither
+	 * are nodes whose parent compiles them in a different way (e.g. map keys).
+	 */
+	public List<SpelNode> getNonCompilableNodes() {
+		return Collections.unmodifiableList(this.nonCompilableNodes);
+	}
+
+
+	private boolean inspect(SpelNode node) {
+		int nonCompilableCount = this.nonCompilableNodes.size();
+		boolean childrenCompilable = true;
+		for (int i = 0; i < node.getChildCount(); i++) {
+			childrenCompilable &= inspect(node.getChild(i));
+		}
+		boolean compilable = (node instanceof SpelNodeImpl && ((SpelNodeImpl) node).isCompilable());
+		this.nodeCount++;
+		if (compilable) {
+			this.compilableNodeCount++;
+			// Children not compilable on their own are handled by this node itself
+			this.nonCompilableNodes.subList(nonCompilableCount, this.nonCompilableNodes.size()).clear();
+		}
+		else if (childrenCompilable) {
+			this.nonCompilableNodes.add(node);
+		}
+		return compilable;
+	}
+
+	@Override
+	public String toString() {
+		StringBuilder sb = new StringBuilder("Expression [").append(this.expressionString).append("]: ");
+		sb.append(this.compilableNodeCount).append(" of ").append(this.nodeCount).append(" nodes compilable");
+		sb.append(this.compiled ? ", compiled" : ", interpreted");
+		for (SpelNode node : this.nonCompilableNodes) {
+			sb.append("\n  ").append(node.getClass().getSimpleName());
+			sb.append(" at position ").append(node.getStartPosition());
+			sb.append(": ").append(node.toStringAST());
+		}
+		return sb.toString();
+	}
+
+}
@@ -77,6 +77,10 @@ public class SpelExpression implements Expression {
 	// give up trying to compile it when it just doesn't seem to be possible.
 	private final AtomicInteger failedAttempts = new AtomicInteger(0);
 
+	// The cache holding this expression, if any, for recording evaluation statistics
+	@Nullable
+	private SpelExpressionCache expressionCache;
+
 
 	/**
 	 * Construct an expression, only used by the parser.
@@ -96,6 +100,14 @@ public class SpelExpression implements Expression {
 		this.evaluationContext = evaluationContext;
 	}
 
+	/**
+	 * Register the cache that shares this expression, before the expression
+	 * is published through it.
+	 */
+	void setExpressionCache(SpelExpressionCache expressionCache) {
+		this.expressionCache = expressionCache;
+	}
+
 	/**
 	 * Return the default evaluation context that will be used if none is supplied on an evaluation call.
 	 * @return the default evaluation context
@@ -484,6 +496,9 @@ public class SpelExpression implements Expression {
 	 */
 	private void checkCompile(ExpressionState expressionState) {
 		this.interpretedCount.incrementAndGet();
+		if (this.expressionCache != null) {
+			this.expressionCache.recordInterpretedEvaluation();
+		}
 		SpelCompilerMode compilerMode = expressionState.getConfiguration().getCompilerMode();
 		if (compilerMode != SpelCompilerMode.OFF) {
 			if (compilerMode == SpelCompilerMode.IMMEDIATE) {
@@ -526,12 +541,18 @@ public class SpelExpression implements Expression {
 			compiledAst = compiler.compile(this.ast);
 			if (compiledAst != null) {
 				// Successfully compiled
+				if (this.expressionCache != null) {
+					compiledAst = this.expressionCache.recordCompiledEvaluations(compiledAst);
+				}
 				this.compiledAst = compiledAst;
 				return true;
 			}
 			else {
 				// Failed to compile
 				this.failedAttempts.incrementAndGet();
+				if (this.expressionCache != null) {
+					this.expressionCache.recordFailedCompilation();
+				}
 				return false;
 			}
 		}
@@ -548,6 +569,18 @@ public class SpelExpression implements Expression {
 		this.failedAttempts.set(0);
 	}
 
+	/**
+	 * Return a report on which nodes of this expression can currently be compiled,
+	 * identifying the nodes that cause it to fall back to interpretation.
+	 * <p>Compilability depends on type information gathered while interpreting,
+	 * so this is most meaningful after the expression has been evaluated.
+	 * @since 5.0.18
+	 * @see #compileExpression()
+	 */
+	public SpelCompilationCoverage getCompilationCoverage() {
+		return new SpelCompilationCoverage(this.expression, this.ast, this.compiledAst != null);
+	}
+
 	/**
 	 * Return the Abstract Syntax Tree for the expression.
 	 */
@@ -0,0 +1,338 @@
+/*
+ * Copyright 2002-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.expression.spel.standard;
+
+import java.util.concurrent.atomic.LongAdder;
+
+import org.springframework.expression.EvaluationContext;
+import org.springframework.expression.EvaluationException;
+import org.springframework.expression.Expression;
+import org.springframework.expression.ExpressionParser;
+import org.springframework.expression.ParseException;
+import org.springframework.expression.ParserContext;
+import org.springframework.expression.common.CompositeStringExpression;
+import org.springframework.expression.spel.CompiledExpression;
+import org.springframework.expression.spel.SpelParserConfiguration;
+import org.springframework.lang.Nullable;
+import org.springframework.util.Assert;
+import org.springframework.util.ConcurrentReferenceCache;
+import org.springframework.util.ObjectUtils;
+
+/**
+ * Bounded, thread-safe cache of parsed SpEL expressions, keyed by expression
+ * string, {@link ParserContext} settings and {@link SpelParserConfiguration}
+ * (or {@link ExpressionParser} instance).
+ *
+ * <p>Expressions obtained from the same cache are shared between all callers,
+ * including any compiled form of them: an expression that has been compiled
+ * on behalf of one caller runs compiled for all others as well. Shared
+ * expressions must therefore always be evaluated against an explicitly given
+ * {@link EvaluationContext} and must not be given a default one through
+ * {@link SpelExpression#setEvaluationContext}.
+ *
+ * <p>A cache is meant to be owned by a single expression consumer, e.g. a bean
+ * expression resolver, rather than shared across an application or JVM: the
+ * compiled form of an expression is specific to the evaluation contexts and
+ * root objects that it has seen, and the parser configuration may refer to
+ * an application-specific ClassLoader.
+ *
+ * <p>Next to the hit and miss counts of the cache itself, the cache can keep
+ * track of the number of interpreted and compiled evaluations of its SpEL
+ * expressions as well as the number of failed compilation attempts. Since
+ * this adds to the cost of every evaluation, it needs to be enabled explicitly.
+ *
+ * @since 5.0.18
+ */
+public class SpelExpressionCache {
+
+	/** Default maximum number of expressions held by a cache: 1024. */
+	public static final int DEFAULT_CACHE_LIMIT = 1024;
+
+
+	private final ConcurrentReferenceCache<ExpressionKey, Expression> expressionCache;
+
+	private final LongAdder interpretedCount = new LongAdder();
+
+	private final LongAdder compiledCount = new LongAdder();
+
+	private final LongAdder failedCompilationCount = new LongAdder();
+
+	private final boolean recordEvaluations;
+
+
+	/**
+	 * Create a new {@code SpelExpressionCache} holding at most the given number
+	 * of expressions, without recording evaluation statistics.
+	 * @param cacheLimit the maximum number of expressions to cache
+	 * (or {@link ConcurrentReferenceCache#UNBOUNDED})
+	 */
+	public SpelExpressionCache(int cacheLimit) {
+		this(cacheLimit, false);
+	}
+
+	/**
+	 * Create a new {@code SpelExpressionCache} holding at most the given number of expressions.
+	 * @param cacheLimit the maximum number of expressions to cache
+	 * (or {@link ConcurrentReferenceCache#UNBOUNDED})
+	 * @param recordEvaluations whether to record the number of interpreted and
+	 * compiled evaluations and failed compilations of the cached expressions
+	 */
+	public SpelExpressionCache(int cacheLimit, boolean recordEvaluations) {
+		this.expressionCache = new ConcurrentReferenceCache<>(cacheLimit);
+		this.recordEvaluations = recordEvaluations;
+	}
+
+
+	/**
+	 * Return the cached expression for the given non-template expression string,
+	 * parsing it with the given configuration if not cached yet.
+	 * @param expressionString the raw expression string
+	 * @param configuration the parser configuration to use
+	 * @return the (possibly shared) expression
+	 * @throws ParseException if the expression cannot be parsed
+	 */
+	public Expression getExpression(String expressionString, SpelParserConfiguration configuration)
+			throws ParseException {
+
+		return getExpression(expressionString, null, configuration);
+	}
+
+	/**
+	 * Return the cached expression for the given expression string and parser
+	 * context, parsing it with the given configuration if not cached yet.
+	 * @param expressionString the raw expression string
+	 * @param parserContext the parser context to use, if any
+	 * @param configuration the parser configuration to use
+	 * @return the (possibly shared) expression
+	 * @throws ParseException if the expression cannot be parsed
+	 */
+	public Expression getExpression(String expressionString, @Nullable ParserContext parserContext,
+			SpelParserConfiguration configuration) throws ParseException {
+
+		Assert.notNull(configuration, "SpelParserConfiguration must not be null");
+		return getExpression(expressionString, parserContext, configuration, null);
+	}
+
+	/**
+	 * Return the cached expression for the given expression string and parser
+	 * context, parsing it with the given parser if not cached yet. Expressions
+	 * are only shared between callers specifying the same parser instance.
+	 * @param expressionString the raw expression string
+	 * @param parserContext the parser context to use, if any
+	 * @param parser the parser to use
+	 * @return the (possibly shared) expression
+	 * @throws ParseException if the expression cannot be parsed
+	 */
+	public Expression getExpression(String expressionString, @Nullable ParserContext parserContext,
+			ExpressionParser parser) throws ParseException {
+
+		Assert.notNull(parser, "ExpressionParser must not be null");
+		return getExpression(expressionString, parserContext, parser, parser);
+	}
+
+	private Expression getExpression(String expressionString, @Nullable ParserContext parserContext,
+			Object parserKey, @Nullable ExpressionParser parser) {
+
+		Assert.notNull(expressionString, "Expression string must not be null");
+		ExpressionKey key = new ExpressionKey(expressionString, parserContext, parserKey);
+		Expression expression = this.expressionCache.get(key);
+		if (expression == null) {
+			ExpressionParser parserToUse = (parser != null ? parser :
+					new SpelExpressionParser((SpelParserConfiguration) parserKey));
+			expression = parserToUse.parseExpression(expressionString, parserContext);
+			if (this.recordEvaluations) {
+				register(expression);
+			}
+			Expression existing = this.expressionCache.putIfAbsent(key, expression);
+			if (existing != null) {
+				expression = existing;
+			}
+		}
+		return expression;
+	}
+
+	private void register(Expression expression) {
+		if (expression instanceof SpelExpression) {
+			((SpelExpression) expression).setExpressionCache(this);
+		}
+		else if (expression instanceof CompositeStringExpression) {
+			for (Expression part : ((CompositeStringExpression) expression).getExpressions()) {
+				register(part);
+			}
+		}
+	}
+
+	/**
+	 * Remove all expressions from this cache. Statistics are retained.
+	 */
+	public void clear() {
+		this.expressionCache.clear();
+	}
+
+	/**
+	 * Return the number of expressions currently cached.
+	 */
+	public int size() {
+		return this.expressionCache.size();
+	}
+
+	/**
+	 * Return the number of lookups that found a cached expression.
+	 */
+	public long getHitCount() {
+		return this.expressionCache.getHitCount();
+	}
+
+	/**
+	 * Return the number of lookups that required the expression to be parsed.
+	 */
+	public long getMissCount() {
+		return this.expressionCache.getMissCount();
+	}
+
+	/**
+	 * Return the number of expressions evicted from this cache due to its size limit.
+	 */
+	public long getEvictionCount() {
+		return this.expressionCache.getEvictionCount();
+	}
+
+	/**
+	 * Return the number of evaluations of cached expressions in interpreted form,
+	 * if {@linkplain #SpelExpressionCache(int, boolean) recorded}.
+	 */
+	public long getInterpretedEvaluationCount() {
+		return this.interpretedCount.sum();
+	}
+
+	/**
+	 * Return the number of evaluations of cached expressions in compiled form,
+	 * if {@linkplain #SpelExpressionCache(int, boolean) recorded}.
+	 */
+	public long getCompiledEvaluationCount() {
+		return this.compiledCount.sum();
+	}
+
+	/**
+	 * Return the number of failed attempts to compile cached expressions,
+	 * if {@linkplain #SpelExpressionCache(int, boolean) recorded}.
+	 */
+	public long getFailedCompilationCount() {
+		return this.failedCompilationCount.sum();
+	}
+
+	@Override
+	public String toString() {
+		return "SpelExpressionCache: size = " + size() + ", hits = " + getHitCount() +
+				", misses = " + getMissCount() + ", evictions = " + getEvictionCount() +
+				", interpreted evaluations = " + getInterpretedEvaluationCount() +
+				", compiled evaluations = " + getCompiledEvaluationCount() +
+				", failed compilations = " + getFailedCompilationCount();
+	}
+
+
+	void recordInterpretedEvaluation() {
+		this.interpretedCount.increment();
+	}
+
+	void recordFailedCompilation() {
+		this.failedCompilationCount.increment();
+	}
+
+	/**
+	 * Wrap the given compiled expression so that its evaluations are counted.
+	 */
+	CompiledExpression recordCompiledEvaluations(CompiledExpression compiledExpression) {
+		return new CountingCompiledExpression(compiledExpression, this.compiledCount);
+	}
+
+
+	/**
+	 * Cache key: parser contexts are compared by their settings since
+	 * implementations typically do not implement {@code equals} themselves,
+	 * parsers by identity and parser configurations by equality.
+	 */
+	private static final class ExpressionKey {
+
+		private final String expressionString;
+
+		private final boolean template;
+
+		@Nullable
+		private final String prefix;
+
+		@Nullable
+		private final String suffix;
+
+		private final Object parserKey;
+
+		ExpressionKey(String expressionString, @Nullable ParserContext parserContext, Object parserKey) {
+
+			this.expressionString = expressionString;
+			this.template = (parserContext != null && parserContext.isTemplate());
+			this.prefix = (this.template ? parserContext.getExpressionPrefix() : null);
+			this.suffix = (this.template ? parserContext.getExpressionSuffix() : null);
+			this.parserKey = parserKey;
+		}
+
+		@Override
+		public boolean equals(Object other) {
+			if (this == other) {
+				return true;
+			}
+			if (!(other instanceof ExpressionKey)) {
+				return false;
+			}
+			ExpressionKey otherKey = (ExpressionKey) other;
+			return (this.expressionString.equals(otherKey.expressionString) &&
+					this.template == otherKey.template &&
+					ObjectUtils.nullSafeEquals(this.prefix, otherKey.prefix) &&
+					ObjectUtils.nullSafeEquals(this.suffix, otherKey.suffix) &&
+					this.parserKey.equals(otherKey.parserKey));
+		}
+
+		@Override
+		public int hashCode() {
+			int result = this.expressionString.hashCode();
+			result = 29 * result + ObjectUtils.nullSafeHashCode(this.prefix);
+			result = 29 * result + this.parserKey.hashCode();
+			return result;
+		}
+	}
+
+
+	private static final class CountingCompiledExpression extends CompiledExpression {
+
+		private final CompiledExpression delegate;
+
+		private final LongAdder counter;
+
+		CountingCompiledExpression(CompiledExpression delegate, LongAdder counter) {
+			this.delegate = delegate;
+			this.counter = counter;
+		}
+
+		@Override
+		public Object getValue(@Nullable Object target, @Nullable EvaluationContext context)
+				throws EvaluationException {
+
+			this.counter.increment();
+			return this.delegate.getValue(target, context);
+		}
+	}
+
+}
@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2017 the original author or authors.
+ * Copyright 2002-2020 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -16,10 +16,17 @@
 
 package org.springframework.expression.spel.support;
 
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
 import java.lang.reflect.Array;
 import java.lang.reflect.Executable;
+import java.lang.reflect.Field;
+import java.lang.reflect.Member;
 import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
 import java.util.List;
+import java.util.Map;
 
 import org.springframework.core.MethodParameter;
 import org.springframework.core.convert.TypeDescriptor;
@@ -30,7 +37,9 @@ import org.springframework.lang.Nullable;
 import org.springframework.util.Assert;
 import org.springframework.util.ClassUtils;
 import org.springframework.util.CollectionUtils;
+import org.springframework.util.ConcurrentReferenceHashMap;
 import org.springframework.util.MethodInvoker;
+import org.springframework.util.ReflectionUtils;
 
 /**
  * Utility methods used by the reflection resolver code to discover the appropriate
@@ -42,6 +51,19 @@ import org.springframework.util.MethodInvoker;
  */
 public class ReflectionHelper {
 
+	private static final MethodType READ_HANDLE_TYPE = MethodType.methodType(Object.class, Object.class);
+
+	private static final MethodType INVOKE_HANDLE_TYPE =
+			MethodType.methodType(Object.class, Object.class, Object[].class);
+
+	// Marker for members that cannot be accessed through a MethodHandle
+	private static final Object NO_HANDLE = new Object();
+
+	private static final Map<Member, Object> readHandleCache = new ConcurrentReferenceHashMap<>(256);
+
+	private static final Map<Method, Object> invokeHandleCache = new ConcurrentReferenceHashMap<>(256);
+
+
 	/**
 	 * Compare argument arrays and return information about whether they match.
 	 * A supplied type converter and conversionAllowed flag allow for matches to take
@@ -372,6 +394,92 @@ public class ReflectionHelper {
 		return args;
 	}
 
+	/**
+	 * Return a {@link MethodHandle} of type {@code (Object)Object} reading the value
+	 * of the given getter method or field, ignoring the target for static members.
+	 * @param member the getter method or field
+	 * @return the shared handle, or {@code null} if the member cannot be accessed
+	 * through a handle (in which case regular reflection needs to be used)
+	 */
+	@Nullable
+	static MethodHandle getReadHandle(Member member) {
+		Object handle = readHandleCache.get(member);
+		if (handle == null) {
+			try {
+				MethodHandle mh;
+				if (member instanceof Method) {
+					ReflectionUtils.makeAccessible((Method) member);
+					mh = MethodHandles.lookup().unreflect((Method) member);
+				}
+				else {
+					ReflectionUtils.makeAccessible((Field) member);
+					mh = MethodHandles.lookup().unreflectGetter((Field) member);
+				}
+				if (Modifier.isStatic(member.getModifiers())) {
+					mh = MethodHandles.dropArguments(mh, 0, Object.class);
+				}
+				handle = mh.asType(READ_HANDLE_TYPE);
+			}
+			catch (Throwable ex) {
+				handle = NO_HANDLE;
+			}
+			readHandleCache.put(member, handle);
+		}
+		return (handle != NO_HANDLE ? (MethodHandle) handle : null);
+	}
+
+	/**
+	 * Return a {@link MethodHandle} of type {@code (Object, Object[])Object} invoking
+	 * the given method with a fixed-size argument array, ignoring the target for
+	 * static methods. Varargs need to be set up by the caller.
+	 * @param method the method to invoke
+	 * @return the shared handle, or {@code null} if the method cannot be invoked
+	 * through a handle (in which case regular reflection needs to be used)
+	 */
+	@Nullable
+	static MethodHandle getInvokeHandle(Method method) {
+		Object handle = invokeHandleCache.get(method);
+		if (handle == null) {
+			try {
+				ReflectionUtils.makeAccessible(method);
+				MethodHandle mh = MethodHandles.lookup().unreflect(method).asFixedArity();
+				if (Modifier.isStatic(method.getModifiers())) {
+					mh = MethodHandles.dropArguments(mh, 0, Object.class);
+				}
+				handle = mh.asSpreader(Object[].class, method.getParameterCount()).asType(INVOKE_HANDLE_TYPE);
+			}
+			catch (Throwable ex) {
+				handle = NO_HANDLE;
+			}
+			invokeHandleCache.put(method, handle);
+		}
+		return (handle != NO_HANDLE ? (MethodHandle) handle : null);
+	}
+
+	/**
+	 * Determine whether the given target and (already converted) arguments can be
+	 * passed to a handle for the given member without failing on type adaptation,
+	 * so that any exception thrown by the handle originates from the member itself.
+	 */
+	static boolean isInvocableWithHandle(Member member, Class<?>[] parameterTypes,
+			@Nullable Object target, Object... arguments) {
+
+		if (!Modifier.isStatic(member.getModifiers()) && !member.getDeclaringClass().isInstance(target)) {
+			return false;
+		}
+		if (parameterTypes.length != arguments.length) {
+			return false;
+		}
+		for (int i = 0; i < arguments.length; i++) {
+			Object argument = arguments[i];
+			if (argument != null ? !ClassUtils.isAssignableValue(parameterTypes[i], argument) :
+					parameterTypes[i].isPrimitive()) {
+				return false;
+			}
+		}
+		return true;
+	}
+
 
 	enum ArgumentsMatchKind {
 
@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2018 the original author or authors.
+ * Copyright 2002-2020 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -16,6 +16,8 @@
 
 package org.springframework.expression.spel.support;
 
+import java.lang.invoke.MethodHandle;
+import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
 import java.lang.reflect.Modifier;
 
@@ -39,6 +41,8 @@ public class ReflectiveMethodExecutor implements MethodExecutor {
 
 	private final Method method;
 
+	private final Class<?>[] parameterTypes;
+
 	@Nullable
 	private final Integer varargsPosition;
 
@@ -49,6 +53,9 @@ public class ReflectiveMethodExecutor implements MethodExecutor {
 
 	private boolean argumentConversionOccurred = false;
 
+	@Nullable
+	private TypeDescriptor returnTypeDescriptor;
+
 
 	/**
 	 * Create a new executor for the given method.
@@ -56,9 +63,9 @@ public class ReflectiveMethodExecutor implements MethodExecutor {
 	 */
 	public ReflectiveMethodExecutor(Method method) {
 		this.method = method;
+		this.parameterTypes = method.getParameterTypes();
 		if (method.isVarArgs()) {
-			Class<?>[] paramTypes = method.getParameterTypes();
-			this.varargsPosition = paramTypes.length - 1;
+			this.varargsPosition = this.parameterTypes.length - 1;
 		}
 		else {
 			this.varargsPosition = null;
@@ -79,7 +86,8 @@ public class ReflectiveMethodExecutor implements MethodExecutor {
 	 * called via reflection but cannot be called from generated code when compiling the expression
 	 * because of visibility restrictions. For example if a non-public class overrides toString(),
 	 * this helper method will walk up the type hierarchy to find the first public type that declares
-	 * the method (if there is one!). For toString() it may walk as far as Object.
+	 * the method (if there is one!). For toString() it may walk as far as Object. Public interfaces
+	 * are considered as well if no public class in the hierarchy declares the method.
 	 */
 	@Nullable
 	public Class<?> getPublicDeclaringClass() {
@@ -95,15 +103,28 @@ public class ReflectiveMethodExecutor implements MethodExecutor {
 	private Class<?> discoverPublicDeclaringClass(Method method, Class<?> clazz) {
 		if (Modifier.isPublic(clazz.getModifiers())) {
 			try {
-				clazz.getDeclaredMethod(method.getName(), method.getParameterTypes());
-				return clazz;
+				Method declaredMethod = clazz.getDeclaredMethod(method.getName(), method.getParameterTypes());
+				// Generated code uses the original method descriptor: no covariant return types
+				if (declaredMethod.getReturnType() == method.getReturnType()) {
+					return clazz;
+				}
 			}
 			catch (NoSuchMethodException ex) {
 				// Continue below...
 			}
 		}
 		if (clazz.getSuperclass() != null) {
-			return discoverPublicDeclaringClass(method, clazz.getSuperclass());
+			Class<?> publicDeclaringClass = discoverPublicDeclaringClass(method, clazz.getSuperclass());
+			if (publicDeclaringClass != null) {
+				return publicDeclaringClass;
+			}
+		}
+		// Fall back to a public interface declaring the method, e.g. for JDK collection wrappers
+		for (Class<?> ifc : clazz.getInterfaces()) {
+			Class<?> publicDeclaringClass = discoverPublicDeclaringClass(method, ifc);
+			if (publicDeclaringClass != null) {
+				return publicDeclaringClass;
+			}
 		}
 		return null;
 	}
@@ -119,12 +140,30 @@ public class ReflectiveMethodExecutor implements MethodExecutor {
 			this.argumentConversionOccurred = ReflectionHelper.convertArguments(
 					context.getTypeConverter(), arguments, this.method, this.varargsPosition);
 			if (this.method.isVarArgs()) {
-				arguments = ReflectionHelper.setupArgumentsForVarargsInvocation(
-						this.method.getParameterTypes(), arguments);
+				arguments = ReflectionHelper.setupArgumentsForVarargsInvocation(this.parameterTypes, arguments);
+			}
+			Object value;
+			MethodHandle handle = ReflectionHelper.getInvokeHandle(this.method);
+			if (handle != null && ReflectionHelper.isInvocableWithHandle(
+					this.method, this.parameterTypes, target, arguments)) {
+				try {
+					value = (Object) handle.invokeExact(target, arguments);
+				}
+				catch (Throwable ex) {
+					// Same as for reflective invocation: only thrown by the method itself
+					throw new InvocationTargetException(ex);
+				}
+			}
+			else {
+				ReflectionUtils.makeAccessible(this.method);
+				value = this.method.invoke(target, arguments);
+			}
+			TypeDescriptor returnTypeDescriptor = this.returnTypeDescriptor;
+			if (returnTypeDescriptor == null) {
+				returnTypeDescriptor = new TypeDescriptor(new MethodParameter(this.method, -1));
+				this.returnTypeDescriptor = returnTypeDescriptor;
 			}
-			ReflectionUtils.makeAccessible(this.method);
-			Object value = this.method.invoke(target, arguments);
-			return new TypedValue(value, new TypeDescriptor(new MethodParameter(this.method, -1)).narrow(value));
+			return new TypedValue(value, returnTypeDescriptor.narrow(value));
 		}
 		catch (Exception ex) {
 			throw new AccessException("Problem invoking method: " + this.method, ex);
@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2019 the original author or authors.
+ * Copyright 2002-2020 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -16,8 +16,10 @@
 
 package org.springframework.expression.spel.support;
 
+import java.lang.invoke.MethodHandle;
 import java.lang.reflect.Array;
 import java.lang.reflect.Field;
+import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Member;
 import java.lang.reflect.Method;
 import java.lang.reflect.Modifier;
@@ -631,8 +633,9 @@ public class ReflectivePropertyAccessor implements PropertyAccessor {
 
 
 	/**
-	 * An optimized form of a PropertyAccessor that will use reflection but only knows
-	 * how to access a particular property on a particular class. This is unlike the
+	 * An optimized form of a PropertyAccessor that will use a {@link MethodHandle}
+	 * (or reflection if no handle is available) but only knows how to access
+	 * a particular property on a particular class. This is unlike the
 	 * general ReflectivePropertyResolver which manages a cache of methods/fields that
 	 * may be invoked to access different properties on different classes. This optimal
 	 * accessor exists because looking up the appropriate reflective object by class/name
@@ -644,9 +647,13 @@ public class ReflectivePropertyAccessor implements PropertyAccessor {
 
 		private final TypeDescriptor typeDescriptor;
 
+		@Nullable
+		private final MethodHandle readHandle;
+
 		OptimalPropertyAccessor(InvokerPair target) {
 			this.member = target.member;
 			this.typeDescriptor = target.typeDescriptor;
+			this.readHandle = ReflectionHelper.getReadHandle(target.member);
 		}
 
 		@Override
@@ -682,11 +689,25 @@ public class ReflectivePropertyAccessor implements PropertyAccessor {
 
 		@Override
 		public TypedValue read(EvaluationContext context, @Nullable Object target, String name) throws AccessException {
+			MethodHandle readHandle = this.readHandle;
+			boolean useHandle = (readHandle != null &&
+					(Modifier.isStatic(this.member.getModifiers()) || this.member.getDeclaringClass().isInstance(target)));
 			if (this.member instanceof Method) {
 				Method method = (Method) this.member;
 				try {
-					ReflectionUtils.makeAccessible(method);
-					Object value = method.invoke(target);
+					Object value;
+					if (useHandle) {
+						try {
+							value = (Object) readHandle.invokeExact(target);
+						}
+						catch (Throwable ex) {
+							throw new InvocationTargetException(ex);
+						}
+					}
+					else {
+						ReflectionUtils.makeAccessible(method);
+						value = method.invoke(target);
+					}
 					return new TypedValue(value, this.typeDescriptor.narrow(value));
 				}
 				catch (Exception ex) {
@@ -696,8 +717,19 @@ public class ReflectivePropertyAccessor implements PropertyAccessor {
 			else {
 				Field field = (Field) this.member;
 				try {
-					ReflectionUtils.makeAccessible(field);
-					Object value = field.get(target);
+					Object value;
+					if (useHandle) {
+						try {
+							value = (Object) readHandle.invokeExact(target);
+						}
+						catch (Throwable ex) {
+							throw new InvocationTargetException(ex);
+						}
+					}
+					else {
+						ReflectionUtils.makeAccessible(field);
+						value = field.get(target);
+					}
 					return new TypedValue(value, this.typeDescriptor.narrow(value));
 				}
 				catch (Exception ex) {
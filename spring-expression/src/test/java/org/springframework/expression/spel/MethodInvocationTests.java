@@ -316,6 +316,19 @@ public class MethodInvocationTests extends AbstractExpressionTests {
 		assertSame(bytes, outBytes);
 	}
 
+	@Test
+	public void invokeMethodOnPolymorphicTargetsAndArguments() {
+		Expression expression = parser.parseExpression("indexOf(#arg)");
+		for (int i = 0; i < 3; i++) {
+			StandardEvaluationContext context = new StandardEvaluationContext();
+			context.setVariable("arg", "c");
+			assertEquals(2, expression.getValue(context, "abc"));
+			assertEquals(1, expression.getValue(context, new StringBuilder("xcx")));
+			context.setVariable("arg", (int) 'b');
+			assertEquals(1, expression.getValue(context, "abc"));
+		}
+	}
+
 
 	// Simple filter
 	static class LocalFilter implements MethodFilter {
@@ -17,6 +17,7 @@
 package org.springframework.expression.spel;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
 import java.util.Map;
@@ -32,6 +33,7 @@ import org.springframework.expression.PropertyAccessor;
 import org.springframework.expression.TypedValue;
 import org.springframework.expression.spel.standard.SpelExpression;
 import org.springframework.expression.spel.standard.SpelExpressionParser;
+import org.springframework.expression.spel.support.ReflectivePropertyAccessor;
 import org.springframework.expression.spel.support.SimpleEvaluationContext;
 import org.springframework.expression.spel.support.StandardEvaluationContext;
 import org.springframework.expression.spel.testresources.Person;
@@ -285,6 +287,45 @@ public class PropertyAccessTests extends AbstractExpressionTests {
 		assertSame(Object.class, context.getRootObject().getTypeDescriptor().getType());
 	}
 
+	@Test
+	public void propertyReadOnPolymorphicTargets() {
+		Expression expression = parser.parseExpression("name");
+		for (int i = 0; i < 3; i++) {
+			assertEquals("p1", expression.getValue(new StandardEvaluationContext(), new Person("p1")));
+			assertEquals("n1", expression.getValue(new StandardEvaluationContext(), new Named("n1")));
+			assertEquals("java.lang.String", expression.getValue(new StandardEvaluationContext(), (Object) String.class));
+		}
+	}
+
+	@Test
+	public void propertyReadOnPolymorphicTargetsHonorsAccessorOrder() {
+		Expression expression = parser.parseExpression("empty");
+		assertEquals(false, expression.getValue(new StandardEvaluationContext(), "abc"));
+
+		StandardEvaluationContext context = new StandardEvaluationContext();
+		context.setPropertyAccessors(Arrays.asList(
+				new ConfigurablePropertyAccessor(Collections.singletonMap("empty", "configured")),
+				new ReflectivePropertyAccessor()));
+		assertEquals("configured", expression.getValue(context, "abc"));
+		assertEquals(false, expression.getValue(new StandardEvaluationContext(), "abc"));
+	}
+
+	@Test
+	public void propertyReadFailureIsPropagatedOnce() {
+		Expression expression = parser.parseExpression("name");
+		Failing failing = new Failing();
+		for (int i = 1; i <= 3; i++) {
+			try {
+				expression.getValue(new StandardEvaluationContext(), failing);
+				fail("Should have thrown SpelEvaluationException");
+			}
+			catch (SpelEvaluationException ex) {
+				assertEquals(SpelMessage.EXCEPTION_DURING_PROPERTY_READ, ex.getMessageCode());
+			}
+			assertEquals(i, failing.count);
+		}
+	}
+
 
 	// This can resolve the property 'flibbles' on any String (very useful...)
 	private static class StringyPropertyAccessor implements PropertyAccessor {
@@ -336,6 +377,31 @@ public class PropertyAccessTests extends AbstractExpressionTests {
 	}
 
 
+	public static class Named {
+
+		private final String name;
+
+		public Named(String name) {
+			this.name = name;
+		}
+
+		public String getName() {
+			return this.name;
+		}
+	}
+
+
+	public static class Failing {
+
+		int count;
+
+		public String getName() {
+			this.count++;
+			throw new IllegalStateException("Cannot read name");
+		}
+	}
+
+
 	private static class ConfigurablePropertyAccessor implements PropertyAccessor {
 
 		private final Map<String, Object> values;
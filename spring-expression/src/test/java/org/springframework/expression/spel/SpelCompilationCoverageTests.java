@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2019 the original author or authors.
+ * Copyright 2002-2020 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -39,6 +39,7 @@ import org.springframework.expression.spel.ast.CompoundExpression;
 import org.springframework.expression.spel.ast.OpLT;
 import org.springframework.expression.spel.ast.SpelNodeImpl;
 import org.springframework.expression.spel.ast.Ternary;
+import org.springframework.expression.spel.standard.SpelCompilationCoverage;
 import org.springframework.expression.spel.standard.SpelCompiler;
 import org.springframework.expression.spel.standard.SpelExpression;
 import org.springframework.expression.spel.standard.SpelExpressionParser;
@@ -887,6 +888,92 @@ public class SpelCompilationCoverageTests extends AbstractExpressionTests {
 		assertCanCompile(expression);
 	}
 
+	@Test
+	public void elvisWithPrimitiveAndBoxedOperands() throws Exception {
+		expression = parser.parseExpression("#root?:0");
+		assertEquals(42, expression.getValue(42));
+		assertCanCompile(expression);
+		assertEquals(42, expression.getValue(42));
+		assertEquals("Ljava/lang/Integer", ((SpelNodeImpl) ((SpelExpression) expression).getAST()).getExitDescriptor());
+
+		expression = parser.parseExpression("(#root?:0) + 1");
+		assertEquals(43, expression.getValue(42));
+		assertCanCompile(expression);
+		assertEquals(43, expression.getValue(42));
+	}
+
+	@SuppressWarnings("rawtypes")
+	@Test
+	public void inlineMap() throws Exception {
+		expression = parser.parseExpression("{a:1,'b':'two',c:{1,2},d:{e:true},f:null}");
+		Map interpreted = (Map) expression.getValue();
+		assertCanCompile(expression);
+		Map compiled = (Map) expression.getValue();
+		assertEquals(interpreted, compiled);
+		assertEquals("{a=1, b=two, c=[1, 2], d={e=true}, f=null}", compiled.toString());
+		assertSame(compiled, expression.getValue());
+		try {
+			compiled.put("g", 1);
+			fail("Should have thrown UnsupportedOperationException");
+		}
+		catch (UnsupportedOperationException ex) {
+			// expected
+		}
+
+		expression = parser.parseExpression("{a:{1,{2,3}},b:{c:{4}}}");
+		interpreted = (Map) expression.getValue();
+		assertCanCompile(expression);
+		compiled = (Map) expression.getValue();
+		assertEquals(interpreted, compiled);
+		assertUnmodifiable((List) compiled.get("a"));
+		assertUnmodifiable((List) ((List) compiled.get("a")).get(1));
+		assertUnmodifiable((List) ((Map) compiled.get("b")).get("c"));
+
+		expression = parser.parseExpression("{a:'x',b:'y'}['b'].toUpperCase()");
+		assertEquals("Y", expression.getValue());
+		assertCanCompile(expression);
+		assertEquals("Y", expression.getValue());
+
+		expression = parser.parseExpression("{a:#root}");
+		assertEquals(Collections.singletonMap("a", 1), expression.getValue(1));
+		assertCantCompile(expression);
+	}
+
+	@Test
+	public void methodReferenceOnPublicInterface() throws Exception {
+		List<String> list = Collections.unmodifiableList(new ArrayList<>(Collections.singletonList("a")));
+		expression = parser.parseExpression("size()");
+		assertEquals(1, expression.getValue(list));
+		assertCanCompile(expression);
+		assertEquals(1, expression.getValue(list));
+
+		expression = parser.parseExpression("greeting()");
+		assertEquals("hello", expression.getValue(new DefaultGreeter()));
+		assertCanCompile(expression);
+		assertEquals("hello", expression.getValue(new DefaultGreeter()));
+	}
+
+	@Test
+	public void compilationCoverage() throws Exception {
+		SpelExpression expression = (SpelExpression) parser.parseExpression("{1,2,3}.![1].size() + 1");
+		expression.getValue();
+		SpelCompilationCoverage coverage = expression.getCompilationCoverage();
+		assertFalse(coverage.isCompilable());
+		assertFalse(coverage.isCompiled());
+		assertEquals(1, coverage.getNonCompilableNodes().size());
+		assertEquals("Projection", coverage.getNonCompilableNodes().get(0).getClass().getSimpleName());
+		assertTrue(coverage.getCompilableNodeCount() < coverage.getNodeCount());
+		assertTrue(coverage.toString(), coverage.toString().contains("Projection at position 8: ![1]"));
+
+		expression = (SpelExpression) parser.parseExpression("{a:'x'}['a'].length()");
+		expression.getValue();
+		coverage = expression.getCompilationCoverage();
+		assertTrue(coverage.isCompilable());
+		assertTrue(coverage.getNonCompilableNodes().isEmpty());
+		assertCanCompile(expression);
+		assertTrue(expression.getCompilationCoverage().isCompiled());
+	}
+
 	@Test
 	public void variableReference_root() throws Exception {
 		String s = "hello";
@@ -5173,6 +5260,17 @@ public class SpelCompilationCoverageTests extends AbstractExpressionTests {
 		return parser.parseExpression(expression);
 	}
 
+	@SuppressWarnings({"rawtypes", "unchecked"})
+	private void assertUnmodifiable(List list) {
+		try {
+			list.add(1);
+			fail("Should have thrown UnsupportedOperationException");
+		}
+		catch (UnsupportedOperationException ex) {
+			// expected
+		}
+	}
+
 	private void assertGetValueFail(Expression expression) {
 		try {
 			Object o = expression.getValue();
@@ -6181,6 +6279,18 @@ public class SpelCompilationCoverageTests extends AbstractExpressionTests {
 	}
 
 
+	public interface DefaultGreeting {
+
+		default String greeting() {
+			return "hello";
+		}
+	}
+
+
+	public static class DefaultGreeter implements DefaultGreeting {
+	}
+
+
 	public static class Foo {
 
 		public String bar() {
@@ -0,0 +1,120 @@
+/*
+ * Copyright 2002-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.expression.spel.standard;
+
+import org.junit.Test;
+
+import org.springframework.expression.EvaluationContext;
+import org.springframework.expression.Expression;
+import org.springframework.expression.common.TemplateParserContext;
+import org.springframework.expression.spel.SpelCompilerMode;
+import org.springframework.expression.spel.SpelParserConfiguration;
+import org.springframework.expression.spel.support.StandardEvaluationContext;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests for {@link SpelExpressionCache}.
+ *
+ * @since 5.0.18
+ */
+public class SpelExpressionCacheTests {
+
+	@Test
+	public void expressionsSharedPerStringAndConfiguration() {
+		SpelExpressionCache cache = new SpelExpressionCache(10);
+		Expression expression = cache.getExpression("1 + 2", new SpelParserConfiguration());
+		assertSame(expression, cache.getExpression("1 + 2", new SpelParserConfiguration()));
+		assertNotSame(expression, cache.getExpression("1 + 2", new SpelParserConfiguration(true, true)));
+		assertNotSame(expression, cache.getExpression("1 + 2", new TemplateParserContext(), new SpelParserConfiguration()));
+		assertEquals(3, cache.size());
+		assertEquals(1, cache.getHitCount());
+		assertEquals(3, cache.getMissCount());
+	}
+
+	@Test
+	public void templateExpressionsKeyedByPrefixAndSuffix() {
+		SpelExpressionCache cache = new SpelExpressionCache(10);
+		SpelParserConfiguration configuration = new SpelParserConfiguration();
+		Expression hashBraces = cache.getExpression("#{1}[2]", new TemplateParserContext(), configuration);
+		Expression squareBrackets = cache.getExpression("#{1}[2]", new TemplateParserContext("[", "]"), configuration);
+		assertSame(hashBraces, cache.getExpression("#{1}[2]", new TemplateParserContext(), configuration));
+		assertEquals("1[2]", hashBraces.getValue());
+		assertEquals("#{1}2", squareBrackets.getValue());
+	}
+
+	@Test
+	public void cacheIsBounded() {
+		SpelExpressionCache cache = new SpelExpressionCache(5);
+		for (int i = 0; i < 20; i++) {
+			cache.getExpression(String.valueOf(i), new SpelParserConfiguration());
+		}
+		assertEquals(5, cache.size());
+		assertEquals(15, cache.getEvictionCount());
+	}
+
+	@Test
+	public void expressionsSharedPerParserInstance() {
+		SpelExpressionCache cache = new SpelExpressionCache(10);
+		SpelExpressionParser parser = new SpelExpressionParser();
+		Expression expression = cache.getExpression("1 + 2", null, parser);
+		assertSame(expression, cache.getExpression("1 + 2", null, parser));
+		assertNotSame(expression, cache.getExpression("1 + 2", null, new SpelExpressionParser()));
+		assertNotSame(expression, cache.getExpression("1 + 2", new SpelParserConfiguration()));
+		assertEquals(3, cache.size());
+	}
+
+	@Test
+	public void evaluationStatisticsNotRecordedByDefault() {
+		SpelExpressionCache cache = new SpelExpressionCache(10);
+		SpelParserConfiguration configuration = new SpelParserConfiguration(SpelCompilerMode.IMMEDIATE, null);
+		Expression expression = cache.getExpression("'abc'.length()", configuration);
+		EvaluationContext context = new StandardEvaluationContext();
+		for (int i = 0; i < 5; i++) {
+			assertEquals(3, expression.getValue(context));
+		}
+		assertEquals(0, cache.getInterpretedEvaluationCount());
+		assertEquals(0, cache.getCompiledEvaluationCount());
+	}
+
+	@Test
+	public void evaluationStatistics() {
+		SpelExpressionCache cache = new SpelExpressionCache(10, true);
+		SpelParserConfiguration configuration = new SpelParserConfiguration(SpelCompilerMode.IMMEDIATE, null);
+		Expression expression = cache.getExpression("'abc'.length()", configuration);
+		EvaluationContext context = new StandardEvaluationContext();
+		for (int i = 0; i < 5; i++) {
+			assertEquals(3, expression.getValue(context));
+		}
+		assertEquals(2, cache.getInterpretedEvaluationCount());
+		assertEquals(3, cache.getCompiledEvaluationCount());
+		assertEquals(0, cache.getFailedCompilationCount());
+
+		// A compiled expression is shared with all users of the cache
+		Expression shared = cache.getExpression("'abc'.length()", configuration);
+		assertEquals(3, shared.getValue(context));
+		assertEquals(4, cache.getCompiledEvaluationCount());
+
+		Expression notCompilable = cache.getExpression("{1, 2}.![#this]", configuration);
+		notCompilable.getValue(context);
+		notCompilable.getValue(context);
+		assertEquals(4, cache.getInterpretedEvaluationCount());
+		assertEquals(1, cache.getFailedCompilationCount());
+		assertTrue(cache.toString().contains("failed compilations = 1"));
+	}
+
+}